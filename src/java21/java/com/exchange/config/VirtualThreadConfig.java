@@ -0,0 +1,31 @@
+package com.exchange.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Atende as requisições do Tomcat em threads virtuais, uma por requisição,
+ * em vez do pool fixo de threads de plataforma. Usa a mesma propriedade do
+ * Spring Boot 3.2, que passa a fazer isso sozinho quando o projeto subir de
+ * versão.
+ * <p>
+ * Sem o limite do pool, quem segura a fila na frente do engine é o
+ * {@link com.exchange.engine.AdmissionControl}: acima de
+ * {@code exchange.engine.admission.max-in-flight}, a API responde 503 na hora.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutor() {
+        log.info("Requisições HTTP atendidas em threads virtuais");
+        return handler -> handler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,86 @@
+package com.exchange.bench;
+
+import com.exchange.ledger.BalanceLedger;
+import com.exchange.model.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crédito seguido de débito: numa mesma {@link Account}, com e sem disputa
+ * entre threads, e em contas distintas de um {@link BalanceLedger} comum.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final Account account = new Account("shared");
+
+        @Setup
+        public void setup() {
+            account.credit("BRL", 1L << 60);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Owned {
+        final Account account = new Account("owned");
+
+        @Setup
+        public void setup() {
+            account.credit("BRL", 1L << 60);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+        final BalanceLedger ledger = new BalanceLedger();
+    }
+
+    @State(Scope.Thread)
+    public static class LedgerAccount {
+        Account account;
+
+        @Setup
+        public void setup(Ledger shared) {
+            account = new Account("thread-" + Thread.currentThread().getId(), shared.ledger);
+            account.credit("BRL", 1L << 60);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean creditDebitUncontended(Owned state) {
+        state.account.credit("BRL", 100);
+        return state.account.debit("BRL", 100);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean creditDebitContended(Shared state) {
+        state.account.credit("BRL", 100);
+        return state.account.debit("BRL", 100);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean creditDebitSharedLedger(LedgerAccount state) {
+        state.account.credit("BRL", 100);
+        return state.account.debit("BRL", 100);
+    }
+}
@@ -0,0 +1,28 @@
+package com.exchange.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do {@code benchmarks.jar}: aceita as opções normais do JMH
+ * e sempre liga o profiler de GC (alocação por operação) e grava o resultado
+ * em JSON, para comparação entre versões.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse("target/jmh-result.json"))
+                .build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.exchange.bench;
+
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancelamento de uma ordem aleatória num livro com {@code depth} ordens em
+ * repouso. Para manter a profundidade constante, cada cancelamento é seguido
+ * de uma nova ordem passiva no lugar.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CancelBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int depth;
+
+    private OrderBookService service;
+    private OrderFlowGenerator flow;
+    private String[] resting;
+
+    @Setup
+    public void setup() {
+        service = Engines.direct(depth);
+        flow = Engines.flow(service);
+        resting = new String[depth];
+        for (int i = 0; i < depth; i++) {
+            resting[i] = service.placeOrder(flow.passive(flow.nextSide()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public boolean cancelAndReplace() {
+        int index = flow.nextIndex(depth);
+        boolean cancelled = service.cancelOrder(resting[index]);
+        resting[index] = service.placeOrder(flow.passive(flow.nextSide()));
+        return cancelled;
+    }
+}
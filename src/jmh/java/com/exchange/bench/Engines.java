@@ -0,0 +1,34 @@
+package com.exchange.bench;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+
+/** Montagem comum dos benchmarks: serviço em modo direto com contas bem financiadas. */
+final class Engines {
+
+    static final long SEED = 20_240_601L;
+    static final long MID_TICKS = 5_000_000;
+    private static final long FUNDING = 1L << 60;
+
+    private Engines() {
+    }
+
+    static OrderBookService direct(int poolSize) {
+        EngineProperties properties = new EngineProperties();
+        properties.setOrderPoolSize(poolSize);
+        return new OrderBookService(properties);
+    }
+
+    static OrderFlowGenerator flow(OrderBookService service) {
+        InstrumentSpec spec = service.getInstrumentSpec(OrderBookService.DEFAULT_INSTRUMENT);
+        OrderFlowGenerator flow = new OrderFlowGenerator(SEED, spec, MID_TICKS, OrderFlowGenerator.Profile.DEFAULT);
+        for (String account : flow.getAccountIds()) {
+            service.registerAccount(account);
+            service.credit(account, "BRL", FUNDING);
+            service.credit(account, "BTC", FUNDING);
+        }
+        return flow;
+    }
+}
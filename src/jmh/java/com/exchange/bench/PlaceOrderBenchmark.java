@@ -0,0 +1,50 @@
+package com.exchange.bench;
+
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserção de ordens passivas, que nunca cruzam o livro. O livro cresce
+ * durante a iteração e é recriado na seguinte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlaceOrderBenchmark {
+
+    private OrderBookService service;
+    private OrderFlowGenerator flow;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        service = Engines.direct(1 << 20);
+        flow = Engines.flow(service);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public String placePassive() {
+        return service.placeOrder(flow.passive(flow.nextSide()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.exchange.bench;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+import com.exchange.sim.SimulationHarness;
+
+import java.nio.file.Path;
+
+/**
+ * Roda o {@link SimulationHarness} fora do JMH:
+ * <pre>
+ * java -cp target/benchmarks.jar com.exchange.bench.SimulationRunner journal &lt;diretório&gt; [modo]
+ * java -cp target/benchmarks.jar com.exchange.bench.SimulationRunner flow &lt;semente&gt; &lt;ações&gt; [taxa/s] [modo]
+ * </pre>
+ */
+public final class SimulationRunner {
+
+    private SimulationRunner() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: journal <diretório> [modo] | flow <semente> <ações> [taxa/s] [modo]");
+            System.exit(2);
+        }
+        boolean journal = args[0].equals("journal");
+        int modeArg = journal ? 2 : 4;
+        EngineProperties properties = new EngineProperties();
+        properties.setOrderPoolSize(1 << 20);
+        if (args.length > modeArg) properties.setMode(EngineMode.valueOf(args[modeArg].toUpperCase()));
+        long rate = !journal && args.length > 3 ? Long.parseLong(args[3]) : 0;
+        try (SimulationHarness harness = new SimulationHarness(properties, rate)) {
+            SimulationHarness.Report report;
+            if (journal) {
+                report = harness.replay(Path.of(args[1]));
+            } else {
+                InstrumentSpec spec = harness.getService().getInstrumentSpec(OrderBookService.DEFAULT_INSTRUMENT);
+                report = harness.run(new OrderFlowGenerator(Long.parseLong(args[1]), spec, Engines.MID_TICKS,
+                        OrderFlowGenerator.Profile.DEFAULT), Integer.parseInt(args[2]), 1L << 60);
+            }
+            System.out.println(report);
+        }
+    }
+}
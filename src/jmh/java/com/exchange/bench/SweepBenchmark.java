@@ -0,0 +1,60 @@
+package com.exchange.bench;
+
+import com.exchange.model.OrderType;
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordem agressiva que atravessa {@code levels} níveis de preço. Cada operação
+ * repõe os níveis com uma venda de um lote por preço e os varre com uma única
+ * compra, deixando o livro vazio de novo; compare com
+ * {@link PlaceOrderBenchmark} para separar o custo da reposição.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int levels;
+
+    private OrderBookService service;
+    private OrderFlowGenerator flow;
+
+    @Setup
+    public void setup() {
+        service = Engines.direct(1_024);
+        flow = Engines.flow(service);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public String sweepLevels() {
+        long mid = flow.getMidTicks();
+        for (int level = 1; level <= levels; level++) {
+            service.placeOrder(flow.at(OrderType.SELL, mid + level, 1));
+        }
+        return service.placeOrder(flow.aggressive(OrderType.BUY, levels, levels));
+    }
+}
@@ -2,10 +2,12 @@ package com.exchange;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class ExchangeApplication {
     public static void main(String[] args) {
         SpringApplication.run(ExchangeApplication.class, args);
     }
-}
\ No newline at end of file
+}
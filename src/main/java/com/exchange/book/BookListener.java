@@ -0,0 +1,17 @@
+package com.exchange.book;
+
+import com.exchange.model.OrderType;
+
+/**
+ * Recebe o novo estado agregado de um nível de preço sempre que ele muda
+ * (inserção, cancelamento ou execução), na thread que altera o livro.
+ */
+@FunctionalInterface
+public interface BookListener {
+
+    BookListener NONE = (side, priceTicks, totalLots, orders) -> {
+    };
+
+    /** {@code totalLots == 0} indica que o nível saiu do livro. */
+    void onLevelChanged(OrderType side, long priceTicks, long totalLots, int orders);
+}
@@ -0,0 +1,121 @@
+package com.exchange.book;
+
+import java.util.Arrays;
+
+/**
+ * Mapa {@code long} → objeto com endereçamento aberto (sondagem linear) e
+ * remoção por deslocamento para trás, sem lápides nem boxing. A chave 0 é
+ * reservada para slot vazio.
+ */
+public final class LongHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) return null;
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) return (V) values[i];
+            if (current == 0) return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) throw new IllegalArgumentException("Chave 0 é reservada.");
+        int i = index(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) return null;
+        int i = index(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) return null;
+            i = (i + 1) & mask;
+        }
+        V removed = (V) values[i];
+        size--;
+
+        // Puxa para trás as chaves do mesmo cluster que ficariam inalcançáveis.
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = index(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int j = index(key);
+                while (keys[j] != 0) j = (j + 1) & mask;
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.exchange.book;
+
+import java.util.Arrays;
+
+/**
+ * Mapa {@code long} → {@code int} com o mesmo endereçamento do
+ * {@link LongHashMap}, para o índice id → slot do livro: sem boxing, a
+ * entrada custa só a chave e o valor nos vetores. A chave 0 é reservada para
+ * slot vazio e {@link #MISSING} indica chave ausente.
+ */
+public final class LongIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    public int get(long key) {
+        if (key == 0) return MISSING;
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) return values[i];
+            if (current == 0) return MISSING;
+        }
+    }
+
+    public int put(long key, int value) {
+        if (key == 0) throw new IllegalArgumentException("Chave 0 é reservada.");
+        int i = index(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return MISSING;
+    }
+
+    public int remove(long key) {
+        if (key == 0) return MISSING;
+        int i = index(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) return MISSING;
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        size--;
+
+        // Puxa para trás as chaves do mesmo cluster que ficariam inalcançáveis.
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = index(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int j = index(key);
+                while (keys[j] != 0) j = (j + 1) & mask;
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
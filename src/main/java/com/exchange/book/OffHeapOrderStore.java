@@ -0,0 +1,197 @@
+package com.exchange.book;
+
+import com.exchange.model.ExecutionType;
+import com.exchange.model.OrderType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Armazenamento fora do heap, para livros muito profundos: cada ordem é um
+ * slot de {@value #SLOT_SIZE} bytes em blocos de memória direta, com a
+ * conta como índice numa tabela de contas do livro e os vizinhos da fila
+ * como números de slot. Milhões de ordens em repouso não viram milhões de
+ * objetos para o GC marcar; {@link OrderNode} e {@link com.exchange.model.Order}
+ * só são criados nas consultas.
+ * <p>
+ * A memória é reservada em blocos de {@value #SLAB_SLOTS} slots e nunca é
+ * devolvida enquanto o livro existir: slots livres formam uma lista
+ * encadeada pelo próprio campo {@code next} e são reutilizados antes de um
+ * bloco novo ser reservado.
+ */
+public final class OffHeapOrderStore implements OrderStore {
+
+    /** Bytes por ordem: id, preço, quantidade, anterior, próximo, conta, lado e tipo de execução, alinhados a 8. */
+    public static final int SLOT_SIZE = 40;
+    static final int SLAB_SLOTS = 1 << 16;
+
+    private static final int SLAB_BITS = Integer.numberOfTrailingZeros(SLAB_SLOTS);
+    private static final int SLAB_MASK = SLAB_SLOTS - 1;
+    private static final int MAX_SLABS = Integer.MAX_VALUE / SLAB_SLOTS;
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int QUANTITY = 16;
+    private static final int PREV = 24;
+    private static final int NEXT = 28;
+    private static final int ACCOUNT = 32;
+    private static final int TYPE = 36;
+    private static final int EXECUTION = 37;
+
+    private static final OrderType[] TYPES = OrderType.values();
+    private static final ExecutionType[] EXECUTION_TYPES = ExecutionType.values();
+
+    private ByteBuffer[] slabs = new ByteBuffer[0];
+    private int highWater;
+    private int freeHead = NONE;
+    private int used;
+    private final Map<String, Integer> accountIndex = new HashMap<>();
+    private String[] accounts = new String[16];
+    private int accountCount;
+
+    /** @param capacity slots reservados de início, arredondados para blocos inteiros */
+    public OffHeapOrderStore(int capacity) {
+        int slabs = Math.max(1, (Math.max(1, capacity) + SLAB_MASK) >>> SLAB_BITS);
+        for (int i = 0; i < slabs; i++) {
+            addSlab();
+        }
+    }
+
+    @Override
+    public int allocate(long id, String accountId, OrderType type, ExecutionType executionType, long priceTicks,
+                        long quantityLots) {
+        int slot;
+        if (freeHead != NONE) {
+            slot = freeHead;
+            freeHead = next(slot);
+        } else {
+            if (highWater == slabs.length * SLAB_SLOTS) addSlab();
+            slot = highWater++;
+        }
+        used++;
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        slab.putLong(base + ID, id);
+        slab.putLong(base + PRICE, priceTicks);
+        slab.putLong(base + QUANTITY, quantityLots);
+        slab.putInt(base + PREV, NONE);
+        slab.putInt(base + NEXT, NONE);
+        slab.putInt(base + ACCOUNT, account(accountId));
+        slab.put(base + TYPE, (byte) type.ordinal());
+        slab.put(base + EXECUTION, (byte) executionType.ordinal());
+        return slot;
+    }
+
+    @Override
+    public void free(int slot) {
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        slab.putLong(base + ID, 0);
+        slab.putInt(base + NEXT, freeHead);
+        freeHead = slot;
+        used--;
+    }
+
+    @Override
+    public long id(int slot) {
+        return slab(slot).getLong(offset(slot) + ID);
+    }
+
+    @Override
+    public String accountId(int slot) {
+        return accounts[slab(slot).getInt(offset(slot) + ACCOUNT)];
+    }
+
+    @Override
+    public OrderType type(int slot) {
+        return TYPES[slab(slot).get(offset(slot) + TYPE)];
+    }
+
+    @Override
+    public ExecutionType executionType(int slot) {
+        return EXECUTION_TYPES[slab(slot).get(offset(slot) + EXECUTION)];
+    }
+
+    @Override
+    public long priceTicks(int slot) {
+        return slab(slot).getLong(offset(slot) + PRICE);
+    }
+
+    @Override
+    public long quantityLots(int slot) {
+        return slab(slot).getLong(offset(slot) + QUANTITY);
+    }
+
+    @Override
+    public void quantityLots(int slot, long quantityLots) {
+        slab(slot).putLong(offset(slot) + QUANTITY, quantityLots);
+    }
+
+    @Override
+    public int prev(int slot) {
+        return slab(slot).getInt(offset(slot) + PREV);
+    }
+
+    @Override
+    public void prev(int slot, int prev) {
+        slab(slot).putInt(offset(slot) + PREV, prev);
+    }
+
+    @Override
+    public int next(int slot) {
+        return slab(slot).getInt(offset(slot) + NEXT);
+    }
+
+    @Override
+    public void next(int slot, int next) {
+        slab(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    /** Cópia do slot; cada chamada cria um nó novo. */
+    @Override
+    public OrderNode node(int slot) {
+        return new OrderNode(id(slot), accountId(slot), type(slot), executionType(slot), priceTicks(slot), quantityLots(slot));
+    }
+
+    @Override
+    public int available() {
+        return slabs.length * SLAB_SLOTS - used;
+    }
+
+    @Override
+    public long created() {
+        return (long) slabs.length * SLAB_SLOTS;
+    }
+
+    /** Bytes de memória direta reservados pelos blocos. */
+    public long reservedBytes() {
+        return created() * SLOT_SIZE;
+    }
+
+    private ByteBuffer slab(int slot) {
+        return slabs[slot >>> SLAB_BITS];
+    }
+
+    private static int offset(int slot) {
+        return (slot & SLAB_MASK) * SLOT_SIZE;
+    }
+
+    private void addSlab() {
+        if (slabs.length == MAX_SLABS) throw new IllegalStateException("Capacidade de slots esgotada.");
+        slabs = Arrays.copyOf(slabs, slabs.length + 1);
+        slabs[slabs.length - 1] = ByteBuffer.allocateDirect(SLAB_SLOTS * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /** Índice da conta na tabela do livro; contas não são removidas, como no ledger. */
+    private int account(String accountId) {
+        Integer index = accountIndex.get(accountId);
+        if (index != null) return index;
+        if (accountCount == accounts.length) accounts = Arrays.copyOf(accounts, accountCount << 1);
+        accounts[accountCount] = accountId;
+        accountIndex.put(accountId, accountCount);
+        return accountCount++;
+    }
+}
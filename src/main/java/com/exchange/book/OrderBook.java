@@ -0,0 +1,526 @@
+package com.exchange.book;
+
+import com.exchange.model.FixedPoint;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Livro de ordens de um instrumento organizado como escada de níveis de preço.
+ * <p>
+ * Cada lado é um {@link TreeMap} de {@link PriceLevel} (O(log P) para criar um
+ * preço novo) com o melhor nível em cache (O(1) para consulta), e o índice
+ * id → slot permite cancelar em O(1) sem varrer o lado.
+ * Dentro de um nível a prioridade é estritamente por ordem de chegada.
+ * <p>
+ * IDs são {@code long} crescentes gerados pelo próprio livro, com o índice do
+ * livro nos bits altos para que um cancelamento encontre o livro certo sem
+ * consulta extra. As ordens ficam em slots de um {@link OrderStore} (no heap
+ * ou fora dele, ver {@link OrderStorage}), níveis vêm de um pool e os índices
+ * são mapas primitivos, então colocar e cancelar ordens em níveis existentes
+ * não aloca memória.
+ * <p>
+ * As stops pendentes ficam à parte, no {@link StopBook} do livro, com IDs da
+ * mesma sequência.
+ */
+public class OrderBook {
+
+    static final int SEQUENCE_BITS = 40;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final InstrumentSpec spec;
+    private final int index;
+    private final OrderStore store;
+    private final Side bids;
+    private final Side asks;
+    private final LongIntHashMap orders;
+    private final StopBook stops = new StopBook();
+    private long lastSequence;
+    private long lastTradeTicks;
+    /** Faixa de preços executados desde {@link #takeTradeRange()}; {@code 0} sem execuções. */
+    private long lowTradeTicks;
+    private long highTradeTicks;
+    private OrderType aggressor;
+    private TradeListener tradeListener = TradeListener.NONE;
+    private BookListener bookListener = BookListener.NONE;
+
+    public OrderBook(InstrumentSpec spec) {
+        this(spec, 0, 1_024);
+    }
+
+    public OrderBook(InstrumentSpec spec, int index, int poolSize) {
+        this(spec, index, poolSize, OrderStorage.HEAP);
+    }
+
+    /** @param poolSize ordens pré-alocadas no armazenamento */
+    public OrderBook(InstrumentSpec spec, int index, int poolSize, OrderStorage storage) {
+        if (index < 0 || index >= 1 << (Long.SIZE - 1 - SEQUENCE_BITS)) {
+            throw new IllegalArgumentException("Índice de livro inválido: " + index);
+        }
+        this.spec = spec;
+        this.index = index;
+        this.store = storage.create(poolSize);
+        this.bids = new Side(store, true);
+        this.asks = new Side(store, false);
+        this.orders = new LongIntHashMap(poolSize);
+    }
+
+    public Instrument getInstrument() {
+        return spec.getInstrument();
+    }
+
+    public InstrumentSpec getSpec() {
+        return spec;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /** Armazenamento das ordens em repouso. */
+    public OrderStore getPool() {
+        return store;
+    }
+
+    /** Índice do livro que gerou {@code orderId}. */
+    public static int bookIndexOf(long orderId) {
+        return (int) (orderId >>> SEQUENCE_BITS);
+    }
+
+    /** Listener chamado a cada execução de {@link #match()}. */
+    public void setTradeListener(TradeListener tradeListener) {
+        this.tradeListener = tradeListener == null ? TradeListener.NONE : tradeListener;
+    }
+
+    /** Sequência do último ID gerado, sem o índice do livro. */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /** Garante que os próximos IDs venham depois de {@code sequence} (restauração de snapshot). */
+    public void advanceSequence(long sequence) {
+        if (sequence < 0 || sequence > SEQUENCE_MASK) throw new IllegalArgumentException("Sequência inválida: " + sequence);
+        lastSequence = Math.max(lastSequence, sequence);
+    }
+
+    /** Preço da última execução neste livro, ou {@code 0} se ainda não houve nenhuma. */
+    public long getLastTradeTicks() {
+        return lastTradeTicks;
+    }
+
+    /** Menor preço executado desde o último {@link #takeTradeRange()}, ou {@code 0}. */
+    public long getLowTradeTicks() {
+        return lowTradeTicks;
+    }
+
+    /** Maior preço executado desde o último {@link #takeTradeRange()}, ou {@code 0}. */
+    public long getHighTradeTicks() {
+        return highTradeTicks;
+    }
+
+    /**
+     * Zera a faixa de preços executados, para que ela passe a cobrir só as
+     * execuções seguintes. A faixa lida antes disso é a que alcança stops.
+     */
+    public void takeTradeRange() {
+        lowTradeTicks = 0;
+        highTradeTicks = 0;
+    }
+
+    /** Restaura o preço da última execução (restauração de snapshot). */
+    public void restoreLastTrade(long priceTicks) {
+        if (priceTicks < 0) throw new IllegalArgumentException("Preço inválido: " + priceTicks);
+        lastTradeTicks = priceTicks;
+    }
+
+    /** Stops pendentes deste livro. */
+    public StopBook getStops() {
+        return stops;
+    }
+
+    /** Listener de mudanças agregadas por nível (market data). */
+    public void setBookListener(BookListener bookListener) {
+        this.bookListener = bookListener == null ? BookListener.NONE : bookListener;
+    }
+
+    public long nextOrderId() {
+        if (lastSequence == SEQUENCE_MASK) throw new IllegalStateException("Sequência de IDs esgotada.");
+        return ((long) index << SEQUENCE_BITS) | ++lastSequence;
+    }
+
+    /**
+     * Copia a ordem para um slot do armazenamento e a coloca no fim da fila do seu preço.
+     * Se a ordem ainda não tem ID, um novo é gerado e atribuído a ela; um ID
+     * já atribuído (replay do journal) avança a sequência do livro.
+     */
+    public long add(Order order) {
+        if (!order.isBound()) {
+            throw new IllegalArgumentException("Ordem não convertida para a grade do instrumento.");
+        }
+        long id = assignId(order);
+        if (orders.containsKey(id)) throw new IllegalStateException("Ordem já está no livro: " + id);
+        if (aggressor == null && crosses(order.getType(), order.getPriceTicks())) aggressor = order.getType();
+        int slot = store.allocate(id, order.getAccountId(), order.getType(), order.getExecutionType(), order.getPriceTicks(),
+                order.getQuantityLots());
+        PriceLevel level = side(order.getType()).add(slot);
+        orders.put(id, slot);
+        levelChanged(order.getType(), level);
+        return id;
+    }
+
+    /**
+     * Gera e atribui um ID à ordem, se ela ainda não tem; um ID já atribuído
+     * (replay do journal) avança a sequência do livro.
+     */
+    public long assignId(Order order) {
+        long id = order.getNumericId();
+        if (id == 0) {
+            id = nextOrderId();
+            order.assignId(id);
+        } else {
+            if (bookIndexOf(id) != index) throw new IllegalArgumentException("ID não pertence a este livro: " + id);
+            lastSequence = Math.max(lastSequence, id & SEQUENCE_MASK);
+        }
+        return id;
+    }
+
+    public boolean remove(long orderId) {
+        int slot = orders.remove(orderId);
+        if (slot == LongIntHashMap.MISSING) return false;
+        OrderType type = store.type(slot);
+        PriceLevel level = side(type).remove(slot);
+        bookListener.onLevelChanged(type, level.getPrice(), level.getTotalLots(), level.size());
+        store.free(slot);
+        return true;
+    }
+
+    /**
+     * Reduz a quantidade de uma ordem em repouso sem tirá-la da fila, mantendo
+     * a prioridade de tempo.
+     *
+     * @return {@code false} se a ordem não está no livro
+     */
+    public boolean reduce(long orderId, long quantityLots) {
+        int slot = orders.get(orderId);
+        if (slot == LongIntHashMap.MISSING) return false;
+        long currentLots = store.quantityLots(slot);
+        if (quantityLots <= 0 || quantityLots >= currentLots) {
+            throw new IllegalArgumentException("Nova quantidade deve ser positiva e menor que a atual.");
+        }
+        OrderType type = store.type(slot);
+        PriceLevel level = side(type).level(store.priceTicks(slot));
+        level.reduce(currentLots - quantityLots);
+        store.quantityLots(slot, quantityLots);
+        levelChanged(type, level);
+        return true;
+    }
+
+    /**
+     * Nó da ordem em repouso, ou {@code null}; válido apenas até a próxima
+     * alteração do livro. Fora do heap cada chamada cria um nó: no caminho de
+     * execução e cancelamento use {@link #slotOf} e os campos de {@link #getPool()}.
+     */
+    public OrderNode get(long orderId) {
+        int slot = orders.get(orderId);
+        return slot == LongIntHashMap.MISSING ? null : store.node(slot);
+    }
+
+    /**
+     * Slot da ordem em repouso no {@link #getPool() armazenamento}, ou
+     * {@link OrderStore#NONE}; válido apenas até a próxima alteração do livro.
+     */
+    public int slotOf(long orderId) {
+        int slot = orders.get(orderId);
+        return slot == LongIntHashMap.MISSING ? OrderStore.NONE : slot;
+    }
+
+    public boolean contains(long orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    public OrderNode bestBid() {
+        return bids.best == null ? null : store.node(bids.best.head());
+    }
+
+    public OrderNode bestAsk() {
+        return asks.best == null ? null : store.node(asks.best.head());
+    }
+
+    public PriceLevel bestBidLevel() {
+        return bids.best;
+    }
+
+    public PriceLevel bestAskLevel() {
+        return asks.best;
+    }
+
+    /**
+     * Cruza o melhor bid com o melhor ask enquanto os preços se sobrepõem.
+     * Agressor é o lado da primeira ordem que, desde o último matching,
+     * cruzou o livro ao entrar; como em {@link #execute}, a execução sai ao
+     * preço da ordem em repouso do outro lado. Ordens zeradas deixam o livro.
+     */
+    public void match() {
+        OrderType taker = aggressor == null ? OrderType.BUY : aggressor;
+        aggressor = null;
+        while (true) {
+            PriceLevel buyLevel = bids.best;
+            PriceLevel sellLevel = asks.best;
+            if (buyLevel == null || sellLevel == null || buyLevel.getPrice() < sellLevel.getPrice()) {
+                return;
+            }
+
+            int buy = buyLevel.head();
+            int sell = sellLevel.head();
+            long buyId = store.id(buy);
+            long sellId = store.id(sell);
+            long buyLots = store.quantityLots(buy);
+            long sellLots = store.quantityLots(sell);
+            long priceTicks = taker == OrderType.BUY ? sellLevel.getPrice() : buyLevel.getPrice();
+            long tradedLots = Math.min(buyLots, sellLots);
+            tradeListener.onTrade(buyId, store.accountId(buy), sellId, store.accountId(sell), taker, priceTicks, tradedLots);
+            traded(priceTicks);
+
+            buyLevel.reduce(tradedLots);
+            sellLevel.reduce(tradedLots);
+            store.quantityLots(buy, buyLots - tradedLots);
+            store.quantityLots(sell, sellLots - tradedLots);
+
+            if (buyLots == tradedLots) {
+                remove(buyId);
+            } else {
+                levelChanged(OrderType.BUY, buyLevel);
+            }
+            if (sellLots == tradedLots) {
+                remove(sellId);
+            } else {
+                levelChanged(OrderType.SELL, sellLevel);
+            }
+        }
+    }
+
+    /**
+     * Executa uma ordem agressora contra o lado oposto sem inseri-la no livro:
+     * consome até {@code lots} lotes, do melhor preço até o limite
+     * ({@code 0} = sem limite), cada execução ao preço da ordem em repouso.
+     * O ID da agressora já deve ter sido gerado por {@link #assignId}.
+     *
+     * @return lotes executados
+     */
+    public long execute(long takerId, String takerAccountId, OrderType side, long limitTicks, long lots) {
+        Side makers = opposite(side);
+        long filled = 0;
+        while (filled < lots) {
+            PriceLevel level = makers.best;
+            if (level == null || !withinLimit(side, level.getPrice(), limitTicks)) break;
+            int maker = level.head();
+            long makerId = store.id(maker);
+            long makerLots = store.quantityLots(maker);
+            long priceTicks = level.getPrice();
+            long tradedLots = Math.min(lots - filled, makerLots);
+            if (side == OrderType.BUY) {
+                tradeListener.onTrade(takerId, takerAccountId, makerId, store.accountId(maker), side, priceTicks, tradedLots);
+            } else {
+                tradeListener.onTrade(makerId, store.accountId(maker), takerId, takerAccountId, side, priceTicks, tradedLots);
+            }
+            traded(priceTicks);
+            level.reduce(tradedLots);
+            store.quantityLots(maker, makerLots - tradedLots);
+            if (makerLots == tradedLots) {
+                remove(makerId);
+            } else {
+                levelChanged(side == OrderType.BUY ? OrderType.SELL : OrderType.BUY, level);
+            }
+            filled += tradedLots;
+        }
+        return filled;
+    }
+
+    /**
+     * Lotes, até {@code maxLots}, que uma ordem agressora executaria agora até
+     * o limite ({@code 0} = sem limite). Soma os níveis agregados do lado
+     * oposto sem alterar o livro.
+     */
+    public long fillable(OrderType side, long limitTicks, long maxLots) {
+        long lots = 0;
+        for (PriceLevel level : opposite(side).levels.values()) {
+            if (lots >= maxLots || !withinLimit(side, level.getPrice(), limitTicks)) break;
+            lots += Math.min(level.getTotalLots(), maxLots - lots);
+        }
+        return lots;
+    }
+
+    /**
+     * Soma de preço × lotes, em ticks·lotes, de uma execução agressora de
+     * {@code lots} lotes; {@code lots} não pode passar de {@link #fillable}.
+     */
+    public long notional(OrderType side, long limitTicks, long lots) {
+        long notional = 0;
+        for (PriceLevel level : opposite(side).levels.values()) {
+            if (lots == 0 || !withinLimit(side, level.getPrice(), limitTicks)) break;
+            long taken = Math.min(level.getTotalLots(), lots);
+            notional = FixedPoint.add(notional, FixedPoint.multiply(level.getPrice(), taken));
+            lots -= taken;
+        }
+        return notional;
+    }
+
+    /** Se uma ordem do lado {@code side} a {@code priceTicks} executaria na entrada. */
+    public boolean crosses(OrderType side, long priceTicks) {
+        PriceLevel best = opposite(side).best;
+        return best != null && withinLimit(side, best.getPrice(), priceTicks);
+    }
+
+    private Side opposite(OrderType side) {
+        return side == OrderType.BUY ? asks : bids;
+    }
+
+    private static boolean withinLimit(OrderType side, long priceTicks, long limitTicks) {
+        return limitTicks == 0 || (side == OrderType.BUY ? priceTicks <= limitTicks : priceTicks >= limitTicks);
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /** Ordens de compra em prioridade de execução (melhor preço, depois chegada). */
+    public List<Order> getBuyOrders() {
+        return bids.toList(spec);
+    }
+
+    /** Ordens de venda em prioridade de execução (melhor preço, depois chegada). */
+    public List<Order> getSellOrders() {
+        return asks.toList(spec);
+    }
+
+    /**
+     * IDs das ordens em repouso de uma conta, em prioridade de execução.
+     *
+     * @param type lado das ordens, ou {@code null} para os dois
+     */
+    public long[] orderIdsOf(String accountId, OrderType type) {
+        LongList ids = new LongList();
+        if (type != OrderType.SELL) bids.collect(accountId, ids);
+        if (type != OrderType.BUY) asks.collect(accountId, ids);
+        return ids.toArray();
+    }
+
+    /**
+     * Até {@code depth} níveis de um lado, do melhor preço para o pior. Os
+     * níveis são estruturas vivas do livro: leia-os na thread do livro.
+     */
+    public List<PriceLevel> getLevels(OrderType type, int depth) {
+        List<PriceLevel> result = new ArrayList<>(Math.min(depth, 64));
+        for (PriceLevel level : side(type).levels.values()) {
+            if (result.size() == depth) break;
+            result.add(level);
+        }
+        return result;
+    }
+
+    private void traded(long priceTicks) {
+        lastTradeTicks = priceTicks;
+        if (lowTradeTicks == 0 || priceTicks < lowTradeTicks) lowTradeTicks = priceTicks;
+        if (priceTicks > highTradeTicks) highTradeTicks = priceTicks;
+    }
+
+    private void levelChanged(OrderType type, PriceLevel level) {
+        bookListener.onLevelChanged(type, level.getPrice(), level.getTotalLots(), level.size());
+    }
+
+    private Side side(OrderType type) {
+        return type == OrderType.BUY ? bids : asks;
+    }
+
+    private static final class Side {
+
+        private final OrderStore store;
+        private final boolean descending;
+        private final TreeMap<Long, PriceLevel> levels;
+        private final LongHashMap<PriceLevel> levelsByPrice = new LongHashMap<>(64);
+        private final List<PriceLevel> freeLevels = new ArrayList<>();
+        private PriceLevel best;
+
+        Side(OrderStore store, boolean descending) {
+            this.store = store;
+            this.descending = descending;
+            this.levels = new TreeMap<>(descending ? Comparator.<Long>reverseOrder() : Comparator.<Long>naturalOrder());
+        }
+
+        PriceLevel add(int slot) {
+            long price = store.priceTicks(slot);
+            PriceLevel level = levelsByPrice.get(price);
+            if (level == null) {
+                level = freeLevels.isEmpty() ? new PriceLevel() : freeLevels.remove(freeLevels.size() - 1);
+                level.reset(price);
+                levels.put(price, level);
+                levelsByPrice.put(price, level);
+                if (best == null || (descending ? price > best.getPrice() : price < best.getPrice())) {
+                    best = level;
+                }
+            }
+            level.append(store, slot);
+            return level;
+        }
+
+        /** Tira o slot da fila do seu nível; o nível devolvido pode ter ficado vazio. */
+        PriceLevel remove(int slot) {
+            PriceLevel level = levelsByPrice.get(store.priceTicks(slot));
+            level.unlink(store, slot);
+            if (level.isEmpty()) {
+                levels.remove(level.getPrice());
+                levelsByPrice.remove(level.getPrice());
+                if (level == best) {
+                    Map.Entry<Long, PriceLevel> next = levels.higherEntry(level.getPrice());
+                    best = next == null ? null : next.getValue();
+                }
+                freeLevels.add(level);
+            }
+            return level;
+        }
+
+        PriceLevel level(long price) {
+            return levelsByPrice.get(price);
+        }
+
+        void collect(String accountId, LongList ids) {
+            for (PriceLevel level : levels.values()) {
+                for (int slot = level.head(); slot != OrderStore.NONE; slot = store.next(slot)) {
+                    if (store.accountId(slot).equals(accountId)) ids.add(store.id(slot));
+                }
+            }
+        }
+
+        List<Order> toList(InstrumentSpec spec) {
+            List<Order> result = new ArrayList<>();
+            for (PriceLevel level : levels.values()) {
+                for (int slot = level.head(); slot != OrderStore.NONE; slot = store.next(slot)) {
+                    result.add(store.toOrder(slot, spec));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.exchange.book;
+
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantém um {@link OrderBook} independente por {@link Instrument}.
+ * Os livros não compartilham estruturas entre si; o registro só é consultado
+ * para encontrar o livro de uma ordem, pelo instrumento ou pelo índice
+ * embutido no ID.
+ */
+public class OrderBookRegistry {
+
+    private final Map<Instrument, OrderBook> books = new ConcurrentHashMap<>();
+    private final int poolSize;
+    private final OrderStorage storage;
+    private volatile OrderBook[] byIndex = new OrderBook[0];
+
+    public OrderBookRegistry() {
+        this(1_024);
+    }
+
+    /** @param poolSize nós de ordem pré-alocados em cada livro */
+    public OrderBookRegistry(int poolSize) {
+        this(poolSize, OrderStorage.HEAP);
+    }
+
+    /**
+     * @param poolSize ordens pré-alocadas em cada livro
+     * @param storage  onde os livros guardam as ordens em repouso
+     */
+    public OrderBookRegistry(int poolSize, OrderStorage storage) {
+        this.poolSize = poolSize;
+        this.storage = storage;
+    }
+
+    public synchronized OrderBook register(InstrumentSpec spec) {
+        Objects.requireNonNull(spec, "Especificação do instrumento não pode ser nula.");
+        Instrument instrument = spec.getInstrument();
+        if (instrument.baseAsset() == null || instrument.baseAsset().isBlank()
+                || instrument.quoteAsset() == null || instrument.quoteAsset().isBlank()) {
+            throw new IllegalArgumentException("Ativos do instrumento são obrigatórios.");
+        }
+        if (instrument.baseAsset().equals(instrument.quoteAsset())) {
+            throw new IllegalArgumentException("Ativo base e cotado devem ser diferentes.");
+        }
+        OrderBook existing = books.get(instrument);
+        if (existing != null) return existing;
+
+        OrderBook book = new OrderBook(spec, byIndex.length, poolSize, storage);
+        OrderBook[] grown = Arrays.copyOf(byIndex, byIndex.length + 1);
+        grown[book.getIndex()] = book;
+        byIndex = grown;
+        books.put(instrument, book);
+        return book;
+    }
+
+    public OrderBook get(Instrument instrument) {
+        return instrument == null ? null : books.get(instrument);
+    }
+
+    public OrderBook require(Instrument instrument) {
+        OrderBook book = get(instrument);
+        if (book == null) throw new IllegalArgumentException("Instrumento não listado: " + instrument);
+        return book;
+    }
+
+    /** Livro pelo índice atribuído no registro, ou {@code null}. */
+    public OrderBook get(int index) {
+        OrderBook[] current = byIndex;
+        return index >= 0 && index < current.length ? current[index] : null;
+    }
+
+    /** Livro que gerou {@code orderId}, ou {@code null} se o ID não pertence a nenhum. */
+    public OrderBook forOrder(long orderId) {
+        OrderBook[] current = byIndex;
+        int index = OrderBook.bookIndexOf(orderId);
+        return orderId > 0 && index < current.length ? current[index] : null;
+    }
+
+    public Collection<OrderBook> all() {
+        return Arrays.asList(byIndex);
+    }
+}
@@ -0,0 +1,78 @@
+package com.exchange.book;
+
+import com.exchange.model.ExecutionType;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+/**
+ * Ordem em repouso no livro. No {@link OrderPool}, é o próprio registro do
+ * slot, encadeado na fila do seu nível pelos slots vizinhos, e é reciclado
+ * quando a ordem é executada por completo ou cancelada; no
+ * {@link OffHeapOrderStore}, é uma cópia feita na consulta. Em nenhum caso
+ * deve escapar do livro — para a API use {@link #toOrder(InstrumentSpec)}.
+ */
+public class OrderNode {
+
+    long id;
+    String accountId;
+    OrderType type;
+    ExecutionType executionType;
+    long priceTicks;
+    long quantityLots;
+    int prev = OrderStore.NONE;
+    int next = OrderStore.NONE;
+
+    OrderNode() {
+    }
+
+    OrderNode(long id, String accountId, OrderType type, ExecutionType executionType, long priceTicks, long quantityLots) {
+        this.id = id;
+        this.accountId = accountId;
+        this.type = type;
+        this.executionType = executionType;
+        this.priceTicks = priceTicks;
+        this.quantityLots = quantityLots;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    public ExecutionType getExecutionType() {
+        return executionType;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getQuantityLots() {
+        return quantityLots;
+    }
+
+    /** Cópia imutável para respostas da API. */
+    public Order toOrder(InstrumentSpec spec) {
+        return new Order(id, accountId, spec, type, priceTicks, quantityLots).withExecution(executionType, TimeInForce.GTC);
+    }
+
+    void clear() {
+        id = 0;
+        accountId = null;
+        type = null;
+        executionType = null;
+        priceTicks = 0;
+        quantityLots = 0;
+        prev = OrderStore.NONE;
+        next = OrderStore.NONE;
+    }
+}
@@ -0,0 +1,133 @@
+package com.exchange.book;
+
+import com.exchange.model.ExecutionType;
+import com.exchange.model.OrderType;
+
+import java.util.Arrays;
+
+/**
+ * Armazenamento no heap: um {@link OrderNode} pré-alocado por slot e uma
+ * pilha de slots livres. Em regime, colocar e retirar ordens do livro não
+ * gera lixo; se o pool esvaziar, novos nós são criados e passam a fazer
+ * parte dele quando devolvidos.
+ */
+public final class OrderPool implements OrderStore {
+
+    private OrderNode[] nodes;
+    private int[] free;
+    private int available;
+    private int created;
+
+    public OrderPool(int capacity) {
+        capacity = Math.max(1, capacity);
+        nodes = new OrderNode[capacity];
+        free = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            nodes[i] = new OrderNode();
+            free[i] = capacity - 1 - i;
+        }
+        available = capacity;
+        created = capacity;
+    }
+
+    @Override
+    public int allocate(long id, String accountId, OrderType type, ExecutionType executionType, long priceTicks,
+                        long quantityLots) {
+        int slot;
+        if (available == 0) {
+            if (created == nodes.length) {
+                nodes = Arrays.copyOf(nodes, created << 1);
+                free = Arrays.copyOf(free, created << 1);
+            }
+            slot = created++;
+            nodes[slot] = new OrderNode();
+        } else {
+            slot = free[--available];
+        }
+        OrderNode node = nodes[slot];
+        node.id = id;
+        node.accountId = accountId;
+        node.type = type;
+        node.executionType = executionType;
+        node.priceTicks = priceTicks;
+        node.quantityLots = quantityLots;
+        return slot;
+    }
+
+    @Override
+    public void free(int slot) {
+        nodes[slot].clear();
+        free[available++] = slot;
+    }
+
+    @Override
+    public long id(int slot) {
+        return nodes[slot].id;
+    }
+
+    @Override
+    public String accountId(int slot) {
+        return nodes[slot].accountId;
+    }
+
+    @Override
+    public OrderType type(int slot) {
+        return nodes[slot].type;
+    }
+
+    @Override
+    public ExecutionType executionType(int slot) {
+        return nodes[slot].executionType;
+    }
+
+    @Override
+    public long priceTicks(int slot) {
+        return nodes[slot].priceTicks;
+    }
+
+    @Override
+    public long quantityLots(int slot) {
+        return nodes[slot].quantityLots;
+    }
+
+    @Override
+    public void quantityLots(int slot, long quantityLots) {
+        nodes[slot].quantityLots = quantityLots;
+    }
+
+    @Override
+    public int prev(int slot) {
+        return nodes[slot].prev;
+    }
+
+    @Override
+    public void prev(int slot, int prev) {
+        nodes[slot].prev = prev;
+    }
+
+    @Override
+    public int next(int slot) {
+        return nodes[slot].next;
+    }
+
+    @Override
+    public void next(int slot, int next) {
+        nodes[slot].next = next;
+    }
+
+    /** O próprio nó do slot, sem cópia. */
+    @Override
+    public OrderNode node(int slot) {
+        return nodes[slot];
+    }
+
+    @Override
+    public int available() {
+        return available;
+    }
+
+    @Override
+    public long created() {
+        return created;
+    }
+}
@@ -0,0 +1,16 @@
+package com.exchange.book;
+
+/** Onde cada livro guarda as ordens em repouso. */
+public enum OrderStorage {
+
+    /** Um {@link OrderNode} pré-alocado por ordem ({@link OrderPool}). */
+    HEAP,
+
+    /** Slots de tamanho fixo em memória direta ({@link OffHeapOrderStore}), para livros muito profundos. */
+    OFF_HEAP;
+
+    /** @param capacity ordens pré-alocadas */
+    public OrderStore create(int capacity) {
+        return this == HEAP ? new OrderPool(capacity) : new OffHeapOrderStore(capacity);
+    }
+}
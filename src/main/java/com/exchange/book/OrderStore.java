@@ -0,0 +1,69 @@
+package com.exchange.book;
+
+import com.exchange.model.ExecutionType;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+/**
+ * Onde o livro guarda as ordens em repouso. Cada ordem ocupa um slot
+ * ({@code int}) e as filas dos níveis de preço são encadeadas pelos
+ * próprios slots ({@link #prev}/{@link #next}), então o livro não depende de
+ * como os campos ficam guardados: em objetos no heap ({@link OrderPool}) ou
+ * em memória fora do heap ({@link OffHeapOrderStore}).
+ * <p>
+ * Como o livro, só deve ser usado pela thread dele.
+ */
+public interface OrderStore {
+
+    /** Ausência de slot (fim de fila, ou ordem que não está no livro). */
+    int NONE = -1;
+
+    /**
+     * Ocupa um slot com a ordem, fora de qualquer fila.
+     *
+     * @param executionType {@code LIMIT} ou {@code POST_ONLY}, mantido para alterações da ordem
+     */
+    int allocate(long id, String accountId, OrderType type, ExecutionType executionType, long priceTicks, long quantityLots);
+
+    /** Devolve o slot; ele pode ser reutilizado pela próxima ordem. */
+    void free(int slot);
+
+    long id(int slot);
+
+    String accountId(int slot);
+
+    OrderType type(int slot);
+
+    ExecutionType executionType(int slot);
+
+    long priceTicks(int slot);
+
+    long quantityLots(int slot);
+
+    void quantityLots(int slot, long quantityLots);
+
+    int prev(int slot);
+
+    void prev(int slot, int prev);
+
+    int next(int slot);
+
+    void next(int slot, int next);
+
+    /** Nó da ordem, só para consultas (pode ser uma cópia); válido apenas até a próxima alteração do livro. */
+    OrderNode node(int slot);
+
+    /** Cópia imutável para respostas da API; ordens em repouso são sempre GTC. */
+    default Order toOrder(int slot, InstrumentSpec spec) {
+        return new Order(id(slot), accountId(slot), spec, type(slot), priceTicks(slot), quantityLots(slot))
+                .withExecution(executionType(slot), TimeInForce.GTC);
+    }
+
+    /** Slots livres entre os já criados. */
+    int available();
+
+    /** Total de slots já criados, incluindo os que precisaram ser alocados além da capacidade inicial. */
+    long created();
+}
@@ -0,0 +1,86 @@
+package com.exchange.book;
+
+/**
+ * Nível de preço do livro: fila FIFO intrusiva de ordens com o mesmo preço.
+ * A fila é encadeada pelos slots das ordens no {@link OrderStore}, então
+ * inserir no fim e remover de qualquer posição custam O(1).
+ */
+public class PriceLevel {
+
+    private long price;
+    private int head = OrderStore.NONE;
+    private int tail = OrderStore.NONE;
+    private int size;
+    private long totalLots;
+
+    PriceLevel() {
+    }
+
+    void reset(long price) {
+        this.price = price;
+        this.head = OrderStore.NONE;
+        this.tail = OrderStore.NONE;
+        this.size = 0;
+        this.totalLots = 0;
+    }
+
+    /** Preço do nível em ticks. */
+    public long getPrice() {
+        return price;
+    }
+
+    /** Slot da primeira ordem da fila, ou {@link OrderStore#NONE}. */
+    int head() {
+        return head;
+    }
+
+    /** Soma das quantidades em aberto do nível, em lotes. */
+    public long getTotalLots() {
+        return totalLots;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    void append(OrderStore store, int slot) {
+        store.prev(slot, tail);
+        store.next(slot, OrderStore.NONE);
+        if (tail == OrderStore.NONE) {
+            head = slot;
+        } else {
+            store.next(tail, slot);
+        }
+        tail = slot;
+        size++;
+        totalLots += store.quantityLots(slot);
+    }
+
+    /** Abate uma execução parcial de uma ordem do nível. */
+    void reduce(long lots) {
+        totalLots -= lots;
+    }
+
+    void unlink(OrderStore store, int slot) {
+        int prev = store.prev(slot);
+        int next = store.next(slot);
+        if (prev == OrderStore.NONE) {
+            head = next;
+        } else {
+            store.next(prev, next);
+        }
+        if (next == OrderStore.NONE) {
+            tail = prev;
+        } else {
+            store.prev(next, prev);
+        }
+        store.prev(slot, OrderStore.NONE);
+        store.next(slot, OrderStore.NONE);
+        size--;
+        totalLots -= store.quantityLots(slot);
+    }
+}
@@ -0,0 +1,147 @@
+package com.exchange.book;
+
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Stops pendentes de um livro, fora do livro visível. Cada lado é um índice
+ * ordenado pelo preço de disparo, com o próximo a disparar na frente: uma
+ * compra dispara quando alguma execução sai no gatilho ou acima, uma venda
+ * no gatilho ou abaixo. Assim {@link #takeTriggered} percorre só a faixa já
+ * alcançada, em O(k log n), sem olhar as demais stops; sem stops alcançadas,
+ * o custo é a leitura do primeiro elemento de cada lado.
+ * <p>
+ * Só a thread do livro acessa esta estrutura.
+ */
+public final class StopBook {
+
+    private static final Comparator<StopOrder> BY_ID = Comparator.comparingLong(StopOrder::getId);
+
+    private final TreeSet<StopOrder> buys = new TreeSet<>(
+            Comparator.comparingLong(StopOrder::getStopTicks).thenComparing(BY_ID));
+    private final TreeSet<StopOrder> sells = new TreeSet<>(
+            Comparator.comparingLong(StopOrder::getStopTicks).reversed().thenComparing(BY_ID));
+    private final LongHashMap<StopOrder> stops = new LongHashMap<>(64);
+
+    /**
+     * Se uma stop do lado {@code side} com gatilho {@code stopTicks} já foi
+     * alcançada pela última execução ({@code 0} = nenhuma execução ainda).
+     */
+    public static boolean crossed(OrderType side, long stopTicks, long lastTradeTicks) {
+        if (lastTradeTicks == 0) return false;
+        return side == OrderType.BUY ? lastTradeTicks >= stopTicks : lastTradeTicks <= stopTicks;
+    }
+
+    public void add(StopOrder stop) {
+        if (stops.containsKey(stop.getId())) throw new IllegalStateException("Stop já está pendente: " + stop.getId());
+        stops.put(stop.getId(), stop);
+        side(stop.getType()).add(stop);
+    }
+
+    /** @return a stop removida, ou {@code null} se não estava pendente */
+    public StopOrder remove(long id) {
+        StopOrder stop = stops.remove(id);
+        if (stop != null) side(stop.getType()).remove(stop);
+        return stop;
+    }
+
+    public StopOrder get(long id) {
+        return stops.get(id);
+    }
+
+    public boolean contains(long id) {
+        return stops.containsKey(id);
+    }
+
+    public int size() {
+        return stops.size();
+    }
+
+    public boolean isEmpty() {
+        return stops.size() == 0;
+    }
+
+    /**
+     * Remove e devolve as stops alcançadas por {@code lastTradeTicks}, dos
+     * dois lados, em ordem de chegada (ID), que é a ordem em que devem entrar
+     * no livro.
+     */
+    public List<StopOrder> takeTriggered(long lastTradeTicks) {
+        return takeTriggered(lastTradeTicks, lastTradeTicks);
+    }
+
+    /**
+     * Como {@link #takeTriggered(long)}, para um passo com várias execuções:
+     * compras são alcançadas pela maior, vendas pela menor, mesmo que o
+     * último preço tenha voltado para longe do gatilho.
+     *
+     * @param lowTicks  menor preço executado ({@code 0} = nenhuma execução)
+     * @param highTicks maior preço executado
+     */
+    public List<StopOrder> takeTriggered(long lowTicks, long highTicks) {
+        if (lowTicks == 0) return List.of();
+        List<StopOrder> triggered = null;
+        while (!buys.isEmpty() && buys.first().getStopTicks() <= highTicks) {
+            triggered = take(buys.pollFirst(), triggered);
+        }
+        while (!sells.isEmpty() && sells.first().getStopTicks() >= lowTicks) {
+            triggered = take(sells.pollFirst(), triggered);
+        }
+        if (triggered == null) return List.of();
+        triggered.sort(BY_ID);
+        return triggered;
+    }
+
+    private List<StopOrder> take(StopOrder stop, List<StopOrder> triggered) {
+        stops.remove(stop.getId());
+        if (triggered == null) triggered = new ArrayList<>();
+        triggered.add(stop);
+        return triggered;
+    }
+
+    /** Stops de compra, da próxima a disparar para a última. */
+    public List<StopOrder> getBuyStops() {
+        return List.copyOf(buys);
+    }
+
+    /** Stops de venda, da próxima a disparar para a última. */
+    public List<StopOrder> getSellStops() {
+        return List.copyOf(sells);
+    }
+
+    public List<Order> toOrders(OrderType type, InstrumentSpec spec) {
+        List<Order> result = new ArrayList<>();
+        for (StopOrder stop : side(type)) {
+            result.add(stop.toOrder(spec));
+        }
+        return result;
+    }
+
+    /**
+     * IDs das stops de uma conta, em ordem de disparo.
+     *
+     * @param type lado das stops, ou {@code null} para os dois
+     */
+    public long[] idsOf(String accountId, OrderType type) {
+        List<StopOrder> matches = new ArrayList<>();
+        if (type != OrderType.SELL) collect(buys, accountId, matches);
+        if (type != OrderType.BUY) collect(sells, accountId, matches);
+        return matches.stream().mapToLong(StopOrder::getId).toArray();
+    }
+
+    private static void collect(TreeSet<StopOrder> side, String accountId, List<StopOrder> matches) {
+        for (StopOrder stop : side) {
+            if (stop.getAccountId().equals(accountId)) matches.add(stop);
+        }
+    }
+
+    private TreeSet<StopOrder> side(OrderType type) {
+        return type == OrderType.BUY ? buys : sells;
+    }
+}
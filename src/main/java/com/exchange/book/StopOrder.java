@@ -0,0 +1,80 @@
+package com.exchange.book;
+
+import com.exchange.model.ExecutionType;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+/**
+ * Stop pendente, fora do livro visível. Ao disparar, entra no livro com o
+ * mesmo ID, como limitada a {@code limitTicks} ou, com {@code limitTicks}
+ * zero, a mercado.
+ */
+public final class StopOrder {
+
+    private final long id;
+    private final String accountId;
+    private final OrderType type;
+    private final long stopTicks;
+    private final long limitTicks;
+    private final long quantityLots;
+    private final TimeInForce timeInForce;
+
+    public StopOrder(long id, String accountId, OrderType type, long stopTicks, long limitTicks, long quantityLots,
+                     TimeInForce timeInForce) {
+        this.id = id;
+        this.accountId = accountId;
+        this.type = type;
+        this.stopTicks = stopTicks;
+        this.limitTicks = limitTicks;
+        this.quantityLots = quantityLots;
+        this.timeInForce = timeInForce;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    public long getStopTicks() {
+        return stopTicks;
+    }
+
+    /** Preço limite depois do disparo, ou 0 num stop a mercado. */
+    public long getLimitTicks() {
+        return limitTicks;
+    }
+
+    public long getQuantityLots() {
+        return quantityLots;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public boolean isMarket() {
+        return limitTicks == 0;
+    }
+
+    /** Ordem nova, ainda sem ID, que a stop envia ao livro quando dispara. */
+    public Order toTriggeredOrder(InstrumentSpec spec) {
+        return new Order(accountId, spec, type, limitTicks, quantityLots)
+                .withExecution(isMarket() ? ExecutionType.MARKET : ExecutionType.LIMIT, timeInForce);
+    }
+
+    /** Cópia para respostas da API, com o preço de disparo. */
+    public Order toOrder(InstrumentSpec spec) {
+        return new Order(id, accountId, spec, type, limitTicks, quantityLots)
+                .withExecution(isMarket() ? ExecutionType.MARKET : ExecutionType.LIMIT, timeInForce)
+                .withStopTicks(stopTicks);
+    }
+}
@@ -0,0 +1,18 @@
+package com.exchange.book;
+
+import com.exchange.model.OrderType;
+
+/**
+ * Recebe cada execução produzida pelo matching de um livro, antes de as
+ * quantidades das ordens serem abatidas. Preço em ticks e quantidade em lotes;
+ * {@code takerSide} é o lado da ordem agressora, informado pelo livro.
+ */
+@FunctionalInterface
+public interface TradeListener {
+
+    TradeListener NONE = (buyOrderId, buyAccountId, sellOrderId, sellAccountId, takerSide, priceTicks, quantityLots) -> {
+    };
+
+    void onTrade(long buyOrderId, String buyAccountId, long sellOrderId, String sellAccountId,
+                 OrderType takerSide, long priceTicks, long quantityLots);
+}
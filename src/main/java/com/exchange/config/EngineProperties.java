@@ -0,0 +1,89 @@
+package com.exchange.config;
+
+import com.exchange.book.OrderStorage;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.AssetScales;
+import com.exchange.model.InstrumentSpec;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.engine")
+public class EngineProperties {
+
+    private EngineMode mode = EngineMode.DIRECT;
+
+    /** Slots do ring buffer de cada sequenciador; deve ser potência de 2. */
+    private int ringSize = 16_384;
+
+    /** Threads que completam as respostas dos sequenciadores, fora das threads dos livros. */
+    private int responseThreads = 2;
+
+    /** Nós de ordem pré-alocados por livro. */
+    private int orderPoolSize = 16_384;
+
+    /** Onde os livros guardam as ordens em repouso: {@code heap} ou, para livros muito profundos, {@code off-heap}. */
+    private OrderStorage orderStorage = OrderStorage.HEAP;
+
+    /** Slots do ring de execuções; deve ser potência de 2. */
+    private int tradeRingSize = 65_536;
+
+    /** Shards do ledger de saldos; potência de 2, ou 0 para um por processador. */
+    private int ledgerShards = 0;
+
+    /** Níveis por lado mantidos na profundidade em cache de cada livro. */
+    private int depthLevels = 50;
+
+    /** Casas decimais da unidade mínima de ativos sem escala explícita. */
+    private int defaultAssetScale = AssetScales.DEFAULT_SCALE;
+
+    private Map<String, Integer> assetScales = new HashMap<>();
+
+    /** Instrumentos listados na inicialização; BTC/BRL é sempre listado. */
+    private List<InstrumentProperties> instruments = new ArrayList<>();
+
+    /** Limites pré-negociação; cada checagem fica desligada com o valor zero (ou vazio). */
+    private RiskProperties risk = new RiskProperties();
+
+    /** Comandos simultâneos admitidos pela API e pelo gateway; acima disso são recusados na hora. */
+    private AdmissionProperties admission = new AdmissionProperties();
+
+    @Getter
+    @Setter
+    public static class InstrumentProperties {
+        private String base;
+        private String quote;
+        private BigDecimal tickSize = InstrumentSpec.DEFAULT_TICK_SIZE;
+        private BigDecimal lotSize = InstrumentSpec.DEFAULT_LOT_SIZE;
+    }
+
+    @Getter
+    @Setter
+    public static class RiskProperties {
+        /** Valor máximo de uma ordem por ativo cotado, ex.: {@code BRL: 1000000}. */
+        private Map<String, BigDecimal> maxOrderNotional = new HashMap<>();
+        /** Ordens em aberto por conta, somando todos os livros. */
+        private int maxOpenOrders;
+        /** Distância máxima, em pontos-base, do último preço negociado ou do meio do topo do livro. */
+        private int priceBandBps;
+        /** Ordens por segundo por conta. */
+        private int maxOrdersPerSecond;
+    }
+
+    @Getter
+    @Setter
+    public static class AdmissionProperties {
+        /** Comandos enviados e ainda sem resposta, ou 0 sem limite. */
+        private int maxInFlight = 8_192;
+        /** Espera sugerida, no {@code Retry-After}, a quem for recusado. */
+        private int retryAfterSeconds = 1;
+    }
+}
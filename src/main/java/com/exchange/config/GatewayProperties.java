@@ -0,0 +1,21 @@
+package com.exchange.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.gateway")
+public class GatewayProperties {
+
+    private boolean enabled = false;
+
+    private String host = "0.0.0.0";
+
+    /** Porta TCP do gateway binário; 0 escolhe uma porta livre. */
+    private int port = 9001;
+
+    /** Buffers diretos de entrada e saída de cada sessão, em bytes. */
+    private int bufferSize = 64 * 1024;
+}
@@ -0,0 +1,30 @@
+package com.exchange.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.journal")
+public class JournalProperties {
+
+    private boolean enabled = false;
+
+    private String directory = "data/journal";
+
+    /** Tamanho de cada segmento mapeado em memória, em bytes. */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /** Força o fsync a cada N registros; 0 desativa o gatilho por contagem. */
+    private int fsyncEveryRecords = 0;
+
+    /** Intervalo do fsync em segundo plano; 0 deixa a descarga a cargo do sistema operacional. */
+    private long fsyncIntervalMs = 100;
+
+    /** Intervalo entre snapshots, gravados no mesmo diretório; 0 desativa. */
+    private long snapshotIntervalMs = 60_000;
+
+    /** Snapshots mantidos em disco; os mais antigos são apagados. */
+    private int snapshotsRetained = 2;
+}
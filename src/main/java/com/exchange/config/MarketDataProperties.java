@@ -0,0 +1,26 @@
+package com.exchange.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.market-data")
+public class MarketDataProperties {
+
+    /** Intervalo entre coletas das mudanças dos livros; define a granularidade da conflação. */
+    private long publishIntervalMs = 10;
+
+    /** Execuções guardadas por assinante entre dois envios; as excedentes são só contadas. */
+    private int maxTradesPerUpdate = 1_024;
+
+    /** Threads que escrevem nas conexões dos assinantes. */
+    private int senderThreads = 2;
+
+    /** Níveis por lado no snapshot inicial de um stream. */
+    private int snapshotDepth = 50;
+
+    /** Duração máxima de um stream SSE; 0 não expira. */
+    private long streamTimeoutMs = 0;
+}
@@ -0,0 +1,22 @@
+package com.exchange.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.persistence")
+public class PersistenceProperties {
+
+    private boolean enabled = false;
+
+    /** Registros acumulados antes de um flush para o banco. */
+    private int batchSize = 1_000;
+
+    /** Tempo máximo que um registro espera por um flush. */
+    private long flushIntervalMs = 50;
+
+    /** Slots da fila entre o engine e o gravador; deve ser potência de 2. */
+    private int queueSize = 65_536;
+}
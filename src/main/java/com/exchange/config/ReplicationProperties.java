@@ -0,0 +1,32 @@
+package com.exchange.config;
+
+import com.exchange.replication.ReplicationRole;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "exchange.replication")
+public class ReplicationProperties {
+
+    /** Primário e réplica exigem o journal habilitado. */
+    private ReplicationRole role = ReplicationRole.STANDALONE;
+
+    /** Endereço em que o primário aceita réplicas. */
+    private String host = "0.0.0.0";
+
+    /** Porta TCP do primário; 0 escolhe uma porta livre. */
+    private int port = 9101;
+
+    /** Primário ao qual a réplica se conecta. */
+    private String primaryHost = "127.0.0.1";
+
+    private int primaryPort = 9101;
+
+    /** Buffer de envio e recepção de cada conexão; deve caber o maior registro do journal. */
+    private int bufferSize = 256 * 1024;
+
+    /** Espera da réplica entre tentativas de conexão ao primário. */
+    private long reconnectIntervalMs = 1_000;
+}
@@ -0,0 +1,48 @@
+package com.exchange.controller;
+
+import com.exchange.dto.BalanceChangeDTO;
+import com.exchange.dto.OrderHistoryDTO;
+import com.exchange.dto.TradeHistoryDTO;
+import com.exchange.persistence.HistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/** Histórico lido do banco; reflete o engine com o atraso do último flush. */
+@RestController
+@RequestMapping("/api/history")
+@RequiredArgsConstructor
+public class HistoryController {
+
+    private static final int MAX_LIMIT = 1_000;
+
+    private final HistoryRepository repository;
+
+    @GetMapping("/{accountId}/orders")
+    public ResponseEntity<List<OrderHistoryDTO>> getOrders(@PathVariable String accountId,
+                                                           @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(repository.findOrders(accountId, clamp(limit)));
+    }
+
+    @GetMapping("/{accountId}/trades")
+    public ResponseEntity<List<TradeHistoryDTO>> getTrades(@PathVariable String accountId,
+                                                           @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(repository.findTrades(accountId, clamp(limit)));
+    }
+
+    @GetMapping("/{accountId}/balances")
+    public ResponseEntity<List<BalanceChangeDTO>> getBalanceChanges(@PathVariable String accountId,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(repository.findBalanceChanges(accountId, clamp(limit)));
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
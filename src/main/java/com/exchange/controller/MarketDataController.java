@@ -0,0 +1,73 @@
+package com.exchange.controller;
+
+import com.exchange.config.MarketDataProperties;
+import com.exchange.marketdata.DepthSnapshot;
+import com.exchange.marketdata.MarketDataPublisher;
+import com.exchange.marketdata.MarketDataSink;
+import com.exchange.marketdata.MarketDataUpdate;
+import com.exchange.model.Instrument;
+import com.exchange.service.OrderBookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/marketdata")
+@RequiredArgsConstructor
+public class MarketDataController {
+
+    private final OrderBookService service;
+    private final MarketDataPublisher publisher;
+    private final MarketDataProperties properties;
+
+    /** Profundidade agregada com a sequência a partir da qual os deltas do stream se aplicam. */
+    @GetMapping("/{base}/{quote}/book")
+    public ResponseEntity<?> getBook(@PathVariable String base, @PathVariable String quote,
+                                     @RequestParam(defaultValue = "50") int depth) {
+        if (depth <= 0) return ResponseEntity.badRequest().body("Erro: Profundidade deve ser positiva.");
+        try {
+            return ResponseEntity.ok(service.getDepth(new Instrument(base, quote), depth));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Erro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stream SSE: um evento {@code snapshot} seguido de eventos {@code update}
+     * com deltas de nível (quantidade total, zero remove o nível), topo do
+     * livro e execuções. O ID de cada evento é a sequência do livro.
+     */
+    @GetMapping(path = "/{base}/{quote}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable String base, @PathVariable String quote) throws IOException {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeoutMs());
+        MarketDataPublisher.Subscription subscription;
+        try {
+            subscription = publisher.subscribe(new Instrument(base, quote), new MarketDataSink() {
+                @Override
+                public void onSnapshot(DepthSnapshot snapshot) throws IOException {
+                    emitter.send(SseEmitter.event().name("snapshot").id(Long.toString(snapshot.sequence())).data(snapshot));
+                }
+
+                @Override
+                public void onUpdate(MarketDataUpdate update) throws IOException {
+                    emitter.send(SseEmitter.event().name("update").id(Long.toString(update.sequence())).data(update));
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(() -> publisher.unsubscribe(subscription));
+        emitter.onTimeout(() -> publisher.unsubscribe(subscription));
+        emitter.onError(e -> publisher.unsubscribe(subscription));
+        return ResponseEntity.ok(emitter);
+    }
+}
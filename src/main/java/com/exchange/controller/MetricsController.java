@@ -0,0 +1,25 @@
+package com.exchange.controller;
+
+import com.exchange.service.OrderBookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** Métricas do engine em texto no formato do Prometheus, sem depender do Actuator. */
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final OrderBookService service;
+
+    @GetMapping
+    public ResponseEntity<String> getMetrics() {
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(service.getMetrics().toText());
+    }
+}
@@ -1,11 +1,22 @@
 package com.exchange.controller;
 
+import com.exchange.dto.AmendRequestDTO;
 import com.exchange.dto.BalanceResponseDTO;
+import com.exchange.dto.CancelResultDTO;
 import com.exchange.dto.CreditRequestDTO;
 import com.exchange.dto.OrderRequestDTO;
+import com.exchange.engine.AdmissionControl;
+import com.exchange.model.AssetScales;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
 import com.exchange.model.Order;
+import com.exchange.model.OrderResult;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
 import com.exchange.service.OrderBookService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,11 +24,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -36,49 +56,202 @@ public class OrderController {
         }
     }
 
+    @PostMapping("/instrument/{base}/{quote}")
+    public ResponseEntity<String> registerInstrument(@PathVariable String base, @PathVariable String quote) {
+        try {
+            service.registerInstrument(new Instrument(base, quote));
+            return ResponseEntity.status(HttpStatus.CREATED).body("Instrumento listado: " + base + "/" + quote);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Erro: " + e.getMessage());
+        }
+    }
+
+    /** Instrumentos listados; a posição na lista é o ID usado pelo gateway binário. */
+    @GetMapping("/instruments")
+    public ResponseEntity<List<Instrument>> getInstruments() {
+        return ResponseEntity.ok(List.copyOf(service.getInstruments()));
+    }
+
+    @GetMapping("/open/{base}/{quote}")
+    public ResponseEntity<?> getOpenOrders(@PathVariable String base, @PathVariable String quote) {
+        try {
+            Instrument instrument = new Instrument(base, quote);
+            List<Order> buys = service.getOpenBuyOrders(instrument);
+            List<Order> sells = service.getOpenSellOrders(instrument);
+            return ResponseEntity.ok(Map.of("buy", buys, "sell", sells));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Erro: " + e.getMessage());
+        }
+    }
+
+    /** Stops pendentes, fora do livro, na ordem em que disparariam. */
+    @GetMapping("/stops/{base}/{quote}")
+    public ResponseEntity<?> getStopOrders(@PathVariable String base, @PathVariable String quote) {
+        try {
+            Instrument instrument = new Instrument(base, quote);
+            List<Order> buys = service.getBuyStopOrders(instrument);
+            List<Order> sells = service.getSellStopOrders(instrument);
+            return ResponseEntity.ok(Map.of("buy", buys, "sell", sells));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Erro: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/place")
-    public ResponseEntity<?> placeOrder(@RequestBody OrderRequestDTO dto) {
+    public CompletableFuture<ResponseEntity<String>> placeOrder(@RequestBody OrderRequestDTO dto) {
+        Order order;
         try {
-            Order order = new Order(
-                    dto.accountId(),
-                    dto.instrument(),
-                    dto.type(),
-                    dto.price(),
-                    dto.quantity()
-            );
-            String id = service.placeOrder(order);
-            return ResponseEntity.ok("Ordem registrada com ID: " + id);
+            order = toOrder(dto);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Erro ao registrar ordem: " + e.getMessage());
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Erro ao registrar ordem: " + e.getMessage()));
         }
+        return admit(() -> service.placeOrderAsync(order).handle((id, error) -> error == null
+                ? ResponseEntity.ok("Ordem registrada com ID: " + id)
+                : ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Erro ao registrar ordem: " + cause(error).getMessage())));
+    }
+
+    /** Lote de ordens com um resultado por ordem; ver {@link OrderBookService#placeOrders}. */
+    @PostMapping("/place/batch")
+    public CompletableFuture<ResponseEntity<?>> placeOrders(@RequestBody List<OrderRequestDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Erro: lote vazio."));
+        }
+        OrderResult[] results = new OrderResult[dtos.size()];
+        List<Order> orders = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            try {
+                orders.add(toOrder(dtos.get(i)));
+                positions.add(i);
+            } catch (Exception e) {
+                results[i] = OrderResult.rejected(e.getMessage());
+            }
+        }
+        return admit(() -> service.placeOrdersAsync(orders).handle((placed, error) -> {
+            if (error != null) {
+                return ResponseEntity.badRequest().body("Erro ao registrar lote: " + cause(error).getMessage());
+            }
+            for (int j = 0; j < placed.size(); j++) {
+                results[positions.get(j)] = placed.get(j);
+            }
+            return ResponseEntity.ok(List.of(results));
+        }));
+    }
+
+    @PostMapping("/cancel/batch")
+    public CompletableFuture<ResponseEntity<?>> cancelOrders(@RequestBody List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Erro: lote vazio."));
+        }
+        return admit(() -> service.cancelOrdersAsync(ids).handle((cancelled, error) -> {
+            if (error != null) {
+                return ResponseEntity.badRequest().body("Erro ao cancelar lote: " + cause(error).getMessage());
+            }
+            List<CancelResultDTO> results = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                results.add(new CancelResultDTO(ids.get(i), cancelled.get(i)));
+            }
+            return ResponseEntity.ok(results);
+        }));
+    }
+
+    /** Cancela todas as ordens da conta; {@code base}/{@code quote} e {@code side} restringem o alcance. */
+    @PostMapping("/cancel-all/{accountId}")
+    public CompletableFuture<ResponseEntity<?>> cancelAll(@PathVariable String accountId,
+                                                          @RequestParam(required = false) String base,
+                                                          @RequestParam(required = false) String quote,
+                                                          @RequestParam(required = false) OrderType side) {
+        Instrument instrument = base != null && quote != null ? new Instrument(base, quote) : null;
+        return admit(() -> service.cancelAllAsync(accountId, instrument, side).handle((cancelled, error) -> error == null
+                ? ResponseEntity.ok(cancelled)
+                : ResponseEntity.badRequest().body("Erro ao cancelar ordens: " + cause(error).getMessage())));
     }
 
     @PostMapping("/cancel/{id}")
-    public ResponseEntity<String> cancelOrder(@PathVariable UUID id) {
-        boolean result = service.cancelOrder(id.toString());
-        return result
-                ? ResponseEntity.ok("Ordem cancelada com sucesso.")
-                : ResponseEntity.status(HttpStatus.NOT_FOUND).body("Ordem não encontrada para cancelamento.");
+    public CompletableFuture<ResponseEntity<String>> cancelOrder(@PathVariable String id) {
+        return admit(() -> service.cancelOrderAsync(id).handle((result, error) -> {
+            if (error != null) {
+                return ResponseEntity.badRequest().body("Erro ao cancelar ordem: " + cause(error).getMessage());
+            }
+            return result
+                    ? ResponseEntity.ok("Ordem cancelada com sucesso.")
+                    : ResponseEntity.status(HttpStatus.NOT_FOUND).body("Ordem não encontrada para cancelamento.");
+        }));
+    }
+
+    /** Altera preço e/ou quantidade; ver {@link OrderBookService#amendOrder}. */
+    @PostMapping("/amend/{id}")
+    public CompletableFuture<ResponseEntity<String>> amendOrder(@PathVariable String id, @RequestBody AmendRequestDTO dto) {
+        return admit(() -> service.amendOrderAsync(id, dto.price(), dto.quantity()).handle((newId, error) -> error == null
+                ? ResponseEntity.ok("Ordem alterada, ID: " + newId)
+                : ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Erro ao alterar ordem: " + cause(error).getMessage())));
     }
 
     @GetMapping("/balance/{accountId}")
     public ResponseEntity<?> getBalance(@PathVariable String accountId) {
         try {
-            Map<String, java.math.BigDecimal> balances = service.getBalances(accountId);
-            return ResponseEntity.ok(new BalanceResponseDTO(accountId, balances));
+            AssetScales scales = service.getAssetScales();
+            Map<String, BigDecimal> balances = new HashMap<>();
+            Map<String, BigDecimal> held = new HashMap<>();
+            service.getBalanceSheet(accountId).forEach((asset, balance) -> {
+                balances.put(asset, scales.toDecimal(asset, balance.available()));
+                held.put(asset, scales.toDecimal(asset, balance.held()));
+            });
+            return ResponseEntity.ok(new BalanceResponseDTO(accountId, balances, held));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Conta não encontrada.");
         }
     }
 
     @PostMapping("/credit")
-    public ResponseEntity<String> credit(@RequestBody CreditRequestDTO dto) {
+    public CompletableFuture<ResponseEntity<String>> credit(@RequestBody CreditRequestDTO dto) {
+        long units;
         try {
-            service.credit(dto.accountId(), dto.asset(), dto.amount());
-            return ResponseEntity.ok("Saldo creditado com sucesso.");
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Erro ao creditar saldo: " + e.getMessage());
+            units = service.getAssetScales().toUnits(dto.asset(), dto.amount());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Erro ao creditar saldo: " + e.getMessage()));
         }
+        return admit(() -> service.creditAsync(dto.accountId(), dto.asset(), units).handle((ignored, error) -> error == null
+                ? ResponseEntity.ok("Saldo creditado com sucesso.")
+                : ResponseEntity.badRequest().body("Erro ao creditar saldo: " + cause(error).getMessage())));
+    }
+
+    private Order toOrder(OrderRequestDTO dto) {
+        long start = System.nanoTime();
+        InstrumentSpec spec = service.getInstrumentSpec(dto.instrument());
+        ExecutionType execution = dto.executionType() == null ? ExecutionType.LIMIT : dto.executionType();
+        Order order = new Order(
+                dto.accountId(),
+                spec,
+                dto.type(),
+                execution == ExecutionType.MARKET ? 0 : spec.toTicks(Objects.requireNonNull(dto.price(), "Preço não pode ser nulo.")),
+                spec.toLots(Objects.requireNonNull(dto.quantity(), "Quantidade não pode ser nula."))
+        ).withExecution(execution, dto.timeInForce() == null ? TimeInForce.GTC : dto.timeInForce());
+        if (dto.stopPrice() != null) order.withStopTicks(spec.toTicks(dto.stopPrice()));
+        service.getMetrics().decode().recordSince(start);
+        return order;
+    }
+
+    /**
+     * Envia o comando por {@link AdmissionControl#submit}; se o engine
+     * estiver sem vaga, responde 503 na hora, com {@code Retry-After}, sem
+     * esperar na fila.
+     */
+    @SuppressWarnings("unchecked")
+    private <R extends ResponseEntity<?>> CompletableFuture<R> admit(Supplier<CompletableFuture<R>> command) {
+        AdmissionControl admission = service.getAdmission();
+        return admission.submit(command).exceptionally(error -> {
+            if (!(cause(error) instanceof RejectedExecutionException)) throw new CompletionException(cause(error));
+            // Sem corpo, serve para qualquer tipo de resposta.
+            return (R) ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Integer.toString(admission.retryAfterSeconds()))
+                    .build();
+        });
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
 }
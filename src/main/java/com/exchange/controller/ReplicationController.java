@@ -0,0 +1,42 @@
+package com.exchange.controller;
+
+import com.exchange.replication.ReplicationClient;
+import com.exchange.service.OrderBookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/replication")
+@RequiredArgsConstructor
+public class ReplicationController {
+
+    private final OrderBookService service;
+    private final ObjectProvider<ReplicationClient> client;
+
+    @GetMapping
+    public Map<String, Object> getStatus() {
+        ReplicationClient replication = client.getIfAvailable();
+        return Map.of("replica", service.isReplica(),
+                "connected", replication != null && replication.isConnected(),
+                "lastSequence", service.lastSequence());
+    }
+
+    /** Promove a réplica a primário; ver {@link ReplicationClient#promote()}. */
+    @PostMapping("/promote")
+    public ResponseEntity<String> promote() {
+        ReplicationClient replication = client.getIfAvailable();
+        if (replication == null || !service.isReplica()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Serviço não é réplica.");
+        }
+        replication.promote();
+        return ResponseEntity.ok("Réplica promovida na sequência " + service.lastSequence() + ".");
+    }
+}
@@ -0,0 +1,6 @@
+package com.exchange.dto;
+
+import java.math.BigDecimal;
+
+/** Campos nulos ficam como estão na ordem. */
+public record AmendRequestDTO(BigDecimal price, BigDecimal quantity) {}
@@ -0,0 +1,6 @@
+package com.exchange.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record BalanceChangeDTO(String accountId, String asset, BigDecimal amount, String reason, Instant createdAt) {}
@@ -3,4 +3,5 @@ package com.exchange.dto;
 import java.math.BigDecimal;
 import java.util.Map;
 
-public record BalanceResponseDTO(String accountId, Map<String, BigDecimal> balances) {}
+/** {@code balances} traz o disponível de cada ativo e {@code held}, o bloqueado por ordens em aberto. */
+public record BalanceResponseDTO(String accountId, Map<String, BigDecimal> balances, Map<String, BigDecimal> held) {}
@@ -0,0 +1,3 @@
+package com.exchange.dto;
+
+public record CancelResultDTO(String orderId, boolean cancelled) {}
@@ -0,0 +1,20 @@
+package com.exchange.dto;
+
+import com.exchange.model.Instrument;
+import com.exchange.model.OrderType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record OrderHistoryDTO(
+        String orderId,
+        String accountId,
+        Instrument instrument,
+        OrderType type,
+        BigDecimal price,
+        BigDecimal quantity,
+        BigDecimal filledQuantity,
+        String status,
+        Instant createdAt,
+        Instant updatedAt
+) {}
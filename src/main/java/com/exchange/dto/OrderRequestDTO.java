@@ -1,14 +1,23 @@
 package com.exchange.dto;
 
+import com.exchange.model.ExecutionType;
 import com.exchange.model.OrderType;
 import com.exchange.model.Instrument;
+import com.exchange.model.TimeInForce;
 
 import java.math.BigDecimal;
 
+/**
+ * {@code executionType} e {@code timeInForce} são opcionais (LIMIT e GTC); ordens MARKET dispensam preço.
+ * Com {@code stopPrice}, a ordem é uma stop: fica pendente até uma execução atingir esse preço.
+ */
 public record OrderRequestDTO(
         String accountId,
         Instrument instrument,
         OrderType type,
         BigDecimal price,
-        BigDecimal quantity
+        BigDecimal quantity,
+        ExecutionType executionType,
+        TimeInForce timeInForce,
+        BigDecimal stopPrice
 ) {}
@@ -0,0 +1,20 @@
+package com.exchange.dto;
+
+import com.exchange.model.Instrument;
+import com.exchange.model.OrderType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record TradeHistoryDTO(
+        long tradeId,
+        Instrument instrument,
+        BigDecimal price,
+        BigDecimal quantity,
+        OrderType takerSide,
+        String takerOrderId,
+        String takerAccountId,
+        String makerOrderId,
+        String makerAccountId,
+        Instant executedAt
+) {}
@@ -0,0 +1,94 @@
+package com.exchange.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limita os comandos em andamento no engine (enviados e ainda sem
+ * resposta). Acima do limite, o comando é recusado na hora, sem entrar em
+ * fila: é preferível responder "tente de novo" rápido a deixar a espera nos
+ * rings e a latência de todos crescerem. Um lote conta como um comando.
+ * <p>
+ * Com limite 0, tudo é admitido e só a contagem em andamento é mantida.
+ */
+public final class AdmissionControl {
+
+    private final int maxInFlight;
+    private final int retryAfterSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxInFlight       comandos simultâneos, ou 0 sem limite
+     * @param retryAfterSeconds espera sugerida a quem for recusado
+     */
+    public AdmissionControl(int maxInFlight, int retryAfterSeconds) {
+        if (maxInFlight < 0) throw new IllegalArgumentException("Limite de comandos não pode ser negativo.");
+        if (retryAfterSeconds < 0) throw new IllegalArgumentException("Espera sugerida não pode ser negativa.");
+        this.maxInFlight = maxInFlight;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /** Reserva uma vaga; quem recebe {@code true} deve chamar {@link #release()} ao terminar. */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (maxInFlight > 0 && current >= maxInFlight) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Executa {@code command} se houver vaga, liberando-a quando o resultado
+     * concluir; sem vaga, devolve um futuro já falho com
+     * {@link RejectedExecutionException}.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> command) {
+        if (!tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Engine sobrecarregado, tente novamente."));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = command.get();
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        return result.whenComplete((value, error) -> release());
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /** Comandos em andamento: a profundidade da fila na frente do engine. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,11 @@
+package com.exchange.engine;
+
+/**
+ * Aplica um comando na thread do sequenciador. O valor retornado completa o
+ * future do chamador; exceções o completam com erro.
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    Object handle(EngineCommand command);
+}
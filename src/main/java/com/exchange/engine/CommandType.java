@@ -0,0 +1,5 @@
+package com.exchange.engine;
+
+public enum CommandType {
+    PLACE, CANCEL, AMEND, PLACE_BATCH, CANCEL_BATCH, CANCEL_ALL, CREDIT, DEBIT, QUERY, PLACE_PRIMITIVE
+}
@@ -0,0 +1,126 @@
+package com.exchange.engine;
+
+import com.exchange.book.OrderBook;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Slot reutilizável do ring buffer. Os campos usados dependem do {@link CommandType};
+ * o slot é limpo depois de processado.
+ */
+public final class EngineCommand {
+
+    CommandType type;
+    Order order;
+    List<Order> orders;
+    long orderId;
+    long[] orderIds;
+    long priceTicks;
+    long quantityLots;
+    OrderType side;
+    String accountId;
+    int accountIndex;
+    ExecutionType executionType;
+    TimeInForce timeInForce;
+    String asset;
+    long amount;
+    Function<OrderBook, ?> query;
+    CompletableFuture<Object> future;
+    /** Em PLACE_PRIMITIVE, recebe o resultado no lugar do future. */
+    PlaceListener listener;
+    long correlationId;
+    /** {@link System#nanoTime()} da publicação, para medir a espera no ring. */
+    long publishedAt;
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long[] getOrderIds() {
+        return orderIds;
+    }
+
+    /** Novo preço em AMEND, ou 0 para manter o atual; preço da ordem em PLACE_PRIMITIVE, ou 0 a mercado. */
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    /** Nova quantidade em AMEND; quantidade da ordem em PLACE_PRIMITIVE. */
+    public long getQuantityLots() {
+        return quantityLots;
+    }
+
+    /** Lado filtrado por CANCEL_ALL, {@code null} para os dois; lado da ordem em PLACE_PRIMITIVE. */
+    public OrderType getSide() {
+        return side;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /** Conta da ordem em PLACE_PRIMITIVE, pelo índice de {@code OrderBookService#accountIndex}. */
+    public int getAccountIndex() {
+        return accountIndex;
+    }
+
+    public ExecutionType getExecutionType() {
+        return executionType;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    /** Valor em unidades mínimas do ativo. */
+    public long getAmount() {
+        return amount;
+    }
+
+    public Function<OrderBook, ?> getQuery() {
+        return query;
+    }
+
+    void clear() {
+        type = null;
+        order = null;
+        orders = null;
+        orderId = 0;
+        orderIds = null;
+        priceTicks = 0;
+        quantityLots = 0;
+        side = null;
+        accountId = null;
+        accountIndex = 0;
+        executionType = null;
+        timeInForce = null;
+        asset = null;
+        amount = 0;
+        query = null;
+        future = null;
+        listener = null;
+        correlationId = 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.exchange.engine;
+
+public enum EngineMode {
+    /** Comandos aplicados na thread do chamador; indicado para testes e uso embarcado. */
+    DIRECT,
+    /** Um {@link Sequencer} por livro aplica os comandos em ordem numa thread dedicada. */
+    SEQUENCED
+}
@@ -0,0 +1,15 @@
+package com.exchange.engine;
+
+/**
+ * Recebe o resultado de uma ordem enviada em campos primitivos, sem future
+ * (ver {@link Sequencer#placeOrder(int, com.exchange.model.OrderType,
+ * com.exchange.model.ExecutionType, com.exchange.model.TimeInForce, long, long, long, PlaceListener)}).
+ * Um mesmo listener atende muitas ordens, distinguidas pelo
+ * {@code correlationId} de quem enviou. Nunca é chamado na thread do livro.
+ */
+public interface PlaceListener {
+
+    void onAccepted(long correlationId, long orderId);
+
+    void onRejected(long correlationId, RejectReason reason);
+}
@@ -0,0 +1,23 @@
+package com.exchange.engine;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/** Motivo da recusa de um comando, para quem recebe o resultado sem exceção (ver {@link PlaceListener}). */
+public enum RejectReason {
+    /** Argumento inválido: instrumento, conta, preço, quantidade ou combinação de tipos. */
+    INVALID,
+    /** Recusada pelo engine: saldo, risco, liquidez, post-only que executaria, réplica etc. */
+    REFUSED,
+    /** Limite de comandos em andamento atingido; reenviar mais tarde. */
+    OVERLOADED,
+    INTERNAL_ERROR;
+
+    /** Motivo correspondente à exceção com que o comando falhou. */
+    public static RejectReason of(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException || cause instanceof NullPointerException) return INVALID;
+        if (cause instanceof RejectedExecutionException) return OVERLOADED;
+        return cause instanceof IllegalStateException ? REFUSED : INTERNAL_ERROR;
+    }
+}
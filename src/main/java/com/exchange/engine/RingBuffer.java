@@ -0,0 +1,97 @@
+package com.exchange.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ring buffer pré-alocado com vários produtores e um único consumidor, no
+ * estilo do LMAX Disruptor.
+ * <p>
+ * Produtores reservam uma sequência com CAS, preenchem o slot e o publicam
+ * marcando a "volta" daquele índice no array de disponibilidade. O consumidor
+ * lê os slots em ordem enquanto estiverem publicados e só então avança seu
+ * cursor, liberando espaço para os produtores. Nenhum lock é usado.
+ */
+public final class RingBuffer<E> {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+    private final int[] available;
+    private final int mask;
+    private final int indexShift;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacidade do ring buffer deve ser potência de 2.");
+        }
+        this.entries = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = factory.get();
+        }
+        this.available = new int[capacity];
+        Arrays.fill(available, -1);
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /** Reserva a próxima sequência, esperando enquanto o buffer estiver cheio. */
+    public long next() {
+        while (true) {
+            long sequence = tryNext();
+            if (sequence >= 0) return sequence;
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Reserva a próxima sequência ou devolve -1 se o buffer estiver cheio. */
+    public long tryNext() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - entries.length > consumed.get()) {
+                return -1;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    public boolean isPublished(long sequence) {
+        return (int) AVAILABLE.getAcquire(available, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /** Última sequência já processada pelo consumidor. */
+    public long consumedSequence() {
+        return consumed.get();
+    }
+
+    /** Chamado apenas pelo consumidor após processar tudo até {@code sequence}. */
+    public void markConsumed(long sequence) {
+        consumed.lazySet(sequence);
+    }
+
+    /** Comandos reservados ainda não processados. */
+    public long backlog() {
+        return claimed.get() - consumed.get();
+    }
+}
@@ -0,0 +1,256 @@
+package com.exchange.engine;
+
+import com.exchange.book.OrderBook;
+import com.exchange.metrics.LatencyHistogram;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Escritor único de um livro: threads chamadoras publicam comandos no
+ * {@link RingBuffer} e uma thread dedicada os aplica na ordem de sequência.
+ * Como só essa thread toca o estado do livro, nenhum lock é necessário.
+ * <p>
+ * Os futures são completados no executor de respostas, nunca na thread do
+ * livro: assim as continuações dos chamadores ({@code thenApply},
+ * {@code whenComplete} etc.) não rodam no escritor do livro.
+ */
+public class Sequencer implements AutoCloseable {
+
+    private static final int SPIN_TRIES = 1_000;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final RingBuffer<EngineCommand> ring;
+    private final CommandHandler handler;
+    private final LatencyHistogram queueWait;
+    private final Executor responses;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public Sequencer(String name, int ringSize, CommandHandler handler, Executor responses) {
+        this(name, ringSize, handler, new LatencyHistogram(), responses);
+    }
+
+    /**
+     * @param queueWait recebe o tempo de cada comando no ring até ser aplicado
+     * @param responses completa os futures dos comandos aplicados
+     */
+    public Sequencer(String name, int ringSize, CommandHandler handler, LatencyHistogram queueWait, Executor responses) {
+        this.ring = new RingBuffer<>(ringSize, EngineCommand::new);
+        this.handler = handler;
+        this.queueWait = queueWait;
+        this.responses = responses;
+        this.thread = new Thread(this::run, "sequencer-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public <T> CompletableFuture<T> placeOrder(Order order) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.PLACE;
+        command.order = order;
+        return publish(sequence, command);
+    }
+
+    /**
+     * Ordem em campos primitivos, gravada direto no slot do ring: sem
+     * {@link Order}, future nem lambda na thread de quem publica. O ID ou o
+     * motivo da recusa vão para {@code listener}.
+     *
+     * @param priceTicks preço em ticks, ou 0 numa ordem a mercado
+     */
+    public void placeOrder(int accountIndex, OrderType side, ExecutionType executionType, TimeInForce timeInForce,
+                           long priceTicks, long quantityLots, long correlationId, PlaceListener listener) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.PLACE_PRIMITIVE;
+        command.accountIndex = accountIndex;
+        command.side = side;
+        command.executionType = executionType;
+        command.timeInForce = timeInForce;
+        command.priceTicks = priceTicks;
+        command.quantityLots = quantityLots;
+        command.correlationId = correlationId;
+        command.listener = listener;
+        command.publishedAt = System.nanoTime();
+        ring.publish(sequence);
+        if (!running) {
+            listener.onRejected(correlationId, RejectReason.REFUSED);
+        }
+    }
+
+    public <T> CompletableFuture<T> cancelOrder(long orderId) {
+        return cancelOrder(orderId, null);
+    }
+
+    /** @param accountId dono exigido da ordem, ou {@code null} para qualquer um */
+    public <T> CompletableFuture<T> cancelOrder(long orderId, String accountId) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.CANCEL;
+        command.orderId = orderId;
+        command.accountId = accountId;
+        return publish(sequence, command);
+    }
+
+    /** @param priceTicks novo preço, ou 0 para manter o atual */
+    public <T> CompletableFuture<T> amendOrder(long orderId, long priceTicks, long quantityLots) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.AMEND;
+        command.orderId = orderId;
+        command.priceTicks = priceTicks;
+        command.quantityLots = quantityLots;
+        return publish(sequence, command);
+    }
+
+    /** Lote de ordens aplicado como um único comando. */
+    public <T> CompletableFuture<T> placeOrders(List<Order> orders) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.PLACE_BATCH;
+        command.orders = orders;
+        return publish(sequence, command);
+    }
+
+    public <T> CompletableFuture<T> cancelOrders(long[] orderIds) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.CANCEL_BATCH;
+        command.orderIds = orderIds;
+        return publish(sequence, command);
+    }
+
+    /** @param side lado a cancelar, ou {@code null} para os dois */
+    public <T> CompletableFuture<T> cancelAll(String accountId, OrderType side) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.CANCEL_ALL;
+        command.accountId = accountId;
+        command.side = side;
+        return publish(sequence, command);
+    }
+
+    public <T> CompletableFuture<T> credit(String accountId, String asset, long amount) {
+        return balanceCommand(CommandType.CREDIT, accountId, asset, amount);
+    }
+
+    public <T> CompletableFuture<T> debit(String accountId, String asset, long amount) {
+        return balanceCommand(CommandType.DEBIT, accountId, asset, amount);
+    }
+
+    /** Executa uma leitura na thread do livro, garantindo uma visão consistente. */
+    public <T> CompletableFuture<T> query(Function<OrderBook, T> query) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = CommandType.QUERY;
+        command.query = query;
+        return publish(sequence, command);
+    }
+
+    public long backlog() {
+        return ring.backlog();
+    }
+
+    private <T> CompletableFuture<T> balanceCommand(CommandType type, String accountId, String asset, long amount) {
+        long sequence = ring.next();
+        EngineCommand command = ring.get(sequence);
+        command.type = type;
+        command.accountId = accountId;
+        command.asset = asset;
+        command.amount = amount;
+        return publish(sequence, command);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> publish(long sequence, EngineCommand command) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        command.future = future;
+        command.publishedAt = System.nanoTime();
+        ring.publish(sequence);
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Sequenciador encerrado."));
+        }
+        return (CompletableFuture<T>) future;
+    }
+
+    private void run() {
+        long next = ring.consumedSequence() + 1;
+        int idle = 0;
+        while (running) {
+            long processed = next;
+            while (ring.isPublished(next)) {
+                apply(ring.get(next));
+                next++;
+            }
+            if (next != processed) {
+                ring.markConsumed(next - 1);
+                idle = 0;
+            } else {
+                idle = idle(idle);
+            }
+        }
+        while (ring.isPublished(next)) {
+            apply(ring.get(next));
+            ring.markConsumed(next++);
+        }
+    }
+
+    private void apply(EngineCommand command) {
+        CompletableFuture<Object> future = command.future;
+        PlaceListener listener = command.listener;
+        long correlationId = command.correlationId;
+        queueWait.recordSince(command.publishedAt);
+        Object result;
+        try {
+            result = handler.handle(command);
+        } catch (RuntimeException e) {
+            command.clear();
+            if (listener != null) {
+                RejectReason reason = RejectReason.of(e);
+                responses.execute(() -> listener.onRejected(correlationId, reason));
+            } else {
+                responses.execute(() -> future.completeExceptionally(e));
+            }
+            return;
+        }
+        command.clear();
+        if (listener != null) {
+            long orderId = (Long) result;
+            responses.execute(() -> listener.onAccepted(correlationId, orderId));
+        } else {
+            responses.execute(() -> future.complete(result));
+        }
+    }
+
+    private static int idle(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return idle;
+        }
+        return idle + 1;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
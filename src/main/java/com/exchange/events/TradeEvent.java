@@ -0,0 +1,92 @@
+package com.exchange.events;
+
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+
+/**
+ * Execução publicada no {@link TradeEventBus}. As instâncias do ring são
+ * reaproveitadas; cada consumidor recebe uma cópia própria, válida só
+ * durante a chamada de {@link TradeEventHandler#onTrade}.
+ */
+public final class TradeEvent {
+
+    long sequence;
+    long timestamp;
+    InstrumentSpec spec;
+    long takerOrderId;
+    String takerAccountId;
+    long makerOrderId;
+    String makerAccountId;
+    OrderType takerSide;
+    long priceTicks;
+    long quantityLots;
+
+    TradeEvent() {
+    }
+
+    /** Sequência global do barramento, sem lacunas entre execuções publicadas. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Momento do matching, em milissegundos desde a época. */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public InstrumentSpec getSpec() {
+        return spec;
+    }
+
+    public Instrument getInstrument() {
+        return spec.getInstrument();
+    }
+
+    public long getTakerOrderId() {
+        return takerOrderId;
+    }
+
+    public String getTakerAccountId() {
+        return takerAccountId;
+    }
+
+    public long getMakerOrderId() {
+        return makerOrderId;
+    }
+
+    public String getMakerAccountId() {
+        return makerAccountId;
+    }
+
+    public OrderType getTakerSide() {
+        return takerSide;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getQuantityLots() {
+        return quantityLots;
+    }
+
+    void copyFrom(TradeEvent other) {
+        sequence = other.sequence;
+        timestamp = other.timestamp;
+        spec = other.spec;
+        takerOrderId = other.takerOrderId;
+        takerAccountId = other.takerAccountId;
+        makerOrderId = other.makerOrderId;
+        makerAccountId = other.makerAccountId;
+        takerSide = other.takerSide;
+        priceTicks = other.priceTicks;
+        quantityLots = other.quantityLots;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeEvent{#" + sequence + " " + getInstrument() + " " + takerSide + " taker=" + takerOrderId
+                + " maker=" + makerOrderId + " " + quantityLots + "@" + priceTicks + "}";
+    }
+}
@@ -0,0 +1,223 @@
+package com.exchange.events;
+
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Barramento de execuções: um ring pré-alocado em que as threads de
+ * matching publicam cada execução e do qual cada consumidor (persistência,
+ * market data, notificações, auditoria) lê numa thread própria, com cursor
+ * independente.
+ * <p>
+ * Quem publica nunca espera: reserva a sequência com um incremento atômico,
+ * preenche o slot e o marca com a sequência. Quando o ring enche, o slot
+ * mais antigo é sobrescrito mesmo que algum consumidor ainda não o tenha
+ * lido; esse consumidor detecta a volta (a marca do slot mudou), recebe
+ * {@link TradeEventHandler#onOverrun} com o número de execuções perdidas e
+ * continua da mais antiga ainda disponível. O tamanho do ring define, então,
+ * quanto atraso um consumidor pode acumular antes de perder execuções.
+ */
+@Slf4j
+public final class TradeEventBus implements AutoCloseable {
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int SPIN_TRIES = 1_000;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final TradeEvent[] entries;
+    private final long[] published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public TradeEventBus(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacidade do ring de execuções deve ser potência de 2.");
+        }
+        this.entries = new TradeEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new TradeEvent();
+        }
+        this.published = new long[capacity];
+        Arrays.fill(published, -1);
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /** Execuções publicadas desde a criação. */
+    public long publishedCount() {
+        return claimed.get() + 1;
+    }
+
+    /**
+     * Publica uma execução; pode ser chamado por várias threads de matching
+     * ao mesmo tempo.
+     *
+     * @return a sequência atribuída
+     */
+    public long publish(InstrumentSpec spec, long takerOrderId, String takerAccountId,
+                        long makerOrderId, String makerAccountId, OrderType takerSide,
+                        long priceTicks, long quantityLots) {
+        long sequence = claimed.incrementAndGet();
+        int index = (int) sequence & mask;
+        // Marca o slot como em escrita antes de alterar os campos.
+        PUBLISHED.setOpaque(published, index, -1L);
+        VarHandle.storeStoreFence();
+        TradeEvent event = entries[index];
+        event.sequence = sequence;
+        event.timestamp = System.currentTimeMillis();
+        event.spec = spec;
+        event.takerOrderId = takerOrderId;
+        event.takerAccountId = takerAccountId;
+        event.makerOrderId = makerOrderId;
+        event.makerAccountId = makerAccountId;
+        event.takerSide = takerSide;
+        event.priceTicks = priceTicks;
+        event.quantityLots = quantityLots;
+        PUBLISHED.setRelease(published, index, sequence);
+        return sequence;
+    }
+
+    /**
+     * Registra um consumidor com thread própria, que recebe as execuções
+     * publicadas a partir de agora.
+     */
+    public Subscription subscribe(String name, TradeEventHandler handler) {
+        Subscription subscription = new Subscription(name, handler, claimed.get() + 1);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(Subscription::close);
+    }
+
+    /** Cursor e thread de um consumidor. */
+    public final class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final TradeEventHandler handler;
+        private final TradeEvent event = new TradeEvent();
+        private final Thread thread;
+        private final AtomicLong overruns = new AtomicLong();
+        private volatile long cursor;
+        private volatile boolean running = true;
+
+        private Subscription(String name, TradeEventHandler handler, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.cursor = start;
+            this.thread = new Thread(this::run, "trade-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Próxima sequência a ser entregue. */
+        public long getCursor() {
+            return cursor;
+        }
+
+        /** Execuções publicadas e ainda não entregues a este consumidor. */
+        public long lag() {
+            return Math.max(0, claimed.get() + 1 - cursor);
+        }
+
+        /** Execuções sobrescritas antes de serem lidas por este consumidor. */
+        public long overruns() {
+            return overruns.get();
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                if (poll()) {
+                    idle = 0;
+                } else {
+                    idle = idle(idle);
+                }
+            }
+            while (poll()) {
+                // Entrega o que já estava publicado no encerramento.
+            }
+        }
+
+        /** @return se uma execução foi entregue ou pulada */
+        private boolean poll() {
+            long next = cursor;
+            int index = (int) next & mask;
+            if ((long) PUBLISHED.getAcquire(published, index) == next) {
+                event.copyFrom(entries[index]);
+                VarHandle.loadLoadFence();
+                if ((long) PUBLISHED.getOpaque(published, index) == next) {
+                    cursor = next + 1;
+                    deliver();
+                    return true;
+                }
+            }
+            long head = claimed.get();
+            if (head - next < entries.length) return false;
+            long oldest = head - entries.length + 1;
+            overruns.addAndGet(oldest - next);
+            cursor = oldest;
+            try {
+                handler.onOverrun(oldest - next);
+            } catch (RuntimeException e) {
+                log.error("Consumidor de execuções {} falhou ao tratar perda", name, e);
+            }
+            return true;
+        }
+
+        private void deliver() {
+            try {
+                handler.onTrade(event);
+            } catch (RuntimeException e) {
+                log.error("Consumidor de execuções {} falhou na sequência {}", name, event.sequence, e);
+            }
+        }
+
+        private int idle(int idle) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+                return idle;
+            }
+            return idle + 1;
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            try {
+                thread.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.exchange.events;
+
+/** Consumidor do {@link TradeEventBus}, chamado sempre pela mesma thread. */
+public interface TradeEventHandler {
+
+    void onTrade(TradeEvent event);
+
+    /**
+     * O consumidor ficou mais de uma volta do ring para trás e {@code missed}
+     * execuções foram sobrescritas antes de serem lidas; o consumo segue a
+     * partir da mais antiga ainda disponível.
+     */
+    default void onOverrun(long missed) {
+    }
+}
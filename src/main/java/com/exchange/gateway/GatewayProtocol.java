@@ -0,0 +1,109 @@
+package com.exchange.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout fixo das mensagens do gateway binário, em big-endian. Todo frame
+ * começa com {@code [short tamanho total][byte tipo]}, seguido dos campos:
+ *
+ * <pre>
+ * Entrada
+ *   LOGON      [byte n][n bytes ASCII da conta]
+ *   NEW_ORDER  [long clientOrderId][short instrumento][byte lado][long preço em ticks][long quantidade em lotes]
+ *   CANCEL     [long clientOrderId][long orderId]
+ * Saída
+ *   LOGON_ACK  [byte status]
+ *   ACCEPTED   [long clientOrderId][long orderId]
+ *   REJECTED   [long clientOrderId][byte motivo]
+ *   CANCELLED  [long clientOrderId][long orderId][byte 1 = cancelada, 0 = não encontrada]
+ * </pre>
+ *
+ * O instrumento é a posição dele em {@code OrderBookService#getInstruments()}.
+ * O byte de lado do NEW_ORDER aceita, além de {@link #SIDE_BUY} ou
+ * {@link #SIDE_SELL}, os bits {@link #FLAG_IOC}, {@link #FLAG_FOK},
+ * {@link #FLAG_MARKET} e {@link #FLAG_POST_ONLY}; sem eles a ordem é
+ * limitada e GTC, e um mercado ignora o preço.
+ */
+public final class GatewayProtocol {
+
+    public static final int HEADER_LENGTH = 3;
+
+    public static final byte LOGON = 1;
+    public static final byte NEW_ORDER = 2;
+    public static final byte CANCEL = 3;
+    public static final byte LOGON_ACK = 11;
+    public static final byte ACCEPTED = 12;
+    public static final byte REJECTED = 13;
+    public static final byte CANCELLED = 14;
+
+    public static final int NEW_ORDER_LENGTH = HEADER_LENGTH + 8 + 2 + 1 + 8 + 8;
+    public static final int CANCEL_LENGTH = HEADER_LENGTH + 8 + 8;
+    public static final int LOGON_ACK_LENGTH = HEADER_LENGTH + 1;
+    public static final int ACCEPTED_LENGTH = HEADER_LENGTH + 8 + 8;
+    public static final int REJECTED_LENGTH = HEADER_LENGTH + 8 + 1;
+    public static final int CANCELLED_LENGTH = HEADER_LENGTH + 8 + 8 + 1;
+
+    public static final byte SIDE_BUY = 0;
+    public static final byte SIDE_SELL = 1;
+    public static final byte FLAG_IOC = 0x10;
+    public static final byte FLAG_FOK = 0x20;
+    public static final byte FLAG_MARKET = 0x40;
+    public static final byte FLAG_POST_ONLY = 0x08;
+    public static final byte SIDE_MASK = 0x07;
+
+    /** Status do LOGON_ACK e motivos do REJECTED. */
+    public static final byte OK = 0;
+    public static final byte INVALID = 1;
+    public static final byte REFUSED = 2;
+    public static final byte NOT_LOGGED_ON = 3;
+    public static final byte MALFORMED = 4;
+    public static final byte INTERNAL_ERROR = 5;
+    /** Engine no limite de comandos em andamento; reenviar mais tarde. */
+    public static final byte OVERLOADED = 6;
+
+    private GatewayProtocol() {
+    }
+
+    public static void putLogon(ByteBuffer out, String accountId) {
+        byte[] account = accountId.getBytes(StandardCharsets.US_ASCII);
+        if (account.length > 255) throw new IllegalArgumentException("ID da conta longo demais.");
+        putHeader(out, HEADER_LENGTH + 1 + account.length, LOGON);
+        out.put((byte) account.length).put(account);
+    }
+
+    public static void putNewOrder(ByteBuffer out, long clientOrderId, int instrumentId, byte side,
+                                   long priceTicks, long quantityLots) {
+        putHeader(out, NEW_ORDER_LENGTH, NEW_ORDER);
+        out.putLong(clientOrderId).putShort((short) instrumentId).put(side).putLong(priceTicks).putLong(quantityLots);
+    }
+
+    public static void putCancel(ByteBuffer out, long clientOrderId, long orderId) {
+        putHeader(out, CANCEL_LENGTH, CANCEL);
+        out.putLong(clientOrderId).putLong(orderId);
+    }
+
+    public static void putLogonAck(ByteBuffer out, byte status) {
+        putHeader(out, LOGON_ACK_LENGTH, LOGON_ACK);
+        out.put(status);
+    }
+
+    public static void putAccepted(ByteBuffer out, long clientOrderId, long orderId) {
+        putHeader(out, ACCEPTED_LENGTH, ACCEPTED);
+        out.putLong(clientOrderId).putLong(orderId);
+    }
+
+    public static void putRejected(ByteBuffer out, long clientOrderId, byte reason) {
+        putHeader(out, REJECTED_LENGTH, REJECTED);
+        out.putLong(clientOrderId).put(reason);
+    }
+
+    public static void putCancelled(ByteBuffer out, long clientOrderId, long orderId, boolean cancelled) {
+        putHeader(out, CANCELLED_LENGTH, CANCELLED);
+        out.putLong(clientOrderId).putLong(orderId).put(cancelled ? (byte) 1 : (byte) 0);
+    }
+
+    private static void putHeader(ByteBuffer out, int length, byte type) {
+        out.putShort((short) length).put(type);
+    }
+}
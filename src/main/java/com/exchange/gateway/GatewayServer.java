@@ -0,0 +1,378 @@
+package com.exchange.gateway;
+
+import com.exchange.config.GatewayProperties;
+import com.exchange.engine.PlaceListener;
+import com.exchange.engine.RejectReason;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import com.exchange.service.OrderBookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Gateway TCP de entrada de ordens com mensagens binárias de layout fixo
+ * ({@link GatewayProtocol}), ao lado do REST. Uma única thread de I/O com
+ * {@link Selector} decodifica os frames direto dos buffers da sessão e envia
+ * os comandos ao mesmo {@link OrderBookService}; os relatórios são gravados
+ * no buffer de saída da sessão pela thread que conclui o comando. Uma
+ * ordem nova vai do frame decodificado direto para o ring do livro, em
+ * campos primitivos e com a sessão como {@link PlaceListener}, sem objetos
+ * por ordem na thread de I/O.
+ * <p>
+ * Cada conexão faz LOGON com uma conta uma vez; as ordens seguintes usam essa
+ * conta. Uma sessão cujo buffer de saída enche (cliente que não lê) é
+ * desconectada.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "exchange.gateway", name = "enabled", havingValue = "true")
+public class GatewayServer implements AutoCloseable {
+
+    private final OrderBookService service;
+    private final GatewayProperties properties;
+    private final Queue<Session> overflowed = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    public GatewayServer(OrderBookService service, GatewayProperties properties) {
+        this.service = service;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(properties.getHost(), properties.getPort()));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        running = true;
+        thread = new Thread(this::run, "gateway-io");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Porta efetivamente aberta (útil com {@code port: 0}). */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                log.error("Falha no selector do gateway", e);
+                return;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                try {
+                    if (key.isReadable()) read(session);
+                    if (key.isValid() && key.isWritable()) flush(session);
+                } catch (IOException e) {
+                    disconnect(session);
+                }
+            }
+            for (Session session; (session = overflowed.poll()) != null; ) {
+                disconnect(session);
+            }
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel == null) return;
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Session session = new Session(channel, properties.getBufferSize());
+            session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        } catch (IOException e) {
+            log.warn("Falha ao aceitar conexão no gateway", e);
+        }
+    }
+
+    private void read(Session session) throws IOException {
+        ByteBuffer in = session.in;
+        if (session.channel.read(in) < 0) {
+            disconnect(session);
+            return;
+        }
+        in.flip();
+        while (in.remaining() >= GatewayProtocol.HEADER_LENGTH) {
+            int start = in.position();
+            int length = in.getShort(start) & 0xFFFF;
+            if (length < GatewayProtocol.HEADER_LENGTH || length > in.capacity()) {
+                disconnect(session);
+                return;
+            }
+            if (in.remaining() < length) break;
+            handle(session, in, start, length);
+            in.position(start + length);
+        }
+        in.compact();
+    }
+
+    private void handle(Session session, ByteBuffer in, int start, int length) {
+        byte type = in.get(start + 2);
+        switch (type) {
+            case GatewayProtocol.LOGON -> logon(session, in, start, length);
+            case GatewayProtocol.NEW_ORDER -> {
+                if (length != GatewayProtocol.NEW_ORDER_LENGTH) {
+                    rejected(session, 0, GatewayProtocol.MALFORMED);
+                    return;
+                }
+                newOrder(session, in.getLong(start + 3), in.getShort(start + 11) & 0xFFFF, in.get(start + 13),
+                        in.getLong(start + 14), in.getLong(start + 22));
+            }
+            case GatewayProtocol.CANCEL -> {
+                if (length != GatewayProtocol.CANCEL_LENGTH) {
+                    rejected(session, 0, GatewayProtocol.MALFORMED);
+                    return;
+                }
+                cancel(session, in.getLong(start + 3), in.getLong(start + 11));
+            }
+            default -> rejected(session, 0, GatewayProtocol.MALFORMED);
+        }
+    }
+
+    private void logon(Session session, ByteBuffer in, int start, int length) {
+        int size = length > GatewayProtocol.HEADER_LENGTH ? in.get(start + 3) & 0xFF : -1;
+        if (size < 1 || length != GatewayProtocol.HEADER_LENGTH + 1 + size) {
+            logonAck(session, GatewayProtocol.MALFORMED);
+            return;
+        }
+        byte[] account = new byte[size];
+        in.get(start + 4, account);
+        String accountId = new String(account, StandardCharsets.US_ASCII);
+        if (session.accountId != null || !service.hasAccount(accountId)) {
+            logonAck(session, GatewayProtocol.REFUSED);
+            return;
+        }
+        session.accountId = accountId;
+        session.accountIndex = service.accountIndex(accountId);
+        logonAck(session, GatewayProtocol.OK);
+    }
+
+    private void newOrder(Session session, long clientOrderId, int instrumentId, byte side, long priceTicks, long quantityLots) {
+        if (session.accountId == null) {
+            rejected(session, clientOrderId, GatewayProtocol.NOT_LOGGED_ON);
+            return;
+        }
+        long start = System.nanoTime();
+        OrderType type = switch (side & GatewayProtocol.SIDE_MASK) {
+            case GatewayProtocol.SIDE_BUY -> OrderType.BUY;
+            case GatewayProtocol.SIDE_SELL -> OrderType.SELL;
+            default -> null;
+        };
+        ExecutionType executionType = executionType(side);
+        TimeInForce timeInForce = timeInForce(side);
+        if (type == null || executionType == null || timeInForce == null) {
+            rejected(session, clientOrderId, GatewayProtocol.INVALID);
+            return;
+        }
+        service.getMetrics().decode().recordSince(start);
+        if (!service.getAdmission().tryAcquire()) {
+            rejected(session, clientOrderId, GatewayProtocol.OVERLOADED);
+            return;
+        }
+        // A vaga é liberada pela sessão quando o resultado chega.
+        service.placeOrder(session.accountIndex, instrumentId, type, executionType, timeInForce, priceTicks, quantityLots,
+                clientOrderId, session);
+    }
+
+    /** @return {@code null} se as flags não formam um tipo válido */
+    private static ExecutionType executionType(byte side) {
+        if ((side & GatewayProtocol.FLAG_MARKET) != 0) {
+            return (side & GatewayProtocol.FLAG_POST_ONLY) != 0 ? null : ExecutionType.MARKET;
+        }
+        return (side & GatewayProtocol.FLAG_POST_ONLY) != 0 ? ExecutionType.POST_ONLY : ExecutionType.LIMIT;
+    }
+
+    /** @return {@code null} com IOC e FOK juntos */
+    private static TimeInForce timeInForce(byte side) {
+        boolean ioc = (side & GatewayProtocol.FLAG_IOC) != 0;
+        boolean fok = (side & GatewayProtocol.FLAG_FOK) != 0;
+        if (ioc && fok) return null;
+        return ioc ? TimeInForce.IOC : fok ? TimeInForce.FOK : TimeInForce.GTC;
+    }
+
+    private void cancel(Session session, long clientOrderId, long orderId) {
+        if (session.accountId == null) {
+            rejected(session, clientOrderId, GatewayProtocol.NOT_LOGGED_ON);
+            return;
+        }
+        service.getAdmission().submit(() -> service.cancelOrderAsync(Long.toString(orderId), session.accountId)).whenComplete((cancelled, error) -> {
+            if (error == null) {
+                cancelled(session, clientOrderId, orderId, cancelled);
+            } else {
+                rejected(session, clientOrderId, reason(error));
+            }
+        });
+    }
+
+    private static byte reason(Throwable error) {
+        return reason(RejectReason.of(error));
+    }
+
+    private static byte reason(RejectReason reason) {
+        return switch (reason) {
+            case INVALID -> GatewayProtocol.INVALID;
+            case REFUSED -> GatewayProtocol.REFUSED;
+            case OVERLOADED -> GatewayProtocol.OVERLOADED;
+            case INTERNAL_ERROR -> GatewayProtocol.INTERNAL_ERROR;
+        };
+    }
+
+    private void logonAck(Session session, byte status) {
+        synchronized (session) {
+            if (!reserve(session, GatewayProtocol.LOGON_ACK_LENGTH)) return;
+            GatewayProtocol.putLogonAck(session.out, status);
+            requestWrite(session);
+        }
+    }
+
+    private void accepted(Session session, long clientOrderId, long orderId) {
+        synchronized (session) {
+            if (!reserve(session, GatewayProtocol.ACCEPTED_LENGTH)) return;
+            GatewayProtocol.putAccepted(session.out, clientOrderId, orderId);
+            requestWrite(session);
+        }
+    }
+
+    private void rejected(Session session, long clientOrderId, byte reason) {
+        synchronized (session) {
+            if (!reserve(session, GatewayProtocol.REJECTED_LENGTH)) return;
+            GatewayProtocol.putRejected(session.out, clientOrderId, reason);
+            requestWrite(session);
+        }
+    }
+
+    private void cancelled(Session session, long clientOrderId, long orderId, boolean cancelled) {
+        synchronized (session) {
+            if (!reserve(session, GatewayProtocol.CANCELLED_LENGTH)) return;
+            GatewayProtocol.putCancelled(session.out, clientOrderId, orderId, cancelled);
+            requestWrite(session);
+        }
+    }
+
+    /** Chamado com o lock da sessão; marca a sessão para desconexão se não houver espaço. */
+    private boolean reserve(Session session, int length) {
+        if (session.closed) return false;
+        if (session.out.remaining() < length) {
+            session.closed = true;
+            overflowed.add(session);
+            selector.wakeup();
+            return false;
+        }
+        return true;
+    }
+
+    /** Chamado com o lock da sessão. */
+    private void requestWrite(Session session) {
+        session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        if (Thread.currentThread() != thread) selector.wakeup();
+    }
+
+    private void flush(Session session) throws IOException {
+        synchronized (session) {
+            ByteBuffer out = session.out;
+            out.flip();
+            session.channel.write(out);
+            out.compact();
+            if (out.position() == 0) session.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(Session session) {
+        synchronized (session) {
+            session.closed = true;
+        }
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            log.debug("Falha ao fechar sessão do gateway", e);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        if (selector == null) return;
+        selector.wakeup();
+        try {
+            thread.join(1_000);
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Falha ao fechar o gateway", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Também recebe os resultados das ordens da sessão, identificadas pelo clientOrderId. */
+    private final class Session implements PlaceListener {
+        final SocketChannel channel;
+        final ByteBuffer in;
+        final ByteBuffer out;
+        SelectionKey key;
+        String accountId;
+        int accountIndex;
+        boolean closed;
+
+        Session(SocketChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocateDirect(bufferSize);
+            this.out = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        @Override
+        public void onAccepted(long clientOrderId, long orderId) {
+            service.getAdmission().release();
+            accepted(this, clientOrderId, orderId);
+        }
+
+        @Override
+        public void onRejected(long clientOrderId, RejectReason reason) {
+            service.getAdmission().release();
+            rejected(this, clientOrderId, reason(reason));
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.exchange.journal;
+
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal de comandos aceitos, gravado em segmentos de arquivo mapeados em memória.
+ * <p>
+ * Não é um write-ahead log. Cada comando é gravado depois de aplicado, com
+ * os IDs que recebeu, e antes da resposta. Uma queda entre a aplicação e a
+ * gravação perde o comando. O cliente não foi respondido, mas os negócios e
+ * o market data dele podem já ter saído. O que foi gravado sobrevive à queda
+ * do processo, porque está na memória mapeada. Numa queda do sistema, só
+ * sobrevive o que foi gravado até o último fsync.
+ * <p>
+ * Cada registro tem o layout {@code [int tamanho][int crc32c][long sequência][byte tipo][payload]}.
+ * O tamanho é escrito por último, então um registro parcialmente gravado
+ * (queda no meio da escrita) é detectado pelo CRC e descartado no replay.
+ * Um segmento cheio dá lugar a um novo arquivo, nomeado pela primeira
+ * sequência que contém. O fsync é feito em lotes, a cada N registros e/ou
+ * periodicamente numa thread separada.
+ * <p>
+ * As gravações são serializadas por um lock curto (cópia para a memória
+ * mapeada), o que intercala numa só sequência os fluxos de cada livro e do
+ * ledger, cada um na ordem em que foi aplicado. A ordem entre fluxos não é
+ * a ordem em que mexeram nos mesmos saldos; o replay não depende dela (ver
+ * {@code BalanceLedger#setReplaying}).
+ */
+public class Journal implements AutoCloseable {
+
+    static final int HEADER_SIZE = 4 + 4 + 8 + 1;
+    static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int fsyncEveryRecords;
+    private final CRC32C crc = new CRC32C();
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private ByteBuffer crcView;
+    private int position;
+    private int syncedPosition;
+    private int unsyncedRecords;
+    private long lastSequence;
+    private boolean recovered;
+
+    public Journal(Path directory, int segmentSize, int fsyncEveryRecords, long fsyncIntervalMs) {
+        if (segmentSize < 1024) throw new IllegalArgumentException("Segmento do journal muito pequeno.");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncEveryRecords = fsyncEveryRecords;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (fsyncIntervalMs > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::sync, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /** Reaplica todo o journal; ver {@link #replay(JournalHandler, long)}. */
+    public long replay(JournalHandler handler) {
+        return replay(handler, 0);
+    }
+
+    /**
+     * Entrega ao handler, em ordem, todo registro com sequência maior que
+     * {@code afterSequence} e posiciona o journal para continuar gravando
+     * após o último registro válido. Deve ser chamado uma vez, antes de
+     * qualquer gravação.
+     *
+     * @return a última sequência encontrada no journal
+     */
+    public synchronized long replay(JournalHandler handler, long afterSequence) {
+        if (recovered) throw new IllegalStateException("Journal já foi recuperado.");
+        JournalReader reader = new JournalReader(directory, afterSequence);
+        List<Path> segments = reader.segments();
+        int tail = segments.size() - 1;
+        for (int i = 0; i < tail; i++) {
+            if (reader.covered(segments, i)) continue;
+            Path segment = segments.get(i);
+            reader.readSegment(map(segment, false), segment, handler, false);
+        }
+        if (tail >= 0) {
+            Path segment = segments.get(tail);
+            MappedByteBuffer data = map(segment, true);
+            int end = reader.readSegment(data, segment, handler, true);
+            // Sobras de um registro interrompido são apagadas antes de gravar por cima.
+            if (end + 4 <= data.capacity() && data.getInt(end) != 0) {
+                for (int i = end; i < data.capacity(); i++) {
+                    data.put(i, (byte) 0);
+                }
+            }
+            buffer = data;
+            crcView = data.duplicate();
+            position = end;
+            syncedPosition = end;
+        }
+        lastSequence = reader.lastSequence();
+        if (channel == null) {
+            openSegment(lastSequence + 1);
+        }
+        recovered = true;
+        return lastSequence;
+    }
+
+    public long appendInstrument(String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize) {
+        String tick = tickSize.toPlainString();
+        String lot = lotSize.toPlainString();
+        synchronized (this) {
+            int start = begin(JournalRecordType.INSTRUMENT,
+                    size(baseAsset) + size(quoteAsset) + size(tick) + size(lot));
+            putString(baseAsset);
+            putString(quoteAsset);
+            putString(tick);
+            putString(lot);
+            return finish(start);
+        }
+    }
+
+    public synchronized long appendRegisterAccount(String accountId) {
+        int start = begin(JournalRecordType.REGISTER_ACCOUNT, size(accountId));
+        putString(accountId);
+        return finish(start);
+    }
+
+    public synchronized long appendCredit(String accountId, String asset, long units) {
+        return appendBalance(JournalRecordType.CREDIT, accountId, asset, units);
+    }
+
+    public synchronized long appendDebit(String accountId, String asset, long units) {
+        return appendBalance(JournalRecordType.DEBIT, accountId, asset, units);
+    }
+
+    /** @param match falso para ordens de um lote inseridas antes do matching único do lote */
+    public synchronized long appendPlace(long orderId, String accountId, OrderType type, long priceTicks, long quantityLots,
+                                         boolean match) {
+        return appendPlace(match ? JournalRecordType.PLACE : JournalRecordType.PLACE_DEFERRED,
+                orderId, accountId, type, priceTicks, quantityLots);
+    }
+
+    /** Ordem post-only aceita; nunca faz parte de um lote. */
+    public synchronized long appendPlacePostOnly(long orderId, String accountId, OrderType type, long priceTicks,
+                                                 long quantityLots) {
+        return appendPlace(JournalRecordType.PLACE_POST_ONLY, orderId, accountId, type, priceTicks, quantityLots);
+    }
+
+    private long appendPlace(JournalRecordType recordType, long orderId, String accountId, OrderType type, long priceTicks,
+                             long quantityLots) {
+        int start = begin(recordType, 8 + size(accountId) + 1 + 8 + 8);
+        putLong(orderId);
+        putString(accountId);
+        buffer.put(position++, (byte) type.ordinal());
+        putLong(priceTicks);
+        putLong(quantityLots);
+        return finish(start);
+    }
+
+    /**
+     * Ordem que executa sem entrar no livro. Só é gravada depois de aceita,
+     * então o replay sobre o mesmo livro reproduz as mesmas execuções.
+     *
+     * @param limitTicks preço limite, ou 0 numa ordem a mercado
+     */
+    public synchronized long appendPlaceImmediate(long orderId, String accountId, OrderType type, long limitTicks,
+                                                  long quantityLots) {
+        int start = begin(JournalRecordType.PLACE_IMMEDIATE, 8 + size(accountId) + 1 + 8 + 8);
+        putLong(orderId);
+        putString(accountId);
+        buffer.put(position++, (byte) type.ordinal());
+        putLong(limitTicks);
+        putLong(quantityLots);
+        return finish(start);
+    }
+
+    /**
+     * @param newOrderId ID da ordem depois da alteração; igual a {@code orderId}
+     *                   quando a quantidade foi reduzida no lugar
+     */
+    public synchronized long appendAmend(long orderId, long newOrderId, long priceTicks, long quantityLots) {
+        int start = begin(JournalRecordType.AMEND, 8 + 8 + 8 + 8);
+        putLong(orderId);
+        putLong(newOrderId);
+        putLong(priceTicks);
+        putLong(quantityLots);
+        return finish(start);
+    }
+
+    /**
+     * Stop aceita como pendente. O disparo é gravado à parte, como a ordem
+     * resultante com o mesmo ID ou o cancelamento da stop descartada: se a
+     * stop sai ou não depende do saldo da conta, que outros livros e o
+     * ledger alteram em paralelo.
+     *
+     * @param limitTicks preço limite depois do disparo, ou 0 num stop a mercado
+     */
+    public synchronized long appendStop(long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                                        long quantityLots, TimeInForce timeInForce) {
+        int start = begin(JournalRecordType.STOP, 8 + size(accountId) + 1 + 8 + 8 + 8 + 1);
+        putLong(orderId);
+        putString(accountId);
+        buffer.put(position++, (byte) type.ordinal());
+        putLong(stopTicks);
+        putLong(limitTicks);
+        putLong(quantityLots);
+        buffer.put(position++, (byte) timeInForce.ordinal());
+        return finish(start);
+    }
+
+    public synchronized long appendCancel(long orderId) {
+        int start = begin(JournalRecordType.CANCEL, 8);
+        putLong(orderId);
+        return finish(start);
+    }
+
+    /**
+     * Copia um registro já serializado por outro journal, com a mesma
+     * sequência, que deve seguir a última gravada. Usado pela réplica para
+     * continuar a numeração do primário se for promovida.
+     */
+    public synchronized long appendReplicated(ByteBuffer record, int offset) {
+        int length = record.getInt(offset);
+        long sequence = record.getLong(offset + 8);
+        if (sequence != lastSequence + 1) {
+            throw new IllegalStateException("Registro replicado fora de ordem: esperado "
+                    + (lastSequence + 1) + ", recebido " + sequence);
+        }
+        int start = reserve(length);
+        buffer.put(start + 4, record, offset + 4, length - 4);
+        buffer.putInt(start, length);
+        position = start + length;
+        return committed();
+    }
+
+    /** Força a persistência do que foi gravado desde o último fsync. */
+    public synchronized void sync() {
+        if (buffer == null || position == syncedPosition) return;
+        buffer.force(syncedPosition, position - syncedPosition);
+        syncedPosition = position;
+        unsyncedRecords = 0;
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) flusher.shutdownNow();
+        synchronized (this) {
+            sync();
+            closeChannel();
+            buffer = null;
+        }
+    }
+
+    private long appendBalance(JournalRecordType type, String accountId, String asset, long units) {
+        int start = begin(type, size(accountId) + size(asset) + 8);
+        putString(accountId);
+        putString(asset);
+        putLong(units);
+        return finish(start);
+    }
+
+    private int begin(JournalRecordType type, int payloadSize) {
+        int start = reserve(HEADER_SIZE + payloadSize);
+        buffer.putLong(start + 8, lastSequence + 1);
+        buffer.put(start + 16, type.code());
+        position = start + HEADER_SIZE;
+        return start;
+    }
+
+    /** Garante espaço para o registro, abrindo outro segmento se preciso, e devolve onde ele começa. */
+    private int reserve(int recordSize) {
+        if (!recovered || buffer == null) throw new IllegalStateException("Journal não está aberto para gravação.");
+        if (recordSize > segmentSize) throw new IllegalArgumentException("Registro maior que o segmento do journal.");
+        if (position + recordSize > buffer.capacity()) {
+            // Marca o fim do segmento para que sobras de uma escrita interrompida
+            // não sejam lidas como registro quando ele deixar de ser o último.
+            if (position + 4 <= buffer.capacity()) buffer.putInt(position, 0);
+            position = Math.min(position + 4, buffer.capacity());
+            sync();
+            closeChannel();
+            openSegment(lastSequence + 1);
+        }
+        return position;
+    }
+
+    private long finish(int start) {
+        int length = position - start;
+        crc.reset();
+        crcView.clear();
+        crcView.position(start + 8).limit(position);
+        crc.update(crcView);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, length);
+        return committed();
+    }
+
+    private long committed() {
+        lastSequence++;
+        if (fsyncEveryRecords > 0 && ++unsyncedRecords >= fsyncEveryRecords) {
+            sync();
+        }
+        return lastSequence;
+    }
+
+    private void putLong(long value) {
+        buffer.putLong(position, value);
+        position += 8;
+    }
+
+    private void putString(String value) {
+        if (isAscii(value)) {
+            int length = value.length();
+            buffer.putShort(position, (short) length);
+            position += 2;
+            for (int i = 0; i < length; i++) {
+                buffer.put(position++, (byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort(position, (short) bytes.length);
+            buffer.put(position + 2, bytes);
+            position += 2 + bytes.length;
+        }
+    }
+
+    private static int size(String value) {
+        int length = isAscii(value) ? value.length() : value.getBytes(StandardCharsets.UTF_8).length;
+        if (length > MAX_STRING_BYTES) throw new IllegalArgumentException("Texto longo demais para o journal.");
+        return 2 + length;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private MappedByteBuffer map(Path segment, boolean writable) {
+        try {
+            FileChannel file = writable
+                    ? FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(segment, StandardOpenOption.READ);
+            MappedByteBuffer mapped = file.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, file.size());
+            if (writable) {
+                channel = file;
+            } else {
+                file.close();
+            }
+            return mapped;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(long firstSequence) {
+        Path segment = directory.resolve(JournalReader.segmentName(firstSequence));
+        try {
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            crcView = buffer.duplicate();
+            position = 0;
+            syncedPosition = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.exchange.journal;
+
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+import java.math.BigDecimal;
+
+/**
+ * Recebe os comandos decodificados durante o replay, direto do buffer e sem
+ * objetos intermediários de registro.
+ */
+public interface JournalHandler {
+
+    void onInstrument(long sequence, String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize);
+
+    void onRegisterAccount(long sequence, String accountId);
+
+    void onCredit(long sequence, String accountId, String asset, long units);
+
+    void onDebit(long sequence, String accountId, String asset, long units);
+
+    /** @param match se o matching roda logo após a inserção (falso nas ordens de um lote, exceto a última) */
+    void onPlace(long sequence, long orderId, String accountId, OrderType type, long priceTicks, long quantityLots,
+                 boolean match);
+
+    /** Ordem post-only, inserida com matching logo em seguida. */
+    void onPlacePostOnly(long sequence, long orderId, String accountId, OrderType type, long priceTicks, long quantityLots);
+
+    /** @param limitTicks preço limite, ou 0 numa ordem a mercado */
+    void onPlaceImmediate(long sequence, long orderId, String accountId, OrderType type, long limitTicks, long quantityLots);
+
+    void onCancel(long sequence, long orderId);
+
+    /** @param newOrderId igual a {@code orderId} numa redução de quantidade no lugar */
+    void onAmend(long sequence, long orderId, long newOrderId, long priceTicks, long quantityLots);
+
+    /** @param limitTicks preço limite depois do disparo, ou 0 num stop a mercado */
+    void onStop(long sequence, long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                long quantityLots, TimeInForce timeInForce);
+}
@@ -0,0 +1,220 @@
+package com.exchange.journal;
+
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Leitura dos segmentos do journal em ordem de sequência, sem modificá-los.
+ * Serve tanto à recuperação do {@link Journal} quanto a réplicas que
+ * acompanham o journal enquanto ele ainda está sendo gravado: no último
+ * segmento a leitura para no primeiro registro incompleto.
+ */
+public class JournalReader {
+
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".log";
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final Path directory;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] scratch = new byte[Journal.MAX_STRING_BYTES];
+    private final long afterSequence;
+    private long lastSequence;
+    private int readPosition;
+
+    /** @param afterSequence registros com sequência até este valor são ignorados */
+    public JournalReader(Path directory, long afterSequence) {
+        this.directory = directory;
+        this.afterSequence = afterSequence;
+        this.lastSequence = afterSequence;
+    }
+
+    /**
+     * Entrega ao handler, em ordem, os registros completos após
+     * {@code afterSequence}.
+     *
+     * @return a última sequência lida
+     */
+    public long read(JournalHandler handler) {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            if (covered(segments, i)) continue;
+            Path segment = segments.get(i);
+            readSegment(map(segment), segment, handler, i == segments.size() - 1);
+        }
+        return lastSequence;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /** Segmentos existentes, do mais antigo ao mais novo. */
+    List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((a, b) -> Long.compare(firstSequence(a), firstSequence(b)));
+            return segments;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Se todos os registros do segmento {@code i} estão até {@code afterSequence}. */
+    boolean covered(List<Path> segments, int i) {
+        return i < segments.size() - 1 && firstSequence(segments.get(i + 1)) <= afterSequence + 1;
+    }
+
+    /**
+     * Lê um segmento já mapeado. Um registro inválido no último segmento é
+     * tratado como fim dos dados; em qualquer outro, como corrupção.
+     *
+     * @return a posição logo após o último registro válido
+     */
+    int readSegment(ByteBuffer data, Path segment, JournalHandler handler, boolean last) {
+        ByteBuffer view = data.duplicate();
+        int offset = 0;
+        while (offset + Journal.HEADER_SIZE <= data.capacity()) {
+            int length = data.getInt(offset);
+            if (length == 0) break;
+            if (!isValid(crc, data, view, offset, length)) {
+                if (!last) {
+                    throw new IllegalStateException("Journal corrompido em " + segment + " na posição " + offset);
+                }
+                break;
+            }
+            long sequence = data.getLong(offset + 8);
+            if (sequence > afterSequence) deliver(data, offset, sequence, handler);
+            offset += length;
+        }
+        return offset;
+    }
+
+    /**
+     * Valida e entrega ao handler um registro avulso que começa em
+     * {@code offset}, no layout do journal; é assim que a réplica aplica o
+     * que recebe do primário. A sequência deve seguir a última lida.
+     *
+     * @return a sequência do registro
+     */
+    public long apply(ByteBuffer data, int offset, JournalHandler handler) {
+        int length = data.getInt(offset);
+        if (!isValid(crc, data, data.duplicate(), offset, length)) {
+            throw new IllegalStateException("Registro inválido após a sequência " + lastSequence);
+        }
+        long sequence = data.getLong(offset + 8);
+        deliver(data, offset, sequence, handler);
+        return sequence;
+    }
+
+    private void deliver(ByteBuffer data, int offset, long sequence, JournalHandler handler) {
+        if (sequence != lastSequence + 1) {
+            throw new IllegalStateException("Sequência fora de ordem no journal: esperado "
+                    + (lastSequence + 1) + ", encontrado " + sequence);
+        }
+        dispatch(data, offset, sequence, handler);
+        lastSequence = sequence;
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** Confere tamanho e CRC do registro em {@code offset}; {@code view} é uma cópia de {@code data} para o CRC. */
+    static boolean isValid(CRC32C crc, ByteBuffer data, ByteBuffer view, int offset, int length) {
+        if (length < Journal.HEADER_SIZE || offset + length > data.capacity()) return false;
+        crc.reset();
+        view.clear();
+        view.position(offset + 8).limit(offset + length);
+        crc.update(view);
+        return data.getInt(offset + 4) == (int) crc.getValue();
+    }
+
+    private void dispatch(ByteBuffer data, int offset, long sequence, JournalHandler handler) {
+        JournalRecordType type = JournalRecordType.of(data.get(offset + 16));
+        if (type == null) throw new IllegalStateException("Tipo de registro desconhecido na sequência " + sequence);
+        readPosition = offset + Journal.HEADER_SIZE;
+        switch (type) {
+            case INSTRUMENT -> handler.onInstrument(sequence, readString(data), readString(data),
+                    new BigDecimal(readString(data)), new BigDecimal(readString(data)));
+            case REGISTER_ACCOUNT -> handler.onRegisterAccount(sequence, readString(data));
+            case CREDIT -> handler.onCredit(sequence, readString(data), readString(data), readLong(data));
+            case DEBIT -> handler.onDebit(sequence, readString(data), readString(data), readLong(data));
+            case PLACE, PLACE_DEFERRED -> {
+                long orderId = readLong(data);
+                String accountId = readString(data);
+                OrderType side = ORDER_TYPES[data.get(readPosition++)];
+                handler.onPlace(sequence, orderId, accountId, side, readLong(data), readLong(data),
+                        type == JournalRecordType.PLACE);
+            }
+            case PLACE_POST_ONLY -> {
+                long orderId = readLong(data);
+                String accountId = readString(data);
+                OrderType side = ORDER_TYPES[data.get(readPosition++)];
+                handler.onPlacePostOnly(sequence, orderId, accountId, side, readLong(data), readLong(data));
+            }
+            case PLACE_IMMEDIATE -> {
+                long orderId = readLong(data);
+                String accountId = readString(data);
+                OrderType side = ORDER_TYPES[data.get(readPosition++)];
+                handler.onPlaceImmediate(sequence, orderId, accountId, side, readLong(data), readLong(data));
+            }
+            case CANCEL -> handler.onCancel(sequence, readLong(data));
+            case AMEND -> handler.onAmend(sequence, readLong(data), readLong(data), readLong(data), readLong(data));
+            case STOP -> {
+                long orderId = readLong(data);
+                String accountId = readString(data);
+                OrderType side = ORDER_TYPES[data.get(readPosition++)];
+                long stopTicks = readLong(data);
+                long limitTicks = readLong(data);
+                long quantityLots = readLong(data);
+                handler.onStop(sequence, orderId, accountId, side, stopTicks, limitTicks, quantityLots,
+                        TIMES_IN_FORCE[data.get(readPosition++)]);
+            }
+        }
+    }
+
+    private long readLong(ByteBuffer data) {
+        long value = data.getLong(readPosition);
+        readPosition += 8;
+        return value;
+    }
+
+    private String readString(ByteBuffer data) {
+        int length = data.getShort(readPosition);
+        data.get(readPosition + 2, scratch, 0, length);
+        readPosition += 2 + length;
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static MappedByteBuffer map(Path segment) {
+        try (FileChannel file = FileChannel.open(segment)) {
+            return file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.exchange.journal;
+
+/**
+ * Tipos de registro do journal. {@code PLACE_DEFERRED} é uma ordem de lote
+ * inserida sem matching; o {@code PLACE} que fecha o lote dispara o matching.
+ * {@code PLACE_IMMEDIATE} é uma ordem IOC, FOK ou a mercado, que executa sem
+ * entrar no livro. {@code AMEND} altera uma ordem em repouso: no lugar,
+ * quando só a quantidade diminui, ou substituindo-a por uma nova.
+ * {@code STOP} é uma stop aceita como pendente; quando ela dispara, a ordem
+ * resultante é gravada com o ID da stop num {@code PLACE} ou
+ * {@code PLACE_IMMEDIATE}, ou, se foi descartada, num {@code CANCEL}.
+ * {@code PLACE_POST_ONLY} é um
+ * {@code PLACE} de ordem post-only, que continua post-only nas alterações. Novos
+ * tipos só podem ser acrescentados no fim.
+ */
+public enum JournalRecordType {
+    INSTRUMENT, REGISTER_ACCOUNT, CREDIT, DEBIT, PLACE, CANCEL, PLACE_DEFERRED, PLACE_IMMEDIATE, AMEND, STOP,
+    PLACE_POST_ONLY;
+
+    private static final JournalRecordType[] VALUES = values();
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    static JournalRecordType of(byte code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+    }
+}
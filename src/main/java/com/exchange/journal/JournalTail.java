@@ -0,0 +1,129 @@
+package com.exchange.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Acompanha um journal que ainda está sendo gravado e copia os registros
+ * novos, no layout original, para um buffer de envio. Diferente do
+ * {@link JournalReader}, mantém o segmento corrente mapeado e a posição
+ * entre as chamadas, então consultar sem registros novos custa uma leitura
+ * de memória.
+ * <p>
+ * O {@link Journal} grava o tamanho do registro por último: um tamanho zero
+ * é o fim dos dados gravados até agora ou o fim do segmento, o que se
+ * distingue pela existência do segmento seguinte.
+ */
+public class JournalTail {
+
+    private final Path directory;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer data;
+    private ByteBuffer view;
+    private long firstSequence;
+    private int offset;
+    private long lastSequence;
+
+    /** @param afterSequence o primeiro registro entregue é o seguinte a este */
+    public JournalTail(Path directory, long afterSequence) {
+        this.directory = directory;
+        this.lastSequence = afterSequence;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Copia para {@code out} os registros completos gravados desde a última
+     * chamada, enquanto couberem.
+     *
+     * @return quantos registros foram copiados
+     */
+    public int drainTo(ByteBuffer out) {
+        if (data == null && !open()) return 0;
+        int copied = 0;
+        while (true) {
+            int length = offset + Journal.HEADER_SIZE <= data.capacity() ? data.getInt(offset) : 0;
+            if (length == 0) {
+                if (copied > 0 || !next()) return copied;
+                continue;
+            }
+            if (!JournalReader.isValid(crc, data, view, offset, length)) {
+                if (Files.exists(directory.resolve(JournalReader.segmentName(lastSequence + 1)))) {
+                    throw new IllegalStateException("Journal corrompido após a sequência " + lastSequence);
+                }
+                return copied;
+            }
+            long sequence = data.getLong(offset + 8);
+            if (sequence > lastSequence) {
+                if (sequence != lastSequence + 1) {
+                    throw new IllegalStateException("Sequência fora de ordem no journal: esperado "
+                            + (lastSequence + 1) + ", encontrado " + sequence);
+                }
+                if (length > out.remaining()) {
+                    if (copied == 0 && length > out.capacity()) {
+                        throw new IllegalStateException("Registro maior que o buffer de envio: " + length + " bytes");
+                    }
+                    return copied;
+                }
+                out.put(out.position(), data, offset, length);
+                out.position(out.position() + length);
+                lastSequence = sequence;
+                copied++;
+            }
+            offset += length;
+        }
+    }
+
+    /** Mapeia o segmento que contém o registro seguinte a {@code lastSequence}. */
+    private boolean open() {
+        List<Path> segments = new JournalReader(directory, lastSequence).segments();
+        Path current = null;
+        for (Path segment : segments) {
+            if (JournalReader.firstSequence(segment) > lastSequence + 1) break;
+            current = segment;
+        }
+        if (current == null) {
+            if (!segments.isEmpty()) {
+                throw new IllegalStateException("Journal não contém a sequência " + (lastSequence + 1));
+            }
+            return false;
+        }
+        map(current);
+        return true;
+    }
+
+    /**
+     * Passa ao segmento seguinte, se o atual já foi fechado pelo journal. Um
+     * segmento mapeado logo ao ser criado pode ter tamanho zero e é mapeado de novo.
+     */
+    private boolean next() {
+        Path segment = directory.resolve(JournalReader.segmentName(lastSequence + 1));
+        if (lastSequence + 1 == firstSequence) {
+            if (data.capacity() == 0) map(segment);
+            return false;
+        }
+        if (!Files.exists(segment)) return false;
+        map(segment);
+        return true;
+    }
+
+    private void map(Path segment) {
+        try (FileChannel file = FileChannel.open(segment)) {
+            data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            view = data.duplicate();
+            firstSequence = JournalReader.firstSequence(segment);
+            offset = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
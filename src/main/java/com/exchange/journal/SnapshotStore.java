@@ -0,0 +1,163 @@
+package com.exchange.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshots binários do estado do motor, cada um marcado com a última
+ * sequência do journal que ele já contém.
+ * <p>
+ * Arquivo: {@code [int magic][int versão][long sequência][int tamanho][estado][int crc32c]}.
+ * A gravação vai para um arquivo temporário que só é renomeado depois do
+ * fsync, então um snapshot visível está sempre completo; mesmo assim, a
+ * carga ignora arquivos com CRC inválido e tenta o anterior.
+ */
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x534E4150;
+    /** 2: livros com último preço e stops pendentes; snapshots anteriores são ignorados e o journal é reaplicado. */
+    private static final int VERSION = 3;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    /** Serializa o estado; chamado na thread que grava o snapshot. */
+    @FunctionalInterface
+    public interface StateWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /** Reconstrói o estado a partir do que o {@link StateWriter} gravou. */
+    @FunctionalInterface
+    public interface StateReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    private final Path directory;
+    private final int retained;
+
+    /** @param retained quantos snapshots manter; os mais antigos são apagados */
+    public SnapshotStore(Path directory, int retained) {
+        if (retained < 1) throw new IllegalArgumentException("Ao menos um snapshot deve ser mantido.");
+        this.directory = directory;
+        this.retained = retained;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Grava um snapshot do estado em {@code sequence} e remove os excedentes. */
+    public Path write(long sequence, StateWriter state) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            state.write(new DataOutputStream(bytes));
+            byte[] payload = bytes.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+
+            ByteBuffer header = ByteBuffer.allocate(20)
+                    .putInt(MAGIC).putInt(VERSION).putLong(sequence).putInt(payload.length).flip();
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+            Path target = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+            Path temporary = directory.resolve(target.getFileName() + ".tmp");
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = {header, ByteBuffer.wrap(payload), trailer};
+                while (trailer.hasRemaining()) {
+                    file.write(parts);
+                }
+                file.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            prune();
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Carrega o snapshot válido mais recente.
+     *
+     * @return a sequência do snapshot carregado, ou 0 se não há nenhum
+     */
+    public long loadLatest(StateReader state) {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            byte[] payload = readPayload(snapshots.get(i));
+            if (payload == null) continue;
+            try {
+                state.read(new DataInputStream(new ByteArrayInputStream(payload)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return sequenceOf(snapshots.get(i));
+        }
+        return 0;
+    }
+
+    /** Sequência do snapshot válido mais recente, sem carregá-lo; 0 se não há nenhum. */
+    public long latestSequence() {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (readPayload(snapshots.get(i)) != null) return sequenceOf(snapshots.get(i));
+        }
+        return 0;
+    }
+
+    private static byte[] readPayload(Path snapshot) {
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (data.remaining() < 24 || data.getInt() != MAGIC || data.getInt() != VERSION) return null;
+            if (data.getLong() != sequenceOf(snapshot)) return null;
+            int length = data.getInt();
+            if (length < 0 || length != data.remaining() - 4) return null;
+            byte[] payload = new byte[length];
+            data.get(payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            return data.getInt() == (int) crc.getValue() ? payload : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - retained; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.exchange.ledger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Identificadores inteiros pequenos e sequenciais para os ativos, usados como
+ * coluna nos vetores de saldo do {@link BalanceLedger}. O cadastro de um
+ * ativo novo é serializado; as consultas não tomam lock.
+ */
+public final class AssetRegistry {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    /** ID do ativo, cadastrando-o se ainda não existir. */
+    public int intern(String asset) {
+        Integer id = ids.get(asset);
+        return id != null ? id : register(asset);
+    }
+
+    /** ID do ativo, ou {@code -1} se nunca foi cadastrado. */
+    public int find(String asset) {
+        Integer id = ids.get(asset);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private synchronized int register(String asset) {
+        if (asset == null || asset.isBlank()) {
+            throw new IllegalArgumentException("Ativo é obrigatório.");
+        }
+        Integer id = ids.get(asset);
+        if (id != null) return id;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = asset;
+        // O nome fica visível antes do ID, para quem encontrar o ID achar o nome.
+        names = grown;
+        ids.put(asset, names.length - 1);
+        return names.length - 1;
+    }
+}
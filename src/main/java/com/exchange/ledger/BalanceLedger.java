@@ -0,0 +1,283 @@
+package com.exchange.ledger;
+
+import com.exchange.model.FixedPoint;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Saldos de todas as contas em vetores primitivos, em unidades mínimas de
+ * cada ativo. Cada conta recebe um slot; os slots são distribuídos em
+ * rodízio entre shards independentes, cada um com a sua matriz
+ * {@code conta × ativo × (disponível, reservado)} e o seu {@link StampedLock}.
+ * <p>
+ * Escritas tomam só o lock de escrita do shard da conta, de modo que a
+ * liquidação de um livro e um depósito em outra conta seguem em paralelo.
+ * Leituras são otimistas: leem sem lock e só repetem sob lock de leitura
+ * se alguma escrita no mesmo shard ocorreu no meio.
+ */
+public final class BalanceLedger {
+
+    private static final int AVAILABLE = 0;
+    private static final int RESERVED = 1;
+    /** Ativo já movimentado na conta: aparece na listagem mesmo zerado. */
+    private static final int TOUCHED = 2;
+    private static final int FIELDS = 3;
+
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_COLUMNS = 4;
+
+    private final AssetRegistry assets;
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int shardBits;
+    private final AtomicInteger slots = new AtomicInteger();
+    private volatile boolean replaying;
+
+    /** Um shard por processador disponível. */
+    public BalanceLedger() {
+        this(0);
+    }
+
+    /** @param shardCount potência de 2, ou 0 para um shard por processador */
+    public BalanceLedger(int shardCount) {
+        this(new AssetRegistry(), shardCount);
+    }
+
+    public BalanceLedger(AssetRegistry assets, int shardCount) {
+        if (shardCount == 0) shardCount = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("Número de shards do ledger deve ser potência de 2.");
+        }
+        this.assets = assets;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = shardCount - 1;
+        this.shardBits = Integer.numberOfTrailingZeros(shardCount);
+    }
+
+    public AssetRegistry assets() {
+        return assets;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Na reaplicação de um journal, os movimentos não conferem o saldo de
+     * origem, que pode ficar negativo no meio do caminho. Cada movimento
+     * gravado já passou pela conferência quando foi aplicado, mas livros e
+     * ledger gravam em fluxos independentes e o journal não guarda a ordem
+     * entre eles em que mexeram nos mesmos saldos. Como os movimentos só
+     * somam e subtraem, qualquer intercalação que preserve a ordem de cada
+     * fluxo chega aos mesmos saldos no fim.
+     */
+    public void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    /** Aloca o slot de uma conta nova, com todos os saldos zerados. */
+    public int open() {
+        int slot = slots.getAndIncrement();
+        Shard shard = shard(slot);
+        long stamp = shard.lock.writeLock();
+        try {
+            shard.ensure(row(slot), 0);
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+        return slot;
+    }
+
+    public void credit(int slot, int asset, long units) {
+        requirePositive(units);
+        Shard shard = shard(slot);
+        long stamp = shard.lock.writeLock();
+        try {
+            int i = shard.ensure(row(slot), asset);
+            shard.cells[i + AVAILABLE] = FixedPoint.add(shard.cells[i + AVAILABLE], units);
+            shard.cells[i + TOUCHED] = 1;
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @return {@code false}, sem alterar nada, se o disponível não cobre o débito */
+    public boolean debit(int slot, int asset, long units) {
+        return move(slot, asset, units, AVAILABLE, -1);
+    }
+
+    /** Passa unidades do disponível para o reservado. */
+    public boolean reserve(int slot, int asset, long units) {
+        return move(slot, asset, units, AVAILABLE, RESERVED);
+    }
+
+    /** Devolve unidades reservadas ao disponível. */
+    public void release(int slot, int asset, long units) {
+        if (!move(slot, asset, units, RESERVED, AVAILABLE)) {
+            throw new IllegalStateException("Reserva insuficiente para liberar.");
+        }
+    }
+
+    /** Baixa unidades reservadas, entregues na liquidação. */
+    public void consume(int slot, int asset, long units) {
+        if (!move(slot, asset, units, RESERVED, -1)) {
+            throw new IllegalStateException("Reserva insuficiente para liquidar.");
+        }
+    }
+
+    private boolean move(int slot, int asset, long units, int from, int to) {
+        requirePositive(units);
+        if (asset < 0) return false;
+        Shard shard = shard(slot);
+        long stamp = shard.lock.writeLock();
+        try {
+            int i = shard.ensure(row(slot), asset);
+            long[] cells = shard.cells;
+            if (cells[i + from] < units && !replaying) return false;
+            cells[i + from] -= units;
+            if (to >= 0) cells[i + to] = FixedPoint.add(cells[i + to], units);
+            cells[i + TOUCHED] = 1;
+            return true;
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    public long available(int slot, int asset) {
+        return read(slot, asset, AVAILABLE);
+    }
+
+    public long reserved(int slot, int asset) {
+        return read(slot, asset, RESERVED);
+    }
+
+    private long read(int slot, int asset, int field) {
+        if (asset < 0) return 0;
+        Shard shard = shard(slot);
+        int row = row(slot);
+        long stamp = shard.lock.tryOptimisticRead();
+        long value = shard.get(row, asset, field);
+        if (shard.lock.validate(stamp)) return value;
+        stamp = shard.lock.readLock();
+        try {
+            return shard.get(row, asset, field);
+        } finally {
+            shard.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Cópia consistente dos saldos da conta, indexada por ID de ativo: o
+     * disponível de {@code asset} fica em {@code [asset * 3]}, o reservado
+     * em {@code [asset * 3 + 1]} e a marca de movimentação em
+     * {@code [asset * 3 + 2]}. Use {@link #available(long[], int)} e afins.
+     */
+    public long[] balances(int slot) {
+        Shard shard = shard(slot);
+        int row = row(slot);
+        long stamp = shard.lock.tryOptimisticRead();
+        long[] copy = shard.copyRow(row);
+        if (shard.lock.validate(stamp)) return copy;
+        stamp = shard.lock.readLock();
+        try {
+            return shard.copyRow(row);
+        } finally {
+            shard.lock.unlockRead(stamp);
+        }
+    }
+
+    public static long available(long[] balances, int asset) {
+        return field(balances, asset, AVAILABLE);
+    }
+
+    public static long reserved(long[] balances, int asset) {
+        return field(balances, asset, RESERVED);
+    }
+
+    public static boolean touched(long[] balances, int asset) {
+        return field(balances, asset, TOUCHED) != 0;
+    }
+
+    /** Ativos com posição na cópia de {@link #balances(int)}. */
+    public static int assetCount(long[] balances) {
+        return balances.length / FIELDS;
+    }
+
+    private static long field(long[] balances, int asset, int field) {
+        int i = asset * FIELDS + field;
+        return asset >= 0 && i < balances.length ? balances[i] : 0;
+    }
+
+    private Shard shard(int slot) {
+        return shards[slot & shardMask];
+    }
+
+    private int row(int slot) {
+        return slot >>> shardBits;
+    }
+
+    private static void requirePositive(long units) {
+        if (units <= 0) throw new IllegalArgumentException("Quantidade deve ser positiva.");
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Matriz de um shard, linha a linha: {@code columns} ativos por conta e
+     * {@link #FIELDS} valores por ativo. Só cresce, sempre sob lock de escrita.
+     */
+    private static final class Shard {
+
+        final StampedLock lock = new StampedLock();
+        long[] cells = new long[0];
+        int rows;
+        int columns;
+
+        /** Garante espaço para a célula e devolve o índice do seu primeiro campo. */
+        int ensure(int row, int asset) {
+            if (row >= rows || asset >= columns) {
+                grow(row >= rows ? Math.max(row + 1, Math.max(INITIAL_ROWS, rows * 2)) : rows,
+                        asset >= columns ? Math.max(ceilingPowerOfTwo(asset + 1), INITIAL_COLUMNS) : Math.max(columns, INITIAL_COLUMNS));
+            }
+            return (row * columns + asset) * FIELDS;
+        }
+
+        private void grow(int newRows, int newColumns) {
+            long[] grown = new long[newRows * newColumns * FIELDS];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(cells, row * columns * FIELDS, grown, row * newColumns * FIELDS, columns * FIELDS);
+            }
+            cells = grown;
+            rows = newRows;
+            columns = newColumns;
+        }
+
+        /** Pode ler um estado inconsistente numa leitura otimista; o chamador valida o carimbo. */
+        long get(int row, int asset, int field) {
+            long[] cells = this.cells;
+            int columns = this.columns;
+            if (asset >= columns) return 0;
+            int i = (row * columns + asset) * FIELDS + field;
+            return i < cells.length ? cells[i] : 0;
+        }
+
+        long[] copyRow(int row) {
+            long[] cells = this.cells;
+            int width = this.columns * FIELDS;
+            int from = row * width;
+            if (from + width > cells.length) return new long[0];
+            return Arrays.copyOfRange(cells, from, from + width);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.exchange.marketdata;
+
+import com.exchange.book.OrderBook;
+import com.exchange.book.PriceLevel;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profundidade agregada imutável dos primeiros níveis de cada lado de um
+ * livro, numa sequência do seu feed. É montada pela thread do livro, em
+ * ticks e lotes, e publicada inteira; quem lê não toca no livro nem em lock.
+ */
+public final class BookDepth {
+
+    private final InstrumentSpec spec;
+    private final long sequence;
+    private final Levels bids;
+    private final Levels asks;
+
+    private BookDepth(InstrumentSpec spec, long sequence, Levels bids, Levels asks) {
+        this.spec = spec;
+        this.sequence = sequence;
+        this.bids = bids;
+        this.asks = asks;
+    }
+
+    static BookDepth of(OrderBook book, long sequence, int maxLevels) {
+        return new BookDepth(book.getSpec(), sequence,
+                Levels.of(book, OrderType.BUY, maxLevels), Levels.of(book, OrderType.SELL, maxLevels));
+    }
+
+    /** Nova versão; os lados marcados são remontados do livro e os demais, reaproveitados. */
+    BookDepth next(OrderBook book, long sequence, boolean bidsChanged, boolean asksChanged, int maxLevels) {
+        return new BookDepth(spec, sequence,
+                bidsChanged ? Levels.of(book, OrderType.BUY, maxLevels) : bids,
+                asksChanged ? Levels.of(book, OrderType.SELL, maxLevels) : asks);
+    }
+
+    /**
+     * Se uma mudança no preço informado pode alterar os níveis guardados: o
+     * lado ainda não está cheio ou o preço não é pior que o último guardado.
+     */
+    boolean covers(OrderType side, long priceTicks, int maxLevels) {
+        Levels levels = side == OrderType.BUY ? bids : asks;
+        if (levels.size() < maxLevels) return true;
+        long worst = levels.prices[levels.size() - 1];
+        return side == OrderType.BUY ? priceTicks >= worst : priceTicks <= worst;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Níveis guardados de um lado; consultas mais profundas precisam ir ao livro. */
+    public int levels(OrderType side) {
+        return (side == OrderType.BUY ? bids : asks).size();
+    }
+
+    public DepthSnapshot toSnapshot(int depth) {
+        return new DepthSnapshot(spec.getInstrument(), sequence, bids.toList(spec, depth), asks.toList(spec, depth));
+    }
+
+    /** Um lado em vetores paralelos, do melhor preço para o pior. */
+    private record Levels(long[] prices, long[] lots, int[] orders) {
+
+        static Levels of(OrderBook book, OrderType side, int maxLevels) {
+            List<PriceLevel> levels = book.getLevels(side, maxLevels);
+            long[] prices = new long[levels.size()];
+            long[] lots = new long[levels.size()];
+            int[] orders = new int[levels.size()];
+            for (int i = 0; i < levels.size(); i++) {
+                PriceLevel level = levels.get(i);
+                prices[i] = level.getPrice();
+                lots[i] = level.getTotalLots();
+                orders[i] = level.size();
+            }
+            return new Levels(prices, lots, orders);
+        }
+
+        int size() {
+            return prices.length;
+        }
+
+        List<BookLevel> toList(InstrumentSpec spec, int depth) {
+            int count = Math.min(depth, prices.length);
+            List<BookLevel> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new BookLevel(spec.price(prices[i]), spec.quantity(lots[i]), orders[i]));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.exchange.marketdata;
+
+import com.exchange.book.BookListener;
+import com.exchange.book.LongHashMap;
+import com.exchange.book.OrderBook;
+import com.exchange.book.PriceLevel;
+import com.exchange.book.TradeListener;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fonte de market data de um livro. Mudanças de nível e execuções chegam na
+ * thread do livro e são acumuladas durante o comando; {@link #publish()},
+ * chamado ao fim de cada comando, as entrega ao buffer compartilhado, onde
+ * mudanças do mesmo nível se sobrepõem até o próximo {@link #drain()}. Quem
+ * consome nunca vê o estado intermediário de um comando (um livro cruzado
+ * antes do matching, por exemplo) e a thread do livro toma o lock uma vez
+ * por comando, nunca esperando pelo consumidor.
+ * <p>
+ * Enquanto inativo (sem assinantes) o feed só avança a sequência e mantém
+ * o {@link BookDepth} em cache, remontado a cada comando que altera algum
+ * dos níveis guardados.
+ */
+public class BookFeed implements BookListener, TradeListener {
+
+    /** Execuções guardadas entre duas coletas quando não especificado. */
+    public static final int MAX_TRADES = 4_096;
+
+    /** Níveis por lado no {@link BookDepth} em cache quando não especificado. */
+    public static final int DEPTH_LEVELS = 50;
+
+    private final OrderBook book;
+    private final InstrumentSpec spec;
+    private final int depthLevels;
+    private final Object drainLock = new Object();
+    private volatile boolean active;
+    private volatile BookDepth depth;
+
+    // Thread do livro.
+    private final Changes working;
+    private long sequence;
+    private boolean dirty;
+    private boolean bidsChanged;
+    private boolean asksChanged;
+
+    // Guardado por this; draining só é usado sob drainLock.
+    private Changes pending;
+    private Changes draining;
+
+    /** @param maxTrades execuções guardadas entre dois {@link #drain()}; as excedentes são só contadas */
+    public BookFeed(OrderBook book, int maxTrades) {
+        this(book, maxTrades, DEPTH_LEVELS);
+    }
+
+    /** @param depthLevels níveis por lado mantidos no {@link BookDepth} em cache */
+    public BookFeed(OrderBook book, int maxTrades, int depthLevels) {
+        if (depthLevels <= 0) throw new IllegalArgumentException("Profundidade deve ser positiva.");
+        this.book = book;
+        this.spec = book.getSpec();
+        this.depthLevels = depthLevels;
+        this.depth = BookDepth.of(book, 0, depthLevels);
+        this.working = new Changes(maxTrades);
+        this.pending = new Changes(maxTrades);
+        this.draining = new Changes(maxTrades);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+        if (!active) {
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+    }
+
+    @Override
+    public void onLevelChanged(OrderType side, long priceTicks, long totalLots, int orders) {
+        dirty = true;
+        if (depth.covers(side, priceTicks, depthLevels)) {
+            if (side == OrderType.BUY) bidsChanged = true;
+            else asksChanged = true;
+        }
+        if (active) working.level(side.ordinal(), priceTicks, totalLots, orders);
+    }
+
+    @Override
+    public void onTrade(long buyOrderId, String buyAccountId, long sellOrderId, String sellAccountId,
+                        OrderType takerSide, long priceTicks, long quantityLots) {
+        dirty = true;
+        if (active) working.trade(0, priceTicks, quantityLots, takerSide.ordinal());
+    }
+
+    /** Fecha o comando corrente; deve ser chamado pela thread do livro. */
+    public void publish() {
+        if (!dirty) return;
+        dirty = false;
+        sequence++;
+        depth = depth.next(book, sequence, bidsChanged, asksChanged, depthLevels);
+        bidsChanged = false;
+        asksChanged = false;
+        if (active) {
+            PriceLevel bid = book.bestBidLevel();
+            PriceLevel ask = book.bestAskLevel();
+            synchronized (this) {
+                pending.merge(working, sequence, bid, ask);
+            }
+        }
+        working.clear();
+    }
+
+    /**
+     * Retira as mudanças acumuladas desde a chamada anterior.
+     *
+     * @return as mudanças conflacionadas, ou {@code null} se não houve nenhuma
+     */
+    public MarketDataUpdate drain() {
+        synchronized (drainLock) {
+            Changes batch;
+            synchronized (this) {
+                if (pending.isEmpty()) return null;
+                batch = pending;
+                pending = draining;
+                draining = batch;
+            }
+            MarketDataUpdate update = batch.toUpdate(spec);
+            batch.clear();
+            return update;
+        }
+    }
+
+    /**
+     * Profundidade agregada atual lida na thread do livro, que fica alinhada
+     * com os deltas registrados a partir dela (início de uma assinatura).
+     */
+    public DepthSnapshot snapshot(int depth) {
+        publish();
+        if (depth <= depthLevels) return this.depth.toSnapshot(depth);
+        return new DepthSnapshot(spec.getInstrument(), sequence,
+                levels(OrderType.BUY, depth), levels(OrderType.SELL, depth));
+    }
+
+    /** Última profundidade publicada; pode ser lida de qualquer thread. */
+    public BookDepth getDepth() {
+        return depth;
+    }
+
+    public int getDepthLevels() {
+        return depthLevels;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    private List<BookLevel> levels(OrderType side, int depth) {
+        List<BookLevel> result = new ArrayList<>();
+        for (PriceLevel level : book.getLevels(side, depth)) {
+            result.add(toLevel(spec, level.getPrice(), level.getTotalLots(), level.size()));
+        }
+        return result;
+    }
+
+    private static BookLevel toLevel(InstrumentSpec spec, long priceTicks, long lots, long orders) {
+        return new BookLevel(spec.price(priceTicks), spec.quantity(lots), (int) orders);
+    }
+
+    /** Mudanças por nível ({@code [lado, preço, lotes, ordens]}) e execuções de um intervalo de sequências. */
+    private static final class Changes {
+
+        private static final int TRADE_FIELDS = 4;
+
+        private final LongHashMap<long[]> bids = new LongHashMap<>(64);
+        private final LongHashMap<long[]> asks = new LongHashMap<>(64);
+        private final List<long[]> levels = new ArrayList<>();
+        private final ArrayDeque<long[]> free = new ArrayDeque<>();
+        private final long[] trades;
+        private final int maxTrades;
+        private int tradeCount;
+        private int tradesDropped;
+        private long fromSequence;
+        private long sequence;
+        private final long[] bestBid = new long[3];
+        private final long[] bestAsk = new long[3];
+
+        Changes(int maxTrades) {
+            this.maxTrades = maxTrades;
+            this.trades = new long[maxTrades * TRADE_FIELDS];
+        }
+
+        boolean isEmpty() {
+            return sequence == 0;
+        }
+
+        void level(int side, long priceTicks, long lots, long orders) {
+            LongHashMap<long[]> bySide = side == 0 ? bids : asks;
+            long[] entry = bySide.get(priceTicks);
+            if (entry == null) {
+                entry = free.isEmpty() ? new long[4] : free.pop();
+                entry[0] = side;
+                entry[1] = priceTicks;
+                bySide.put(priceTicks, entry);
+                levels.add(entry);
+            }
+            entry[2] = lots;
+            entry[3] = orders;
+        }
+
+        void trade(long sequence, long priceTicks, long lots, int aggressor) {
+            if (tradeCount == maxTrades) {
+                tradesDropped++;
+                return;
+            }
+            int i = tradeCount++ * TRADE_FIELDS;
+            trades[i] = sequence;
+            trades[i + 1] = priceTicks;
+            trades[i + 2] = lots;
+            trades[i + 3] = aggressor;
+        }
+
+        /** Sobrepõe as mudanças de um comando, que levou o livro à sequência {@code sequence}. */
+        void merge(Changes command, long sequence, PriceLevel bid, PriceLevel ask) {
+            if (isEmpty()) fromSequence = sequence - 1;
+            this.sequence = sequence;
+            for (long[] entry : command.levels) {
+                level((int) entry[0], entry[1], entry[2], entry[3]);
+            }
+            for (int i = 0; i < command.tradeCount * TRADE_FIELDS; i += TRADE_FIELDS) {
+                trade(sequence, command.trades[i + 1], command.trades[i + 2], (int) command.trades[i + 3]);
+            }
+            tradesDropped += command.tradesDropped;
+            top(bestBid, bid);
+            top(bestAsk, ask);
+        }
+
+        MarketDataUpdate toUpdate(InstrumentSpec spec) {
+            levels.sort(Comparator.comparingLong(entry -> entry[1]));
+            List<BookLevel> bidLevels = new ArrayList<>();
+            List<BookLevel> askLevels = new ArrayList<>();
+            for (long[] entry : levels) {
+                BookLevel level = toLevel(spec, entry[1], entry[2], entry[3]);
+                (entry[0] == 0 ? bidLevels : askLevels).add(level);
+            }
+            Collections.reverse(bidLevels);
+            OrderType[] types = OrderType.values();
+            List<TradePrint> prints = new ArrayList<>(tradeCount);
+            for (int i = 0; i < tradeCount * TRADE_FIELDS; i += TRADE_FIELDS) {
+                prints.add(new TradePrint(trades[i], spec.price(trades[i + 1]), spec.quantity(trades[i + 2]),
+                        types[(int) trades[i + 3]]));
+            }
+            return new MarketDataUpdate(spec.getInstrument(), fromSequence, sequence,
+                    topLevel(spec, bestBid), topLevel(spec, bestAsk), bidLevels, askLevels, prints, tradesDropped);
+        }
+
+        void clear() {
+            for (long[] entry : levels) {
+                (entry[0] == 0 ? bids : asks).remove(entry[1]);
+                free.push(entry);
+            }
+            levels.clear();
+            tradeCount = 0;
+            tradesDropped = 0;
+            fromSequence = 0;
+            sequence = 0;
+        }
+
+        private static void top(long[] target, PriceLevel level) {
+            target[0] = level == null ? 0 : level.getPrice();
+            target[1] = level == null ? 0 : level.getTotalLots();
+            target[2] = level == null ? 0 : level.size();
+        }
+
+        private static BookLevel topLevel(InstrumentSpec spec, long[] top) {
+            return top[0] == 0 ? null : toLevel(spec, top[0], top[1], top[2]);
+        }
+    }
+}
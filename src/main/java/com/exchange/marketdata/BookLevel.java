@@ -0,0 +1,6 @@
+package com.exchange.marketdata;
+
+import java.math.BigDecimal;
+
+/** Nível de preço agregado; quantidade zero num delta indica que o nível saiu do livro. */
+public record BookLevel(BigDecimal price, BigDecimal quantity, int orders) {}
@@ -0,0 +1,11 @@
+package com.exchange.marketdata;
+
+import com.exchange.model.Instrument;
+
+import java.util.List;
+
+/**
+ * Profundidade agregada de um livro na sequência {@code sequence}; deltas
+ * com sequência maior se aplicam por cima dela.
+ */
+public record DepthSnapshot(Instrument instrument, long sequence, List<BookLevel> bids, List<BookLevel> asks) {}
@@ -0,0 +1,226 @@
+package com.exchange.marketdata;
+
+import com.exchange.config.MarketDataProperties;
+import com.exchange.model.Instrument;
+import com.exchange.service.OrderBookService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Distribui o market data dos livros aos assinantes. Uma thread coleta
+ * periodicamente as mudanças de cada feed com assinantes e as sobrepõe ao
+ * pendente de cada um; o envio acontece num pool separado, um envio por vez
+ * por assinante. Um assinante lento não atrasa os outros nem o matching:
+ * enquanto o envio anterior não termina, ele só acumula o estado mais
+ * recente de cada nível.
+ */
+@Slf4j
+@Component
+public class MarketDataPublisher implements AutoCloseable {
+
+    private final OrderBookService service;
+    private final MarketDataProperties properties;
+    private final Map<Instrument, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService distributor;
+    private final ExecutorService senders;
+
+    public MarketDataPublisher(OrderBookService service, MarketDataProperties properties) {
+        this.service = service;
+        this.properties = properties;
+        this.distributor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "market-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(properties.getSenderThreads(), r -> {
+            Thread thread = new Thread(r, "market-data-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        distributor.scheduleWithFixedDelay(this::distribute,
+                properties.getPublishIntervalMs(), properties.getPublishIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Assina o livro: envia um {@link DepthSnapshot} na thread de quem chama
+     * e, a partir dele, os deltas conflacionados.
+     */
+    public Subscription subscribe(Instrument instrument, MarketDataSink sink) throws IOException {
+        BookFeed feed = service.getFeed(instrument);
+        Subscription subscription = new Subscription(instrument, sink, properties.getMaxTradesPerUpdate());
+        synchronized (this) {
+            subscriptions.computeIfAbsent(instrument, i -> new CopyOnWriteArrayList<>()).add(subscription);
+            feed.setActive(true);
+        }
+        // O feed já está ativo quando o snapshot é lido na thread do livro: o que
+        // mudar depois dele fica pendente na assinatura.
+        try {
+            DepthSnapshot snapshot = service.readDepth(instrument, properties.getSnapshotDepth());
+            sink.onSnapshot(snapshot);
+            if (subscription.start(snapshot.sequence())) senders.execute(() -> send(subscription));
+        } catch (IOException | RuntimeException e) {
+            unsubscribe(subscription);
+            throw e;
+        }
+        return subscription;
+    }
+
+    public synchronized void unsubscribe(Subscription subscription) {
+        subscription.close();
+        List<Subscription> current = subscriptions.get(subscription.instrument);
+        if (current != null && current.remove(subscription) && current.isEmpty()) {
+            subscriptions.remove(subscription.instrument);
+            service.getFeed(subscription.instrument).setActive(false);
+        }
+    }
+
+    public int subscriberCount(Instrument instrument) {
+        List<Subscription> current = subscriptions.get(instrument);
+        return current == null ? 0 : current.size();
+    }
+
+    /** Uma rodada de coleta; normalmente chamada a cada {@code publish-interval-ms}. */
+    void distribute() {
+        try {
+            for (Map.Entry<Instrument, List<Subscription>> entry : subscriptions.entrySet()) {
+                MarketDataUpdate update = service.getFeed(entry.getKey()).drain();
+                if (update == null) continue;
+                for (Subscription subscription : entry.getValue()) {
+                    if (subscription.offer(update)) senders.execute(() -> send(subscription));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao distribuir market data", e);
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            for (MarketDataUpdate update = subscription.take(); update != null; update = subscription.take()) {
+                subscription.sink.onUpdate(update);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Assinatura de {} encerrada: {}", subscription.instrument, e.toString());
+            unsubscribe(subscription);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        distributor.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Estado pendente de um assinante: o valor mais recente de cada nível e
+     * do topo, e as execuções até o limite configurado.
+     */
+    public static final class Subscription {
+
+        private final Instrument instrument;
+        private final MarketDataSink sink;
+        private final int maxTrades;
+        private final TreeMap<BigDecimal, BookLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final TreeMap<BigDecimal, BookLevel> asks = new TreeMap<>();
+        private final List<TradePrint> trades = new ArrayList<>();
+        private int tradesDropped;
+        private long fromSequence;
+        private long sequence;
+        private BookLevel bestBid;
+        private BookLevel bestAsk;
+        private long snapshotSequence;
+        private boolean started;
+        private boolean sending;
+        private boolean closed;
+
+        private Subscription(Instrument instrument, MarketDataSink sink, int maxTrades) {
+            this.instrument = instrument;
+            this.sink = sink;
+            this.maxTrades = maxTrades;
+        }
+
+        public Instrument getInstrument() {
+            return instrument;
+        }
+
+        /** @return se um envio deve ser agendado */
+        private synchronized boolean offer(MarketDataUpdate update) {
+            if (closed) return false;
+            if (sequence == 0) fromSequence = update.fromSequence();
+            sequence = update.sequence();
+            bestBid = update.bestBid();
+            bestAsk = update.bestAsk();
+            update.bids().forEach(level -> bids.put(level.price(), level));
+            update.asks().forEach(level -> asks.put(level.price(), level));
+            for (TradePrint trade : update.trades()) {
+                if (trades.size() < maxTrades) trades.add(trade);
+                else tradesDropped++;
+            }
+            tradesDropped += update.tradesDropped();
+            return claim();
+        }
+
+        private synchronized boolean start(long snapshotSequence) {
+            this.snapshotSequence = snapshotSequence;
+            started = true;
+            return claim();
+        }
+
+        /**
+         * Retira o pendente para envio. Um nível cuja última mudança é
+         * anterior ao snapshot tem o mesmo valor do snapshot, então só
+         * lotes inteiramente cobertos por ele e execuções já refletidas
+         * nele são descartados.
+         */
+        private synchronized MarketDataUpdate take() {
+            if (sequence <= snapshotSequence) clear();
+            if (sequence == 0 || closed) {
+                sending = false;
+                return null;
+            }
+            List<TradePrint> prints = trades.stream().filter(trade -> trade.sequence() > snapshotSequence).toList();
+            MarketDataUpdate update = new MarketDataUpdate(instrument, Math.max(fromSequence, snapshotSequence), sequence,
+                    bestBid, bestAsk, List.copyOf(bids.values()), List.copyOf(asks.values()), prints, tradesDropped);
+            clear();
+            return update;
+        }
+
+        private boolean claim() {
+            if (!started || sending || sequence == 0) return false;
+            sending = true;
+            return true;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            clear();
+        }
+
+        private void clear() {
+            bids.clear();
+            asks.clear();
+            trades.clear();
+            tradesDropped = 0;
+            fromSequence = 0;
+            sequence = 0;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.exchange.marketdata;
+
+import java.io.IOException;
+
+/**
+ * Destino das mensagens de um assinante. As chamadas de um mesmo assinante
+ * nunca são concorrentes; uma exceção encerra a assinatura.
+ */
+public interface MarketDataSink {
+
+    /** Estado inicial; os deltas seguintes têm sequência maior que a dele. */
+    void onSnapshot(DepthSnapshot snapshot) throws IOException;
+
+    void onUpdate(MarketDataUpdate update) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.exchange.marketdata;
+
+import com.exchange.model.Instrument;
+
+import java.util.List;
+
+/**
+ * Mudanças de um livro nas sequências {@code (fromSequence, sequence]}, já
+ * conflacionadas: cada nível aparece uma vez, com a quantidade total atual
+ * (não a diferença), então aplicar o mesmo nível duas vezes é inofensivo.
+ *
+ * @param bestBid       topo de compra em {@code sequence}, ou {@code null} com o lado vazio
+ * @param tradesDropped execuções descartadas porque o assinante ficou para trás
+ */
+public record MarketDataUpdate(Instrument instrument, long fromSequence, long sequence,
+                               BookLevel bestBid, BookLevel bestAsk,
+                               List<BookLevel> bids, List<BookLevel> asks,
+                               List<TradePrint> trades, int tradesDropped) {}
@@ -0,0 +1,13 @@
+package com.exchange.marketdata;
+
+import com.exchange.model.OrderType;
+
+import java.math.BigDecimal;
+
+/**
+ * Execução publicada no feed.
+ *
+ * @param sequence  sequência do livro após o comando que gerou a execução
+ * @param aggressor lado da ordem agressora, informado pelo livro
+ */
+public record TradePrint(long sequence, BigDecimal price, BigDecimal quantity, OrderType aggressor) {}
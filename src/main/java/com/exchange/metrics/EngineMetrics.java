@@ -0,0 +1,145 @@
+package com.exchange.metrics;
+
+import com.exchange.engine.AdmissionControl;
+import com.exchange.model.Instrument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Métricas do engine: latência de decodificação e de resposta, globais, e
+ * as de cada livro ({@link InstrumentMetrics}) e a ocupação do
+ * {@link AdmissionControl}. Ficam sempre ligadas; o custo
+ * no caminho quente é uma leitura de {@link System#nanoTime()} por etapa e
+ * um incremento atômico.
+ * <p>
+ * {@link #writeText} exporta tudo no formato texto do Prometheus; o binder
+ * do perfil {@code micrometer} publica os mesmos valores no Micrometer.
+ */
+public final class EngineMetrics {
+
+    /** Quantis exportados de cada histograma; 1.0 é o máximo. */
+    public static final List<Double> QUANTILES = List.of(0.5, 0.9, 0.99, 0.999, 1.0);
+
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final LatencyHistogram response = new LatencyHistogram();
+    private final Map<Instrument, InstrumentMetrics> instruments = new ConcurrentHashMap<>();
+    private volatile AdmissionControl admission;
+
+    /** Conversão de uma requisição (JSON já lido ou frame binário) em ordem. */
+    public LatencyHistogram decode() {
+        return decode;
+    }
+
+    /** Da entrada da ordem no serviço até a conclusão do seu resultado. */
+    public LatencyHistogram response() {
+        return response;
+    }
+
+    public void register(InstrumentMetrics metrics) {
+        instruments.putIfAbsent(metrics.getInstrument(), metrics);
+    }
+
+    public void register(AdmissionControl admission) {
+        this.admission = admission;
+    }
+
+    /** Controle de admissão do engine, ou {@code null} se não houver. */
+    public AdmissionControl admission() {
+        return admission;
+    }
+
+    public InstrumentMetrics instrument(Instrument instrument) {
+        return instruments.get(instrument);
+    }
+
+    public Collection<InstrumentMetrics> instruments() {
+        return instruments.values();
+    }
+
+    public String toText() {
+        StringBuilder out = new StringBuilder(4_096);
+        writeText(out);
+        return out.toString();
+    }
+
+    public void writeText(Appendable out) {
+        try {
+            type(out, "exchange_latency_nanoseconds", "summary");
+            latency(out, "decode", null, decode);
+            latency(out, "response", null, response);
+            for (InstrumentMetrics metrics : instruments.values()) {
+                latency(out, "validation", metrics.getInstrument(), metrics.validation());
+                latency(out, "queue_wait", metrics.getInstrument(), metrics.queueWait());
+                latency(out, "matching", metrics.getInstrument(), metrics.matching());
+            }
+            metric(out, "exchange_orders_total", "counter", InstrumentMetrics::orders);
+            metric(out, "exchange_fills_total", "counter", InstrumentMetrics::fills);
+            metric(out, "exchange_cancels_total", "counter", InstrumentMetrics::cancels);
+            metric(out, "exchange_rejects_total", "counter", InstrumentMetrics::rejects);
+            metric(out, "exchange_open_orders", "gauge", InstrumentMetrics::openOrders);
+            metric(out, "exchange_queue_backlog", "gauge", InstrumentMetrics::backlog);
+            type(out, "exchange_book_levels", "gauge");
+            for (InstrumentMetrics metrics : instruments.values()) {
+                sample(out, "exchange_book_levels", label(metrics) + ",side=\"bid\"", metrics.bidLevels());
+                sample(out, "exchange_book_levels", label(metrics) + ",side=\"ask\"", metrics.askLevels());
+            }
+            AdmissionControl admission = this.admission;
+            if (admission != null) {
+                type(out, "exchange_admission_in_flight", "gauge");
+                sample(out, "exchange_admission_in_flight", "", admission.inFlight());
+                type(out, "exchange_admission_limit", "gauge");
+                sample(out, "exchange_admission_limit", "", admission.maxInFlight());
+                type(out, "exchange_admission_admitted_total", "counter");
+                sample(out, "exchange_admission_admitted_total", "", admission.admitted());
+                type(out, "exchange_admission_rejected_total", "counter");
+                sample(out, "exchange_admission_rejected_total", "", admission.rejected());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String name(Instrument instrument) {
+        return instrument.baseAsset() + "/" + instrument.quoteAsset();
+    }
+
+    private static void latency(Appendable out, String stage, Instrument instrument, LatencyHistogram histogram)
+            throws IOException {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        String labels = "stage=\"" + stage + "\"" + (instrument == null ? "" : ",instrument=\"" + name(instrument) + "\"");
+        for (double quantile : QUANTILES) {
+            sample(out, "exchange_latency_nanoseconds", labels + ",quantile=\"" + quantile + "\"", snapshot.valueAt(quantile));
+        }
+        // Soma aproximada pelos limites superiores das faixas.
+        sample(out, "exchange_latency_nanoseconds_sum", labels, Math.round(snapshot.mean() * snapshot.count()));
+        sample(out, "exchange_latency_nanoseconds_count", labels, snapshot.count());
+    }
+
+    private void metric(Appendable out, String name, String type, ToLongFunction<InstrumentMetrics> value)
+            throws IOException {
+        type(out, name, type);
+        for (InstrumentMetrics metrics : instruments.values()) {
+            sample(out, name, label(metrics), value.applyAsLong(metrics));
+        }
+    }
+
+    private static String label(InstrumentMetrics metrics) {
+        return "instrument=\"" + name(metrics.getInstrument()) + "\"";
+    }
+
+    private static void type(Appendable out, String name, String type) throws IOException {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String labels, long value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(Long.toString(value)).append('\n');
+    }
+}
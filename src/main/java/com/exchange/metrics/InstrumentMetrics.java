@@ -0,0 +1,109 @@
+package com.exchange.metrics;
+
+import com.exchange.model.Instrument;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Contadores, latências por etapa e gauges de um livro. Os contadores e
+ * histogramas são atualizados no caminho quente sem alocar; os gauges são
+ * lidos só na exportação.
+ */
+public final class InstrumentMetrics {
+
+    private final Instrument instrument;
+    private final LatencyHistogram validation = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram matching = new LatencyHistogram();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder cancels = new LongAdder();
+    private final LongAdder rejects = new LongAdder();
+    private final LongSupplier openOrders;
+    private final LongSupplier bidLevels;
+    private final LongSupplier askLevels;
+    private final LongSupplier backlog;
+
+    /**
+     * @param openOrders ordens em repouso no livro
+     * @param bidLevels  níveis de compra (até a profundidade em cache)
+     * @param askLevels  níveis de venda (até a profundidade em cache)
+     * @param backlog    comandos publicados e ainda não aplicados pelo sequenciador
+     */
+    public InstrumentMetrics(Instrument instrument, LongSupplier openOrders, LongSupplier bidLevels,
+                             LongSupplier askLevels, LongSupplier backlog) {
+        this.instrument = instrument;
+        this.openOrders = openOrders;
+        this.bidLevels = bidLevels;
+        this.askLevels = askLevels;
+        this.backlog = backlog;
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    /** Validação e conversão da ordem para a grade, na thread chamadora. */
+    public LatencyHistogram validation() {
+        return validation;
+    }
+
+    /** Espera no ring do sequenciador, da publicação até a thread do livro pegar o comando. */
+    public LatencyHistogram queueWait() {
+        return queueWait;
+    }
+
+    /** Aplicação de uma ordem na thread do livro: bloqueio de saldo, inserção e matching. */
+    public LatencyHistogram matching() {
+        return matching;
+    }
+
+    public void orderAccepted() {
+        orders.increment();
+    }
+
+    public void filled() {
+        fills.increment();
+    }
+
+    public void cancelled() {
+        cancels.increment();
+    }
+
+    public void rejected() {
+        rejects.increment();
+    }
+
+    public long orders() {
+        return orders.sum();
+    }
+
+    public long fills() {
+        return fills.sum();
+    }
+
+    public long cancels() {
+        return cancels.sum();
+    }
+
+    public long rejects() {
+        return rejects.sum();
+    }
+
+    public long openOrders() {
+        return openOrders.getAsLong();
+    }
+
+    public long bidLevels() {
+        return bidLevels.getAsLong();
+    }
+
+    public long askLevels() {
+        return askLevels.getAsLong();
+    }
+
+    public long backlog() {
+        return backlog.getAsLong();
+    }
+}
@@ -0,0 +1,105 @@
+package com.exchange.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências em nanossegundos com faixas log-lineares, no
+ * esquema do HdrHistogram: valores até 127 têm faixa própria e, acima disso,
+ * cada potência de 2 é dividida em 64 faixas, o que limita o erro relativo
+ * a cerca de 1,6%. Valores acima de {@link #MAX_VALUE} (~68 s) caem na
+ * última faixa.
+ * <p>
+ * {@link #record} não aloca nem toma lock: calcula o índice com operações de
+ * bits e faz um incremento atômico, e pode ser chamado por várias threads.
+ * As leituras copiam os contadores e são feitas fora do caminho quente.
+ */
+public final class LatencyHistogram {
+
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.min(Math.max(nanos, 0), MAX_VALUE)));
+    }
+
+    /** Registra o tempo decorrido desde {@code startNanos} ({@link System#nanoTime()}). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int index(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Maior valor que cai na faixa {@code index}. */
+    static long highestEquivalent(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Cópia dos contadores para leitura de percentis. */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total);
+    }
+
+    /** Contadores copiados de um {@link LatencyHistogram}; os valores são limites superiores das faixas. */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts, long count) {
+            this.counts = counts;
+            this.count = count;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /** @param quantile entre 0 e 1 */
+        public long valueAt(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return highestEquivalent(i);
+            }
+            return max();
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) return highestEquivalent(i);
+            }
+            return 0;
+        }
+
+        /** Média aproximada pelos limites superiores das faixas. */
+        public double mean() {
+            if (count == 0) return 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) sum += (double) counts[i] * highestEquivalent(i);
+            }
+            return sum / count;
+        }
+    }
+}
@@ -1,56 +1,140 @@
 package com.exchange.model;
 
-import java.math.BigDecimal;
+import com.exchange.ledger.AssetRegistry;
+import com.exchange.ledger.BalanceLedger;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * Conta com saldos em unidades mínimas de cada ativo (ver {@link AssetScales}).
+ * Cada ativo tem um saldo disponível, livre para novas ordens e saques, e um
+ * bloqueado, reservado pelas ordens em aberto; a soma dos dois é o total
+ * liquidado da conta. Os saldos ficam no slot da conta num
+ * {@link BalanceLedger}; a conta só traduz nomes de ativo para os IDs
+ * internados e valida os argumentos.
+ */
 public class Account {
 
     private final String id;
-    private final Map<String, BigDecimal> balances;
+    private final BalanceLedger ledger;
+    private final AssetRegistry assets;
+    private final int slot;
 
+    /** Conta com um ledger próprio de um único shard. */
     public Account(String id) {
+        this(id, new BalanceLedger(1));
+    }
+
+    public Account(String id, BalanceLedger ledger) {
         if (id == null || id.isBlank()) {
             throw new IllegalArgumentException("Account ID must not be null or blank.");
         }
         this.id = id;
-        this.balances = new HashMap<>();
+        this.ledger = ledger;
+        this.assets = ledger.assets();
+        this.slot = ledger.open();
     }
 
     public String getId() {
         return id;
     }
 
-    public synchronized void credit(String asset, BigDecimal amount) {
+    /** Slot da conta no ledger, único entre as contas do mesmo ledger. */
+    public int getSlot() {
+        return slot;
+    }
+
+    public void credit(String asset, long amount) {
         validateAssetAndAmount(asset, amount);
-        balances.merge(asset, amount, BigDecimal::add);
+        ledger.credit(slot, assets.intern(asset), amount);
     }
 
-    public synchronized boolean debit(String asset, BigDecimal amount) {
+    public boolean debit(String asset, long amount) {
         validateAssetAndAmount(asset, amount);
-        BigDecimal current = balances.getOrDefault(asset, BigDecimal.ZERO);
-        if (current.compareTo(amount) >= 0) {
-            balances.put(asset, current.subtract(amount));
-            return true;
+        return ledger.debit(slot, asset(asset), amount);
+    }
+
+    /** Bloqueia unidades do disponível para uma ordem. */
+    public boolean hold(String asset, long amount) {
+        validateAssetAndAmount(asset, amount);
+        return ledger.reserve(slot, asset(asset), amount);
+    }
+
+    /** Devolve ao disponível unidades bloqueadas que não serão mais usadas. */
+    public void release(String asset, long amount) {
+        validateAssetAndAmount(asset, amount);
+        ledger.release(slot, assets.find(asset), amount);
+    }
+
+    /** Crédito por ID de ativo do ledger, para caminhos quentes como a liquidação. */
+    public void credit(int asset, long amount) {
+        ledger.credit(slot, asset, amount);
+    }
+
+    public boolean debit(int asset, long amount) {
+        return ledger.debit(slot, asset, amount);
+    }
+
+    public void release(int asset, long amount) {
+        ledger.release(slot, asset, amount);
+    }
+
+    /** Baixa unidades bloqueadas entregues a outra conta numa execução. */
+    public void settle(int asset, long amount) {
+        ledger.consume(slot, asset, amount);
+    }
+
+    /** Saldo disponível. */
+    public long getBalance(String asset) {
+        return ledger.available(slot, assets.find(asset));
+    }
+
+    public long getHeld(String asset) {
+        return ledger.reserved(slot, assets.find(asset));
+    }
+
+    /** Saldos disponíveis dos ativos já movimentados pela conta. */
+    public Map<String, Long> getAllBalances() {
+        long[] balances = ledger.balances(slot);
+        Map<String, Long> copy = new HashMap<>();
+        for (int asset = 0; asset < BalanceLedger.assetCount(balances); asset++) {
+            if (BalanceLedger.touched(balances, asset)) {
+                copy.put(assets.name(asset), BalanceLedger.available(balances, asset));
+            }
         }
-        return false;
+        return Collections.unmodifiableMap(copy);
     }
 
-    public synchronized BigDecimal getBalance(String asset) {
-        return balances.getOrDefault(asset, BigDecimal.ZERO);
+    /** Disponível e bloqueado de cada ativo já movimentado, lidos de uma vez. */
+    public Map<String, Balance> getBalanceSheet() {
+        long[] balances = ledger.balances(slot);
+        Map<String, Balance> sheet = new HashMap<>();
+        for (int asset = 0; asset < BalanceLedger.assetCount(balances); asset++) {
+            if (BalanceLedger.touched(balances, asset)) {
+                sheet.put(assets.name(asset), new Balance(BalanceLedger.available(balances, asset),
+                        BalanceLedger.reserved(balances, asset)));
+            }
+        }
+        return Collections.unmodifiableMap(sheet);
     }
 
-    public synchronized Map<String, BigDecimal> getAllBalances() {
-        return Collections.unmodifiableMap(new HashMap<>(balances));
+    /**
+     * ID do ativo para débito e bloqueio. Fora da reaplicação, um ativo nunca
+     * creditado não é internado e o movimento é recusado; na reaplicação o
+     * crédito que o cobria pode vir depois no journal.
+     */
+    private int asset(String asset) {
+        return ledger.isReplaying() ? assets.intern(asset) : assets.find(asset);
     }
 
-    private void validateAssetAndAmount(String asset, BigDecimal amount) {
+    private void validateAssetAndAmount(String asset, long amount) {
         if (asset == null || asset.isBlank()) {
             throw new IllegalArgumentException("Asset must not be null or blank.");
         }
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive.");
         }
     }
@@ -59,7 +143,7 @@ public class Account {
     public String toString() {
         return "Account{" +
                 "id='" + id + '\'' +
-                ", balances=" + balances +
+                ", balances=" + getAllBalances() +
                 '}';
     }
 
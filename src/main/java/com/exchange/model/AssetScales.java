@@ -0,0 +1,46 @@
+package com.exchange.model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Casas decimais da unidade mínima de cada ativo. Saldos são guardados como
+ * {@code long} nessa unidade (ex.: escala 8 → 1 unidade = 0,00000001).
+ */
+public class AssetScales {
+
+    public static final int DEFAULT_SCALE = 8;
+
+    private final int defaultScale;
+    private final Map<String, Integer> scales;
+
+    public AssetScales() {
+        this(DEFAULT_SCALE, Map.of());
+    }
+
+    public AssetScales(int defaultScale, Map<String, Integer> scales) {
+        if (defaultScale < 0) throw new IllegalArgumentException("Escala deve ser não negativa.");
+        this.defaultScale = defaultScale;
+        this.scales = new HashMap<>(scales);
+    }
+
+    public int scale(String asset) {
+        return scales.getOrDefault(asset, defaultScale);
+    }
+
+    public long toUnits(String asset, BigDecimal amount) {
+        if (asset == null || asset.isBlank()) {
+            throw new IllegalArgumentException("Ativo é obrigatório.");
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Valor deve ser positivo.");
+        }
+        return FixedPoint.steps(amount, BigDecimal.ONE.movePointLeft(scale(asset)),
+                "Valor com mais casas decimais que o ativo " + asset + " suporta: ");
+    }
+
+    public BigDecimal toDecimal(String asset, long units) {
+        return BigDecimal.valueOf(units, scale(asset));
+    }
+}
@@ -0,0 +1,13 @@
+package com.exchange.model;
+
+/**
+ * Saldo de um ativo em unidades mínimas: disponível para novas ordens e
+ * saques, e bloqueado pelas ordens em aberto.
+ */
+public record Balance(long available, long held) {
+
+    /** Total liquidado da conta no ativo. */
+    public long total() {
+        return FixedPoint.add(available, held);
+    }
+}
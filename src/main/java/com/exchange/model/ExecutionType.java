@@ -0,0 +1,11 @@
+package com.exchange.model;
+
+/**
+ * Como o preço de uma ordem é tratado: {@code LIMIT} executa até o preço
+ * informado; {@code MARKET} não tem preço e consome o lado oposto até a
+ * quantidade pedida (nunca fica no livro); {@code POST_ONLY} é uma limitada
+ * rejeitada se fosse executar na entrada, garantindo que só entre como maker.
+ */
+public enum ExecutionType {
+    LIMIT, MARKET, POST_ONLY
+}
@@ -0,0 +1,46 @@
+package com.exchange.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Aritmética de inteiros escalados usada no caminho quente. Estouros viram
+ * {@link IllegalArgumentException} em vez de valores silenciosamente errados.
+ */
+public final class FixedPoint {
+
+    private FixedPoint() {
+    }
+
+    public static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public static long add(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    /** Converte {@code value} em múltiplos de {@code step}, exigindo divisão exata. */
+    public static long steps(BigDecimal value, BigDecimal step, String offGridMessage) {
+        BigDecimal[] division = value.divideAndRemainder(step);
+        if (division[1].signum() != 0) {
+            throw new IllegalArgumentException(offGridMessage + value.toPlainString());
+        }
+        try {
+            return division[0].longValueExact();
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    private static IllegalArgumentException overflow() {
+        return new IllegalArgumentException("Valor excede o limite representável.");
+    }
+}
@@ -0,0 +1,77 @@
+package com.exchange.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Grade de negociação de um instrumento. Preços são guardados em ticks e
+ * quantidades em lotes; os fatores abaixo convertem direto para unidades
+ * mínimas dos ativos, sem {@link BigDecimal} no matching.
+ */
+public final class InstrumentSpec {
+
+    public static final BigDecimal DEFAULT_TICK_SIZE = new BigDecimal("0.01");
+    public static final BigDecimal DEFAULT_LOT_SIZE = new BigDecimal("0.000001");
+
+    private final Instrument instrument;
+    private final BigDecimal tickSize;
+    private final BigDecimal lotSize;
+    private final long baseUnitsPerLot;
+    private final long quoteUnitsPerTickLot;
+
+    public InstrumentSpec(Instrument instrument, BigDecimal tickSize, BigDecimal lotSize, AssetScales scales) {
+        this.instrument = Objects.requireNonNull(instrument, "Instrumento não pode ser nulo.");
+        if (tickSize == null || tickSize.signum() <= 0) throw new IllegalArgumentException("Tick deve ser positivo.");
+        if (lotSize == null || lotSize.signum() <= 0) throw new IllegalArgumentException("Lote deve ser positivo.");
+        this.tickSize = tickSize;
+        this.lotSize = lotSize;
+        this.baseUnitsPerLot = units(lotSize, scales.scale(instrument.baseAsset()),
+                "Lote não é múltiplo da unidade mínima de " + instrument.baseAsset() + ": ");
+        this.quoteUnitsPerTickLot = units(tickSize.multiply(lotSize), scales.scale(instrument.quoteAsset()),
+                "Tick x lote não é múltiplo da unidade mínima de " + instrument.quoteAsset() + ": ");
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public BigDecimal getTickSize() {
+        return tickSize;
+    }
+
+    public BigDecimal getLotSize() {
+        return lotSize;
+    }
+
+    public long toTicks(BigDecimal price) {
+        return FixedPoint.steps(price, tickSize, "Preço fora da grade de ticks: ");
+    }
+
+    public long toLots(BigDecimal quantity) {
+        return FixedPoint.steps(quantity, lotSize, "Quantidade fora do lote mínimo: ");
+    }
+
+    public BigDecimal price(long ticks) {
+        return tickSize.multiply(BigDecimal.valueOf(ticks));
+    }
+
+    public BigDecimal quantity(long lots) {
+        return lotSize.multiply(BigDecimal.valueOf(lots));
+    }
+
+    /** Unidades mínimas do ativo base correspondentes a {@code lots}. */
+    public long baseUnits(long lots) {
+        return FixedPoint.multiply(lots, baseUnitsPerLot);
+    }
+
+    /** Unidades mínimas do ativo cotado para {@code lots} ao preço {@code ticks}. */
+    public long quoteUnits(long ticks, long lots) {
+        return FixedPoint.multiply(FixedPoint.multiply(ticks, lots), quoteUnitsPerTickLot);
+    }
+
+    private static long units(BigDecimal size, int scale, String message) {
+        long units = FixedPoint.steps(size, BigDecimal.ONE.movePointLeft(scale), message);
+        if (units <= 0) throw new IllegalArgumentException(message + size.toPlainString());
+        return units;
+    }
+}
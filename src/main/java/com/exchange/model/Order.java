@@ -2,30 +2,63 @@ package com.exchange.model;
 
 import java.math.BigDecimal;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Order {
 
-    private final String id;
+    private long id;
     private final String accountId;
     private final Instrument instrument;
     private final OrderType type;
     private final BigDecimal price;
     private BigDecimal quantity;
+    private InstrumentSpec spec;
+    private long priceTicks;
+    private long quantityLots;
+    private ExecutionType executionType = ExecutionType.LIMIT;
+    private TimeInForce timeInForce = TimeInForce.GTC;
+    private BigDecimal stopPrice;
+    private long stopTicks;
 
+    /** @param price {@code null} apenas em ordens a mercado */
     public Order(String accountId, Instrument instrument, OrderType type, BigDecimal price, BigDecimal quantity) {
-        this.id = UUID.randomUUID().toString();
         this.accountId = Objects.requireNonNull(accountId);
         this.instrument = Objects.requireNonNull(instrument);
         this.type = Objects.requireNonNull(type);
-        this.price = Objects.requireNonNull(price);
+        this.price = price;
         this.quantity = Objects.requireNonNull(quantity);
     }
 
+    /** Ordem já na grade do instrumento, em ticks e lotes. */
+    public Order(String accountId, InstrumentSpec spec, OrderType type, long priceTicks, long quantityLots) {
+        this(0, accountId, spec, type, priceTicks, quantityLots);
+    }
+
+    /** Visão de uma ordem já aceita pelo livro. */
+    public Order(long id, String accountId, InstrumentSpec spec, OrderType type, long priceTicks, long quantityLots) {
+        this.id = id;
+        this.accountId = Objects.requireNonNull(accountId);
+        this.spec = Objects.requireNonNull(spec);
+        this.instrument = spec.getInstrument();
+        this.type = Objects.requireNonNull(type);
+        this.priceTicks = priceTicks;
+        this.quantityLots = quantityLots;
+        this.price = spec.price(priceTicks);
+    }
+
+    /** ID formatado para a API; {@code null} enquanto a ordem não foi aceita. */
     public String getId() {
+        return id == 0 ? null : Long.toString(id);
+    }
+
+    public long getNumericId() {
         return id;
     }
 
+    public void assignId(long id) {
+        if (this.id != 0) throw new IllegalStateException("Ordem já possui ID.");
+        this.id = id;
+    }
+
     public String getAccountId() {
         return accountId;
     }
@@ -38,17 +71,123 @@ public class Order {
         return type;
     }
 
+    public ExecutionType getExecutionType() {
+        return executionType;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    /**
+     * Define tipo de execução e validade. Ordens a mercado não têm preço e
+     * nunca ficam no livro (GTC vira IOC); post-only só faz sentido em GTC.
+     *
+     * @return esta ordem
+     */
+    public Order withExecution(ExecutionType executionType, TimeInForce timeInForce) {
+        Objects.requireNonNull(executionType, "Tipo de execução não pode ser nulo.");
+        Objects.requireNonNull(timeInForce, "Validade não pode ser nula.");
+        if (executionType == ExecutionType.MARKET && timeInForce == TimeInForce.GTC) timeInForce = TimeInForce.IOC;
+        if (executionType == ExecutionType.POST_ONLY && timeInForce != TimeInForce.GTC) {
+            throw new IllegalArgumentException("Ordem post-only deve ser GTC.");
+        }
+        this.executionType = executionType;
+        this.timeInForce = timeInForce;
+        return this;
+    }
+
+    /**
+     * Torna a ordem uma stop: ela espera fora do livro até uma execução a
+     * {@code stopPrice} ou além (acima numa compra, abaixo numa venda) e só
+     * então entra com o preço, o tipo de execução e a validade definidos.
+     * A mercado é um stop-loss; limitada, um stop-limit.
+     *
+     * @return esta ordem
+     */
+    public Order withStop(BigDecimal stopPrice) {
+        if (spec != null) throw new IllegalStateException("Ordem já convertida; use withStopTicks.");
+        this.stopPrice = Objects.requireNonNull(stopPrice, "Preço de disparo não pode ser nulo.");
+        return this;
+    }
+
+    /** Como {@link #withStop}, com o preço de disparo já em ticks. */
+    public Order withStopTicks(long stopTicks) {
+        if (spec == null) throw new IllegalStateException("Ordem ainda não convertida; use withStop.");
+        this.stopTicks = stopTicks;
+        return this;
+    }
+
+    public boolean isStop() {
+        return stopPrice != null || stopTicks != 0;
+    }
+
+    /** Preço de disparo, ou {@code null} numa ordem que não é stop. */
+    public BigDecimal getStopPrice() {
+        return spec == null || stopTicks == 0 ? stopPrice : spec.price(stopTicks);
+    }
+
+    public long getStopTicks() {
+        return stopTicks;
+    }
+
+    public boolean isMarket() {
+        return executionType == ExecutionType.MARKET;
+    }
+
+    /** Se a ordem só executa na entrada e nunca fica no livro. */
+    public boolean isImmediate() {
+        return timeInForce != TimeInForce.GTC;
+    }
+
     public BigDecimal getPrice() {
         return price;
     }
 
     public BigDecimal getQuantity() {
-        return quantity;
+        return spec == null ? quantity : spec.quantity(quantityLots);
+    }
+
+    public boolean isBound() {
+        return spec != null;
+    }
+
+    /**
+     * Converte preço e quantidade para a grade do instrumento. Valores fora da
+     * grade são rejeitados; ordens a mercado ficam com preço zero.
+     */
+    public void bind(InstrumentSpec spec) {
+        if (this.spec != null) return;
+        long ticks = isMarket() ? 0 : spec.toTicks(price);
+        long lots = spec.toLots(quantity);
+        if (stopPrice != null) this.stopTicks = spec.toTicks(stopPrice);
+        this.priceTicks = ticks;
+        this.quantityLots = lots;
+        this.spec = spec;
+        this.quantity = null;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getQuantityLots() {
+        return quantityLots;
     }
 
     public void decreaseQuantity(BigDecimal amount) {
+        if (spec != null) {
+            decreaseLots(spec.toLots(amount));
+            return;
+        }
         if (amount.compareTo(BigDecimal.ZERO) <= 0) throw new IllegalArgumentException("Decrease must be positive.");
         if (amount.compareTo(quantity) > 0) throw new IllegalArgumentException("Insufficient quantity.");
         this.quantity = this.quantity.subtract(amount);
     }
+
+    public void decreaseLots(long lots) {
+        if (lots <= 0) throw new IllegalArgumentException("Decrease must be positive.");
+        if (lots > quantityLots) throw new IllegalArgumentException("Insufficient quantity.");
+        this.quantityLots -= lots;
+    }
 }
@@ -0,0 +1,19 @@
+package com.exchange.model;
+
+/**
+ * Resultado de uma ordem dentro de um lote: o ID atribuído, ou o motivo da rejeição.
+ */
+public record OrderResult(String orderId, String error) {
+
+    public static OrderResult accepted(long orderId) {
+        return new OrderResult(Long.toString(orderId), null);
+    }
+
+    public static OrderResult rejected(String error) {
+        return new OrderResult(null, error);
+    }
+
+    public boolean isAccepted() {
+        return error == null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.exchange.model;
+
+/**
+ * Validade de uma ordem: {@code GTC} fica no livro até ser executada ou
+ * cancelada; {@code IOC} executa o que puder na hora e descarta o resto;
+ * {@code FOK} executa a quantidade inteira na hora ou nada.
+ */
+public enum TimeInForce {
+    GTC, IOC, FOK
+}
@@ -0,0 +1,62 @@
+package com.exchange.persistence;
+
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Linhas acumuladas pelo gravador até o próximo flush, agrupadas por comando SQL. */
+final class HistoryBatch {
+
+    final List<Object[]> orders = new ArrayList<>();
+    final List<Object[]> trades = new ArrayList<>();
+    final List<Object[]> fills = new ArrayList<>();
+    final List<Object[]> reductions = new ArrayList<>();
+    final List<Object[]> cancels = new ArrayList<>();
+    final List<Object[]> balances = new ArrayList<>();
+
+    void addOrder(InstrumentSpec spec, long orderId, String accountId, OrderType type, long priceTicks, long quantityLots,
+                  long timestamp) {
+        Timestamp at = new Timestamp(timestamp);
+        orders.add(new Object[]{orderId, accountId, spec.getInstrument().baseAsset(), spec.getInstrument().quoteAsset(),
+                type.name(), spec.price(priceTicks), spec.quantity(quantityLots), at, at});
+    }
+
+    void addTrade(InstrumentSpec spec, long takerOrderId, String takerAccountId, long makerOrderId, String makerAccountId,
+                  OrderType takerSide, long priceTicks, long quantityLots, long timestamp) {
+        Timestamp at = new Timestamp(timestamp);
+        BigDecimal quantity = spec.quantity(quantityLots);
+        trades.add(new Object[]{spec.getInstrument().baseAsset(), spec.getInstrument().quoteAsset(), spec.price(priceTicks),
+                quantity, takerSide.name(), takerOrderId, takerAccountId, makerOrderId, makerAccountId, at});
+        fills.add(new Object[]{quantity, quantity, at, takerOrderId});
+        fills.add(new Object[]{quantity, quantity, at, makerOrderId});
+    }
+
+    void addReduction(InstrumentSpec spec, long orderId, long reducedLots, long timestamp) {
+        reductions.add(new Object[]{spec.quantity(reducedLots), new Timestamp(timestamp), orderId});
+    }
+
+    void addCancel(long orderId, long timestamp) {
+        cancels.add(new Object[]{new Timestamp(timestamp), orderId});
+    }
+
+    void addBalance(String accountId, String asset, BigDecimal amount, String reason, long timestamp) {
+        balances.add(new Object[]{accountId, asset, amount, reason, new Timestamp(timestamp)});
+    }
+
+    int size() {
+        return orders.size() + trades.size() + reductions.size() + cancels.size() + balances.size();
+    }
+
+    void clear() {
+        orders.clear();
+        trades.clear();
+        fills.clear();
+        reductions.clear();
+        cancels.clear();
+        balances.clear();
+    }
+}
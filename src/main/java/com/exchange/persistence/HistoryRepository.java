@@ -0,0 +1,157 @@
+package com.exchange.persistence;
+
+import com.exchange.dto.BalanceChangeDTO;
+import com.exchange.dto.OrderHistoryDTO;
+import com.exchange.dto.TradeHistoryDTO;
+import com.exchange.model.Instrument;
+import com.exchange.model.OrderType;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Histórico de ordens, execuções e movimentações de saldo, gravado em lotes
+ * pelo {@link PersistencePipeline} e consultado direto do banco, sem passar
+ * pelo engine.
+ */
+@Repository
+public class HistoryRepository {
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS order_history (
+                order_id BIGINT PRIMARY KEY,
+                account_id VARCHAR(255) NOT NULL,
+                base_asset VARCHAR(32) NOT NULL,
+                quote_asset VARCHAR(32) NOT NULL,
+                side VARCHAR(4) NOT NULL,
+                price DECIMAL(38, 18) NOT NULL,
+                quantity DECIMAL(38, 18) NOT NULL,
+                filled_quantity DECIMAL(38, 18) DEFAULT 0 NOT NULL,
+                status VARCHAR(16) NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL)""",
+            "CREATE INDEX IF NOT EXISTS order_history_account ON order_history (account_id, order_id)",
+            """
+            CREATE TABLE IF NOT EXISTS trade_history (
+                trade_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                base_asset VARCHAR(32) NOT NULL,
+                quote_asset VARCHAR(32) NOT NULL,
+                price DECIMAL(38, 18) NOT NULL,
+                quantity DECIMAL(38, 18) NOT NULL,
+                taker_side VARCHAR(4) NOT NULL,
+                taker_order_id BIGINT NOT NULL,
+                taker_account_id VARCHAR(255) NOT NULL,
+                maker_order_id BIGINT NOT NULL,
+                maker_account_id VARCHAR(255) NOT NULL,
+                executed_at TIMESTAMP NOT NULL)""",
+            "CREATE INDEX IF NOT EXISTS trade_history_taker ON trade_history (taker_account_id, trade_id)",
+            "CREATE INDEX IF NOT EXISTS trade_history_maker ON trade_history (maker_account_id, trade_id)",
+            """
+            CREATE TABLE IF NOT EXISTS balance_history (
+                change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                account_id VARCHAR(255) NOT NULL,
+                asset VARCHAR(32) NOT NULL,
+                amount DECIMAL(38, 18) NOT NULL,
+                reason VARCHAR(16) NOT NULL,
+                created_at TIMESTAMP NOT NULL)""",
+            "CREATE INDEX IF NOT EXISTS balance_history_account ON balance_history (account_id, change_id)"
+    };
+
+    private static final String INSERT_ORDER = "INSERT INTO order_history (order_id, account_id, base_asset, quote_asset, "
+            + "side, price, quantity, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, 'OPEN', ?, ?)";
+    private static final String INSERT_TRADE = "INSERT INTO trade_history (base_asset, quote_asset, price, quantity, "
+            + "taker_side, taker_order_id, taker_account_id, maker_order_id, maker_account_id, executed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // As execuções chegam por outra thread e podem ser gravadas depois do cancelamento da ordem.
+    private static final String APPLY_FILL = "UPDATE order_history SET filled_quantity = filled_quantity + ?, "
+            + "status = CASE WHEN status = 'CANCELLED' THEN status "
+            + "WHEN filled_quantity + ? >= quantity THEN 'FILLED' ELSE 'PARTIALLY_FILLED' END, "
+            + "updated_at = ? WHERE order_id = ?";
+    private static final String REDUCE_ORDER = "UPDATE order_history SET quantity = quantity - ?, updated_at = ? WHERE order_id = ?";
+    private static final String CANCEL_ORDER = "UPDATE order_history SET status = 'CANCELLED', updated_at = ? WHERE order_id = ?";
+    private static final String INSERT_BALANCE = "INSERT INTO balance_history (account_id, asset, amount, reason, created_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+
+    public HistoryRepository(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        for (String statement : SCHEMA) {
+            jdbc.execute(statement);
+        }
+    }
+
+    /** Grava o lote numa única transação, com um batch JDBC por comando. */
+    void write(HistoryBatch batch) {
+        transaction.executeWithoutResult(status -> {
+            if (!batch.orders.isEmpty()) jdbc.batchUpdate(INSERT_ORDER, batch.orders);
+            if (!batch.trades.isEmpty()) jdbc.batchUpdate(INSERT_TRADE, batch.trades);
+            if (!batch.fills.isEmpty()) jdbc.batchUpdate(APPLY_FILL, batch.fills);
+            if (!batch.reductions.isEmpty()) jdbc.batchUpdate(REDUCE_ORDER, batch.reductions);
+            if (!batch.cancels.isEmpty()) jdbc.batchUpdate(CANCEL_ORDER, batch.cancels);
+            if (!batch.balances.isEmpty()) jdbc.batchUpdate(INSERT_BALANCE, batch.balances);
+        });
+    }
+
+    public List<OrderHistoryDTO> findOrders(String accountId, int limit) {
+        return jdbc.query("SELECT * FROM order_history WHERE account_id = ? ORDER BY order_id DESC LIMIT ?",
+                (rs, row) -> new OrderHistoryDTO(
+                        Long.toString(rs.getLong("order_id")),
+                        rs.getString("account_id"),
+                        new Instrument(rs.getString("base_asset"), rs.getString("quote_asset")),
+                        OrderType.valueOf(rs.getString("side")),
+                        plain(rs.getBigDecimal("price")),
+                        plain(rs.getBigDecimal("quantity")),
+                        plain(rs.getBigDecimal("filled_quantity")),
+                        rs.getString("status"),
+                        rs.getTimestamp("created_at").toInstant(),
+                        rs.getTimestamp("updated_at").toInstant()),
+                accountId, limit);
+    }
+
+    public List<TradeHistoryDTO> findTrades(String accountId, int limit) {
+        return jdbc.query("SELECT * FROM trade_history WHERE taker_account_id = ? OR maker_account_id = ? "
+                        + "ORDER BY trade_id DESC LIMIT ?",
+                (rs, row) -> new TradeHistoryDTO(
+                        rs.getLong("trade_id"),
+                        new Instrument(rs.getString("base_asset"), rs.getString("quote_asset")),
+                        plain(rs.getBigDecimal("price")),
+                        plain(rs.getBigDecimal("quantity")),
+                        OrderType.valueOf(rs.getString("taker_side")),
+                        Long.toString(rs.getLong("taker_order_id")),
+                        rs.getString("taker_account_id"),
+                        Long.toString(rs.getLong("maker_order_id")),
+                        rs.getString("maker_account_id"),
+                        rs.getTimestamp("executed_at").toInstant()),
+                accountId, accountId, limit);
+    }
+
+    public List<BalanceChangeDTO> findBalanceChanges(String accountId, int limit) {
+        return jdbc.query("SELECT * FROM balance_history WHERE account_id = ? ORDER BY change_id DESC LIMIT ?",
+                (rs, row) -> new BalanceChangeDTO(
+                        rs.getString("account_id"),
+                        rs.getString("asset"),
+                        plain(rs.getBigDecimal("amount")),
+                        rs.getString("reason"),
+                        rs.getTimestamp("created_at").toInstant()),
+                accountId, limit);
+    }
+
+    private static BigDecimal plain(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+}
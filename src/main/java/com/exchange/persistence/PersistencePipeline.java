@@ -0,0 +1,285 @@
+package com.exchange.persistence;
+
+import com.exchange.config.PersistenceProperties;
+import com.exchange.engine.RingBuffer;
+import com.exchange.events.TradeEvent;
+import com.exchange.events.TradeEventBus;
+import com.exchange.events.TradeEventHandler;
+import com.exchange.model.AssetScales;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+import com.exchange.service.HistoryListener;
+import com.exchange.service.OrderBookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Grava o histórico fora das threads de matching. Ordens, alterações,
+ * cancelamentos e movimentações de saldo chegam pelo {@link HistoryListener}
+ * e as execuções pelo {@link TradeEventBus}; tudo passa por um {@link RingBuffer}
+ * pré-alocado até a thread gravadora, que acumula as linhas e as envia em
+ * batches JDBC ao atingir {@code batch-size} registros ou quando o mais
+ * antigo espera {@code flush-interval-ms}.
+ * <p>
+ * As threads de matching nunca esperam: com a fila cheia o registro é
+ * descartado e contado em {@link #getDropped()}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "exchange.persistence", name = "enabled", havingValue = "true")
+public class PersistencePipeline implements HistoryListener, TradeEventHandler, AutoCloseable {
+
+    private static final long PARK_NANOS = 200_000;
+
+    private final OrderBookService service;
+    private final HistoryRepository repository;
+    private final AssetScales assetScales;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final RingBuffer<HistoryRecord> queue;
+    private final HistoryBatch batch = new HistoryBatch();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private TradeEventBus.Subscription trades;
+    private Thread writer;
+    private volatile boolean running;
+
+    public PersistencePipeline(OrderBookService service, HistoryRepository repository, PersistenceProperties properties) {
+        if (properties.getBatchSize() <= 0) throw new IllegalArgumentException("Tamanho do lote deve ser positivo.");
+        this.service = service;
+        this.repository = repository;
+        this.assetScales = service.getAssetScales();
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        this.queue = new RingBuffer<>(properties.getQueueSize(), HistoryRecord::new);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "history-writer");
+        writer.setDaemon(true);
+        writer.start();
+        trades = service.getTradeEvents().subscribe("persistence", this);
+        service.setHistoryListener(this);
+    }
+
+    /** Registros perdidos por fila cheia ou por atraso no barramento de execuções. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Registros já confirmados no banco. */
+    public long getWritten() {
+        return written.get();
+    }
+
+    @Override
+    public void onOrderAccepted(InstrumentSpec spec, long orderId, String accountId, OrderType type,
+                                long priceTicks, long quantityLots) {
+        long sequence = queue.tryNext();
+        if (sequence < 0) {
+            dropped();
+            return;
+        }
+        HistoryRecord record = queue.get(sequence);
+        record.kind = HistoryRecord.Kind.ORDER;
+        record.spec = spec;
+        record.orderId = orderId;
+        record.accountId = accountId;
+        record.type = type;
+        record.priceTicks = priceTicks;
+        record.quantityLots = quantityLots;
+        record.timestamp = System.currentTimeMillis();
+        queue.publish(sequence);
+    }
+
+    @Override
+    public void onOrderCancelled(long orderId) {
+        long sequence = queue.tryNext();
+        if (sequence < 0) {
+            dropped();
+            return;
+        }
+        HistoryRecord record = queue.get(sequence);
+        record.kind = HistoryRecord.Kind.CANCEL;
+        record.orderId = orderId;
+        record.timestamp = System.currentTimeMillis();
+        queue.publish(sequence);
+    }
+
+    @Override
+    public void onOrderReduced(InstrumentSpec spec, long orderId, long reducedLots) {
+        long sequence = queue.tryNext();
+        if (sequence < 0) {
+            dropped();
+            return;
+        }
+        HistoryRecord record = queue.get(sequence);
+        record.kind = HistoryRecord.Kind.REDUCE;
+        record.spec = spec;
+        record.orderId = orderId;
+        record.quantityLots = reducedLots;
+        record.timestamp = System.currentTimeMillis();
+        queue.publish(sequence);
+    }
+
+    @Override
+    public void onBalanceChanged(String accountId, String asset, long units) {
+        long sequence = queue.tryNext();
+        if (sequence < 0) {
+            dropped();
+            return;
+        }
+        HistoryRecord record = queue.get(sequence);
+        record.kind = HistoryRecord.Kind.BALANCE;
+        record.accountId = accountId;
+        record.asset = asset;
+        record.units = units;
+        record.timestamp = System.currentTimeMillis();
+        queue.publish(sequence);
+    }
+
+    /** Thread do consumidor do barramento: pode esperar pela fila sem afetar o matching. */
+    @Override
+    public void onTrade(TradeEvent event) {
+        long sequence = queue.next();
+        HistoryRecord record = queue.get(sequence);
+        record.kind = HistoryRecord.Kind.TRADE;
+        record.spec = event.getSpec();
+        record.orderId = event.getTakerOrderId();
+        record.accountId = event.getTakerAccountId();
+        record.makerOrderId = event.getMakerOrderId();
+        record.makerAccountId = event.getMakerAccountId();
+        record.type = event.getTakerSide();
+        record.priceTicks = event.getPriceTicks();
+        record.quantityLots = event.getQuantityLots();
+        record.timestamp = event.getTimestamp();
+        queue.publish(sequence);
+    }
+
+    @Override
+    public void onOverrun(long missed) {
+        dropped.addAndGet(missed);
+        log.warn("Histórico perdeu {} execuções: gravador atrasado em relação ao barramento", missed);
+    }
+
+    private void dropped() {
+        if (dropped.incrementAndGet() % 10_000 == 1) {
+            log.warn("Fila do histórico cheia; {} registros descartados até agora", dropped.get());
+        }
+    }
+
+    private void run() {
+        long next = queue.consumedSequence() + 1;
+        long oldestAt = 0;
+        while (running || queue.isPublished(next)) {
+            long start = next;
+            while (batch.size() < batchSize && queue.isPublished(next)) {
+                add(queue.get(next));
+                next++;
+            }
+            if (next != start) {
+                queue.markConsumed(next - 1);
+                if (oldestAt == 0) oldestAt = System.nanoTime();
+            }
+            if (batch.size() >= batchSize || (batch.size() > 0 && System.nanoTime() - oldestAt >= flushIntervalNanos)) {
+                flush();
+                oldestAt = 0;
+            } else if (next == start) {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        flush();
+    }
+
+    private void add(HistoryRecord record) {
+        switch (record.kind) {
+            case ORDER -> batch.addOrder(record.spec, record.orderId, record.accountId, record.type,
+                    record.priceTicks, record.quantityLots, record.timestamp);
+            case REDUCE -> batch.addReduction(record.spec, record.orderId, record.quantityLots, record.timestamp);
+            case CANCEL -> batch.addCancel(record.orderId, record.timestamp);
+            case BALANCE -> batch.addBalance(record.accountId, record.asset, assetScales.toDecimal(record.asset, record.units),
+                    record.units >= 0 ? "CREDIT" : "DEBIT", record.timestamp);
+            case TRADE -> addTrade(record);
+        }
+        record.clear();
+    }
+
+    /** A execução também gera as duas pernas de liquidação: ativo base ao comprador, cotado ao vendedor. */
+    private void addTrade(HistoryRecord record) {
+        InstrumentSpec spec = record.spec;
+        batch.addTrade(spec, record.orderId, record.accountId, record.makerOrderId, record.makerAccountId,
+                record.type, record.priceTicks, record.quantityLots, record.timestamp);
+        boolean takerBuys = record.type == OrderType.BUY;
+        BigDecimal quantity = spec.quantity(record.quantityLots);
+        batch.addBalance(takerBuys ? record.accountId : record.makerAccountId, spec.getInstrument().baseAsset(),
+                quantity, "TRADE", record.timestamp);
+        batch.addBalance(takerBuys ? record.makerAccountId : record.accountId, spec.getInstrument().quoteAsset(),
+                spec.price(record.priceTicks).multiply(quantity), "TRADE", record.timestamp);
+    }
+
+    private void flush() {
+        int size = batch.size();
+        if (size == 0) return;
+        try {
+            repository.write(batch);
+            written.addAndGet(size);
+        } catch (RuntimeException e) {
+            dropped.addAndGet(size);
+            log.error("Falha ao gravar {} registros do histórico", size, e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        service.setHistoryListener(HistoryListener.NONE);
+        if (trades != null) trades.close();
+        running = false;
+        if (writer == null) return;
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Slot da fila entre o engine e o gravador. */
+    static final class HistoryRecord {
+
+        enum Kind { ORDER, REDUCE, CANCEL, BALANCE, TRADE }
+
+        Kind kind;
+        InstrumentSpec spec;
+        long orderId;
+        String accountId;
+        long makerOrderId;
+        String makerAccountId;
+        OrderType type;
+        long priceTicks;
+        long quantityLots;
+        String asset;
+        long units;
+        long timestamp;
+
+        void clear() {
+            kind = null;
+            spec = null;
+            accountId = null;
+            makerAccountId = null;
+            type = null;
+            asset = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.exchange.replication;
+
+import com.exchange.config.ReplicationProperties;
+import com.exchange.service.OrderBookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mantém a réplica ligada ao primário: envia a última sequência do journal
+ * local e aplica, por {@link OrderBookService#replicate}, cada registro
+ * recebido. Se a conexão cai, tenta de novo a cada
+ * {@code reconnect-interval-ms}, retomando do que já aplicou, até a réplica
+ * ser promovida por {@link #promote()}.
+ * <p>
+ * Uma falha ao aplicar um registro significa que a réplica divergiu do
+ * primário; nesse caso a replicação para e a falha é registrada.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "exchange.replication", name = "role", havingValue = "replica")
+public class ReplicationClient implements AutoCloseable {
+
+    private final OrderBookService service;
+    private final ReplicationProperties properties;
+    private Thread thread;
+    private volatile SocketChannel channel;
+    private volatile boolean running;
+
+    public ReplicationClient(OrderBookService service, ReplicationProperties properties) {
+        if (!service.isReplica()) throw new IllegalStateException("Serviço não é réplica.");
+        this.service = service;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "replication-client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    private void run() {
+        InetSocketAddress primary = new InetSocketAddress(properties.getPrimaryHost(), properties.getPrimaryPort());
+        while (running) {
+            try (SocketChannel connected = SocketChannel.open(primary)) {
+                connected.socket().setTcpNoDelay(true);
+                channel = connected;
+                if (!running) return;
+                follow(connected);
+            } catch (IOException e) {
+                if (running) log.warn("Conexão com o primário {} perdida: {}", primary, e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Réplica parou: falha ao aplicar o journal do primário", e);
+                running = false;
+            } finally {
+                channel = null;
+            }
+            if (running) sleep();
+        }
+    }
+
+    private void follow(SocketChannel connected) throws IOException {
+        ByteBuffer hello = ByteBuffer.allocate(12).putInt(ReplicationServer.HELLO).putLong(service.lastSequence()).flip();
+        while (hello.hasRemaining()) {
+            connected.write(hello);
+        }
+        ByteBuffer in = ByteBuffer.allocateDirect(properties.getBufferSize());
+        while (running) {
+            if (connected.read(in) < 0) throw new EOFException("Primário fechou a conexão.");
+            int offset = 0;
+            while (in.position() - offset >= 4) {
+                int length = in.getInt(offset);
+                if (length < 4 || length > in.capacity()) {
+                    throw new IllegalStateException("Registro replicado com tamanho inválido: " + length);
+                }
+                if (in.position() - offset < length) break;
+                service.replicate(in, offset);
+                offset += length;
+            }
+            in.limit(in.position()).position(offset);
+            in.compact();
+        }
+    }
+
+    /** Sem interrupção: ela fecharia os canais do journal se chegasse no meio de uma gravação. */
+    private void sleep() {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(properties.getReconnectIntervalMs()));
+    }
+
+    /**
+     * Para de seguir o primário e promove a réplica: o que já foi aplicado
+     * fica, e os próximos comandos continuam a numeração do journal.
+     */
+    public synchronized void promote() {
+        stop();
+        service.promote();
+        log.info("Réplica promovida a primário na sequência {}", service.lastSequence());
+    }
+
+    private void stop() {
+        running = false;
+        SocketChannel connected = channel;
+        try {
+            if (connected != null) connected.close();
+        } catch (IOException e) {
+            log.debug("Falha ao fechar a conexão com o primário", e);
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        stop();
+    }
+}
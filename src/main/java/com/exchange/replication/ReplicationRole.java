@@ -0,0 +1,10 @@
+package com.exchange.replication;
+
+public enum ReplicationRole {
+    /** Sem replicação. */
+    STANDALONE,
+    /** Aceita comandos e transmite o journal às réplicas conectadas. */
+    PRIMARY,
+    /** Só leitura: aplica o journal recebido do primário até ser promovida. */
+    REPLICA
+}
@@ -0,0 +1,160 @@
+package com.exchange.replication;
+
+import com.exchange.config.JournalProperties;
+import com.exchange.config.ReplicationProperties;
+import com.exchange.journal.JournalTail;
+import com.exchange.service.OrderBookService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transmite o journal do primário às réplicas por TCP. A réplica conecta e
+ * envia {@link #HELLO} e a última sequência que já tem; a partir da
+ * seguinte, recebe os registros no mesmo layout do journal, à medida que
+ * são gravados. Como o journal só contém comandos aceitos, já com os IDs
+ * atribuídos, a réplica chega ao mesmo estado aplicando-os em ordem.
+ * <p>
+ * Uma thread por réplica acompanha o journal com um {@link JournalTail} e
+ * escreve no socket; as threads de matching não participam do envio.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "exchange.replication", name = "role", havingValue = "primary")
+public class ReplicationServer implements AutoCloseable {
+
+    /** Abertura da conexão, seguida da última sequência da réplica ({@code long}). */
+    public static final int HELLO = 0x5245504C;
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final OrderBookService service;
+    private final Path directory;
+    private final ReplicationProperties properties;
+    private final Set<SocketChannel> replicas = ConcurrentHashMap.newKeySet();
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    public ReplicationServer(OrderBookService service, JournalProperties journal, ReplicationProperties properties) {
+        if (!journal.isEnabled()) throw new IllegalStateException("Replicação exige o journal habilitado.");
+        this.service = service;
+        this.directory = Path.of(journal.getDirectory());
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(properties.getHost(), properties.getPort()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        running = true;
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Porta efetivamente aberta (útil com {@code port: 0}). */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Réplicas conectadas no momento. */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.socket().setTcpNoDelay(true);
+                replicas.add(channel);
+                Thread sender = new Thread(() -> serve(channel), "replication-sender-" + channel.getRemoteAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) log.warn("Falha ao aceitar réplica", e);
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            ByteBuffer hello = ByteBuffer.allocate(12);
+            while (hello.hasRemaining()) {
+                if (channel.read(hello) < 0) throw new EOFException("Réplica fechou a conexão na abertura.");
+            }
+            long after = hello.getLong(4);
+            if (hello.getInt(0) != HELLO) {
+                log.warn("Conexão de replicação sem abertura válida: {}", channel.getRemoteAddress());
+                return;
+            }
+            if (after > service.lastSequence()) {
+                log.warn("Réplica {} está à frente do primário: sequência {} > {}",
+                        channel.getRemoteAddress(), after, service.lastSequence());
+                return;
+            }
+            log.info("Réplica {} conectada a partir da sequência {}", channel.getRemoteAddress(), after);
+            stream(channel, new JournalTail(directory, after));
+        } catch (IOException e) {
+            if (running) log.info("Réplica desconectada: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Falha ao transmitir o journal", e);
+        } finally {
+            replicas.remove(channel);
+        }
+    }
+
+    private void stream(SocketChannel channel, JournalTail tail) throws IOException {
+        ByteBuffer out = ByteBuffer.allocateDirect(properties.getBufferSize());
+        int idle = 0;
+        while (running) {
+            if (tail.drainTo(out) == 0) {
+                if (idle++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (server != null) server.close();
+            for (SocketChannel replica : replicas) {
+                replica.close();
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao fechar a replicação", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.exchange.risk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de risco de uma conta, mantidos pelo engine a cada evento em
+ * vez de recalculados a partir das ordens: ordens em aberto em todos os
+ * livros e ordens recebidas na janela de um segundo corrente. Podem ser
+ * atualizados pelas threads de livros diferentes.
+ */
+public final class AccountRisk {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final AtomicInteger openOrders = new AtomicInteger();
+    /** Segundo da janela nos 32 bits altos, ordens recebidas nela nos 32 baixos. */
+    private final AtomicLong window = new AtomicLong();
+
+    public int openOrders() {
+        return openOrders.get();
+    }
+
+    /** Uma ordem da conta entrou em repouso num livro. */
+    public void opened() {
+        openOrders.incrementAndGet();
+    }
+
+    /** Uma ordem da conta saiu do livro, executada por inteiro ou cancelada. */
+    public void closed() {
+        openOrders.decrementAndGet();
+    }
+
+    /**
+     * Conta uma ordem na janela de {@code nowNanos}.
+     *
+     * @return {@code false}, sem contar, se a janela já tem {@code perSecond} ordens
+     */
+    public boolean tryAcquire(long nowNanos, int perSecond) {
+        long second = (nowNanos / NANOS_PER_SECOND) & COUNT_MASK;
+        while (true) {
+            long current = window.get();
+            long count = current >>> 32 == second ? current & COUNT_MASK : 0;
+            if (count >= perSecond) return false;
+            if (window.compareAndSet(current, second << 32 | (count + 1))) return true;
+        }
+    }
+}
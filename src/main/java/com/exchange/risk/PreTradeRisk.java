@@ -0,0 +1,123 @@
+package com.exchange.risk;
+
+import com.exchange.book.OrderBook;
+import com.exchange.book.PriceLevel;
+import com.exchange.config.EngineProperties;
+import com.exchange.model.AssetScales;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Etapa de risco entre a validação e o matching. Aplica, na ordem em que
+ * foram adicionadas, as {@link RiskCheck}s configuradas em
+ * {@code exchange.engine.risk} e as registradas por {@link #add}; a primeira
+ * que falha rejeita a ordem. Sem checagens, o custo é uma leitura de campo.
+ */
+public final class PreTradeRisk {
+
+    private final Map<String, AccountRisk> accounts = new ConcurrentHashMap<>();
+    private volatile RiskCheck[] checks = new RiskCheck[0];
+
+    /** Sem checagens; os contadores das contas são mantidos mesmo assim. */
+    public PreTradeRisk() {
+    }
+
+    public PreTradeRisk(EngineProperties.RiskProperties limits, AssetScales scales) {
+        if (limits.getMaxOrdersPerSecond() > 0) add(maxOrdersPerSecond(limits.getMaxOrdersPerSecond()));
+        if (!limits.getMaxOrderNotional().isEmpty()) add(maxOrderNotional(limits.getMaxOrderNotional(), scales));
+        if (limits.getMaxOpenOrders() > 0) add(maxOpenOrders(limits.getMaxOpenOrders()));
+        if (limits.getPriceBandBps() > 0) add(priceBand(limits.getPriceBandBps()));
+    }
+
+    public synchronized void add(RiskCheck check) {
+        RiskCheck[] grown = Arrays.copyOf(checks, checks.length + 1);
+        grown[checks.length] = check;
+        checks = grown;
+    }
+
+    /** Contadores da conta, criados no primeiro uso. */
+    public AccountRisk account(String accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountRisk());
+    }
+
+    /** @throws IllegalStateException com o motivo da primeira checagem que rejeitar a ordem */
+    public void check(OrderBook book, Order order) {
+        RiskCheck[] checks = this.checks;
+        if (checks.length == 0) return;
+        AccountRisk account = account(order.getAccountId());
+        for (RiskCheck check : checks) {
+            String reason = check.check(book, order, account);
+            if (reason != null) throw new IllegalStateException(reason);
+        }
+    }
+
+    /** Ordens por segundo por conta, em janelas fixas de um segundo. */
+    public static RiskCheck maxOrdersPerSecond(int limit) {
+        requirePositive(limit);
+        return (book, order, account) -> account.tryAcquire(System.nanoTime(), limit)
+                ? null : "Limite de ordens por segundo excedido.";
+    }
+
+    /**
+     * Valor máximo de uma ordem, por ativo cotado. Ordens a mercado são
+     * avaliadas pelo que executariam agora no livro.
+     */
+    public static RiskCheck maxOrderNotional(Map<String, BigDecimal> limits, AssetScales scales) {
+        Map<String, Long> units = new HashMap<>();
+        limits.forEach((asset, limit) -> {
+            if (limit.signum() <= 0) throw new IllegalArgumentException("Limite de valor deve ser positivo: " + asset);
+            units.put(asset, scales.toUnits(asset, limit));
+        });
+        return (book, order, account) -> {
+            InstrumentSpec spec = book.getSpec();
+            Long limit = units.get(spec.getInstrument().quoteAsset());
+            if (limit == null) return null;
+            long lots = order.getQuantityLots();
+            long notional = order.isMarket()
+                    ? spec.quoteUnits(book.notional(order.getType(), 0, book.fillable(order.getType(), 0, lots)), 1)
+                    : spec.quoteUnits(order.getPriceTicks(), lots);
+            return notional > limit ? "Valor da ordem acima do limite." : null;
+        };
+    }
+
+    /** Ordens em repouso por conta, em todos os livros; ordens imediatas não contam. */
+    public static RiskCheck maxOpenOrders(int limit) {
+        requirePositive(limit);
+        return (book, order, account) -> !order.isImmediate() && account.openOrders() >= limit
+                ? "Limite de ordens em aberto atingido." : null;
+    }
+
+    /**
+     * Preço limite a no máximo {@code bps} pontos-base do último preço
+     * negociado no livro ou, sem negócio desde a inicialização, do meio do
+     * topo. Sem referência, ou em ordens a mercado, não há banda.
+     */
+    public static RiskCheck priceBand(int bps) {
+        requirePositive(bps);
+        return (book, order, account) -> {
+            if (order.isMarket()) return null;
+            long reference = reference(book);
+            if (reference == 0) return null;
+            long distance = Math.abs(order.getPriceTicks() - reference);
+            return distance * 10_000 > reference * bps ? "Preço fora da banda permitida." : null;
+        };
+    }
+
+    private static long reference(OrderBook book) {
+        long last = book.getLastTradeTicks();
+        if (last > 0) return last;
+        PriceLevel bid = book.bestBidLevel();
+        PriceLevel ask = book.bestAskLevel();
+        return bid == null || ask == null ? 0 : (bid.getPrice() + ask.getPrice()) / 2;
+    }
+
+    private static void requirePositive(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Limite de risco deve ser positivo.");
+    }
+}
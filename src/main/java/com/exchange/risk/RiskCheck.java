@@ -0,0 +1,16 @@
+package com.exchange.risk;
+
+import com.exchange.book.OrderBook;
+import com.exchange.model.Order;
+
+/**
+ * Checagem pré-negociação, executada na thread do livro antes do bloqueio
+ * de saldo e do matching. Deve ser O(1) e não alocar: lê só o livro e os
+ * contadores da conta.
+ */
+@FunctionalInterface
+public interface RiskCheck {
+
+    /** @return motivo da rejeição, ou {@code null} se a ordem passa */
+    String check(OrderBook book, Order order, AccountRisk account);
+}
@@ -0,0 +1,32 @@
+package com.exchange.service;
+
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+
+/**
+ * Recebe, na thread que aplica o comando, o que deve entrar no histórico
+ * persistente: ordens aceitas, alteradas e canceladas e movimentações de saldo. As
+ * execuções vêm pelo {@link com.exchange.events.TradeEventBus}. Não é chamado
+ * durante o replay do journal e nunca deve bloquear.
+ */
+public interface HistoryListener {
+
+    HistoryListener NONE = new HistoryListener() {
+    };
+
+    /** Chamado antes do matching da ordem, então precede as execuções dela. */
+    default void onOrderAccepted(InstrumentSpec spec, long orderId, String accountId, OrderType type,
+                                 long priceTicks, long quantityLots) {
+    }
+
+    default void onOrderCancelled(long orderId) {
+    }
+
+    /** Quantidade da ordem reduzida no lugar, sem perder a prioridade. */
+    default void onOrderReduced(InstrumentSpec spec, long orderId, long reducedLots) {
+    }
+
+    /** @param units positivo para crédito, negativo para débito */
+    default void onBalanceChanged(String accountId, String asset, long units) {
+    }
+}
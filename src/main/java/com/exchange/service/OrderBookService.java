@@ -1,158 +1,1735 @@
 package com.exchange.service;
 
+import com.exchange.book.OrderBook;
+import com.exchange.book.OrderBookRegistry;
+import com.exchange.book.OrderStore;
+import com.exchange.book.StopBook;
+import com.exchange.book.StopOrder;
+import com.exchange.book.TradeListener;
+import com.exchange.config.EngineProperties;
+import com.exchange.config.JournalProperties;
+import com.exchange.config.ReplicationProperties;
+import com.exchange.engine.AdmissionControl;
+import com.exchange.engine.EngineCommand;
+import com.exchange.engine.EngineMode;
+import com.exchange.engine.PlaceListener;
+import com.exchange.engine.RejectReason;
+import com.exchange.engine.Sequencer;
+import com.exchange.events.TradeEventBus;
+import com.exchange.journal.Journal;
+import com.exchange.journal.JournalHandler;
+import com.exchange.journal.JournalReader;
+import com.exchange.journal.SnapshotStore;
+import com.exchange.ledger.BalanceLedger;
+import com.exchange.marketdata.BookFeed;
+import com.exchange.marketdata.DepthSnapshot;
+import com.exchange.metrics.EngineMetrics;
+import com.exchange.metrics.InstrumentMetrics;
 import com.exchange.model.Account;
+import com.exchange.model.AssetScales;
+import com.exchange.model.Balance;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.FixedPoint;
 import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
 import com.exchange.model.Order;
+import com.exchange.model.OrderResult;
 import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import com.exchange.replication.ReplicationRole;
+import com.exchange.risk.AccountRisk;
+import com.exchange.risk.PreTradeRisk;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 @Service
-public class OrderBookService {
+public class OrderBookService implements AutoCloseable {
 
-    private final Map<String, Order> activeOrders = new HashMap<>();
-    private final PriorityQueue<Order> buyOrders;
-    private final PriorityQueue<Order> sellOrders;
-    private final Map<String, Account> accounts = new HashMap<>();
-    private final Instrument instrument = new Instrument("BTC", "BRL");
+    public static final Instrument DEFAULT_INSTRUMENT = new Instrument("BTC", "BRL");
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    /** Contas indexadas pelo slot no ledger, para ordens que chegam com o índice da conta. */
+    private volatile Account[] accountsBySlot = new Account[16];
+    private final BalanceLedger balances;
+    private final PreTradeRisk risk;
+    private final OrderBookRegistry books;
+    private final EngineProperties properties;
+    private final AssetScales assetScales;
+    private final boolean sequenced;
+    private final Map<Instrument, Sequencer> sequencers = new ConcurrentHashMap<>();
+    private final Map<Instrument, BookFeed> feeds = new ConcurrentHashMap<>();
+    private final TradeEventBus tradeEvents;
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final AdmissionControl admission;
+    /** Métricas de cada livro, indexadas por {@link OrderBook#getIndex()}. */
+    private volatile InstrumentMetrics[] bookMetrics = new InstrumentMetrics[0];
+    private volatile HistoryListener historyListener = HistoryListener.NONE;
+    /** Completa os futures dos sequenciadores fora das threads dos livros e do ledger. */
+    private final ExecutorService responses;
+    private final Sequencer ledger;
+    private final Journal journal;
+    private final Snapshotter snapshotter;
+    private boolean replaying;
+    /** Réplica ainda não promovida: só o fluxo do primário altera o estado. */
+    private volatile boolean replica;
+    private JournalReader replicated;
+    private JournalHandler replicaHandler;
 
     public OrderBookService() {
-        buyOrders = new PriorityQueue<>(Comparator.comparing(Order::getPrice).reversed());
-        sellOrders = new PriorityQueue<>(Comparator.comparing(Order::getPrice));
+        this(new EngineProperties());
+    }
+
+    public OrderBookService(EngineProperties properties) {
+        this(properties, new JournalProperties());
+    }
+
+    public OrderBookService(EngineProperties properties, JournalProperties journalProperties) {
+        this(properties, journalProperties, new ReplicationProperties());
+    }
+
+    /**
+     * Com o journal habilitado, o estado é reconstruído a partir do snapshot
+     * mais recente e dos registros gravados depois dele, antes de listar os
+     * instrumentos configurados. Uma réplica não lista instrumentos: eles
+     * chegam pelo journal do primário.
+     */
+    @Autowired
+    public OrderBookService(EngineProperties properties, JournalProperties journalProperties,
+                            ReplicationProperties replicationProperties) {
+        this(properties, journalProperties, replicationProperties.getRole() == ReplicationRole.REPLICA);
+        if (replica) return;
+        for (EngineProperties.InstrumentProperties listed : properties.getInstruments()) {
+            registerInstrument(new InstrumentSpec(new Instrument(listed.getBase(), listed.getQuote()),
+                    listed.getTickSize(), listed.getLotSize(), assetScales));
+        }
+        if (books.get(DEFAULT_INSTRUMENT) == null) {
+            registerInstrument(DEFAULT_INSTRUMENT);
+        }
+    }
+
+    private OrderBookService(EngineProperties properties, JournalProperties journalProperties, boolean replica) {
+        this.properties = properties;
+        this.books = new OrderBookRegistry(properties.getOrderPoolSize(), properties.getOrderStorage());
+        this.assetScales = new AssetScales(properties.getDefaultAssetScale(), properties.getAssetScales());
+        this.sequenced = properties.getMode() == EngineMode.SEQUENCED;
+        this.balances = new BalanceLedger(properties.getLedgerShards());
+        this.risk = new PreTradeRisk(properties.getRisk(), assetScales);
+        this.tradeEvents = new TradeEventBus(properties.getTradeRingSize());
+        this.admission = new AdmissionControl(properties.getAdmission().getMaxInFlight(),
+                properties.getAdmission().getRetryAfterSeconds());
+        metrics.register(admission);
+        this.responses = sequenced ? responseExecutor(properties.getResponseThreads()) : null;
+        this.ledger = sequenced ? new Sequencer("ledger", properties.getRingSize(), this::handleLedger, responses) : null;
+        this.journal = journalProperties.isEnabled()
+                ? new Journal(Path.of(journalProperties.getDirectory()), journalProperties.getSegmentSize(),
+                journalProperties.getFsyncEveryRecords(), journalProperties.getFsyncIntervalMs())
+                : null;
+        if (replica && journal == null) throw new IllegalStateException("Réplica exige o journal habilitado.");
+        if (journal != null) {
+            SnapshotStore snapshots = new SnapshotStore(journal.getDirectory(), journalProperties.getSnapshotsRetained());
+            setReplaying(true);
+            journal.replay(journalHandler(), snapshots.loadLatest(this::readState));
+            // A réplica segue reaplicando, agora o que chega do primário, até ser promovida.
+            setReplaying(replica);
+            this.snapshotter = journalProperties.getSnapshotIntervalMs() > 0
+                    ? new Snapshotter(replica(properties), journal.getDirectory(), snapshots, journalProperties.getSnapshotIntervalMs())
+                    : null;
+        } else {
+            this.snapshotter = null;
+        }
+        this.replica = replica;
     }
 
     public void registerAccount(String id) {
+        requirePrimary();
+        addAccount(id);
+    }
+
+    private void addAccount(String id) {
         if (id == null || id.isBlank()) {
             throw new IllegalArgumentException("ID da conta é obrigatório.");
         }
-        accounts.putIfAbsent(id, new Account(id));
+        boolean[] created = new boolean[1];
+        accounts.computeIfAbsent(id, key -> {
+            created[0] = true;
+            return index(new Account(key, balances));
+        });
+        if (created[0] && journaling()) {
+            journal.appendRegisterAccount(id);
+        }
+    }
+
+    public boolean hasAccount(String id) {
+        return id != null && accounts.containsKey(id);
+    }
+
+    /**
+     * Índice da conta para {@link #placeOrder(int, int, OrderType, ExecutionType, TimeInForce, long, long, long, PlaceListener)};
+     * quem envia muitas ordens pela mesma conta o resolve uma vez.
+     */
+    public int accountIndex(String id) {
+        Account account = id == null ? null : accounts.get(id);
+        if (account == null) throw new IllegalArgumentException("Conta não registrada.");
+        return account.getSlot();
+    }
+
+    private synchronized Account index(Account account) {
+        Account[] table = accountsBySlot;
+        int slot = account.getSlot();
+        if (slot >= table.length) table = Arrays.copyOf(table, Math.max(slot + 1, table.length * 2));
+        table[slot] = account;
+        accountsBySlot = table;
+        return account;
+    }
+
+    /** @return a conta do índice, ou {@code null} se não há */
+    private Account accountAt(int index) {
+        Account[] table = accountsBySlot;
+        return index >= 0 && index < table.length ? table[index] : null;
+    }
+
+    public void registerInstrument(Instrument instrument) {
+        Objects.requireNonNull(instrument, "Instrumento não pode ser nulo.");
+        registerInstrument(new InstrumentSpec(instrument,
+                InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, assetScales));
+    }
+
+    public void registerInstrument(InstrumentSpec spec) {
+        requirePrimary();
+        addInstrument(spec);
+    }
+
+    private synchronized void addInstrument(InstrumentSpec spec) {
+        Objects.requireNonNull(spec, "Especificação do instrumento não pode ser nula.");
+        if (books.get(spec.getInstrument()) != null) return;
+        OrderBook book = books.register(spec);
+        BookFeed feed = new BookFeed(book, BookFeed.MAX_TRADES, properties.getDepthLevels());
+        Instrument listed = spec.getInstrument();
+        InstrumentMetrics instrumentMetrics = new InstrumentMetrics(listed, book::size,
+                () -> feed.getDepth().levels(OrderType.BUY), () -> feed.getDepth().levels(OrderType.SELL),
+                () -> {
+                    Sequencer sequencer = sequencers.get(listed);
+                    return sequencer == null ? 0 : sequencer.backlog();
+                });
+        metrics.register(instrumentMetrics);
+        InstrumentMetrics[] grown = Arrays.copyOf(bookMetrics, Math.max(bookMetrics.length, book.getIndex() + 1));
+        grown[book.getIndex()] = instrumentMetrics;
+        bookMetrics = grown;
+        TradeListener settlement = settlement(book);
+        book.setBookListener(feed);
+        book.setTradeListener((buyOrderId, buyAccountId, sellOrderId, sellAccountId, takerSide, priceTicks, quantityLots) -> {
+            settlement.onTrade(buyOrderId, buyAccountId, sellOrderId, sellAccountId, takerSide, priceTicks, quantityLots);
+            instrumentMetrics.filled();
+            feed.onTrade(buyOrderId, buyAccountId, sellOrderId, sellAccountId, takerSide, priceTicks, quantityLots);
+            if (takerSide == OrderType.BUY) {
+                tradeEvents.publish(spec, buyOrderId, buyAccountId, sellOrderId, sellAccountId, OrderType.BUY, priceTicks, quantityLots);
+            } else {
+                tradeEvents.publish(spec, sellOrderId, sellAccountId, buyOrderId, buyAccountId, OrderType.SELL, priceTicks, quantityLots);
+            }
+        });
+        feeds.put(spec.getInstrument(), feed);
+        if (journaling()) {
+            Instrument instrument = spec.getInstrument();
+            journal.appendInstrument(instrument.baseAsset(), instrument.quoteAsset(), spec.getTickSize(), spec.getLotSize());
+        }
+        if (sequenced) {
+            sequencers.computeIfAbsent(book.getInstrument(), i -> new Sequencer(i.baseAsset() + "-" + i.quoteAsset(),
+                    properties.getRingSize(), command -> handleBook(book, command), instrumentMetrics.queueWait(), responses));
+        }
+    }
+
+    public Collection<Instrument> getInstruments() {
+        return books.all().stream().map(OrderBook::getInstrument).toList();
+    }
+
+    public InstrumentSpec getInstrumentSpec(Instrument instrument) {
+        return books.require(instrument).getSpec();
+    }
+
+    /**
+     * Especificação pelo ID numérico do instrumento, que é a sua posição em
+     * {@link #getInstruments()} (usado pelo gateway binário).
+     */
+    public InstrumentSpec getInstrumentSpec(int instrumentId) {
+        OrderBook book = books.get(instrumentId);
+        if (book == null) throw new IllegalArgumentException("Instrumento não listado: #" + instrumentId);
+        return book.getSpec();
+    }
+
+    public AssetScales getAssetScales() {
+        return assetScales;
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Limite de comandos em andamento aplicado pelos pontos de entrada (API
+     * e gateway); as chamadas diretas ao serviço não passam por ele.
+     */
+    public AdmissionControl getAdmission() {
+        return admission;
+    }
+
+    /** Etapa de risco pré-negociação; aceita checagens adicionais por {@link PreTradeRisk#add}. */
+    public PreTradeRisk getRisk() {
+        return risk;
+    }
+
+    private InstrumentMetrics metrics(OrderBook book) {
+        return bookMetrics[book.getIndex()];
     }
 
     public String placeOrder(Order order) {
-        validateOrder(order);
+        requirePrimary();
+        if (sequenced) return await(placeOrderAsync(order));
+        long start = System.nanoTime();
+        try {
+            return Long.toString(applyPlaceOrder(validateOrder(order), order));
+        } finally {
+            metrics.response().recordSince(start);
+        }
+    }
+
+    public CompletableFuture<String> placeOrderAsync(Order order) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!sequenced) return completed(() -> placeOrder(order));
+        long start = System.nanoTime();
+        try {
+            return sequencer(validateOrder(order)).<Long>placeOrder(order)
+                    .handle((id, error) -> {
+                        metrics.response().recordSince(start);
+                        if (error != null) throw error instanceof CompletionException c ? c : new CompletionException(error);
+                        return String.valueOf(id);
+                    });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Envia uma ordem já em ticks e lotes, sem {@link Order}, future nem ID
+     * em texto do lado de quem chama, para entradas binárias como o gateway.
+     * Em modo sequenciado os campos vão direto para o slot do ring do livro.
+     * O ID, ou o motivo da recusa, vai para {@code listener}: numa thread de
+     * respostas em modo sequenciado, ou na própria thread em modo direto e
+     * quando a ordem é recusada antes de chegar ao livro. Admissão fica a
+     * cargo de quem chama.
+     *
+     * @param accountIndex índice da conta, de {@link #accountIndex(String)}
+     * @param instrumentId posição do instrumento em {@link #getInstruments()}
+     * @param priceTicks   preço em ticks; ignorado numa ordem a mercado
+     */
+    public void placeOrder(int accountIndex, int instrumentId, OrderType side, ExecutionType executionType,
+                           TimeInForce timeInForce, long priceTicks, long quantityLots, long correlationId,
+                           PlaceListener listener) {
+        if (replica) {
+            listener.onRejected(correlationId, RejectReason.REFUSED);
+            return;
+        }
+        OrderBook book = books.get(instrumentId);
+        if (book == null) {
+            listener.onRejected(correlationId, RejectReason.INVALID);
+            return;
+        }
+        long start = System.nanoTime();
+        long limitTicks = executionType == ExecutionType.MARKET ? 0 : priceTicks;
+        if (side == null || timeInForce == null || executionType == null || quantityLots <= 0
+                || (limitTicks <= 0 && executionType != ExecutionType.MARKET)
+                || accountAt(accountIndex) == null) {
+            metrics(book).rejected();
+            listener.onRejected(correlationId, RejectReason.INVALID);
+            return;
+        }
+        metrics(book).validation().recordSince(start);
+        if (sequenced) {
+            sequencer(book).placeOrder(accountIndex, side, executionType, timeInForce, limitTicks, quantityLots,
+                    correlationId, listener);
+            return;
+        }
+        long id;
+        try {
+            id = applyPlaceOrder(book, new Order(accountAt(accountIndex).getId(), book.getSpec(), side, limitTicks, quantityLots)
+                    .withExecution(executionType, timeInForce));
+        } catch (RuntimeException e) {
+            listener.onRejected(correlationId, RejectReason.of(e));
+            return;
+        } finally {
+            metrics.response().recordSince(start);
+        }
+        listener.onAccepted(correlationId, id);
+    }
+
+    private long applyPlaceOrder(OrderBook book, Order order) {
+        return applyPlaceOrder(book, order, true);
+    }
+
+    /** Mede o tempo na thread do livro e conta a ordem como aceita ou rejeitada. */
+    private long applyPlaceOrder(OrderBook book, Order order, boolean match) {
+        InstrumentMetrics bookMetrics = metrics(book);
+        long start = System.nanoTime();
+        try {
+            // O journal só tem ordens já aceitas: na reaplicação os limites não são reavaliados.
+            if (!replaying) risk.check(book, order);
+            long id = order.isStop() ? applyStopOrder(book, order)
+                    : order.isImmediate() ? applyImmediateOrder(book, order)
+                    : applyLimitOrder(book, order, match);
+            bookMetrics.orderAccepted();
+            if (match) releaseStops(book);
+            return id;
+        } catch (RuntimeException e) {
+            bookMetrics.rejected();
+            throw e;
+        } finally {
+            bookMetrics.matching().recordSince(start);
+        }
+    }
 
+    /**
+     * Guarda a stop no {@link StopBook} do livro, com um ID da sequência do
+     * livro, sem bloquear saldo: o saldo e a liquidez são conferidos quando
+     * ela dispara. Uma stop cujo gatilho a última execução já alcançou é recusada.
+     */
+    private long applyStopOrder(OrderBook book, Order order) {
+        if (StopBook.crossed(order.getType(), order.getStopTicks(), book.getLastTradeTicks())) {
+            throw new IllegalStateException("Preço de disparo já foi atingido.");
+        }
+        long id = book.assignId(order);
+        long limitTicks = order.isMarket() ? 0 : order.getPriceTicks();
+        book.getStops().add(new StopOrder(id, order.getAccountId(), order.getType(), order.getStopTicks(), limitTicks,
+                order.getQuantityLots(), order.getTimeInForce()));
+        if (journaling()) {
+            journal.appendStop(id, order.getAccountId(), order.getType(), order.getStopTicks(), limitTicks,
+                    order.getQuantityLots(), order.getTimeInForce());
+        }
+        return id;
+    }
+
+    /**
+     * Solta no livro as stops cujo gatilho alguma execução do passo alcançou,
+     * ainda no mesmo passo do livro. Cada rodada tira dos índices de gatilho,
+     * por faixa, todas as stops alcançadas entre o menor e o maior preço
+     * executado desde a rodada anterior (uma varredura que passa pelo
+     * gatilho e volta também conta) e as envia em ordem de chegada (ID); as
+     * execuções delas podem alcançar outras stops, que vão na rodada
+     * seguinte. Como isso depende só do estado do livro, o replay do journal
+     * repete os mesmos disparos sem que eles sejam gravados.
+     */
+    private void releaseStops(OrderBook book) {
+        StopBook stops = book.getStops();
+        if (replaying) {
+            // Na reaplicação os disparos vêm do journal, cada um com o seu registro.
+            book.takeTradeRange();
+            return;
+        }
+        while (true) {
+            long low = book.getLowTradeTicks();
+            long high = book.getHighTradeTicks();
+            // Zerada mesmo sem stops: uma stop nova só pode ser alcançada por execuções posteriores.
+            book.takeTradeRange();
+            if (stops.isEmpty()) return;
+            List<StopOrder> triggered = stops.takeTriggered(low, high);
+            if (triggered.isEmpty()) return;
+            for (StopOrder stop : triggered) {
+                release(book, stop);
+            }
+        }
+    }
+
+    /**
+     * Envia a ordem da stop disparada, sem nova checagem de risco. Sem saldo
+     * ou liquidez, ela é descartada e vai para o histórico como aceita e
+     * cancelada, para que o dono veja o que aconteceu com ela.
+     */
+    private void release(OrderBook book, StopOrder stop) {
+        Order order = stop.toTriggeredOrder(book.getSpec());
+        order.assignId(stop.getId());
+        try {
+            if (order.isImmediate()) {
+                applyImmediateOrder(book, order);
+            } else {
+                applyLimitOrder(book, order, true);
+            }
+        } catch (RuntimeException e) {
+            metrics(book).rejected();
+            if (!replaying) {
+                historyListener.onOrderAccepted(book.getSpec(), stop.getId(), stop.getAccountId(), stop.getType(),
+                        stop.getLimitTicks(), stop.getQuantityLots());
+                historyListener.onOrderCancelled(stop.getId());
+            }
+            if (journaling()) {
+                journal.appendCancel(stop.getId());
+            }
+        }
+    }
+
+    private long applyLimitOrder(OrderBook book, Order order, boolean match) {
+        if (order.getExecutionType() == ExecutionType.POST_ONLY && book.crosses(order.getType(), order.getPriceTicks())) {
+            throw new IllegalStateException("Ordem post-only executaria na entrada.");
+        }
+        InstrumentSpec spec = book.getSpec();
+        Instrument instrument = spec.getInstrument();
         Account account = accounts.get(order.getAccountId());
 
         if (order.getType() == OrderType.BUY) {
-            BigDecimal totalCost = order.getPrice().multiply(order.getQuantity());
-            if (!account.debit(instrument.quoteAsset(), totalCost)) {
+            long totalCost = spec.quoteUnits(order.getPriceTicks(), order.getQuantityLots());
+            if (!account.hold(instrument.quoteAsset(), totalCost)) {
                 throw new IllegalStateException("Saldo insuficiente para comprar.");
             }
-            buyOrders.offer(order);
         } else {
-            if (!account.debit(instrument.baseAsset(), order.getQuantity())) {
+            if (!account.hold(instrument.baseAsset(), spec.baseUnits(order.getQuantityLots()))) {
                 throw new IllegalStateException("Saldo insuficiente para vender.");
             }
-            sellOrders.offer(order);
         }
+        risk.account(order.getAccountId()).opened();
+        long id = rest(book, order, match);
+        publish(book);
+        return id;
+    }
 
-        activeOrders.put(order.getId(), order);
-        matchOrders();
-        return order.getId();
+    /**
+     * IOC, FOK e a mercado. A liquidez é conferida nos níveis agregados do
+     * lado oposto antes de qualquer alteração, o bloqueio cobre exatamente o
+     * que vai executar e a ordem é executada direto contra as ordens em
+     * repouso, sem ser inserida e removida do livro. O que não executa é
+     * descartado.
+     */
+    private long applyImmediateOrder(OrderBook book, Order order) {
+        InstrumentSpec spec = book.getSpec();
+        Instrument instrument = spec.getInstrument();
+        OrderType side = order.getType();
+        long limit = order.isMarket() ? 0 : order.getPriceTicks();
+        long lots = book.fillable(side, limit, order.getQuantityLots());
+        if (lots == 0) throw new IllegalStateException("Sem liquidez para executar a ordem.");
+        if (order.getTimeInForce() == TimeInForce.FOK && lots < order.getQuantityLots()) {
+            throw new IllegalStateException("Liquidez insuficiente para executar a ordem inteira.");
+        }
+        Account account = accounts.get(order.getAccountId());
+        if (side == OrderType.BUY) {
+            if (!account.hold(instrument.quoteAsset(), spec.quoteUnits(book.notional(side, limit, lots), 1))) {
+                throw new IllegalStateException("Saldo insuficiente para comprar.");
+            }
+        } else {
+            if (!account.hold(instrument.baseAsset(), spec.baseUnits(lots))) {
+                throw new IllegalStateException("Saldo insuficiente para vender.");
+            }
+        }
+        long id = book.assignId(order);
+        if (!replaying) {
+            historyListener.onOrderAccepted(spec, id, order.getAccountId(), side, limit, order.getQuantityLots());
+        }
+        book.execute(id, order.getAccountId(), side, limit, lots);
+        if (!replaying && lots < order.getQuantityLots()) historyListener.onOrderCancelled(id);
+        if (journaling()) {
+            journal.appendPlaceImmediate(id, order.getAccountId(), side, limit, order.getQuantityLots());
+        }
+        publish(book);
+        return id;
+    }
+
+    /**
+     * Insere uma ordem com o saldo já bloqueado e a vaga de ordem em aberto
+     * já contada e, se pedido, roda o matching.
+     */
+    private long rest(OrderBook book, Order order, boolean match) {
+        long id = book.add(order);
+        if (!replaying) {
+            historyListener.onOrderAccepted(book.getSpec(), id, order.getAccountId(), order.getType(),
+                    order.getPriceTicks(), order.getQuantityLots());
+        }
+        if (match) book.match();
+        if (journaling()) {
+            if (order.getExecutionType() == ExecutionType.POST_ONLY) {
+                journal.appendPlacePostOnly(id, order.getAccountId(), order.getType(), order.getPriceTicks(), order.getQuantityLots());
+            } else {
+                journal.appendPlace(id, order.getAccountId(), order.getType(), order.getPriceTicks(), order.getQuantityLots(), match);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Registra um lote de ordens, por exemplo uma recotação de market maker.
+     * Ordens inválidas ou recusadas pelo risco são rejeitadas individualmente,
+     * cada uma com a sua mensagem; as demais são aplicadas de uma vez em cada
+     * livro, com a reserva de saldo verificada pelo total do lote e um único
+     * matching no fim. Se o saldo não cobre o lote inteiro de um livro,
+     * nenhuma ordem daquele livro entra.
+     *
+     * @return um resultado por ordem, na ordem recebida
+     */
+    public List<OrderResult> placeOrders(List<Order> orders) {
+        return await(placeOrdersAsync(orders));
+    }
+
+    public CompletableFuture<List<OrderResult>> placeOrdersAsync(List<Order> orders) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        Objects.requireNonNull(orders, "Lote não pode ser nulo.");
+        OrderResult[] results = new OrderResult[orders.size()];
+        Map<OrderBook, List<Integer>> byBook = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            try {
+                Order order = orders.get(i);
+                OrderBook book = validateOrder(order);
+                if (order.isImmediate() || order.isStop() || order.getExecutionType() != ExecutionType.LIMIT) {
+                    throw new IllegalArgumentException("Lote aceita apenas ordens limitadas GTC.");
+                }
+                byBook.computeIfAbsent(book, b -> new ArrayList<>()).add(i);
+            } catch (RuntimeException e) {
+                results[i] = OrderResult.rejected(e.getMessage());
+            }
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        byBook.forEach((book, indexes) -> {
+            List<Order> batch = indexes.stream().map(orders::get).toList();
+            CompletableFuture<List<OrderResult>> applied = sequenced
+                    ? sequencer(book).placeOrders(batch)
+                    : completed(() -> applyPlaceBatch(book, batch));
+            pending.add(applied.thenAccept(batchResults -> {
+                for (int j = 0; j < indexes.size(); j++) {
+                    results[indexes.get(j)] = batchResults.get(j);
+                }
+            }));
+        });
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenApply(done -> List.of(results));
+    }
+
+    private List<OrderResult> applyPlaceBatch(OrderBook book, List<Order> orders) {
+        InstrumentSpec spec = book.getSpec();
+        String quoteAsset = spec.getInstrument().quoteAsset();
+        String baseAsset = spec.getInstrument().baseAsset();
+        InstrumentMetrics bookMetrics = metrics(book);
+
+        // O risco é por ordem: a que falha é recusada sozinha, com a própria mensagem.
+        OrderResult[] results = new OrderResult[orders.size()];
+        List<Order> passed = new ArrayList<>(orders.size());
+        // Total a reservar por conta: [0] ativo cotado das compras, [1] ativo base das vendas.
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            try {
+                if (!replaying) risk.check(book, order);
+                long[] total = totals.computeIfAbsent(order.getAccountId(), a -> new long[2]);
+                if (order.getType() == OrderType.BUY) {
+                    total[0] = FixedPoint.add(total[0], spec.quoteUnits(order.getPriceTicks(), order.getQuantityLots()));
+                } else {
+                    total[1] = FixedPoint.add(total[1], spec.baseUnits(order.getQuantityLots()));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results[i] = OrderResult.rejected(e.getMessage());
+                bookMetrics.rejected();
+                continue;
+            }
+            // Cada ordem aprovada já ocupa sua vaga, para o limite de ordens em aberto valer para o lote todo.
+            risk.account(order.getAccountId()).opened();
+            passed.add(order);
+        }
+
+        // A reserva de saldo continua sendo do lote todo: sem saldo para todas as aprovadas, nenhuma entra.
+        List<Map.Entry<String, long[]>> reserved = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            Account account = accounts.get(entry.getKey());
+            long[] total = entry.getValue();
+            boolean quoteReserved = total[0] == 0 || account.hold(quoteAsset, total[0]);
+            boolean baseReserved = quoteReserved && (total[1] == 0 || account.hold(baseAsset, total[1]));
+            if (!baseReserved) {
+                if (quoteReserved && total[0] > 0) account.release(quoteAsset, total[0]);
+                for (Map.Entry<String, long[]> undo : reserved) {
+                    release(accounts.get(undo.getKey()), quoteAsset, baseAsset, undo.getValue());
+                }
+                for (Order order : passed) {
+                    risk.account(order.getAccountId()).closed();
+                }
+                bookMetrics.rejected();
+                return fill(results, OrderResult.rejected("Saldo insuficiente para o lote."));
+            }
+            reserved.add(entry);
+        }
+
+        if (passed.isEmpty()) return List.of(results);
+        for (int i = 0, j = 0; i < orders.size(); i++) {
+            if (results[i] != null) continue;
+            results[i] = OrderResult.accepted(rest(book, orders.get(i), ++j == passed.size()));
+            bookMetrics.orderAccepted();
+        }
+        releaseStops(book);
+        publish(book);
+        return List.of(results);
+    }
+
+    private static void release(Account account, String quoteAsset, String baseAsset, long[] total) {
+        if (total[0] > 0) account.release(quoteAsset, total[0]);
+        if (total[1] > 0) account.release(baseAsset, total[1]);
+    }
+
+    /** Completa com {@code result} as posições ainda sem resultado. */
+    private static List<OrderResult> fill(OrderResult[] results, OrderResult result) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) results[i] = result;
+        }
+        return List.of(results);
     }
 
     public boolean cancelOrder(String orderId) {
-        Order order = activeOrders.remove(orderId);
-        if (order == null) return false;
+        requirePrimary();
+        if (sequenced) return await(cancelOrderAsync(orderId));
+        long id = parseOrderId(orderId);
+        OrderBook book = books.forOrder(id);
+        return book != null && applyCancelOrder(book, id, null);
+    }
 
-        Account account = accounts.get(order.getAccountId());
-        if (order.getType() == OrderType.BUY) {
-            buyOrders.remove(order);
-            BigDecimal refund = order.getPrice().multiply(order.getQuantity());
-            account.credit(instrument.quoteAsset(), refund);
-        } else {
-            sellOrders.remove(order);
-            account.credit(instrument.baseAsset(), order.getQuantity());
+    public boolean cancelOrder(Instrument instrument, String orderId) {
+        requirePrimary();
+        if (sequenced) return await(cancelOrderAsync(instrument, orderId));
+        OrderBook book = books.get(instrument);
+        return book != null && applyCancelOrder(book, parseOrderId(orderId), null);
+    }
+
+    /** O livro da ordem é identificado pelo próprio ID, sem consultar os demais livros. */
+    public CompletableFuture<Boolean> cancelOrderAsync(String orderId) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!sequenced) return completed(() -> cancelOrder(orderId));
+        long id = parseOrderId(orderId);
+        OrderBook book = books.forOrder(id);
+        if (book == null) return CompletableFuture.completedFuture(false);
+        return sequencer(book).cancelOrder(id);
+    }
+
+    /**
+     * Cancela a ordem só se ela for de {@code accountId}; a conferência é
+     * feita na thread do livro e, com outro dono, o resultado é {@code false}.
+     */
+    public CompletableFuture<Boolean> cancelOrderAsync(String orderId, String accountId) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        Objects.requireNonNull(accountId, "Conta não pode ser nula.");
+        long id = parseOrderId(orderId);
+        OrderBook book = books.forOrder(id);
+        if (book == null) return CompletableFuture.completedFuture(false);
+        if (!sequenced) return completed(() -> applyCancelOrder(book, id, accountId));
+        return sequencer(book).cancelOrder(id, accountId);
+    }
+
+    public CompletableFuture<Boolean> cancelOrderAsync(Instrument instrument, String orderId) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!sequenced) return completed(() -> cancelOrder(instrument, orderId));
+        OrderBook book = books.get(instrument);
+        if (book == null) return CompletableFuture.completedFuture(false);
+        return sequencer(book).cancelOrder(parseOrderId(orderId));
+    }
+
+    /** @param owner dono exigido da ordem, ou {@code null} para qualquer um */
+    private boolean applyCancelOrder(OrderBook book, long orderId, String owner) {
+        int slot = book.slotOf(orderId);
+        if (slot == OrderStore.NONE) return applyCancelStop(book, orderId, owner);
+        OrderStore store = book.getPool();
+        String accountId = store.accountId(slot);
+        if (owner != null && !owner.equals(accountId)) return false;
+
+        InstrumentSpec spec = book.getSpec();
+        Instrument instrument = spec.getInstrument();
+        OrderType type = store.type(slot);
+        Account account = accounts.get(accountId);
+        account.release(type == OrderType.BUY ? instrument.quoteAsset() : instrument.baseAsset(),
+                heldUnits(spec, type, store.priceTicks(slot), store.quantityLots(slot)));
+
+        risk.account(accountId).closed();
+        book.remove(orderId);
+        metrics(book).cancelled();
+        if (!replaying) historyListener.onOrderCancelled(orderId);
+        if (journaling()) {
+            journal.appendCancel(orderId);
         }
+        publish(book);
+        return true;
+    }
 
+    /** Stop pendente não tem saldo bloqueado nem conta como ordem em aberto. */
+    private boolean applyCancelStop(OrderBook book, long orderId, String owner) {
+        StopOrder stop = book.getStops().get(orderId);
+        if (stop == null || (owner != null && !owner.equals(stop.getAccountId()))) return false;
+        book.getStops().remove(orderId);
+        metrics(book).cancelled();
+        if (journaling()) {
+            journal.appendCancel(orderId);
+        }
         return true;
     }
 
-    private void matchOrders() {
-        while (!buyOrders.isEmpty() && !sellOrders.isEmpty()) {
-            Order buy = buyOrders.peek();
-            Order sell = sellOrders.peek();
+    /**
+     * Altera preço e/ou quantidade de uma ordem em repouso. Reduzir só a
+     * quantidade é feito no lugar: a ordem mantém o ID e a posição na fila e
+     * só o saldo liberado volta ao disponível. Qualquer outra alteração
+     * substitui a ordem por uma nova, com novo ID e no fim da fila, num único
+     * passo do livro: o bloqueio é ajustado pela diferença e a nova ordem
+     * passa pelo risco e pelo matching, com o tipo de execução da original
+     * (uma post-only que cruzaria é recusada). Se a substituição é recusada, a
+     * ordem original fica como estava.
+     *
+     * @param price    novo preço, ou {@code null} para manter
+     * @param quantity nova quantidade, ou {@code null} para manter
+     * @return ID da ordem depois da alteração
+     */
+    public String amendOrder(String orderId, BigDecimal price, BigDecimal quantity) {
+        requirePrimary();
+        if (sequenced) return await(amendOrderAsync(orderId, price, quantity));
+        long id = parseOrderId(orderId);
+        OrderBook book = requireBookOf(id);
+        return Long.toString(applyAmendOrder(book, id, amendTicks(book, price), amendLots(book, quantity), 0));
+    }
 
-            if (buy.getPrice().compareTo(sell.getPrice()) >= 0) {
-                BigDecimal tradedQty = buy.getQuantity().min(sell.getQuantity());
-                BigDecimal tradePrice = sell.getPrice();
+    public CompletableFuture<String> amendOrderAsync(String orderId, BigDecimal price, BigDecimal quantity) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!sequenced) return completed(() -> amendOrder(orderId, price, quantity));
+        try {
+            long id = parseOrderId(orderId);
+            OrderBook book = requireBookOf(id);
+            return sequencer(book).<Long>amendOrder(id, amendTicks(book, price), amendLots(book, quantity))
+                    .thenApply(String::valueOf);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-                Account buyer = accounts.get(buy.getAccountId());
-                Account seller = accounts.get(sell.getAccountId());
+    private OrderBook requireBookOf(long orderId) {
+        OrderBook book = books.forOrder(orderId);
+        if (book == null) throw new IllegalArgumentException("Ordem não encontrada.");
+        return book;
+    }
 
-                buyer.credit(instrument.baseAsset(), tradedQty);
-                seller.credit(instrument.quoteAsset(), tradePrice.multiply(tradedQty));
+    /** Preço convertido para ticks, ou 0 para manter o atual. */
+    private static long amendTicks(OrderBook book, BigDecimal price) {
+        if (price == null) return 0;
+        if (price.signum() <= 0) throw new IllegalArgumentException("Preço deve ser positivo.");
+        return book.getSpec().toTicks(price);
+    }
 
-                buy.decreaseQuantity(tradedQty);
-                sell.decreaseQuantity(tradedQty);
+    /** Quantidade convertida para lotes, ou 0 para manter a atual. */
+    private static long amendLots(OrderBook book, BigDecimal quantity) {
+        if (quantity == null) return 0;
+        if (quantity.signum() <= 0) throw new IllegalArgumentException("Quantidade deve ser positiva.");
+        return book.getSpec().toLots(quantity);
+    }
 
-                if (buy.getQuantity().compareTo(BigDecimal.ZERO) == 0) {
-                    buyOrders.poll();
-                    activeOrders.remove(buy.getId());
-                }
+    /**
+     * @param priceTicks    novo preço, ou 0 para manter
+     * @param quantityLots  nova quantidade, ou 0 para manter
+     * @param replacementId ID da ordem substituta no replay, ou 0 para gerar um novo
+     */
+    private long applyAmendOrder(OrderBook book, long orderId, long priceTicks, long quantityLots, long replacementId) {
+        int slot = book.slotOf(orderId);
+        if (slot == OrderStore.NONE) throw new IllegalStateException("Ordem não está no livro.");
+        OrderStore store = book.getPool();
+        String accountId = store.accountId(slot);
+        OrderType type = store.type(slot);
+        ExecutionType executionType = store.executionType(slot);
+        long oldTicks = store.priceTicks(slot);
+        long oldLots = store.quantityLots(slot);
+        if (priceTicks == 0) priceTicks = oldTicks;
+        if (quantityLots == 0) quantityLots = oldLots;
+        if (priceTicks == oldTicks && quantityLots == oldLots) return orderId;
+
+        InstrumentSpec spec = book.getSpec();
+        Instrument instrument = spec.getInstrument();
+        String asset = type == OrderType.BUY ? instrument.quoteAsset() : instrument.baseAsset();
+        Account account = accounts.get(accountId);
+        long oldHeld = heldUnits(spec, type, oldTicks, oldLots);
+        long newHeld = heldUnits(spec, type, priceTicks, quantityLots);
+
+        if (priceTicks == oldTicks && quantityLots < oldLots) {
+            book.reduce(orderId, quantityLots);
+            account.release(asset, oldHeld - newHeld);
+            if (!replaying) historyListener.onOrderReduced(spec, orderId, oldLots - quantityLots);
+            if (journaling()) journal.appendAmend(orderId, orderId, priceTicks, quantityLots);
+            publish(book);
+            return orderId;
+        }
+
+        Order replacement = new Order(accountId, spec, type, priceTicks, quantityLots)
+                .withExecution(executionType, TimeInForce.GTC);
+        if (replacementId != 0) replacement.assignId(replacementId);
+        AccountRisk accountRisk = risk.account(accountId);
+        // A ordem substituída não conta contra o limite de ordens em aberto da nova.
+        accountRisk.closed();
+        try {
+            if (executionType == ExecutionType.POST_ONLY && book.crosses(type, priceTicks)) {
+                throw new IllegalStateException("Ordem post-only executaria na entrada.");
+            }
+            if (!replaying) risk.check(book, replacement);
+            if (newHeld > oldHeld && !account.hold(asset, newHeld - oldHeld)) {
+                throw new IllegalStateException("Saldo insuficiente para alterar a ordem.");
+            }
+        } catch (RuntimeException e) {
+            accountRisk.opened();
+            metrics(book).rejected();
+            throw e;
+        }
+        if (newHeld < oldHeld) account.release(asset, oldHeld - newHeld);
+        book.remove(orderId);
+        if (!replaying) historyListener.onOrderCancelled(orderId);
+        long id = book.add(replacement);
+        accountRisk.opened();
+        if (!replaying) historyListener.onOrderAccepted(spec, id, accountId, type, priceTicks, quantityLots);
+        book.match();
+        if (journaling()) journal.appendAmend(orderId, id, priceTicks, quantityLots);
+        releaseStops(book);
+        publish(book);
+        return id;
+    }
 
-                if (sell.getQuantity().compareTo(BigDecimal.ZERO) == 0) {
-                    sellOrders.poll();
-                    activeOrders.remove(sell.getId());
+    /**
+     * Cancela um lote de ordens, um comando por livro.
+     *
+     * @return para cada ID, na ordem recebida, se a ordem foi cancelada
+     */
+    public List<Boolean> cancelOrders(List<String> orderIds) {
+        return await(cancelOrdersAsync(orderIds));
+    }
+
+    public CompletableFuture<List<Boolean>> cancelOrdersAsync(List<String> orderIds) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        Objects.requireNonNull(orderIds, "Lote não pode ser nulo.");
+        Boolean[] results = new Boolean[orderIds.size()];
+        Arrays.fill(results, Boolean.FALSE);
+        Map<OrderBook, List<Integer>> byBook = new LinkedHashMap<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            OrderBook book = books.forOrder(parseOrderId(orderIds.get(i)));
+            if (book != null) byBook.computeIfAbsent(book, b -> new ArrayList<>()).add(i);
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        byBook.forEach((book, indexes) -> {
+            long[] ids = indexes.stream().mapToLong(i -> parseOrderId(orderIds.get(i))).toArray();
+            CompletableFuture<boolean[]> applied = sequenced
+                    ? sequencer(book).cancelOrders(ids)
+                    : completed(() -> applyCancelBatch(book, ids));
+            pending.add(applied.thenAccept(cancelled -> {
+                for (int j = 0; j < indexes.size(); j++) {
+                    results[indexes.get(j)] = cancelled[j];
                 }
+            }));
+        });
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenApply(done -> List.of(results));
+    }
 
-            } else {
-                break;
+    private boolean[] applyCancelBatch(OrderBook book, long[] orderIds) {
+        boolean[] cancelled = new boolean[orderIds.length];
+        for (int i = 0; i < orderIds.length; i++) {
+            cancelled[i] = applyCancelOrder(book, orderIds[i], null);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancela todas as ordens em repouso e stops pendentes de uma conta.
+     *
+     * @param instrument livro a considerar, ou {@code null} para todos
+     * @param side       lado a cancelar, ou {@code null} para os dois
+     * @return IDs das ordens canceladas
+     */
+    public List<String> cancelAll(String accountId, Instrument instrument, OrderType side) {
+        return await(cancelAllAsync(accountId, instrument, side));
+    }
+
+    public CompletableFuture<List<String>> cancelAllAsync(String accountId, Instrument instrument, OrderType side) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!hasAccount(accountId)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Conta não registrada."));
+        }
+        Collection<OrderBook> targets;
+        try {
+            targets = instrument == null ? books.all() : List.of(books.require(instrument));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        List<CompletableFuture<long[]>> pending = new ArrayList<>();
+        for (OrderBook book : targets) {
+            pending.add(sequenced
+                    ? sequencer(book).cancelAll(accountId, side)
+                    : completed(() -> applyCancelAll(book, accountId, side)));
+        }
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<String> cancelled = new ArrayList<>();
+            for (CompletableFuture<long[]> future : pending) {
+                for (long id : future.join()) cancelled.add(Long.toString(id));
             }
+            return cancelled;
+        });
+    }
+
+    private long[] applyCancelAll(OrderBook book, String accountId, OrderType side) {
+        long[] resting = book.orderIdsOf(accountId, side);
+        long[] stops = book.getStops().idsOf(accountId, side);
+        long[] ids = Arrays.copyOf(resting, resting.length + stops.length);
+        System.arraycopy(stops, 0, ids, resting.length, stops.length);
+        for (long id : ids) {
+            applyCancelOrder(book, id, null);
         }
+        return ids;
+    }
+
+    private static long parseOrderId(String orderId) {
+        if (orderId == null) return 0;
+        try {
+            return Long.parseLong(orderId);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Liquidação das execuções de um livro; criada uma vez por livro. Cada
+     * execução baixa do bloqueio exatamente o que foi entregue e, se o preço
+     * saiu abaixo do limite da compra, devolve a melhora de preço ao
+     * disponível do comprador na hora. As ordens em repouso ainda estão no
+     * livro quando o {@link TradeListener} é chamado.
+     */
+    private TradeListener settlement(OrderBook book) {
+        InstrumentSpec spec = book.getSpec();
+        Instrument instrument = spec.getInstrument();
+        int baseAsset = balances.assets().intern(instrument.baseAsset());
+        int quoteAsset = balances.assets().intern(instrument.quoteAsset());
+        OrderStore store = book.getPool();
+        return (buyOrderId, buyAccountId, sellOrderId, sellAccountId, takerSide, priceTicks, tradedLots) -> {
+            Account buyer = accounts.get(buyAccountId);
+            Account seller = accounts.get(sellAccountId);
+            long baseUnits = spec.baseUnits(tradedLots);
+            long quoteUnits = spec.quoteUnits(priceTicks, tradedLots);
+
+            buyer.settle(quoteAsset, quoteUnits);
+            // Compras imediatas não entram no livro e já bloqueiam só o que executam.
+            int buy = book.slotOf(buyOrderId);
+            if (buy != OrderStore.NONE && store.priceTicks(buy) > priceTicks) {
+                buyer.release(quoteAsset, spec.quoteUnits(store.priceTicks(buy) - priceTicks, tradedLots));
+            }
+            // O listener roda antes da baixa: a ordem que zera aqui sai do livro.
+            if (buy != OrderStore.NONE && store.quantityLots(buy) == tradedLots) risk.account(buyAccountId).closed();
+            int sell = book.slotOf(sellOrderId);
+            if (sell != OrderStore.NONE && store.quantityLots(sell) == tradedLots) risk.account(sellAccountId).closed();
+            seller.settle(baseAsset, baseUnits);
+            buyer.credit(baseAsset, baseUnits);
+            seller.credit(quoteAsset, quoteUnits);
+        };
+    }
+
+    /** Unidades bloqueadas por uma ordem: o cotado ao preço limite numa compra, o base numa venda. */
+    private static long heldUnits(InstrumentSpec spec, OrderType type, long priceTicks, long quantityLots) {
+        return type == OrderType.BUY ? spec.quoteUnits(priceTicks, quantityLots) : spec.baseUnits(quantityLots);
     }
 
     public Map<String, BigDecimal> getBalances(String accountId) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        getBalanceUnits(accountId).forEach((asset, units) -> balances.put(asset, assetScales.toDecimal(asset, units)));
+        return balances;
+    }
+
+    /** Saldos disponíveis em unidades mínimas de cada ativo. */
+    public Map<String, Long> getBalanceUnits(String accountId) {
+        return requireAccount(accountId).getAllBalances();
+    }
+
+    /**
+     * Disponível e bloqueado por ativo, numa leitura consistente e sem lock;
+     * pode ser chamado de qualquer thread.
+     */
+    public Map<String, Balance> getBalanceSheet(String accountId) {
+        return requireAccount(accountId).getBalanceSheet();
+    }
+
+    private Account requireAccount(String accountId) {
         Account account = accounts.get(accountId);
         if (account == null) throw new IllegalArgumentException("Conta inexistente.");
-        return account.getAllBalances();
+        return account;
     }
 
     public List<Order> getOpenBuyOrders() {
-        return new ArrayList<>(buyOrders);
+        List<Order> result = new ArrayList<>();
+        for (OrderBook book : books.all()) {
+            result.addAll(readBook(book, OrderBook::getBuyOrders));
+        }
+        return result;
     }
 
     public List<Order> getOpenSellOrders() {
-        return new ArrayList<>(sellOrders);
+        List<Order> result = new ArrayList<>();
+        for (OrderBook book : books.all()) {
+            result.addAll(readBook(book, OrderBook::getSellOrders));
+        }
+        return result;
+    }
+
+    public List<Order> getOpenBuyOrders(Instrument instrument) {
+        return readBook(books.require(instrument), OrderBook::getBuyOrders);
+    }
+
+    public List<Order> getOpenSellOrders(Instrument instrument) {
+        return readBook(books.require(instrument), OrderBook::getSellOrders);
+    }
+
+    /** Stops de compra pendentes, da próxima a disparar para a última. */
+    public List<Order> getBuyStopOrders(Instrument instrument) {
+        OrderBook book = books.require(instrument);
+        return readBook(book, b -> b.getStops().toOrders(OrderType.BUY, b.getSpec()));
     }
 
-    private void validateOrder(Order order) {
+    /** Stops de venda pendentes, da próxima a disparar para a última. */
+    public List<Order> getSellStopOrders(Instrument instrument) {
+        OrderBook book = books.require(instrument);
+        return readBook(book, b -> b.getStops().toOrders(OrderType.SELL, b.getSpec()));
+    }
+
+    public void setHistoryListener(HistoryListener historyListener) {
+        this.historyListener = historyListener == null ? HistoryListener.NONE : historyListener;
+    }
+
+    /** Execuções de todos os livros, para consumidores com thread própria. */
+    public TradeEventBus getTradeEvents() {
+        return tradeEvents;
+    }
+
+    /** Feed de market data do livro, ativado por quem assina. */
+    public BookFeed getFeed(Instrument instrument) {
+        BookFeed feed = instrument == null ? null : feeds.get(instrument);
+        if (feed == null) throw new IllegalArgumentException("Instrumento não listado: " + instrument);
+        return feed;
+    }
+
+    /**
+     * Até {@code depth} níveis agregados por lado, servidos da última
+     * profundidade publicada pelo livro, sem lock nem fila; só consultas
+     * além de {@code depth-levels} vão à thread do livro.
+     */
+    public DepthSnapshot getDepth(Instrument instrument, int depth) {
+        if (depth <= 0) throw new IllegalArgumentException("Profundidade deve ser positiva.");
+        BookFeed feed = getFeed(instrument);
+        if (depth <= feed.getDepthLevels()) return feed.getDepth().toSnapshot(depth);
+        return readDepth(instrument, depth);
+    }
+
+    /**
+     * Como {@link #getDepth}, mas lida na thread do livro depois dos comandos
+     * já enfileirados; é o ponto de partida de uma assinatura do feed.
+     */
+    public DepthSnapshot readDepth(Instrument instrument, int depth) {
+        if (depth <= 0) throw new IllegalArgumentException("Profundidade deve ser positiva.");
+        BookFeed feed = getFeed(instrument);
+        return readBook(books.require(instrument), book -> feed.snapshot(depth));
+    }
+
+    /** Fecha o comando corrente no feed do livro. */
+    private void publish(OrderBook book) {
+        feeds.get(book.getInstrument()).publish();
+    }
+
+    private <T> T readBook(OrderBook book, Function<OrderBook, T> query) {
+        return sequenced ? await(sequencer(book).query(query)) : query.apply(book);
+    }
+
+    /**
+     * Valida a ordem e a converte para ticks e lotes do instrumento,
+     * rejeitando preços e quantidades fora da grade.
+     */
+    private OrderBook validateOrder(Order order) {
+        long start = System.nanoTime();
         Objects.requireNonNull(order, "Ordem não pode ser nula.");
         Objects.requireNonNull(order.getAccountId(), "Conta da ordem não pode ser nula.");
-        Objects.requireNonNull(order.getPrice(), "Preço não pode ser nulo.");
-        Objects.requireNonNull(order.getQuantity(), "Quantidade não pode ser nula.");
+        Objects.requireNonNull(order.getInstrument(), "Instrumento não pode ser nulo.");
 
-        if (order.getPrice().compareTo(BigDecimal.ZERO) <= 0)
+        if (!order.isBound()) {
+            if (!order.isMarket()) Objects.requireNonNull(order.getPrice(), "Preço não pode ser nulo.");
+            Objects.requireNonNull(order.getQuantity(), "Quantidade não pode ser nula.");
+        }
+
+        if (!order.isMarket() && (order.isBound() ? order.getPriceTicks() <= 0 : order.getPrice().compareTo(BigDecimal.ZERO) <= 0))
             throw new IllegalArgumentException("Preço deve ser positivo.");
 
-        if (order.getQuantity().compareTo(BigDecimal.ZERO) <= 0)
+        if (order.isBound() ? order.getQuantityLots() <= 0 : order.getQuantity().compareTo(BigDecimal.ZERO) <= 0)
             throw new IllegalArgumentException("Quantidade deve ser positiva.");
 
-        if (!accounts.containsKey(order.getAccountId()))
-            throw new IllegalArgumentException("Conta não registrada.");
+        if (order.isStop()) {
+            if (order.isBound() ? order.getStopTicks() <= 0 : order.getStopPrice().signum() <= 0)
+                throw new IllegalArgumentException("Preço de disparo deve ser positivo.");
+            if (order.getExecutionType() == ExecutionType.POST_ONLY)
+                throw new IllegalArgumentException("Ordem stop não pode ser post-only.");
+        }
+
+        OrderBook book = books.require(order.getInstrument());
+        InstrumentMetrics bookMetrics = metrics(book);
+        try {
+            order.bind(book.getSpec());
+            if (!accounts.containsKey(order.getAccountId()))
+                throw new IllegalArgumentException("Conta não registrada.");
+        } catch (RuntimeException e) {
+            bookMetrics.rejected();
+            throw e;
+        }
+        bookMetrics.validation().recordSince(start);
+        return book;
     }
 
 
     public void credit(String accountId, String asset, BigDecimal amount) {
+        credit(accountId, asset, toUnits(accountId, asset, amount));
+    }
+
+    /** Crédito em unidades mínimas do ativo. */
+    public void credit(String accountId, String asset, long units) {
+        requirePrimary();
+        if (sequenced) {
+            await(creditAsync(accountId, asset, units));
+            return;
+        }
+        applyCredit(accountId, asset, units);
+    }
+
+    public CompletableFuture<Void> creditAsync(String accountId, String asset, long units) {
+        if (replica) return CompletableFuture.failedFuture(readOnly());
+        if (!sequenced) return completed(() -> {
+            applyCredit(accountId, asset, units);
+            return null;
+        });
+        return ledger.credit(accountId, asset, units);
+    }
+
+    public void debit(String accountId, String asset, BigDecimal amount) {
+        debit(accountId, asset, toUnits(accountId, asset, amount));
+    }
+
+    /** Débito em unidades mínimas do ativo. */
+    public void debit(String accountId, String asset, long units) {
+        requirePrimary();
+        if (sequenced) {
+            await(ledger.debit(accountId, asset, units));
+            return;
+        }
+        applyDebit(accountId, asset, units);
+    }
+
+    private long toUnits(String accountId, String asset, BigDecimal amount) {
+        if (!accounts.containsKey(accountId)) throw new IllegalArgumentException("Conta não encontrada: " + accountId);
+        return assetScales.toUnits(asset, amount);
+    }
+
+    private void applyCredit(String accountId, String asset, long units) {
         Account account = accounts.get(accountId);
         if (account == null) throw new IllegalArgumentException("Conta não encontrada: " + accountId);
-        account.credit(asset, amount);
+        account.credit(asset, units);
+        if (!replaying) historyListener.onBalanceChanged(accountId, asset, units);
+        if (journaling()) {
+            journal.appendCredit(accountId, asset, units);
+        }
     }
 
-    public void debit(String accountId, String asset, BigDecimal amount) {
+    private void applyDebit(String accountId, String asset, long units) {
         Account account = accounts.get(accountId);
         if (account == null) throw new IllegalArgumentException("Conta não encontrada: " + accountId);
-        if (!account.debit(asset, amount)) {
+        if (!account.debit(asset, units)) {
             throw new IllegalStateException("Saldo insuficiente para débito.");
         }
+        if (!replaying) historyListener.onBalanceChanged(accountId, asset, -units);
+        if (journaling()) {
+            journal.appendDebit(accountId, asset, units);
+        }
+    }
+
+    private Object handleBook(OrderBook book, EngineCommand command) {
+        return switch (command.getType()) {
+            case PLACE -> applyPlaceOrder(book, command.getOrder());
+            case CANCEL -> applyCancelOrder(book, command.getOrderId(), command.getAccountId());
+            case AMEND -> applyAmendOrder(book, command.getOrderId(), command.getPriceTicks(), command.getQuantityLots(), 0);
+            case PLACE_BATCH -> applyPlaceBatch(book, command.getOrders());
+            case CANCEL_BATCH -> applyCancelBatch(book, command.getOrderIds());
+            case CANCEL_ALL -> applyCancelAll(book, command.getAccountId(), command.getSide());
+            case PLACE_PRIMITIVE -> applyPlaceOrder(book, new Order(accountAt(command.getAccountIndex()).getId(),
+                    book.getSpec(), command.getSide(), command.getPriceTicks(), command.getQuantityLots())
+                    .withExecution(command.getExecutionType(), command.getTimeInForce()));
+            case QUERY -> command.getQuery().apply(book);
+            default -> throw new IllegalStateException("Comando não suportado pelo livro: " + command.getType());
+        };
+    }
+
+    private Object handleLedger(EngineCommand command) {
+        switch (command.getType()) {
+            case CREDIT -> applyCredit(command.getAccountId(), command.getAsset(), command.getAmount());
+            case DEBIT -> applyDebit(command.getAccountId(), command.getAsset(), command.getAmount());
+            default -> throw new IllegalStateException("Comando não suportado pelo ledger: " + command.getType());
+        }
+        return null;
+    }
+
+    /**
+     * Alcança o journal na réplica e grava um snapshot, fora das threads de
+     * matching; normalmente isso acontece sozinho a cada
+     * {@code snapshot-interval-ms}.
+     *
+     * @return a sequência do snapshot mais recente
+     */
+    public long takeSnapshot() {
+        if (snapshotter == null) throw new IllegalStateException("Snapshots não estão habilitados.");
+        return snapshotter.snapshot();
+    }
+
+    /** Última sequência gravada no journal, ou 0 sem journal. */
+    public long lastSequence() {
+        return journal == null ? 0 : journal.lastSequence();
+    }
+
+    public boolean isReplica() {
+        return replica;
+    }
+
+    /**
+     * Aplica um registro do journal do primário, que começa em
+     * {@code offset}, e o grava com a mesma sequência no journal local.
+     * Chamado por uma única thread, só enquanto este serviço é réplica; em
+     * modo sequenciado, cada comando de livro roda na thread do livro e é
+     * aguardado antes do seguinte, preservando a ordem global.
+     *
+     * @return a sequência aplicada
+     */
+    public long replicate(ByteBuffer record, int offset) {
+        if (!replica) throw new IllegalStateException("Serviço não é réplica.");
+        if (replicated == null) {
+            replicated = new JournalReader(journal.getDirectory(), journal.lastSequence());
+            replicaHandler = sequenced ? onBookThreads(journalHandler()) : journalHandler();
+        }
+        long sequence = replicated.apply(record, offset, replicaHandler);
+        journal.appendReplicated(record, offset);
+        return sequence;
+    }
+
+    /**
+     * Promove a réplica a primário: passa a aceitar comandos, que o journal
+     * numera a partir da última sequência recebida. Quem chama
+     * {@link #replicate} deve ter parado antes.
+     */
+    public synchronized void promote() {
+        if (!replica) throw new IllegalStateException("Serviço não é réplica.");
+        setReplaying(false);
+        replica = false;
+    }
+
+    /** Encaminha os registros de livro à thread do livro e espera cada um terminar. */
+    private JournalHandler onBookThreads(JournalHandler handler) {
+        return new JournalHandler() {
+            @Override
+            public void onInstrument(long sequence, String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize) {
+                handler.onInstrument(sequence, baseAsset, quoteAsset, tickSize, lotSize);
+            }
+
+            @Override
+            public void onRegisterAccount(long sequence, String accountId) {
+                handler.onRegisterAccount(sequence, accountId);
+            }
+
+            @Override
+            public void onCredit(long sequence, String accountId, String asset, long units) {
+                handler.onCredit(sequence, accountId, asset, units);
+            }
+
+            @Override
+            public void onDebit(long sequence, String accountId, String asset, long units) {
+                handler.onDebit(sequence, accountId, asset, units);
+            }
+
+            @Override
+            public void onPlace(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                                long quantityLots, boolean match) {
+                onBookThread(orderId, () -> handler.onPlace(sequence, orderId, accountId, type, priceTicks, quantityLots, match));
+            }
+
+            @Override
+            public void onPlacePostOnly(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                                        long quantityLots) {
+                onBookThread(orderId, () -> handler.onPlacePostOnly(sequence, orderId, accountId, type, priceTicks, quantityLots));
+            }
+
+            @Override
+            public void onPlaceImmediate(long sequence, long orderId, String accountId, OrderType type, long limitTicks,
+                                         long quantityLots) {
+                onBookThread(orderId, () -> handler.onPlaceImmediate(sequence, orderId, accountId, type, limitTicks, quantityLots));
+            }
+
+            @Override
+            public void onCancel(long sequence, long orderId) {
+                onBookThread(orderId, () -> handler.onCancel(sequence, orderId));
+            }
+
+            @Override
+            public void onAmend(long sequence, long orderId, long newOrderId, long priceTicks, long quantityLots) {
+                onBookThread(orderId, () -> handler.onAmend(sequence, orderId, newOrderId, priceTicks, quantityLots));
+            }
+
+            @Override
+            public void onStop(long sequence, long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                               long quantityLots, TimeInForce timeInForce) {
+                onBookThread(orderId, () -> handler.onStop(sequence, orderId, accountId, type, stopTicks, limitTicks,
+                        quantityLots, timeInForce));
+            }
+        };
+    }
+
+    private void onBookThread(long orderId, Runnable action) {
+        OrderBook book = books.forOrder(orderId);
+        if (book == null) {
+            action.run();
+            return;
+        }
+        await(sequencer(book).query(b -> {
+            action.run();
+            return null;
+        }));
+    }
+
+    /** Réplica em modo direto, sem journal nem instrumentos próprios, que só segue o journal. */
+    private static OrderBookService replica(EngineProperties properties) {
+        EngineProperties replica = new EngineProperties();
+        replica.setOrderPoolSize(properties.getOrderPoolSize());
+        replica.setDefaultAssetScale(properties.getDefaultAssetScale());
+        replica.setAssetScales(properties.getAssetScales());
+        replica.setTradeRingSize(1);
+        replica.setLedgerShards(properties.getLedgerShards());
+        OrderBookService service = new OrderBookService(replica, new JournalProperties(), false);
+        service.setReplaying(true);
+        return service;
+    }
+
+    /**
+     * SHA-256, em hexadecimal, do estado lógico: ordens de cada livro em
+     * prioridade preço-tempo, último preço e stops pendentes, e saldo disponível e bloqueado de cada conta, em
+     * ordem de conta e de ativo. O mesmo estado dá o mesmo hash em qualquer
+     * modo do engine. Deve ser chamado sem comandos em andamento.
+     */
+    public String stateHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            for (OrderBook book : books.all()) {
+                out.writeUTF(book.getInstrument().baseAsset());
+                out.writeUTF(book.getInstrument().quoteAsset());
+                writeOrders(out, book.getBuyOrders());
+                writeOrders(out, book.getSellOrders());
+                out.writeLong(book.getLastTradeTicks());
+                writeStops(out, book.getStops());
+            }
+            for (String accountId : new TreeSet<>(accounts.keySet())) {
+                out.writeUTF(accountId);
+                for (Map.Entry<String, Balance> balance : new TreeMap<>(getBalanceSheet(accountId)).entrySet()) {
+                    out.writeUTF(balance.getKey());
+                    out.writeLong(balance.getValue().available());
+                    out.writeLong(balance.getValue().held());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Serializa livros (ordens em prioridade preço-tempo, sequência de IDs,
+     * último preço e stops pendentes) e saldos. Só pode ser chamado pela thread que aplica os comandos.
+     */
+    void writeState(DataOutput out) throws IOException {
+        List<OrderBook> allBooks = List.copyOf(books.all());
+        out.writeInt(allBooks.size());
+        for (OrderBook book : allBooks) {
+            InstrumentSpec spec = book.getSpec();
+            out.writeUTF(spec.getInstrument().baseAsset());
+            out.writeUTF(spec.getInstrument().quoteAsset());
+            out.writeUTF(spec.getTickSize().toPlainString());
+            out.writeUTF(spec.getLotSize().toPlainString());
+            out.writeLong(book.getLastSequence());
+            writeOrders(out, book.getBuyOrders());
+            writeOrders(out, book.getSellOrders());
+            out.writeLong(book.getLastTradeTicks());
+            writeStops(out, book.getStops());
+        }
+        List<Account> allAccounts = List.copyOf(accounts.values());
+        out.writeInt(allAccounts.size());
+        for (Account account : allAccounts) {
+            Map<String, Long> balances = account.getAllBalances();
+            out.writeUTF(account.getId());
+            out.writeInt(balances.size());
+            for (Map.Entry<String, Long> balance : balances.entrySet()) {
+                out.writeUTF(balance.getKey());
+                out.writeLong(balance.getValue());
+            }
+        }
+    }
+
+    private static void writeOrders(DataOutput out, List<Order> orders) throws IOException {
+        out.writeInt(orders.size());
+        for (Order order : orders) {
+            out.writeLong(order.getNumericId());
+            out.writeUTF(order.getAccountId());
+            out.writeByte(order.getType().ordinal());
+            out.writeByte(order.getExecutionType().ordinal());
+            out.writeLong(order.getPriceTicks());
+            out.writeLong(order.getQuantityLots());
+        }
+    }
+
+    /** Stops de compra e depois de venda, cada lado em ordem de disparo. */
+    private static void writeStops(DataOutput out, StopBook stops) throws IOException {
+        out.writeInt(stops.size());
+        for (List<StopOrder> side : List.of(stops.getBuyStops(), stops.getSellStops())) {
+            for (StopOrder stop : side) {
+                out.writeLong(stop.getId());
+                out.writeUTF(stop.getAccountId());
+                out.writeByte(stop.getType().ordinal());
+                out.writeLong(stop.getStopTicks());
+                out.writeLong(stop.getLimitTicks());
+                out.writeLong(stop.getQuantityLots());
+                out.writeByte(stop.getTimeInForce().ordinal());
+            }
+        }
+    }
+
+    /** Inverso de {@link #writeState}; chamado sobre um serviço ainda vazio. */
+    void readState(DataInput in) throws IOException {
+        OrderType[] types = OrderType.values();
+        ExecutionType[] executionTypes = ExecutionType.values();
+        TimeInForce[] timesInForce = TimeInForce.values();
+        int bookCount = in.readInt();
+        for (int i = 0; i < bookCount; i++) {
+            InstrumentSpec spec = new InstrumentSpec(new Instrument(in.readUTF(), in.readUTF()),
+                    new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()), assetScales);
+            addInstrument(spec);
+            OrderBook book = books.require(spec.getInstrument());
+            book.advanceSequence(in.readLong());
+            for (int side = 0; side < 2; side++) {
+                int orderCount = in.readInt();
+                for (int j = 0; j < orderCount; j++) {
+                    long id = in.readLong();
+                    String accountId = in.readUTF();
+                    OrderType type = types[in.readByte()];
+                    ExecutionType executionType = executionTypes[in.readByte()];
+                    book.add(new Order(id, accountId, spec, type, in.readLong(), in.readLong())
+                            .withExecution(executionType, TimeInForce.GTC));
+                }
+            }
+            book.restoreLastTrade(in.readLong());
+            int stopCount = in.readInt();
+            for (int j = 0; j < stopCount; j++) {
+                book.getStops().add(new StopOrder(in.readLong(), in.readUTF(), types[in.readByte()], in.readLong(),
+                        in.readLong(), in.readLong(), timesInForce[in.readByte()]));
+            }
+        }
+        int accountCount = in.readInt();
+        for (int i = 0; i < accountCount; i++) {
+            Account account = index(new Account(in.readUTF(), balances));
+            int balanceCount = in.readInt();
+            for (int j = 0; j < balanceCount; j++) {
+                String asset = in.readUTF();
+                long units = in.readLong();
+                if (units > 0) account.credit(asset, units);
+                // Negativo só num snapshot tirado no meio de um fluxo: ver BalanceLedger#setReplaying.
+                if (units < 0) account.debit(asset, -units);
+            }
+            accounts.put(account.getId(), account);
+        }
+        // O snapshot guarda só o disponível; os bloqueios saem das ordens restauradas.
+        for (OrderBook book : books.all()) {
+            book.getBuyOrders().forEach(order -> restoreHold(book.getSpec(), order));
+            book.getSellOrders().forEach(order -> restoreHold(book.getSpec(), order));
+        }
+    }
+
+    private void restoreHold(InstrumentSpec spec, Order order) {
+        Instrument instrument = spec.getInstrument();
+        String asset = order.getType() == OrderType.BUY ? instrument.quoteAsset() : instrument.baseAsset();
+        long units = heldUnits(spec, order.getType(), order.getPriceTicks(), order.getQuantityLots());
+        Account account = accounts.get(order.getAccountId());
+        account.credit(asset, units);
+        account.hold(asset, units);
+        risk.account(order.getAccountId()).opened();
+    }
+
+    private boolean journaling() {
+        return journal != null && !replaying;
+    }
+
+    private void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+        balances.setReplaying(replaying);
+    }
+
+    private void requirePrimary() {
+        if (replica) throw readOnly();
+    }
+
+    private static IllegalStateException readOnly() {
+        return new IllegalStateException("Réplica não aceita comandos até ser promovida.");
+    }
+
+    /**
+     * Aplica registros do journal diretamente sobre este serviço, sem passar
+     * pelos sequenciadores nem gravar novamente.
+     */
+    public JournalHandler journalHandler() {
+        return new JournalHandler() {
+            @Override
+            public void onInstrument(long sequence, String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize) {
+                addInstrument(new InstrumentSpec(new Instrument(baseAsset, quoteAsset), tickSize, lotSize, assetScales));
+            }
+
+            @Override
+            public void onRegisterAccount(long sequence, String accountId) {
+                addAccount(accountId);
+            }
+
+            @Override
+            public void onCredit(long sequence, String accountId, String asset, long units) {
+                applyCredit(accountId, asset, units);
+            }
+
+            @Override
+            public void onDebit(long sequence, String accountId, String asset, long units) {
+                applyDebit(accountId, asset, units);
+            }
+
+            @Override
+            public void onPlace(long sequence, long orderId, String accountId, OrderType type, long priceTicks, long quantityLots,
+                                boolean match) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null) throw new IllegalStateException("Livro inexistente para a ordem " + orderId);
+                Order order = new Order(accountId, book.getSpec(), type, priceTicks, quantityLots);
+                order.assignId(orderId);
+                // Ordem de uma stop disparada: sai das stops pendentes ao entrar no livro.
+                book.getStops().remove(orderId);
+                applyPlaceOrder(book, order, match);
+            }
+
+            @Override
+            public void onPlacePostOnly(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                                        long quantityLots) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null) throw new IllegalStateException("Livro inexistente para a ordem " + orderId);
+                Order order = new Order(accountId, book.getSpec(), type, priceTicks, quantityLots)
+                        .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC);
+                order.assignId(orderId);
+                applyPlaceOrder(book, order, true);
+            }
+
+            @Override
+            public void onPlaceImmediate(long sequence, long orderId, String accountId, OrderType type, long limitTicks,
+                                         long quantityLots) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null) throw new IllegalStateException("Livro inexistente para a ordem " + orderId);
+                Order order = new Order(accountId, book.getSpec(), type, limitTicks, quantityLots)
+                        .withExecution(limitTicks == 0 ? ExecutionType.MARKET : ExecutionType.LIMIT, TimeInForce.IOC);
+                order.assignId(orderId);
+                book.getStops().remove(orderId);
+                applyImmediateOrder(book, order);
+                book.takeTradeRange();
+            }
+
+            @Override
+            public void onCancel(long sequence, long orderId) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null || !applyCancelOrder(book, orderId, null)) {
+                    throw new IllegalStateException("Cancelamento não reaplicável na sequência " + sequence);
+                }
+            }
+
+            @Override
+            public void onAmend(long sequence, long orderId, long newOrderId, long priceTicks, long quantityLots) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null) throw new IllegalStateException("Alteração não reaplicável na sequência " + sequence);
+                applyAmendOrder(book, orderId, priceTicks, quantityLots, newOrderId == orderId ? 0 : newOrderId);
+            }
+
+            @Override
+            public void onStop(long sequence, long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                               long quantityLots, TimeInForce timeInForce) {
+                OrderBook book = books.forOrder(orderId);
+                if (book == null) throw new IllegalStateException("Livro inexistente para a ordem " + orderId);
+                Order order = new Order(accountId, book.getSpec(), type, limitTicks, quantityLots)
+                        .withExecution(limitTicks == 0 ? ExecutionType.MARKET : ExecutionType.LIMIT, timeInForce)
+                        .withStopTicks(stopTicks);
+                order.assignId(orderId);
+                applyPlaceOrder(book, order);
+            }
+        };
+    }
+
+    private static ExecutorService responseExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "engine-responses-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private Sequencer sequencer(OrderBook book) {
+        return sequencers.get(book.getInstrument());
+    }
+
+    private static <T> CompletableFuture<T> completed(Supplier<T> action) {
+        try {
+            return CompletableFuture.completedFuture(action.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        sequencers.values().forEach(Sequencer::close);
+        if (ledger != null) ledger.close();
+        // Depois dos sequenciadores: as respostas já enfileiradas ainda são entregues.
+        if (responses != null) responses.shutdown();
+        tradeEvents.close();
+        if (snapshotter != null) snapshotter.close();
+        if (journal != null) journal.close();
     }
 }
@@ -0,0 +1,77 @@
+package com.exchange.service;
+
+import com.exchange.journal.JournalReader;
+import com.exchange.journal.SnapshotStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gera snapshots periódicos sem tocar nas threads de matching: uma réplica
+ * {@link OrderBookService} em modo direto acompanha o journal numa thread
+ * própria e é ela que é serializada.
+ */
+@Slf4j
+class Snapshotter implements AutoCloseable {
+
+    private final OrderBookService replica;
+    private final Path journalDirectory;
+    private final SnapshotStore store;
+    private final ScheduledExecutorService executor;
+    private boolean loaded;
+    private long appliedSequence;
+    private long snapshotSequence;
+
+    Snapshotter(OrderBookService replica, Path journalDirectory, SnapshotStore store, long intervalMs) {
+        this.replica = replica;
+        this.journalDirectory = journalDirectory;
+        this.store = store;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::run, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Alcança o journal e grava um snapshot se houve registros novos.
+     *
+     * @return a sequência do snapshot mais recente
+     */
+    synchronized long snapshot() {
+        if (!loaded) {
+            appliedSequence = store.loadLatest(replica::readState);
+            snapshotSequence = appliedSequence;
+            loaded = true;
+        }
+        appliedSequence = new JournalReader(journalDirectory, appliedSequence).read(replica.journalHandler());
+        if (appliedSequence > snapshotSequence) {
+            store.write(appliedSequence, replica::writeState);
+            snapshotSequence = appliedSequence;
+        }
+        return snapshotSequence;
+    }
+
+    private void run() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Falha ao gravar snapshot", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replica.close();
+    }
+}
@@ -0,0 +1,133 @@
+package com.exchange.sim;
+
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Fluxo sintético de ordens para benchmarks e simulação, determinístico para
+ * uma mesma semente.
+ * <p>
+ * O preço médio faz um passeio aleatório de um tick. Ordens passivas ficam a
+ * uma distância geométrica do meio (a maior parte perto do topo do livro),
+ * ordens agressivas cruzam alguns níveis e as quantidades também seguem uma
+ * distribuição geométrica. Só {@link StrictMath} é usado, para que a mesma
+ * semente produza o mesmo fluxo em qualquer JVM.
+ */
+public class OrderFlowGenerator {
+
+    /**
+     * Parâmetros do fluxo.
+     *
+     * @param accounts         contas que enviam ordens ({@code trader-0} ...)
+     * @param cancelRatio      fração das ações que são cancelamentos
+     * @param aggressiveRatio  fração das ordens que cruzam o livro
+     * @param meanDepthTicks   distância média, em ticks, das ordens passivas ao meio
+     * @param meanSweepLevels  níveis médios atravessados por uma ordem agressiva
+     * @param meanLots         quantidade média, em lotes
+     * @param driftProbability chance de o meio andar um tick a cada ação
+     */
+    public record Profile(int accounts, double cancelRatio, double aggressiveRatio, double meanDepthTicks,
+                          double meanSweepLevels, double meanLots, double driftProbability) {
+
+        public static final Profile DEFAULT = new Profile(100, 0.45, 0.10, 8, 2, 20, 0.05);
+
+        public Profile {
+            if (accounts < 1) throw new IllegalArgumentException("Ao menos uma conta é necessária.");
+            if (cancelRatio < 0 || aggressiveRatio < 0 || cancelRatio >= 1 || aggressiveRatio > 1) {
+                throw new IllegalArgumentException("Proporções devem estar entre 0 e 1.");
+            }
+            if (meanDepthTicks < 1 || meanSweepLevels < 1 || meanLots < 1) {
+                throw new IllegalArgumentException("Médias devem ser ao menos 1.");
+            }
+        }
+    }
+
+    public enum Action { PLACE, CANCEL }
+
+    private final SplittableRandom random;
+    private final InstrumentSpec spec;
+    private final Profile profile;
+    private final List<String> accountIds;
+    private long midTicks;
+
+    public OrderFlowGenerator(long seed, InstrumentSpec spec, long midTicks, Profile profile) {
+        if (midTicks < 1) throw new IllegalArgumentException("Preço médio deve ser positivo.");
+        this.random = new SplittableRandom(seed);
+        this.spec = spec;
+        this.profile = profile;
+        this.midTicks = midTicks;
+        this.accountIds = IntStream.range(0, profile.accounts()).mapToObj(i -> "trader-" + i).toList();
+    }
+
+    public List<String> getAccountIds() {
+        return accountIds;
+    }
+
+    public InstrumentSpec getSpec() {
+        return spec;
+    }
+
+    public long getMidTicks() {
+        return midTicks;
+    }
+
+    /** Sorteia a próxima ação e move o preço médio. */
+    public Action nextAction() {
+        if (random.nextDouble() < profile.driftProbability()) {
+            midTicks = Math.max(1, midTicks + (random.nextBoolean() ? 1 : -1));
+        }
+        return random.nextDouble() < profile.cancelRatio() ? Action.CANCEL : Action.PLACE;
+    }
+
+    /** Próxima ordem do fluxo, passiva ou agressiva conforme o perfil. */
+    public Order nextOrder() {
+        OrderType side = nextSide();
+        if (random.nextDouble() < profile.aggressiveRatio()) {
+            return aggressive(side, (int) geometric(profile.meanSweepLevels()), geometric(profile.meanLots()));
+        }
+        return passive(side);
+    }
+
+    /** Ordem que não cruza o meio atual. */
+    public Order passive(OrderType side) {
+        long depth = geometric(profile.meanDepthTicks());
+        long price = side == OrderType.BUY ? Math.max(1, midTicks - depth) : midTicks + depth;
+        return new Order(nextAccount(), spec, side, price, geometric(profile.meanLots()));
+    }
+
+    /** Ordem com preço {@code levels} ticks além do meio, do lado oposto do livro. */
+    public Order aggressive(OrderType side, int levels, long lots) {
+        long price = side == OrderType.BUY ? midTicks + levels : Math.max(1, midTicks - levels);
+        return new Order(nextAccount(), spec, side, price, lots);
+    }
+
+    /** Ordem de uma conta sorteada com preço e quantidade dados. */
+    public Order at(OrderType side, long priceTicks, long lots) {
+        return new Order(nextAccount(), spec, side, priceTicks, lots);
+    }
+
+    public OrderType nextSide() {
+        return random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+    }
+
+    /** Índice uniforme em {@code [0, bound)}, por exemplo de uma ordem viva a cancelar. */
+    public int nextIndex(int bound) {
+        return random.nextInt(bound);
+    }
+
+    public String nextAccount() {
+        return accountIds.get(random.nextInt(accountIds.size()));
+    }
+
+    /** Amostra geométrica em {@code [1, ∞)} com a média dada. */
+    private long geometric(double mean) {
+        if (mean <= 1) return 1;
+        double u = random.nextDouble();
+        return 1 + (long) (StrictMath.log1p(-u) / StrictMath.log1p(-1 / mean));
+    }
+}
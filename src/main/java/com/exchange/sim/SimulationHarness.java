@@ -0,0 +1,303 @@
+package com.exchange.sim;
+
+import com.exchange.book.OrderBook;
+import com.exchange.config.EngineProperties;
+import com.exchange.journal.JournalHandler;
+import com.exchange.journal.JournalReader;
+import com.exchange.metrics.LatencyHistogram;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderResult;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import com.exchange.service.OrderBookService;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Conduz um {@link OrderBookService} novo, a partir de uma única thread, com
+ * o fluxo de um journal gravado ou de um {@link OrderFlowGenerator}, e
+ * relata vazão, percentis de latência por comando e o
+ * {@link OrderBookService#stateHash() hash do estado final}.
+ * <p>
+ * Cada comando espera o anterior terminar, então a mesma entrada leva
+ * sempre ao mesmo estado, em qualquer {@link com.exchange.engine.EngineMode}:
+ * comparar os hashes de dois modos confere que eles têm a mesma semântica.
+ * Com {@code ratePerSecond} positivo, as chegadas seguem uma agenda fixa e a
+ * latência é medida a partir do horário agendado, de modo que um comando
+ * lento também conta contra os que ficaram esperando por ele.
+ */
+public final class SimulationHarness implements AutoCloseable {
+
+    /**
+     * @param commands     comandos enviados (ordens, alterações, cancelamentos, cadastros e movimentações)
+     * @param rejected     comandos recusados pelo engine
+     * @param elapsedNanos tempo total de envio
+     * @param latency      latência de cada comando, em nanossegundos
+     * @param stateHash    hash do estado final
+     */
+    public record Report(long commands, long rejected, long elapsedNanos, LatencyHistogram.Snapshot latency,
+                         String stateHash) {
+
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d comandos (%d rejeitados) em %.3f s, %.0f cmd/s; latência p50=%d p99=%d p99.9=%d máx=%d ns; estado %s",
+                    commands, rejected, elapsedNanos / 1e9, throughput(), latency.valueAt(0.5), latency.valueAt(0.99),
+                    latency.valueAt(0.999), latency.max(), stateHash);
+        }
+    }
+
+    private final OrderBookService service;
+    private final long intervalNanos;
+    private LatencyHistogram latency = new LatencyHistogram();
+    private long commands;
+    private long rejected;
+    private long start;
+
+    /** Motor em modo direto, o mais rápido possível. */
+    public SimulationHarness() {
+        this(new EngineProperties(), 0);
+    }
+
+    /**
+     * @param properties    configuração do engine; o journal fica sempre desligado
+     * @param ratePerSecond chegadas por segundo, ou 0 para enviar sem pausa
+     */
+    public SimulationHarness(EngineProperties properties, long ratePerSecond) {
+        if (ratePerSecond < 0) throw new IllegalArgumentException("Taxa de chegada não pode ser negativa.");
+        this.service = new OrderBookService(properties);
+        this.intervalNanos = ratePerSecond == 0 ? 0 : 1_000_000_000L / ratePerSecond;
+    }
+
+    public OrderBookService getService() {
+        return service;
+    }
+
+    /**
+     * Reenvia como comandos novos o journal gravado em {@code directory},
+     * desde o primeiro registro. Os IDs do journal são traduzidos para os IDs
+     * gerados agora e as ordens de um lote voltam a ser enviadas juntas.
+     */
+    public Report replay(Path directory) {
+        begin();
+        new JournalReader(directory, 0).read(new Replayer());
+        return report();
+    }
+
+    /**
+     * Envia {@code actions} ações do gerador depois de cadastrar as contas
+     * dele e creditar {@code funding} unidades de cada ativo do instrumento.
+     * Cancelamentos escolhem, pelo gerador, uma das ordens aceitas ainda não
+     * canceladas (que pode já ter sido executada).
+     */
+    public Report run(OrderFlowGenerator flow, int actions, long funding) {
+        Instrument instrument = flow.getSpec().getInstrument();
+        service.registerInstrument(flow.getSpec());
+        begin();
+        for (String account : flow.getAccountIds()) {
+            submit(() -> service.registerAccount(account));
+            submit(() -> service.credit(account, instrument.baseAsset(), funding));
+            submit(() -> service.credit(account, instrument.quoteAsset(), funding));
+        }
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < actions; i++) {
+            if (flow.nextAction() == OrderFlowGenerator.Action.CANCEL && !live.isEmpty()) {
+                int index = flow.nextIndex(live.size());
+                String orderId = live.get(index);
+                live.set(index, live.get(live.size() - 1));
+                live.remove(live.size() - 1);
+                submit(() -> service.cancelOrder(orderId));
+            } else {
+                Order order = flow.nextOrder();
+                String id = submit(() -> service.placeOrder(order));
+                if (id != null) live.add(id);
+            }
+        }
+        return report();
+    }
+
+    private void begin() {
+        latency = new LatencyHistogram();
+        commands = 0;
+        rejected = 0;
+        start = System.nanoTime();
+    }
+
+    /** Envia um comando no horário agendado e mede até a resposta; {@code null} se recusado. */
+    private <T> T submit(Command<T> command) {
+        long scheduled = intervalNanos == 0 ? System.nanoTime() : start + commands * intervalNanos;
+        while (System.nanoTime() < scheduled) {
+            Thread.onSpinWait();
+        }
+        commands++;
+        try {
+            return command.run();
+        } catch (IllegalArgumentException | IllegalStateException | CompletionException e) {
+            rejected++;
+            return null;
+        } finally {
+            latency.recordSince(scheduled);
+        }
+    }
+
+    private void submit(Runnable command) {
+        submit(() -> {
+            command.run();
+            return Boolean.TRUE;
+        });
+    }
+
+    private Report report() {
+        long elapsed = System.nanoTime() - start;
+        return new Report(commands, rejected, elapsed, latency.snapshot(), service.stateHash());
+    }
+
+    @Override
+    public void close() {
+        service.close();
+    }
+
+    @FunctionalInterface
+    private interface Command<T> {
+        T run();
+    }
+
+    /** Traduz os registros do journal em chamadas ao serviço. */
+    private final class Replayer implements JournalHandler {
+
+        /** Livros na ordem em que o journal os listou, indexados como nos IDs gravados. */
+        private final List<InstrumentSpec> specs = new ArrayList<>();
+        private final Map<Long, String> ids = new HashMap<>();
+        /** Stops gravadas ainda pendentes: o serviço as dispara sozinho, então os disparos gravados são ignorados. */
+        private final Set<Long> stops = new HashSet<>();
+        /** Ordens de lote ainda sem a última, que dispara o envio: IDs gravados e ordens. */
+        private final Map<Instrument, Map<Long, Order>> batches = new LinkedHashMap<>();
+
+        @Override
+        public void onInstrument(long sequence, String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize) {
+            InstrumentSpec spec = new InstrumentSpec(new Instrument(baseAsset, quoteAsset), tickSize, lotSize,
+                    service.getAssetScales());
+            specs.add(spec);
+            submit(() -> service.registerInstrument(spec));
+        }
+
+        @Override
+        public void onRegisterAccount(long sequence, String accountId) {
+            submit(() -> service.registerAccount(accountId));
+        }
+
+        @Override
+        public void onCredit(long sequence, String accountId, String asset, long units) {
+            submit(() -> service.credit(accountId, asset, units));
+        }
+
+        @Override
+        public void onDebit(long sequence, String accountId, String asset, long units) {
+            submit(() -> service.debit(accountId, asset, units));
+        }
+
+        @Override
+        public void onPlace(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                            long quantityLots, boolean match) {
+            if (stops.remove(orderId)) return;
+            InstrumentSpec spec = spec(orderId);
+            Order order = new Order(accountId, spec, type, priceTicks, quantityLots);
+            Map<Long, Order> batch = batches.get(spec.getInstrument());
+            if (!match) {
+                batches.computeIfAbsent(spec.getInstrument(), i -> new LinkedHashMap<>()).put(orderId, order);
+            } else if (batch == null) {
+                map(orderId, submit(() -> service.placeOrder(order)));
+            } else {
+                batches.remove(spec.getInstrument());
+                batch.put(orderId, order);
+                List<OrderResult> results = submit(() -> service.placeOrders(List.copyOf(batch.values())));
+                int i = 0;
+                for (long recorded : batch.keySet()) {
+                    OrderResult result = results == null ? null : results.get(i++);
+                    map(recorded, result != null && result.isAccepted() ? result.orderId() : null);
+                }
+            }
+        }
+
+        @Override
+        public void onPlacePostOnly(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                                    long quantityLots) {
+            Order order = new Order(accountId, spec(orderId), type, priceTicks, quantityLots)
+                    .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC);
+            map(orderId, submit(() -> service.placeOrder(order)));
+        }
+
+        @Override
+        public void onPlaceImmediate(long sequence, long orderId, String accountId, OrderType type, long limitTicks,
+                                     long quantityLots) {
+            if (stops.remove(orderId)) return;
+            Order order = new Order(accountId, spec(orderId), type, limitTicks, quantityLots)
+                    .withExecution(limitTicks == 0 ? ExecutionType.MARKET : ExecutionType.LIMIT, TimeInForce.IOC);
+            map(orderId, submit(() -> service.placeOrder(order)));
+        }
+
+        @Override
+        public void onCancel(long sequence, long orderId) {
+            // Se a stop foi descartada no disparo, o cancelamento não encontra nada.
+            stops.remove(orderId);
+            String id = ids.remove(orderId);
+            if (id == null) {
+                commands++;
+                rejected++;
+                return;
+            }
+            submit(() -> service.cancelOrder(id));
+        }
+
+        @Override
+        public void onAmend(long sequence, long orderId, long newOrderId, long priceTicks, long quantityLots) {
+            String id = ids.remove(orderId);
+            if (id == null) {
+                commands++;
+                rejected++;
+                return;
+            }
+            InstrumentSpec spec = spec(orderId);
+            map(newOrderId, submit(() -> service.amendOrder(id, spec.price(priceTicks), spec.quantity(quantityLots))));
+        }
+
+        @Override
+        public void onStop(long sequence, long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                           long quantityLots, TimeInForce timeInForce) {
+            Order order = new Order(accountId, spec(orderId), type, limitTicks, quantityLots)
+                    .withExecution(limitTicks == 0 ? ExecutionType.MARKET : ExecutionType.LIMIT, timeInForce)
+                    .withStopTicks(stopTicks);
+            stops.add(orderId);
+            map(orderId, submit(() -> service.placeOrder(order)));
+        }
+
+        private InstrumentSpec spec(long orderId) {
+            int index = OrderBook.bookIndexOf(orderId);
+            if (index >= specs.size()) {
+                throw new IllegalStateException("Journal sem o instrumento da ordem " + orderId);
+            }
+            return specs.get(index);
+        }
+
+        private void map(long recorded, String id) {
+            if (id != null) ids.put(recorded, id);
+        }
+    }
+}
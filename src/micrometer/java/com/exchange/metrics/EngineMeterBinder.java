@@ -0,0 +1,79 @@
+package com.exchange.metrics;
+
+import com.exchange.engine.AdmissionControl;
+import com.exchange.service.OrderBookService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Publica as {@link EngineMetrics} no Micrometer (e, com o Actuator, em
+ * {@code /actuator/prometheus}). Só lê os contadores e histogramas do
+ * engine: o caminho quente continua sem depender do Micrometer.
+ * <p>
+ * Os livros registrados depois da inicialização aparecem apenas no
+ * endpoint {@code /api/metrics}.
+ */
+@Component
+public class EngineMeterBinder implements MeterBinder {
+
+    private final EngineMetrics metrics;
+
+    public EngineMeterBinder(OrderBookService service) {
+        this.metrics = service.getMetrics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        latency(registry, metrics.decode(), Tags.of("stage", "decode"));
+        latency(registry, metrics.response(), Tags.of("stage", "response"));
+        AdmissionControl admission = metrics.admission();
+        if (admission != null) {
+            Gauge.builder("exchange.admission.in.flight", admission, AdmissionControl::inFlight).register(registry);
+            Gauge.builder("exchange.admission.limit", admission, AdmissionControl::maxInFlight).register(registry);
+            FunctionCounter.builder("exchange.admission.admitted", admission, AdmissionControl::admitted).register(registry);
+            FunctionCounter.builder("exchange.admission.rejected", admission, AdmissionControl::rejected).register(registry);
+        }
+        for (InstrumentMetrics instrument : metrics.instruments()) {
+            Tags tags = Tags.of("instrument", EngineMetrics.name(instrument.getInstrument()));
+            latency(registry, instrument.validation(), tags.and("stage", "validation"));
+            latency(registry, instrument.queueWait(), tags.and("stage", "queue_wait"));
+            latency(registry, instrument.matching(), tags.and("stage", "matching"));
+            counter(registry, "exchange.orders", instrument, tags, InstrumentMetrics::orders);
+            counter(registry, "exchange.fills", instrument, tags, InstrumentMetrics::fills);
+            counter(registry, "exchange.cancels", instrument, tags, InstrumentMetrics::cancels);
+            counter(registry, "exchange.rejects", instrument, tags, InstrumentMetrics::rejects);
+            gauge(registry, "exchange.open.orders", instrument, tags, InstrumentMetrics::openOrders);
+            gauge(registry, "exchange.queue.backlog", instrument, tags, InstrumentMetrics::backlog);
+            gauge(registry, "exchange.book.levels", instrument, tags.and("side", "bid"), InstrumentMetrics::bidLevels);
+            gauge(registry, "exchange.book.levels", instrument, tags.and("side", "ask"), InstrumentMetrics::askLevels);
+        }
+    }
+
+    private static void latency(MeterRegistry registry, LatencyHistogram histogram, Tags tags) {
+        for (double quantile : EngineMetrics.QUANTILES) {
+            Gauge.builder("exchange.latency", histogram, h -> h.snapshot().valueAt(quantile))
+                    .tags(tags.and("quantile", Double.toString(quantile)))
+                    .baseUnit("nanoseconds")
+                    .register(registry);
+        }
+        FunctionCounter.builder("exchange.latency.count", histogram, h -> h.snapshot().count())
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, String name, InstrumentMetrics instrument, Tags tags,
+                                ToLongFunction<InstrumentMetrics> value) {
+        FunctionCounter.builder(name, instrument, m -> value.applyAsLong(m)).tags(tags).register(registry);
+    }
+
+    private static void gauge(MeterRegistry registry, String name, InstrumentMetrics instrument, Tags tags,
+                              ToLongFunction<InstrumentMetrics> value) {
+        Gauge.builder(name, instrument, m -> value.applyAsLong(m)).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,42 @@
+package com.exchange.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongHashMapTest {
+
+    @Test
+    void testZeroKeyIsReserved() {
+        LongHashMap<String> map = new LongHashMap<>(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "x"));
+        assertNull(map.get(0));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        LongHashMap<Long> map = new LongHashMap<>(8);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.exchange.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    @Test
+    void testZeroKeyIsReserved() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+        assertEquals(LongIntHashMap.MISSING, map.get(0));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        LongIntHashMap map = new LongIntHashMap(8);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.put(key, i));
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key));
+        }
+    }
+}
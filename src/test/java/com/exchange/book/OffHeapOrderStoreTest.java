@@ -0,0 +1,118 @@
+package com.exchange.book;
+
+import com.exchange.model.AssetScales;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapOrderStoreTest {
+
+    private final InstrumentSpec spec = new InstrumentSpec(new Instrument("BTC", "BRL"),
+            InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, new AssetScales());
+
+    @Test
+    void testSlotsKeepFieldsAndAreReusedAfterFree() {
+        OffHeapOrderStore store = new OffHeapOrderStore(4);
+        int first = store.allocate(7, "maker", OrderType.SELL, ExecutionType.LIMIT, 10_000, 250);
+        int second = store.allocate(8, "taker", OrderType.BUY, ExecutionType.LIMIT, 9_900, 100);
+
+        assertEquals(7, store.id(first));
+        assertEquals("maker", store.accountId(first));
+        assertEquals(OrderType.SELL, store.type(first));
+        assertEquals(10_000, store.priceTicks(first));
+        assertEquals(250, store.quantityLots(first));
+        assertEquals(OrderStore.NONE, store.next(first));
+        assertEquals("taker", store.accountId(second));
+        assertEquals(OffHeapOrderStore.SLAB_SLOTS - 2, store.available());
+
+        store.free(first);
+        assertEquals(first, store.allocate(9, "maker", OrderType.BUY, ExecutionType.LIMIT, 1, 1));
+        assertEquals(OffHeapOrderStore.SLAB_SLOTS, store.created());
+        assertEquals((long) OffHeapOrderStore.SLAB_SLOTS * OffHeapOrderStore.SLOT_SIZE, store.reservedBytes());
+    }
+
+    @Test
+    void testGrowsBySlabsWithoutMovingOrders() {
+        OffHeapOrderStore store = new OffHeapOrderStore(1);
+        int count = OffHeapOrderStore.SLAB_SLOTS + 10;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, store.allocate(i + 1, "trader", OrderType.BUY, ExecutionType.LIMIT, i, 1));
+        }
+
+        assertEquals(2L * OffHeapOrderStore.SLAB_SLOTS, store.created());
+        assertEquals(1, store.id(0));
+        assertEquals(count, store.id(count - 1));
+        assertEquals(count - 1, store.priceTicks(count - 1));
+    }
+
+    @Test
+    void testOffHeapBookMatchesHeapBook() {
+        OrderBook heap = new OrderBook(spec, 1, 4, OrderStorage.HEAP);
+        OrderBook offHeap = new OrderBook(spec, 1, 4, OrderStorage.OFF_HEAP);
+        List<String> heapTrades = new ArrayList<>();
+        List<String> offHeapTrades = new ArrayList<>();
+        heap.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) ->
+                heapTrades.add(buyId + "/" + sellId + "@" + price + "x" + lots));
+        offHeap.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) ->
+                offHeapTrades.add(buyId + "/" + sellId + "@" + price + "x" + lots));
+
+        for (OrderBook book : List.of(heap, offHeap)) {
+            long cancelled = add(book, "a", OrderType.SELL, "101", "1");
+            add(book, "b", OrderType.SELL, "101", "2");
+            long reduced = add(book, "a", OrderType.SELL, "102", "1");
+            add(book, "c", OrderType.BUY, "99", "1");
+            assertTrue(book.remove(cancelled));
+            assertTrue(book.reduce(reduced, spec.toLots(new BigDecimal("0.5"))));
+            add(book, "c", OrderType.BUY, "101.5", "1.5");
+            book.match();
+            book.execute(book.nextOrderId(), "d", OrderType.SELL, spec.toTicks(new BigDecimal("99")), spec.toLots(BigDecimal.ONE));
+        }
+
+        assertFalse(heapTrades.isEmpty());
+        assertEquals(heapTrades, offHeapTrades);
+        assertEquals(orders(heap.getSellOrders()), orders(offHeap.getSellOrders()));
+        assertEquals(orders(heap.getBuyOrders()), orders(offHeap.getBuyOrders()));
+        assertEquals(heap.bestAsk().getId(), offHeap.bestAsk().getId());
+        assertEquals(heap.bestAskLevel().getTotalLots(), offHeap.bestAskLevel().getTotalLots());
+        assertNull(offHeap.bestBid());
+        assertEquals(heap.orderIdsOf("a", null).length, offHeap.orderIdsOf("a", null).length);
+    }
+
+    @Test
+    void testSlotOfReadsRestingOrderInPlace() {
+        OrderBook book = new OrderBook(spec, 1, 4, OrderStorage.OFF_HEAP);
+        long id = add(book, "maker", OrderType.BUY, "100", "2");
+        OrderStore store = book.getPool();
+
+        int slot = book.slotOf(id);
+        assertEquals(id, store.id(slot));
+        assertEquals("maker", store.accountId(slot));
+        assertEquals(OrderType.BUY, store.type(slot));
+        assertEquals(spec.toTicks(new BigDecimal("100")), store.priceTicks(slot));
+        assertEquals(spec.toLots(new BigDecimal("2")), store.quantityLots(slot));
+        assertEquals(OrderStore.NONE, book.slotOf(id + 1));
+
+        assertTrue(book.remove(id));
+        assertEquals(OrderStore.NONE, book.slotOf(id));
+    }
+
+    private long add(OrderBook book, String account, OrderType type, String price, String quantity) {
+        return book.add(new Order(account, spec, type, spec.toTicks(new BigDecimal(price)), spec.toLots(new BigDecimal(quantity))));
+    }
+
+    private static List<String> orders(List<Order> orders) {
+        return orders.stream().map(o -> o.getId() + ":" + o.getAccountId() + ":" + o.getPrice() + ":" + o.getQuantity()).toList();
+    }
+}
@@ -0,0 +1,252 @@
+package com.exchange.book;
+
+import com.exchange.model.AssetScales;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookTest {
+
+    private final InstrumentSpec spec = new InstrumentSpec(new Instrument("BTC", "BRL"),
+            InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, new AssetScales());
+    private OrderBook book;
+
+    @BeforeEach
+    void setup() {
+        book = new OrderBook(spec, 3, 4);
+    }
+
+    private long add(OrderType type, String price) {
+        return book.add(new Order("trader", spec, type, spec.toTicks(new BigDecimal(price)), spec.toLots(BigDecimal.ONE)));
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getNumericId).toList();
+    }
+
+    @Test
+    void testBestPrices() {
+        add(OrderType.BUY, "100");
+        long bestBid = add(OrderType.BUY, "101");
+        add(OrderType.SELL, "105");
+        long bestAsk = add(OrderType.SELL, "103");
+
+        assertEquals(bestBid, book.bestBid().getId());
+        assertEquals(bestAsk, book.bestAsk().getId());
+    }
+
+    @Test
+    void testSamePriceIsFifo() {
+        long first = add(OrderType.BUY, "100");
+        long second = add(OrderType.BUY, "100");
+        add(OrderType.BUY, "100");
+
+        assertEquals(first, book.bestBid().getId());
+        book.remove(first);
+        assertEquals(second, book.bestBid().getId());
+        assertEquals(2, book.bestBidLevel().size());
+    }
+
+    @Test
+    void testCancelFromMiddleKeepsQueueOrder() {
+        long first = add(OrderType.SELL, "100");
+        long middle = add(OrderType.SELL, "100");
+        long last = add(OrderType.SELL, "100");
+
+        assertTrue(book.remove(middle));
+        assertEquals(List.of(first, last), ids(book.getSellOrders()));
+        assertFalse(book.remove(middle));
+    }
+
+    @Test
+    void testEmptiedBestLevelFallsBackToNextPrice() {
+        long best = add(OrderType.SELL, "100");
+        long next = add(OrderType.SELL, "102");
+
+        book.remove(best);
+
+        assertEquals(next, book.bestAsk().getId());
+        book.remove(next);
+        assertNull(book.bestAsk());
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void testUnboundOrderIsRejected() {
+        Order raw = new Order("trader", spec.getInstrument(), OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE);
+
+        assertThrows(IllegalArgumentException.class, () -> book.add(raw));
+    }
+
+    @Test
+    void testOpenOrdersInPriceTimePriority() {
+        long low = add(OrderType.BUY, "99");
+        long highFirst = add(OrderType.BUY, "101");
+        long highSecond = add(OrderType.BUY, "101");
+
+        assertEquals(List.of(highFirst, highSecond, low), ids(book.getBuyOrders()));
+        assertTrue(book.getSellOrders().isEmpty());
+    }
+
+    @Test
+    void testIdsAreIncreasingAndEncodeBook() {
+        long first = add(OrderType.BUY, "100");
+        long second = add(OrderType.BUY, "100");
+
+        assertTrue(second > first);
+        assertEquals(3, OrderBook.bookIndexOf(first));
+    }
+
+    @Test
+    void testNodesAreRecycledThroughPool() {
+        for (int i = 0; i < 1_000; i++) {
+            long id = add(OrderType.BUY, "100");
+            book.remove(id);
+        }
+
+        assertEquals(4, book.getPool().created());
+        assertEquals(4, book.getPool().available());
+    }
+
+    @Test
+    void testReduceKeepsQueuePosition() {
+        long first = add(OrderType.SELL, "100");
+        long second = add(OrderType.SELL, "100");
+        long lot = spec.toLots(BigDecimal.ONE);
+
+        assertTrue(book.reduce(first, lot / 4));
+
+        assertEquals(List.of(first, second), ids(book.getSellOrders()));
+        assertEquals(lot / 4, book.get(first).getQuantityLots());
+        assertEquals(lot + lot / 4, book.bestAskLevel().getTotalLots());
+        assertThrows(IllegalArgumentException.class, () -> book.reduce(second, lot));
+        assertThrows(IllegalArgumentException.class, () -> book.reduce(second, 0));
+        assertFalse(book.reduce(12345, 1));
+    }
+
+    @Test
+    void testMatchReportsTradesAtSellPrice() {
+        long[] trade = new long[4];
+        book.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) -> {
+            trade[0] = buyId;
+            trade[1] = sellId;
+            trade[2] = price;
+            trade[3] = lots;
+        });
+        long sell = add(OrderType.SELL, "100");
+        long buy = add(OrderType.BUY, "101");
+
+        book.match();
+
+        assertEquals(buy, trade[0]);
+        assertEquals(sell, trade[1]);
+        assertEquals(spec.toTicks(new BigDecimal("100")), trade[2]);
+        assertEquals(spec.toLots(BigDecimal.ONE), trade[3]);
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void testTakerSideComesFromTheCrossingOrderNotFromIds() {
+        List<OrderType> takers = new ArrayList<>();
+        book.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) -> takers.add(taker));
+        long lot = spec.toLots(BigDecimal.ONE);
+        long price = spec.toTicks(new BigDecimal("100"));
+        long earlierId = book.nextOrderId();
+        add(OrderType.BUY, "100");
+
+        // A venda entra depois, mas com um ID anterior (como no replay de uma stop disparada).
+        Order sell = new Order("taker", spec, OrderType.SELL, price, lot / 2);
+        sell.assignId(earlierId);
+        book.add(sell);
+        book.match();
+        book.execute(book.nextOrderId(), "taker", OrderType.SELL, price, lot / 2);
+
+        assertEquals(List.of(OrderType.SELL, OrderType.SELL), takers);
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void testCrossingLimitOrderTradesAtMakerPriceLikeImmediateOrders() {
+        List<Long> prices = new ArrayList<>();
+        book.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) -> prices.add(price));
+        long lot = spec.toLots(BigDecimal.ONE);
+        long bid = spec.toTicks(new BigDecimal("100"));
+        long limit = spec.toTicks(new BigDecimal("95"));
+        add(OrderType.BUY, "100");
+        add(OrderType.BUY, "100");
+
+        book.execute(book.nextOrderId(), "taker", OrderType.SELL, limit, lot);
+        book.add(new Order("taker", spec, OrderType.SELL, limit, lot));
+        book.match();
+
+        assertEquals(List.of(bid, bid), prices);
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void testExecuteTakesRestingOrdersWithoutInsertingTaker() {
+        List<long[]> trades = new ArrayList<>();
+        book.setTradeListener((buyId, buyAccount, sellId, sellAccount, taker, price, lots) ->
+                trades.add(new long[]{buyId, sellId, price, lots}));
+        long lot = spec.toLots(BigDecimal.ONE);
+        long first = add(OrderType.SELL, "100");
+        long second = add(OrderType.SELL, "101");
+        add(OrderType.SELL, "103");
+        long limit = spec.toTicks(new BigDecimal("102"));
+
+        assertEquals(2 * lot, book.fillable(OrderType.BUY, limit, 5 * lot));
+        assertEquals(3 * lot, book.fillable(OrderType.BUY, 0, 3 * lot));
+        assertEquals(spec.toTicks(new BigDecimal("100")) * lot + spec.toTicks(new BigDecimal("101")) * lot / 2,
+                book.notional(OrderType.BUY, limit, lot + lot / 2));
+        assertTrue(book.crosses(OrderType.BUY, limit));
+        assertFalse(book.crosses(OrderType.SELL, limit));
+        assertEquals(3, book.size());
+
+        Order taker = new Order("taker", spec, OrderType.BUY, limit, 5 * lot);
+        long takerId = book.assignId(taker);
+        assertEquals(2 * lot, book.execute(takerId, "taker", OrderType.BUY, limit, 5 * lot));
+
+        assertEquals(2, trades.size());
+        assertEquals(first, trades.get(0)[1]);
+        assertEquals(spec.toTicks(new BigDecimal("100")), trades.get(0)[2]);
+        assertEquals(second, trades.get(1)[1]);
+        assertEquals(spec.toTicks(new BigDecimal("101")), trades.get(1)[2]);
+        assertEquals(takerId, trades.get(1)[0]);
+        assertFalse(book.contains(takerId));
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void testLevelListenerReportsAggregatedLevels() {
+        List<long[]> changes = new ArrayList<>();
+        book.setBookListener((side, price, lots, orders) -> changes.add(new long[]{side.ordinal(), price, lots, orders}));
+        long lot = spec.toLots(BigDecimal.ONE);
+        long price = spec.toTicks(new BigDecimal("100"));
+        add(OrderType.SELL, "100");
+        add(OrderType.SELL, "100");
+        book.add(new Order("trader", spec, OrderType.BUY, price, lot / 2));
+
+        book.match();
+
+        assertEquals(lot + lot / 2, book.bestAskLevel().getTotalLots());
+        long[] last = changes.get(changes.size() - 1);
+        assertEquals(OrderType.SELL.ordinal(), last[0]);
+        assertEquals(lot + lot / 2, last[2]);
+        assertEquals(2, last[3]);
+        assertTrue(changes.stream().anyMatch(c -> c[0] == OrderType.BUY.ordinal() && c[2] == 0 && c[3] == 0));
+        assertEquals(2, book.getLevels(OrderType.SELL, 10).get(0).size());
+    }
+}
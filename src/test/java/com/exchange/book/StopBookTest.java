@@ -0,0 +1,96 @@
+package com.exchange.book;
+
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StopBookTest {
+
+    private static StopOrder stop(long id, String account, OrderType type, long stopTicks) {
+        return new StopOrder(id, account, type, stopTicks, 0, 1, TimeInForce.IOC);
+    }
+
+    private static List<Long> ids(List<StopOrder> stops) {
+        return stops.stream().map(StopOrder::getId).toList();
+    }
+
+    @Test
+    void testCrossedNeedsATradeAtOrBeyondTheTrigger() {
+        assertFalse(StopBook.crossed(OrderType.SELL, 100, 0));
+        assertTrue(StopBook.crossed(OrderType.SELL, 100, 100));
+        assertTrue(StopBook.crossed(OrderType.SELL, 100, 99));
+        assertFalse(StopBook.crossed(OrderType.SELL, 100, 101));
+        assertTrue(StopBook.crossed(OrderType.BUY, 100, 100));
+        assertFalse(StopBook.crossed(OrderType.BUY, 100, 99));
+    }
+
+    @Test
+    void testTakesOnlyTheCrossedRangeInArrivalOrder() {
+        StopBook stops = new StopBook();
+        stops.add(stop(1, "a", OrderType.SELL, 95));
+        stops.add(stop(2, "a", OrderType.SELL, 98));
+        stops.add(stop(3, "b", OrderType.SELL, 90));
+        stops.add(stop(4, "b", OrderType.SELL, 98));
+        stops.add(stop(5, "a", OrderType.BUY, 105));
+        stops.add(stop(6, "b", OrderType.BUY, 101));
+
+        assertEquals(List.of(), stops.takeTriggered(100));
+        assertEquals(List.of(2L, 4L), ids(stops.takeTriggered(97)));
+        assertEquals(List.of(1L, 3L), ids(stops.takeTriggered(90)));
+        assertEquals(List.of(6L), ids(stops.takeTriggered(102)));
+        assertEquals(1, stops.size());
+        assertNull(stops.get(6));
+        assertEquals(List.of(5L), ids(stops.getBuyStops()));
+    }
+
+    @Test
+    void testRangeTriggersStopsCrossedByAnyPrintOfTheStep() {
+        StopBook stops = new StopBook();
+        stops.add(stop(1, "a", OrderType.SELL, 95));
+        stops.add(stop(2, "a", OrderType.BUY, 97));
+        stops.add(stop(3, "b", OrderType.BUY, 99));
+
+        assertEquals(List.of(), stops.takeTriggered(0, 0));
+        assertEquals(List.of(1L, 2L), ids(stops.takeTriggered(94, 98)));
+        assertEquals(List.of(3L), ids(stops.getBuyStops()));
+    }
+
+    @Test
+    void testSidesAreKeptInTriggerOrder() {
+        StopBook stops = new StopBook();
+        stops.add(stop(1, "a", OrderType.SELL, 95));
+        stops.add(stop(2, "a", OrderType.SELL, 98));
+        stops.add(stop(3, "a", OrderType.BUY, 110));
+        stops.add(stop(4, "a", OrderType.BUY, 104));
+        stops.add(stop(5, "a", OrderType.BUY, 104));
+
+        assertEquals(List.of(2L, 1L), ids(stops.getSellStops()));
+        assertEquals(List.of(4L, 5L, 3L), ids(stops.getBuyStops()));
+    }
+
+    @Test
+    void testRemoveAndIdsOfAccount() {
+        StopBook stops = new StopBook();
+        stops.add(stop(1, "a", OrderType.SELL, 95));
+        stops.add(stop(2, "b", OrderType.SELL, 96));
+        stops.add(stop(3, "a", OrderType.BUY, 105));
+        assertThrows(IllegalStateException.class, () -> stops.add(stop(1, "a", OrderType.BUY, 120)));
+
+        assertArrayEquals(new long[]{3, 1}, stops.idsOf("a", null));
+        assertArrayEquals(new long[]{1}, stops.idsOf("a", OrderType.SELL));
+
+        assertEquals(1, stops.remove(1).getId());
+        assertNull(stops.remove(1));
+        assertEquals(List.of(2L), ids(stops.takeTriggered(90)));
+        assertEquals(List.of(3L), ids(stops.getBuyStops()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.exchange.engine;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+    @Test
+    void testRejectsAboveLimitUntilReleased() {
+        AdmissionControl admission = new AdmissionControl(2, 1);
+        assertTrue(admission.tryAcquire());
+        assertTrue(admission.tryAcquire());
+        assertFalse(admission.tryAcquire());
+        assertEquals(2, admission.inFlight());
+
+        admission.release();
+
+        assertTrue(admission.tryAcquire());
+        assertEquals(3, admission.admitted());
+        assertEquals(1, admission.rejected());
+    }
+
+    @Test
+    void testZeroLimitAdmitsEverything() {
+        AdmissionControl admission = new AdmissionControl(0, 1);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(admission.tryAcquire());
+        }
+        assertEquals(10_000, admission.inFlight());
+        assertEquals(0, admission.rejected());
+    }
+
+    @Test
+    void testSubmitHoldsSlotUntilResultCompletes() {
+        AdmissionControl admission = new AdmissionControl(1, 1);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = admission.submit(() -> pending);
+
+        CompletableFuture<String> second = admission.submit(() -> CompletableFuture.completedFuture("não deveria rodar"));
+        CompletionException error = assertThrows(CompletionException.class, second::join);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+        pending.complete("1");
+        assertEquals("1", first.join());
+        assertEquals(0, admission.inFlight());
+        assertEquals("2", admission.submit(() -> CompletableFuture.completedFuture("2")).join());
+    }
+
+    @Test
+    void testSubmitReleasesSlotWhenCommandThrows() {
+        AdmissionControl admission = new AdmissionControl(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> admission.submit(() -> {
+            throw new IllegalArgumentException("inválido");
+        }));
+        assertEquals(0, admission.inFlight());
+
+        CompletableFuture<Object> failed = admission.submit(() -> CompletableFuture.failedFuture(new IllegalStateException()));
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    void testServiceExportsAdmissionMetrics() {
+        EngineProperties properties = new EngineProperties();
+        properties.getAdmission().setMaxInFlight(4);
+        try (OrderBookService service = new OrderBookService(properties)) {
+            AdmissionControl admission = service.getAdmission();
+            while (admission.tryAcquire()) {
+                // Ocupa todas as vagas.
+            }
+            String text = service.getMetrics().toText();
+            assertTrue(text.contains("exchange_admission_in_flight 4\n"));
+            assertTrue(text.contains("exchange_admission_limit 4\n"));
+            assertTrue(text.contains("exchange_admission_rejected_total 1\n"));
+        }
+    }
+}
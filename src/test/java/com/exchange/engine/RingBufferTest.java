@@ -0,0 +1,93 @@
+package com.exchange.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(1000, AtomicLong::new));
+    }
+
+    @Test
+    void testTryNextFailsWhenFullUntilConsumed() {
+        RingBuffer<AtomicLong> ring = new RingBuffer<>(4, AtomicLong::new);
+        for (int i = 0; i < 4; i++) {
+            long sequence = ring.tryNext();
+            assertEquals(i, sequence);
+            ring.publish(sequence);
+        }
+        assertEquals(-1, ring.tryNext());
+        assertEquals(4, ring.backlog());
+
+        ring.markConsumed(1);
+
+        assertEquals(4, ring.tryNext());
+        assertEquals(5, ring.tryNext());
+        assertEquals(-1, ring.tryNext());
+    }
+
+    @Test
+    void testSlotOnlyVisibleAfterPublish() {
+        RingBuffer<AtomicLong> ring = new RingBuffer<>(2, AtomicLong::new);
+        long first = ring.next();
+        long second = ring.next();
+        ring.publish(second);
+
+        assertFalse(ring.isPublished(first));
+        assertTrue(ring.isPublished(second));
+
+        ring.publish(first);
+        ring.markConsumed(second);
+        long wrapped = ring.next();
+        assertFalse(ring.isPublished(wrapped));
+    }
+
+    @Test
+    void testConcurrentProducersSingleConsumerSeesEveryValueOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<AtomicLong> ring = new RingBuffer<>(1024, AtomicLong::new);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence = ring.next();
+                    ring.get(sequence).set(base + i + 1);
+                    ring.publish(sequence);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long total = (long) producers * perProducer;
+        long sum = 0;
+        long next = 0;
+        while (next < total) {
+            if (ring.isPublished(next)) {
+                sum += ring.get(next).get();
+                ring.markConsumed(next);
+                next++;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(total * (total + 1) / 2, sum);
+    }
+}
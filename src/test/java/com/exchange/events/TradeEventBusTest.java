@@ -0,0 +1,103 @@
+package com.exchange.events;
+
+import com.exchange.model.AssetScales;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.OrderType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TradeEventBusTest {
+
+    private final InstrumentSpec spec = new InstrumentSpec(new Instrument("BTC", "BRL"),
+            InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, new AssetScales());
+    private final TradeEventBus bus = new TradeEventBus(8);
+
+    @AfterEach
+    void tearDown() {
+        bus.close();
+    }
+
+    private void publish(long lots) {
+        bus.publish(spec, 2, "taker", 1, "maker", OrderType.BUY, 100, lots);
+    }
+
+    /** Consumidor que guarda as quantidades recebidas, opcionalmente travado até {@code release}. */
+    private TradeEventHandler recorder(BlockingQueue<Long> received, CountDownLatch release, AtomicLong missed) {
+        return new TradeEventHandler() {
+            @Override
+            public void onTrade(TradeEvent event) {
+                received.add(event.getQuantityLots());
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onOverrun(long count) {
+                missed.addAndGet(count);
+            }
+        };
+    }
+
+    private static List<Long> take(BlockingQueue<Long> queue, int count) throws InterruptedException {
+        Long[] result = new Long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = queue.poll(5, TimeUnit.SECONDS);
+        }
+        return List.of(result);
+    }
+
+    @Test
+    void testConsumersHaveIndependentCursors() throws Exception {
+        BlockingQueue<Long> first = new LinkedBlockingQueue<>();
+        BlockingQueue<Long> second = new LinkedBlockingQueue<>();
+        CountDownLatch held = new CountDownLatch(1);
+        bus.subscribe("first", recorder(first, new CountDownLatch(0), new AtomicLong()));
+        TradeEventBus.Subscription slow = bus.subscribe("second", recorder(second, held, new AtomicLong()));
+
+        for (long lots = 1; lots <= 5; lots++) publish(lots);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), take(first, 5));
+        assertEquals(List.of(1L), take(second, 1));
+        assertEquals(4, slow.lag());
+        held.countDown();
+        assertEquals(List.of(2L, 3L, 4L, 5L), take(second, 4));
+    }
+
+    @Test
+    void testPublisherOverwritesAndSlowConsumerIsToldWhatItMissed() throws Exception {
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        CountDownLatch held = new CountDownLatch(1);
+        AtomicLong missed = new AtomicLong();
+        TradeEventBus.Subscription slow = bus.subscribe("slow", recorder(received, held, missed));
+        publish(1);
+        assertEquals(List.of(1L), take(received, 1));
+
+        // Com o consumidor parado na primeira execução, o ring dá mais de uma volta.
+        for (long lots = 2; lots <= 20; lots++) publish(lots);
+        held.countDown();
+
+        assertEquals(List.of(13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), take(received, 8));
+        assertEquals(11, missed.get());
+        assertEquals(11, slow.overruns());
+        assertEquals(20, bus.publishedCount());
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TradeEventBus(6));
+    }
+}
@@ -0,0 +1,159 @@
+package com.exchange.gateway;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.config.GatewayProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayServerTest {
+
+    private OrderBookService service;
+    private GatewayServer gateway;
+    private SocketChannel client;
+    private final ByteBuffer out = ByteBuffer.allocate(256);
+
+    @BeforeEach
+    void setup() throws IOException {
+        EngineProperties engine = new EngineProperties();
+        engine.setMode(EngineMode.SEQUENCED);
+        service = new OrderBookService(engine);
+        service.registerAccount("buyer");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+
+        GatewayProperties properties = new GatewayProperties();
+        properties.setHost("127.0.0.1");
+        properties.setPort(0);
+        gateway = new GatewayServer(service, properties);
+        gateway.start();
+        client = SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        gateway.close();
+        service.close();
+    }
+
+    private void send() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) client.write(out);
+        out.clear();
+    }
+
+    private ByteBuffer receive() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(2);
+        while (header.hasRemaining()) client.read(header);
+        ByteBuffer frame = ByteBuffer.allocate(header.getShort(0));
+        frame.putShort(header.getShort(0));
+        while (frame.hasRemaining()) client.read(frame);
+        return frame.flip().position(2);
+    }
+
+    private void logon(String account) throws IOException {
+        GatewayProtocol.putLogon(out, account);
+        send();
+        ByteBuffer ack = receive();
+        assertEquals(GatewayProtocol.LOGON_ACK, ack.get());
+        assertEquals(GatewayProtocol.OK, ack.get());
+    }
+
+    @Test
+    void testNewOrderIsAcceptedAndCancelled() throws IOException {
+        logon("buyer");
+        GatewayProtocol.putNewOrder(out, 77, 0, GatewayProtocol.SIDE_BUY, 10_000, 1_000_000);
+        send();
+
+        ByteBuffer accepted = receive();
+        assertEquals(GatewayProtocol.ACCEPTED, accepted.get());
+        assertEquals(77, accepted.getLong());
+        long orderId = accepted.getLong();
+        assertEquals(0, service.getAdmission().inFlight());
+        assertEquals(1, service.getOpenBuyOrders().size());
+        assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("900")));
+
+        GatewayProtocol.putCancel(out, 78, orderId);
+        send();
+        ByteBuffer cancelled = receive();
+        assertEquals(GatewayProtocol.CANCELLED, cancelled.get());
+        assertEquals(78, cancelled.getLong());
+        assertEquals(orderId, cancelled.getLong());
+        assertEquals(1, cancelled.get());
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+    }
+
+    @Test
+    void testSessionCannotCancelAnotherAccountsOrder() throws IOException {
+        service.registerAccount("other");
+        service.credit("other", "BRL", new BigDecimal("1000"));
+        String foreign = service.placeOrder(new Order("other", OrderBookService.DEFAULT_INSTRUMENT, OrderType.BUY,
+                new BigDecimal("100"), BigDecimal.ONE));
+        logon("buyer");
+
+        GatewayProtocol.putCancel(out, 79, Long.parseLong(foreign));
+        send();
+        ByteBuffer cancelled = receive();
+        assertEquals(GatewayProtocol.CANCELLED, cancelled.get());
+        assertEquals(79, cancelled.getLong());
+        assertEquals(Long.parseLong(foreign), cancelled.getLong());
+        assertEquals(0, cancelled.get());
+        assertEquals(1, service.getOpenBuyOrders().size());
+    }
+
+    @Test
+    void testRejections() throws IOException {
+        GatewayProtocol.putNewOrder(out, 1, 0, GatewayProtocol.SIDE_BUY, 100, 1);
+        send();
+        ByteBuffer notLoggedOn = receive();
+        assertEquals(GatewayProtocol.REJECTED, notLoggedOn.get());
+        assertEquals(1, notLoggedOn.getLong());
+        assertEquals(GatewayProtocol.NOT_LOGGED_ON, notLoggedOn.get());
+
+        logon("buyer");
+        // Dois frames no mesmo write: saldo insuficiente e instrumento inexistente.
+        GatewayProtocol.putNewOrder(out, 2, 0, GatewayProtocol.SIDE_BUY, 100_000_000, 1_000_000);
+        GatewayProtocol.putNewOrder(out, 3, 9, GatewayProtocol.SIDE_SELL, 100, 1);
+        send();
+
+        ByteBuffer first = receive();
+        ByteBuffer second = receive();
+        ByteBuffer insufficient = first.getLong(3) == 2 ? first : second;
+        ByteBuffer unknown = insufficient == first ? second : first;
+        assertEquals(GatewayProtocol.REFUSED, insufficient.get(11));
+        assertEquals(GatewayProtocol.INVALID, unknown.get(11));
+    }
+
+    @Test
+    void testNewOrderIsRejectedWhileEngineIsOverloaded() throws IOException {
+        logon("buyer");
+        while (service.getAdmission().tryAcquire()) {
+            // Ocupa todas as vagas do engine.
+        }
+        GatewayProtocol.putNewOrder(out, 5, 0, GatewayProtocol.SIDE_BUY, 10_000, 1_000_000);
+        send();
+        ByteBuffer overloaded = receive();
+        assertEquals(GatewayProtocol.REJECTED, overloaded.get());
+        assertEquals(5, overloaded.getLong());
+        assertEquals(GatewayProtocol.OVERLOADED, overloaded.get());
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+
+        service.getAdmission().release();
+        GatewayProtocol.putNewOrder(out, 6, 0, GatewayProtocol.SIDE_BUY, 10_000, 1_000_000);
+        send();
+        assertEquals(GatewayProtocol.ACCEPTED, receive().get());
+    }
+}
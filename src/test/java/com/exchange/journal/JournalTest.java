@@ -0,0 +1,232 @@
+package com.exchange.journal;
+
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    private Journal open() {
+        return new Journal(directory, 4_096, 0, 0);
+    }
+
+    private static final class Recorder implements JournalHandler {
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void onInstrument(long sequence, String baseAsset, String quoteAsset, BigDecimal tickSize, BigDecimal lotSize) {
+            records.add(sequence + " INSTRUMENT " + baseAsset + "/" + quoteAsset + " " + tickSize + " " + lotSize);
+        }
+
+        @Override
+        public void onRegisterAccount(long sequence, String accountId) {
+            records.add(sequence + " ACCOUNT " + accountId);
+        }
+
+        @Override
+        public void onCredit(long sequence, String accountId, String asset, long units) {
+            records.add(sequence + " CREDIT " + accountId + " " + asset + " " + units);
+        }
+
+        @Override
+        public void onDebit(long sequence, String accountId, String asset, long units) {
+            records.add(sequence + " DEBIT " + accountId + " " + asset + " " + units);
+        }
+
+        @Override
+        public void onPlace(long sequence, long orderId, String accountId, OrderType type, long priceTicks, long quantityLots,
+                            boolean match) {
+            records.add(sequence + (match ? " PLACE " : " PLACE_DEFERRED ") + orderId + " " + accountId + " " + type + " " + priceTicks + " " + quantityLots);
+        }
+
+        @Override
+        public void onPlacePostOnly(long sequence, long orderId, String accountId, OrderType type, long priceTicks,
+                                    long quantityLots) {
+            records.add(sequence + " PLACE_POST_ONLY " + orderId + " " + accountId + " " + type + " " + priceTicks + " " + quantityLots);
+        }
+
+        @Override
+        public void onPlaceImmediate(long sequence, long orderId, String accountId, OrderType type, long limitTicks,
+                                     long quantityLots) {
+            records.add(sequence + " PLACE_IMMEDIATE " + orderId + " " + accountId + " " + type + " " + limitTicks + " " + quantityLots);
+        }
+
+        @Override
+        public void onCancel(long sequence, long orderId) {
+            records.add(sequence + " CANCEL " + orderId);
+        }
+
+        @Override
+        public void onAmend(long sequence, long orderId, long newOrderId, long priceTicks, long quantityLots) {
+            records.add(sequence + " AMEND " + orderId + " " + newOrderId + " " + priceTicks + " " + quantityLots);
+        }
+
+        @Override
+        public void onStop(long sequence, long orderId, String accountId, OrderType type, long stopTicks, long limitTicks,
+                           long quantityLots, TimeInForce timeInForce) {
+            records.add(sequence + " STOP " + orderId + " " + accountId + " " + type + " " + stopTicks + " " + limitTicks
+                    + " " + quantityLots + " " + timeInForce);
+        }
+    }
+
+    @Test
+    void testRecordsAreReplayedInOrder() {
+        try (Journal journal = open()) {
+            journal.replay(new Recorder());
+            journal.appendInstrument("BTC", "BRL", new BigDecimal("0.01"), new BigDecimal("0.000001"));
+            journal.appendRegisterAccount("joão");
+            journal.appendCredit("joão", "BRL", 500);
+            journal.appendDebit("joão", "BRL", 200);
+            journal.appendPlace(7, "joão", OrderType.BUY, 100, 2, true);
+            journal.appendPlace(8, "joão", OrderType.SELL, 101, 1, false);
+            assertEquals(7, journal.appendCancel(7));
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = open()) {
+            assertEquals(7, journal.replay(recorder));
+            assertEquals(8, journal.appendCancel(8));
+        }
+        assertEquals(List.of(
+                "1 INSTRUMENT BTC/BRL 0.01 0.000001",
+                "2 ACCOUNT joão",
+                "3 CREDIT joão BRL 500",
+                "4 DEBIT joão BRL 200",
+                "5 PLACE 7 joão BUY 100 2",
+                "6 PLACE_DEFERRED 8 joão SELL 101 1",
+                "7 CANCEL 7"), recorder.records);
+    }
+
+    @Test
+    void testStopRecordsAreReplayed() {
+        try (Journal journal = open()) {
+            journal.replay(new Recorder());
+            journal.appendStop(9, "ana", OrderType.SELL, 95, 0, 3, TimeInForce.IOC);
+            journal.appendStop(10, "ana", OrderType.BUY, 105, 106, 1, TimeInForce.GTC);
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = open()) {
+            journal.replay(recorder);
+        }
+        assertEquals(List.of("1 STOP 9 ana SELL 95 0 3 IOC", "2 STOP 10 ana BUY 105 106 1 GTC"), recorder.records);
+    }
+
+    @Test
+    void testReplayAfterSequenceSkipsEarlierRecords() {
+        try (Journal journal = open()) {
+            journal.replay(new Recorder());
+            for (int i = 1; i <= 5; i++) journal.appendCancel(i);
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = open()) {
+            journal.replay(recorder, 3);
+        }
+        assertEquals(List.of("4 CANCEL 4", "5 CANCEL 5"), recorder.records);
+    }
+
+    @Test
+    void testFullSegmentRollsOver() throws IOException {
+        try (Journal journal = open()) {
+            journal.replay(new Recorder());
+            for (int i = 1; i <= 500; i++) journal.appendCredit("account", "BRL", i);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        Recorder recorder = new Recorder();
+        try (Journal journal = open()) {
+            assertEquals(500, journal.replay(recorder));
+        }
+        assertEquals(500, recorder.records.size());
+        assertEquals("500 CREDIT account BRL 500", recorder.records.get(499));
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        try (Journal journal = open()) {
+            journal.replay(new Recorder());
+            journal.appendCancel(1);
+            journal.appendCancel(2);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Corrompe o payload do segundo registro, simulando uma escrita interrompida.
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(Journal.HEADER_SIZE + 8 + Journal.HEADER_SIZE);
+            file.writeLong(99);
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = open()) {
+            assertEquals(1, journal.replay(recorder));
+            assertEquals(2, journal.appendCancel(3));
+        }
+        assertEquals(List.of("1 CANCEL 1"), recorder.records);
+    }
+
+    @Test
+    void testTailCopiesRecordsAcrossSegmentsIntoAnotherJournal() {
+        Path copyDirectory = directory.resolve("copy");
+        ByteBuffer out = ByteBuffer.allocate(1_024);
+        try (Journal journal = open(); Journal copy = new Journal(copyDirectory, 4_096, 0, 0)) {
+            journal.replay(new Recorder());
+            copy.replay(new Recorder());
+            JournalTail tail = new JournalTail(directory, 0);
+            JournalReader applied = new JournalReader(copyDirectory, 0);
+            Recorder live = new Recorder();
+            for (int i = 1; i <= 300; i++) {
+                journal.appendCredit("account", "BRL", i);
+                while (tail.drainTo(out) > 0) {
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        int offset = out.position();
+                        applied.apply(out, offset, live);
+                        copy.appendReplicated(out, offset);
+                        out.position(offset + out.getInt(offset));
+                    }
+                    out.clear();
+                }
+            }
+            assertEquals(300, tail.lastSequence());
+            assertEquals(300, live.records.size());
+            assertThrows(IllegalStateException.class, () -> copy.appendReplicated(ByteBuffer.allocate(32), 0));
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal copy = new Journal(copyDirectory, 4_096, 0, 0)) {
+            assertEquals(300, copy.replay(recorder));
+            assertEquals(301, copy.appendCancel(1));
+        }
+        assertEquals("300 CREDIT account BRL 300", recorder.records.get(299));
+    }
+
+    @Test
+    void testAppendBeforeReplayIsRejected() {
+        try (Journal journal = open()) {
+            assertThrows(IllegalStateException.class, () -> journal.appendCancel(1));
+        }
+    }
+}
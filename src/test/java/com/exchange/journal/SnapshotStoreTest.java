@@ -0,0 +1,58 @@
+package com.exchange.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLatestSnapshotIsLoadedAndOldOnesPruned() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory, 2);
+        store.write(10, out -> out.writeUTF("dez"));
+        store.write(20, out -> out.writeUTF("vinte"));
+        store.write(30, out -> out.writeUTF("trinta"));
+
+        List<String> loaded = new ArrayList<>();
+        assertEquals(30, store.loadLatest(in -> loaded.add(in.readUTF())));
+        assertEquals(List.of("trinta"), loaded);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testCorruptedSnapshotFallsBackToPrevious() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory, 2);
+        store.write(10, out -> out.writeLong(10));
+        Path latest = store.write(20, out -> out.writeLong(20));
+        try (RandomAccessFile file = new RandomAccessFile(latest.toFile(), "rw")) {
+            file.seek(22);
+            file.writeByte(0x7F);
+        }
+
+        long[] value = new long[1];
+        assertEquals(10, store.loadLatest(in -> value[0] = in.readLong()));
+        assertEquals(10, value[0]);
+        assertEquals(10, store.latestSequence());
+    }
+
+    @Test
+    void testEmptyDirectoryHasNoSnapshot() {
+        assertEquals(0, new SnapshotStore(directory, 1).loadLatest(in -> {
+            throw new AssertionError("nenhum snapshot deveria ser lido");
+        }));
+    }
+}
@@ -0,0 +1,134 @@
+package com.exchange.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceLedgerTest {
+
+    @Test
+    void testShardCountMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new BalanceLedger(3));
+        assertTrue(new BalanceLedger().shardCount() >= 1);
+    }
+
+    @Test
+    void testReserveReleaseAndConsume() {
+        BalanceLedger ledger = new BalanceLedger(2);
+        int brl = ledger.assets().intern("BRL");
+        int account = ledger.open();
+
+        ledger.credit(account, brl, 1_000);
+        assertTrue(ledger.reserve(account, brl, 600));
+        assertFalse(ledger.reserve(account, brl, 500));
+        assertEquals(400, ledger.available(account, brl));
+        assertEquals(600, ledger.reserved(account, brl));
+
+        ledger.release(account, brl, 100);
+        ledger.consume(account, brl, 500);
+        assertEquals(500, ledger.available(account, brl));
+        assertEquals(0, ledger.reserved(account, brl));
+        assertThrows(IllegalStateException.class, () -> ledger.consume(account, brl, 1));
+        assertFalse(ledger.debit(account, ledger.assets().find("BTC"), 1));
+    }
+
+    @Test
+    void testReplayingMovesDoNotCheckTheSourceBalance() {
+        BalanceLedger ledger = new BalanceLedger(2);
+        int brl = ledger.assets().intern("BRL");
+        int account = ledger.open();
+        ledger.setReplaying(true);
+
+        // O bloqueio gravado antes do crédito que o cobria, de outro fluxo.
+        assertTrue(ledger.reserve(account, brl, 600));
+        assertEquals(-600, ledger.available(account, brl));
+        ledger.credit(account, brl, 1_000);
+        ledger.consume(account, brl, 600);
+        assertEquals(400, ledger.available(account, brl));
+        assertEquals(0, ledger.reserved(account, brl));
+
+        ledger.setReplaying(false);
+        assertFalse(ledger.debit(account, brl, 401));
+    }
+
+    @Test
+    void testAccountsAndAssetsGrowAcrossShards() {
+        BalanceLedger ledger = new BalanceLedger(4);
+        List<Integer> accounts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            accounts.add(ledger.open());
+        }
+        for (int asset = 0; asset < 20; asset++) {
+            int id = ledger.assets().intern("A" + asset);
+            for (int slot : accounts) {
+                ledger.credit(slot, id, slot + 1L);
+            }
+        }
+        for (int slot : accounts) {
+            long[] balances = ledger.balances(slot);
+            for (int asset = 0; asset < 20; asset++) {
+                assertEquals(slot + 1L, BalanceLedger.available(balances, asset));
+                assertTrue(BalanceLedger.touched(balances, asset));
+            }
+            assertFalse(BalanceLedger.touched(balances, 20));
+        }
+    }
+
+    @Test
+    void testConcurrentWritersAndOptimisticReaders() throws InterruptedException {
+        BalanceLedger ledger = new BalanceLedger(2);
+        int brl = ledger.assets().intern("BRL");
+        int threads = 4;
+        int moves = 50_000;
+        int[] slots = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            slots[t] = ledger.open();
+            ledger.credit(slots[t], brl, 1_000);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                for (int slot : slots) {
+                    long[] balances = ledger.balances(slot);
+                    // Cada movimento só troca unidades entre disponível e reservado.
+                    if (BalanceLedger.available(balances, brl) + BalanceLedger.reserved(balances, brl) != 1_000) {
+                        torn.set("Leitura inconsistente no slot " + slot);
+                    }
+                }
+            }
+        });
+        reader.start();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int slot = slots[t];
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < moves; i++) {
+                    ledger.reserve(slot, brl, 7);
+                    ledger.release(slot, brl, 7);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(torn.get());
+        for (int slot : slots) {
+            assertEquals(1_000, ledger.available(slot, brl));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.exchange.marketdata;
+
+import com.exchange.book.OrderBook;
+import com.exchange.model.AssetScales;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BookFeedTest {
+
+    private final InstrumentSpec spec = new InstrumentSpec(new Instrument("BTC", "BRL"),
+            InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, new AssetScales());
+    private OrderBook book;
+    private BookFeed feed;
+
+    @BeforeEach
+    void setup() {
+        book = new OrderBook(spec, 0, 16);
+        feed = new BookFeed(book, 2);
+        book.setBookListener(feed);
+        book.setTradeListener(feed);
+    }
+
+    private void place(OrderType type, String price, String quantity) {
+        book.add(new Order("trader", spec, type, spec.toTicks(new BigDecimal(price)), spec.toLots(new BigDecimal(quantity))));
+        book.match();
+        feed.publish();
+    }
+
+    private static BookLevel level(String price, String quantity, int orders) {
+        return new BookLevel(new BigDecimal(price), new BigDecimal(quantity), orders);
+    }
+
+    private static void assertLevel(BookLevel expected, BookLevel actual) {
+        assertEquals(0, expected.price().compareTo(actual.price()));
+        assertEquals(0, expected.quantity().compareTo(actual.quantity()));
+        assertEquals(expected.orders(), actual.orders());
+    }
+
+    @Test
+    void testInactiveFeedOnlyAdvancesSequence() {
+        place(OrderType.BUY, "100", "1");
+
+        assertNull(feed.drain());
+        assertEquals(1, feed.getSequence());
+    }
+
+    @Test
+    void testChangesToTheSameLevelAreConflated() {
+        feed.setActive(true);
+        place(OrderType.BUY, "100", "1");
+        place(OrderType.BUY, "100", "2");
+        place(OrderType.BUY, "101", "1");
+        place(OrderType.SELL, "105", "1");
+
+        MarketDataUpdate update = feed.drain();
+
+        assertEquals(0, update.fromSequence());
+        assertEquals(4, update.sequence());
+        assertEquals(2, update.bids().size());
+        assertLevel(level("101", "1", 1), update.bids().get(0));
+        assertLevel(level("100", "3", 2), update.bids().get(1));
+        assertLevel(level("101", "1", 1), update.bestBid());
+        assertLevel(level("105", "1", 1), update.bestAsk());
+        assertNull(feed.drain());
+    }
+
+    @Test
+    void testFillsProduceLevelDeltasAndTradePrints() {
+        feed.setActive(true);
+        place(OrderType.SELL, "100", "3");
+        feed.drain();
+
+        place(OrderType.BUY, "101", "1");
+        place(OrderType.BUY, "101", "1");
+        place(OrderType.BUY, "101", "0.5");
+        MarketDataUpdate update = feed.drain();
+
+        assertEquals(1, update.fromSequence());
+        assertLevel(level("100", "0.5", 1), update.asks().get(0));
+        // A compra entra e sai no mesmo comando: o nível aparece removido.
+        assertLevel(level("101", "0", 0), update.bids().get(0));
+        assertNull(update.bestBid());
+        assertEquals(List.of(2L, 3L), update.trades().stream().map(TradePrint::sequence).toList());
+        assertEquals(OrderType.BUY, update.trades().get(0).aggressor());
+        assertEquals(1, update.tradesDropped());
+    }
+
+    @Test
+    void testAggressorIsTheCrossingOrderEvenWithAnEarlierId() {
+        feed.setActive(true);
+        long earlierId = book.nextOrderId();
+        place(OrderType.BUY, "100", "1");
+        feed.drain();
+
+        Order sell = new Order("trader", spec, OrderType.SELL, spec.toTicks(new BigDecimal("100")), spec.toLots(BigDecimal.ONE));
+        sell.assignId(earlierId);
+        book.add(sell);
+        book.match();
+        feed.publish();
+
+        assertEquals(OrderType.SELL, feed.drain().trades().get(0).aggressor());
+    }
+
+    @Test
+    void testSnapshotCarriesSequenceAndPriceOrder() {
+        place(OrderType.BUY, "99", "1");
+        place(OrderType.BUY, "100", "1");
+        place(OrderType.SELL, "102", "1");
+        place(OrderType.SELL, "101", "2");
+
+        DepthSnapshot snapshot = feed.snapshot(1);
+
+        assertEquals(4, snapshot.sequence());
+        assertEquals(1, snapshot.bids().size());
+        assertLevel(level("100", "1", 1), snapshot.bids().get(0));
+        assertLevel(level("101", "2", 1), snapshot.asks().get(0));
+    }
+
+    @Test
+    void testCachedDepthIsRebuiltOnlyForChangedSidesWithinRange() {
+        feed = new BookFeed(book, 2, 2);
+        book.setBookListener(feed);
+        book.setTradeListener(feed);
+        place(OrderType.BUY, "100", "1");
+        place(OrderType.BUY, "99", "1");
+        place(OrderType.SELL, "105", "1");
+        BookDepth before = feed.getDepth();
+
+        place(OrderType.BUY, "98", "1");
+        BookDepth deeper = feed.getDepth();
+        place(OrderType.BUY, "100", "1");
+
+        assertEquals(4, deeper.getSequence());
+        assertEquals(before.toSnapshot(2).bids(), deeper.toSnapshot(2).bids());
+        DepthSnapshot latest = feed.getDepth().toSnapshot(2);
+        assertEquals(5, latest.sequence());
+        assertLevel(level("100", "2", 2), latest.bids().get(0));
+        assertEquals(1, latest.asks().size());
+        assertEquals(3, feed.snapshot(10).bids().size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.exchange.marketdata;
+
+import com.exchange.config.MarketDataProperties;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.exchange.service.OrderBookService.DEFAULT_INSTRUMENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataPublisherTest {
+
+    private OrderBookService service;
+    private MarketDataPublisher publisher;
+    private final BlockingQueue<DepthSnapshot> snapshots = new LinkedBlockingQueue<>();
+    private final BlockingQueue<MarketDataUpdate> updates = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setup() {
+        service = new OrderBookService();
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("100000"));
+        MarketDataProperties properties = new MarketDataProperties();
+        // Coletas só quando o teste chama distribute().
+        properties.setPublishIntervalMs(TimeUnit.HOURS.toMillis(1));
+        publisher = new MarketDataPublisher(service, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+        service.close();
+    }
+
+    private void bid(String price) {
+        service.placeOrder(new Order("maker", DEFAULT_INSTRUMENT, OrderType.BUY, new BigDecimal(price), BigDecimal.ONE));
+    }
+
+    private MarketDataPublisher.Subscription subscribe(CountDownLatch release) throws Exception {
+        return publisher.subscribe(DEFAULT_INSTRUMENT, new MarketDataSink() {
+            @Override
+            public void onSnapshot(DepthSnapshot snapshot) {
+                snapshots.add(snapshot);
+            }
+
+            @Override
+            public void onUpdate(MarketDataUpdate update) throws InterruptedIOException {
+                updates.add(update);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        });
+    }
+
+    @Test
+    void testSnapshotThenDeltasAfterItsSequence() throws Exception {
+        bid("100");
+        MarketDataPublisher.Subscription subscription = subscribe(new CountDownLatch(0));
+
+        DepthSnapshot snapshot = snapshots.poll(5, TimeUnit.SECONDS);
+        assertEquals(1, snapshot.bids().size());
+        bid("101");
+        publisher.distribute();
+
+        MarketDataUpdate update = updates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update);
+        assertEquals(snapshot.sequence(), update.fromSequence());
+        assertEquals(snapshot.sequence() + 1, update.sequence());
+        assertEquals(0, new BigDecimal("101").compareTo(update.bestBid().price()));
+
+        publisher.unsubscribe(subscription);
+        assertFalse(service.getFeed(DEFAULT_INSTRUMENT).isActive());
+    }
+
+    @Test
+    void testSlowSubscriberReceivesConflatedState() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        subscribe(release);
+        bid("100");
+        publisher.distribute();
+        MarketDataUpdate first = updates.poll(5, TimeUnit.SECONDS);
+        assertEquals(1, first.bids().size());
+
+        // O envio anterior ainda não terminou: as coletas seguintes se acumulam.
+        bid("100");
+        publisher.distribute();
+        bid("102");
+        publisher.distribute();
+        release.countDown();
+
+        MarketDataUpdate conflated = updates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(conflated);
+        assertEquals(first.sequence(), conflated.fromSequence());
+        assertEquals(first.sequence() + 2, conflated.sequence());
+        assertEquals(2, conflated.bids().size());
+        assertEquals(0, new BigDecimal("2").compareTo(conflated.bids().get(1).quantity()));
+        assertTrue(updates.isEmpty());
+    }
+}
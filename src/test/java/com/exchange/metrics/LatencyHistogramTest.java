@@ -0,0 +1,38 @@
+package com.exchange.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsKeepRelativeErrorBounded() {
+        for (long value = 0; value < 10_000_000; value = value * 3 / 2 + 1) {
+            long upper = LatencyHistogram.highestEquivalent(LatencyHistogram.index(value));
+            assertTrue(upper >= value, "limite abaixo do valor " + value);
+            assertTrue(upper - value <= Math.max(1, value / 64), "erro acima de 1/64 em " + value);
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestEquivalent(LatencyHistogram.index(LatencyHistogram.MAX_VALUE)));
+    }
+
+    @Test
+    void testPercentilesFromSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(1_000_000);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(103, snapshot.count());
+        assertEquals(51, snapshot.valueAt(0.5));
+        assertTrue(Math.abs(snapshot.valueAt(0.99) - 1_000_000) <= 1_000_000 / 64);
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.max());
+        assertEquals(0, new LatencyHistogram().snapshot().valueAt(0.99));
+    }
+}
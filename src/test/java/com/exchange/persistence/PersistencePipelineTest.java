@@ -0,0 +1,94 @@
+package com.exchange.persistence;
+
+import com.exchange.config.PersistenceProperties;
+import com.exchange.dto.BalanceChangeDTO;
+import com.exchange.dto.OrderHistoryDTO;
+import com.exchange.dto.TradeHistoryDTO;
+import com.exchange.model.Instrument;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PersistencePipelineTest {
+
+    private final Instrument btc = new Instrument("BTC", "BRL");
+    private OrderBookService service;
+    private HistoryRepository repository;
+    private PersistencePipeline pipeline;
+
+    @BeforeEach
+    void setup() {
+        repository = new HistoryRepository(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        repository.createSchema();
+        service = new OrderBookService();
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setBatchSize(4);
+        properties.setFlushIntervalMs(5);
+        properties.setQueueSize(64);
+        pipeline = new PersistencePipeline(service, repository, properties);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+        service.close();
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "esperado " + expected + ", veio " + actual);
+    }
+
+    @Test
+    void testOrdersFillsAndBalancesAreWrittenInBatches() {
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+        service.credit("seller", "BTC", new BigDecimal("2"));
+        String sell = service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+        String buy = service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        service.cancelOrder(sell);
+        service.debit("buyer", "BRL", new BigDecimal("50"));
+
+        pipeline.close();
+
+        List<OrderHistoryDTO> sellerOrders = repository.findOrders("seller", 10);
+        assertEquals(1, sellerOrders.size());
+        assertEquals("CANCELLED", sellerOrders.get(0).status());
+        assertAmount("1", sellerOrders.get(0).filledQuantity());
+        OrderHistoryDTO buyerOrder = repository.findOrders("buyer", 10).get(0);
+        assertEquals(buy, buyerOrder.orderId());
+        assertEquals("FILLED", buyerOrder.status());
+
+        List<TradeHistoryDTO> trades = repository.findTrades("seller", 10);
+        assertEquals(1, trades.size());
+        assertEquals(buy, trades.get(0).takerOrderId());
+        assertEquals(sell, trades.get(0).makerOrderId());
+        assertEquals(OrderType.BUY, trades.get(0).takerSide());
+        assertAmount("100", trades.get(0).price());
+
+        // Execuções chegam por outra thread: a ordem relativa aos demais registros não é garantida.
+        Map<String, BigDecimal> buyerChanges = repository.findBalanceChanges("buyer", 10).stream()
+                .collect(Collectors.toMap(BalanceChangeDTO::reason, BalanceChangeDTO::amount));
+        assertEquals(3, buyerChanges.size());
+        assertAmount("1000", buyerChanges.get("CREDIT"));
+        assertAmount("-50", buyerChanges.get("DEBIT"));
+        assertAmount("1", buyerChanges.get("TRADE"));
+        assertAmount("100", repository.findBalanceChanges("seller", 10).stream()
+                .filter(change -> change.reason().equals("TRADE")).findFirst().orElseThrow().amount());
+        assertEquals(0, pipeline.getDropped());
+    }
+}
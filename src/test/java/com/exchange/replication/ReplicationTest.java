@@ -0,0 +1,220 @@
+package com.exchange.replication;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.config.JournalProperties;
+import com.exchange.config.ReplicationProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import com.exchange.service.OrderBookService;
+import com.exchange.sim.OrderFlowGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ReplicationTest {
+
+    private static final Instrument BTC_BRL = new Instrument("BTC", "BRL");
+    private static final Instrument ETH_BRL = new Instrument("ETH", "BRL");
+
+    @TempDir
+    Path primaryDirectory;
+    @TempDir
+    Path replicaDirectory;
+
+    private OrderBookService primary;
+    private ReplicationServer server;
+    private final List<AutoCloseable> replicas = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setRole(ReplicationRole.PRIMARY);
+        properties.setHost("127.0.0.1");
+        properties.setPort(0);
+        JournalProperties journal = journal(primaryDirectory);
+        primary = new OrderBookService(engine(EngineMode.SEQUENCED), journal, properties);
+        server = new ReplicationServer(primary, journal, properties);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable replica : replicas) {
+            replica.close();
+        }
+        server.close();
+        primary.close();
+    }
+
+    private static EngineProperties engine(EngineMode mode) {
+        EngineProperties engine = new EngineProperties();
+        engine.setMode(mode);
+        return engine;
+    }
+
+    private static JournalProperties journal(Path directory) {
+        JournalProperties journal = new JournalProperties();
+        journal.setEnabled(true);
+        journal.setDirectory(directory.toString());
+        journal.setSegmentSize(16 * 1024);
+        journal.setSnapshotIntervalMs(0);
+        return journal;
+    }
+
+    private OrderBookService openReplica(EngineMode mode) {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setRole(ReplicationRole.REPLICA);
+        OrderBookService replica = new OrderBookService(engine(mode), journal(replicaDirectory), properties);
+        replicas.add(replica);
+        return replica;
+    }
+
+    private ReplicationClient follow(OrderBookService replica) {
+        ReplicationProperties properties = new ReplicationProperties();
+        properties.setPrimaryHost("127.0.0.1");
+        properties.setPrimaryPort(server.getPort());
+        properties.setReconnectIntervalMs(10);
+        ReplicationClient client = new ReplicationClient(replica, properties);
+        replicas.add(0, client);
+        client.start();
+        return client;
+    }
+
+    private void awaitCaughtUp(OrderBookService replica) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (replica.lastSequence() != primary.lastSequence()) {
+            if (System.nanoTime() > deadline) {
+                fail("Réplica parou em " + replica.lastSequence() + " de " + primary.lastSequence());
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /** Fluxo com semente fixa, com journal suficiente para trocar de segmento várias vezes. */
+    private void trade(int actions) {
+        OrderFlowGenerator flow = new OrderFlowGenerator(42, primary.getInstrumentSpec(BTC_BRL), 100_000,
+                OrderFlowGenerator.Profile.DEFAULT);
+        for (String account : flow.getAccountIds()) {
+            primary.registerAccount(account);
+            primary.credit(account, "BTC", new BigDecimal("1000"));
+            primary.credit(account, "BRL", new BigDecimal("100000000"));
+        }
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < actions; i++) {
+            try {
+                if (flow.nextAction() == OrderFlowGenerator.Action.CANCEL && !live.isEmpty()) {
+                    primary.cancelOrder(live.remove(flow.nextIndex(live.size())));
+                } else {
+                    live.add(primary.placeOrder(flow.nextOrder()));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Rejeições não vão para o journal.
+            }
+        }
+    }
+
+    @Test
+    void testReplicaFollowsPrimaryAndKeepsTheSameStateHash() throws InterruptedException {
+        OrderBookService replica = openReplica(EngineMode.SEQUENCED);
+        follow(replica);
+
+        trade(2_000);
+        awaitCaughtUp(replica);
+        assertEquals(primary.stateHash(), replica.stateHash());
+
+        primary.placeOrder(new Order("trader-0", BTC_BRL, OrderType.BUY, null, new BigDecimal("0.0001"))
+                .withExecution(ExecutionType.MARKET, TimeInForce.IOC));
+        awaitCaughtUp(replica);
+        assertEquals(primary.stateHash(), replica.stateHash());
+        assertEquals(primary.getDepth(BTC_BRL, 10), replica.getDepth(BTC_BRL, 10));
+        assertEquals(primary.getBalances("trader-0"), replica.getBalances("trader-0"));
+    }
+
+    @Test
+    void testReplicaConvergesWhenCreditsAndPlacesInterleaveAcrossBooks() throws InterruptedException {
+        OrderBookService replica = openReplica(EngineMode.SEQUENCED);
+        follow(replica);
+        primary.registerInstrument(ETH_BRL);
+        primary.registerAccount("maker");
+        primary.registerAccount("trader");
+        primary.credit("maker", "BRL", new BigDecimal("1000000"));
+        primary.credit("trader", "BTC", new BigDecimal("1000"));
+        long credit = primary.getAssetScales().toUnits("BRL", new BigDecimal("20"));
+
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Crédito e execução no BTC/BRL pagam a compra no ETH/BRL, cada um numa thread.
+            pending.add(primary.placeOrderAsync(new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("30"), BigDecimal.ONE)));
+            pending.add(primary.placeOrderAsync(new Order("trader", BTC_BRL, OrderType.SELL, new BigDecimal("30"), BigDecimal.ONE)));
+            pending.add(primary.creditAsync("trader", "BRL", credit));
+            pending.add(primary.placeOrderAsync(new Order("trader", ETH_BRL, OrderType.BUY, new BigDecimal("50"), BigDecimal.ONE)));
+        }
+        CompletableFuture.allOf(pending.stream().map(f -> f.handle((r, e) -> null))
+                .toArray(CompletableFuture<?>[]::new)).join();
+
+        awaitCaughtUp(replica);
+        assertEquals(primary.stateHash(), replica.stateHash());
+        assertEquals(primary.getBalances("trader"), replica.getBalances("trader"));
+    }
+
+    @Test
+    void testReplicaRejectsCommandsUntilPromoted() throws InterruptedException {
+        OrderBookService replica = openReplica(EngineMode.DIRECT);
+        ReplicationClient client = follow(replica);
+        primary.registerAccount("buyer");
+        primary.credit("buyer", "BRL", new BigDecimal("1000"));
+        String resting = primary.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        awaitCaughtUp(replica);
+
+        assertThrows(IllegalStateException.class, () -> replica.registerAccount("other"));
+        assertThrows(IllegalStateException.class, () -> replica.credit("buyer", "BRL", 1L));
+        assertThrows(IllegalStateException.class, () -> replica.cancelOrder(resting));
+        assertTrue(replica.isReplica());
+
+        long last = replica.lastSequence();
+        client.promote();
+        assertFalse(replica.isReplica());
+
+        String next = replica.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        assertEquals(last + 1, replica.lastSequence());
+        assertTrue(Long.parseLong(next) > Long.parseLong(resting));
+        assertTrue(replica.cancelOrder(resting));
+        assertEquals(0, replica.getBalances("buyer").get("BRL").compareTo(new BigDecimal("900")));
+    }
+
+    @Test
+    void testRestartedReplicaResumesFromItsOwnJournal() throws Exception {
+        OrderBookService replica = openReplica(EngineMode.SEQUENCED);
+        ReplicationClient client = follow(replica);
+        trade(500);
+        awaitCaughtUp(replica);
+        client.close();
+        replica.close();
+        replicas.clear();
+
+        trade(500);
+        OrderBookService restarted = openReplica(EngineMode.DIRECT);
+        assertTrue(restarted.lastSequence() > 0);
+        follow(restarted);
+        awaitCaughtUp(restarted);
+        assertEquals(primary.stateHash(), restarted.stateHash());
+    }
+}
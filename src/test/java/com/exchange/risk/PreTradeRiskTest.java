@@ -0,0 +1,174 @@
+package com.exchange.risk;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.Order;
+import com.exchange.model.OrderResult;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreTradeRiskTest {
+
+    private static final Instrument BTC = new Instrument("BTC", "BRL");
+
+    private static OrderBookService service(EngineProperties.RiskProperties limits) {
+        EngineProperties properties = new EngineProperties();
+        properties.setRisk(limits);
+        OrderBookService service = new OrderBookService(properties);
+        for (String account : List.of("buyer", "seller")) {
+            service.registerAccount(account);
+            service.credit(account, "BRL", new BigDecimal("1000000"));
+            service.credit(account, "BTC", new BigDecimal("100"));
+        }
+        return service;
+    }
+
+    private static Order order(String account, OrderType side, String price, String quantity) {
+        return new Order(account, BTC, side, new BigDecimal(price), new BigDecimal(quantity));
+    }
+
+    @Test
+    void testOpenOrdersAreTrackedThroughFillsAndCancels() {
+        EngineProperties.RiskProperties limits = new EngineProperties.RiskProperties();
+        limits.setMaxOpenOrders(2);
+        OrderBookService service = service(limits);
+        AccountRisk seller = service.getRisk().account("seller");
+
+        String first = service.placeOrder(order("seller", OrderType.SELL, "100", "1"));
+        service.placeOrder(order("seller", OrderType.SELL, "101", "1"));
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> service.placeOrder(order("seller", OrderType.SELL, "102", "1")));
+        assertEquals("Limite de ordens em aberto atingido.", error.getMessage());
+        assertEquals(2, seller.openOrders());
+
+        // Compra que executa por inteiro contra a primeira venda: as duas saem do livro.
+        service.placeOrder(order("buyer", OrderType.BUY, "100", "1"));
+        assertEquals(1, seller.openOrders());
+        assertEquals(0, service.getRisk().account("buyer").openOrders());
+        assertFalse(service.cancelOrder(first));
+
+        service.placeOrder(order("seller", OrderType.SELL, "102", "1"));
+        assertEquals(2, seller.openOrders());
+        service.cancelAll("seller", BTC, OrderType.SELL);
+        assertEquals(0, seller.openOrders());
+    }
+
+    @Test
+    void testMaxOrderNotionalPerQuoteAsset() {
+        EngineProperties.RiskProperties limits = new EngineProperties.RiskProperties();
+        limits.setMaxOrderNotional(Map.of("BRL", new BigDecimal("1000")));
+        OrderBookService service = service(limits);
+
+        service.placeOrder(order("seller", OrderType.SELL, "100", "5"));
+        service.placeOrder(order("seller", OrderType.SELL, "120", "5"));
+        service.placeOrder(order("buyer", OrderType.BUY, "90", "10"));
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(order("buyer", OrderType.BUY, "90", "12")));
+        // A mercado, vale o que executaria agora: 5 × 100 + 5 × 120.
+        Order market = new Order("buyer", BTC, OrderType.BUY, null, new BigDecimal("10"))
+                .withExecution(ExecutionType.MARKET, TimeInForce.IOC);
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(market));
+        assertEquals(2, service.getMetrics().instrument(BTC).rejects());
+    }
+
+    @Test
+    void testPriceBandAroundLastTradeOrMidpoint() {
+        EngineProperties.RiskProperties limits = new EngineProperties.RiskProperties();
+        limits.setPriceBandBps(1_000);
+        OrderBookService service = service(limits);
+
+        // Sem referência, qualquer preço passa.
+        service.placeOrder(order("seller", OrderType.SELL, "110", "1"));
+        service.placeOrder(order("buyer", OrderType.BUY, "90", "1"));
+        // Meio do topo: 100, banda de 10%.
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(order("buyer", OrderType.BUY, "89", "1")));
+        service.placeOrder(order("buyer", OrderType.BUY, "110", "1"));
+        // Último negócio: 110.
+        service.placeOrder(order("seller", OrderType.SELL, "120", "1"));
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> service.placeOrder(order("seller", OrderType.SELL, "122", "1")));
+        assertEquals("Preço fora da banda permitida.", error.getMessage());
+    }
+
+    @Test
+    void testRateLimitPerAccountWindow() {
+        AccountRisk account = new AccountRisk();
+        long second = 5_000_000_000L;
+        assertTrue(account.tryAcquire(second, 2));
+        assertTrue(account.tryAcquire(second + 1, 2));
+        assertFalse(account.tryAcquire(second + 999_999_999L, 2));
+        assertTrue(account.tryAcquire(second + 1_000_000_000L, 2));
+        assertTrue(account.tryAcquire(second + 1_000_000_000L, 2));
+        assertFalse(account.tryAcquire(second + 1_500_000_000L, 2));
+    }
+
+    @Test
+    void testCustomCheckAndBatchRejection() {
+        OrderBookService service = service(new EngineProperties.RiskProperties());
+        service.getRisk().add((book, order, account) -> order.getType() == OrderType.SELL ? "Vendas suspensas." : null);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> service.placeOrder(order("seller", OrderType.SELL, "100", "1")));
+        assertEquals("Vendas suspensas.", error.getMessage());
+        List<OrderResult> results = service.placeOrders(List.of(order("buyer", OrderType.BUY, "90", "1"),
+                order("seller", OrderType.SELL, "100", "1")));
+        assertTrue(results.get(0).isAccepted());
+        assertEquals("Vendas suspensas.", results.get(1).error());
+    }
+
+    @Test
+    void testBatchCountsItsOwnOrdersAgainstTheOpenOrderLimit() {
+        EngineProperties.RiskProperties limits = new EngineProperties.RiskProperties();
+        limits.setMaxOpenOrders(3);
+        OrderBookService service = service(limits);
+        AccountRisk buyer = service.getRisk().account("buyer");
+        service.placeOrder(order("buyer", OrderType.BUY, "90", "1"));
+
+        // Duas vagas livres antes do lote: a terceira ordem já conta as duas primeiras.
+        List<OrderResult> results = service.placeOrders(List.of(order("buyer", OrderType.BUY, "91", "1"),
+                order("buyer", OrderType.BUY, "92", "1"), order("buyer", OrderType.BUY, "93", "1")));
+        assertTrue(results.get(0).isAccepted());
+        assertTrue(results.get(1).isAccepted());
+        assertEquals("Limite de ordens em aberto atingido.", results.get(2).error());
+        assertEquals(3, buyer.openOrders());
+        assertTrue(service.cancelOrder(results.get(0).orderId()));
+        assertTrue(service.cancelOrder(results.get(1).orderId()));
+
+        // Lote recusado por saldo devolve as vagas que já tinha ocupado.
+        results = service.placeOrders(List.of(order("buyer", OrderType.BUY, "91", "1"),
+                order("buyer", OrderType.BUY, "92", "100000")));
+        assertTrue(results.stream().noneMatch(OrderResult::isAccepted));
+        assertEquals(1, buyer.openOrders());
+    }
+
+    @Test
+    void testBatchRejectsOnlyTheOrderOutsideThePriceBand() {
+        EngineProperties.RiskProperties limits = new EngineProperties.RiskProperties();
+        limits.setPriceBandBps(1_000);
+        OrderBookService service = service(limits);
+        service.placeOrder(order("seller", OrderType.SELL, "110", "1"));
+        service.placeOrder(order("buyer", OrderType.BUY, "90", "1"));
+
+        // Meio do topo: 100, banda de 10%.
+        List<OrderResult> results = service.placeOrders(List.of(order("buyer", OrderType.BUY, "95", "1"),
+                order("buyer", OrderType.BUY, "80", "1"), order("seller", OrderType.SELL, "105", "1")));
+
+        assertTrue(results.get(0).isAccepted());
+        assertEquals("Preço fora da banda permitida.", results.get(1).error());
+        assertTrue(results.get(2).isAccepted());
+        assertEquals(2, service.getOpenBuyOrders(BTC).size());
+        assertEquals(2, service.getOpenSellOrders(BTC).size());
+        assertEquals(2, service.getRisk().account("buyer").openOrders());
+    }
+}
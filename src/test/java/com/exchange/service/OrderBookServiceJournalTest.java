@@ -0,0 +1,303 @@
+package com.exchange.service;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.config.JournalProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookServiceJournalTest {
+
+    private static final Instrument BTC_BRL = new Instrument("BTC", "BRL");
+    private static final Instrument ETH_BRL = new Instrument("ETH", "BRL");
+
+    @TempDir
+    Path directory;
+
+    private OrderBookService open(EngineMode mode) {
+        EngineProperties engine = new EngineProperties();
+        engine.setMode(mode);
+        JournalProperties journal = new JournalProperties();
+        journal.setEnabled(true);
+        journal.setDirectory(directory.toString());
+        journal.setSegmentSize(64 * 1024);
+        journal.setSnapshotIntervalMs(3_600_000);
+        return new OrderBookService(engine, journal);
+    }
+
+    @Test
+    void testRestartRebuildsBalancesAndBooks() {
+        String cancelled;
+        String resting;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerInstrument(ETH_BRL);
+            service.registerAccount("buyer");
+            service.registerAccount("seller");
+            service.credit("buyer", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", new BigDecimal("3"));
+            service.credit("seller", "ETH", new BigDecimal("1"));
+
+            service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+            service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("100"), new BigDecimal("1.5")));
+            cancelled = service.placeOrder(new Order("seller", ETH_BRL, OrderType.SELL, new BigDecimal("50"), BigDecimal.ONE));
+            resting = service.placeOrder(new Order("buyer", ETH_BRL, OrderType.BUY, new BigDecimal("10"), BigDecimal.ONE));
+            assertTrue(service.cancelOrder(cancelled));
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            assertEquals(List.of(BTC_BRL, ETH_BRL), List.copyOf(service.getInstruments()));
+            Map<String, BigDecimal> buyer = service.getBalances("buyer");
+            Map<String, BigDecimal> seller = service.getBalances("seller");
+            assertEquals(0, buyer.get("BRL").compareTo(new BigDecimal("840")));
+            assertEquals(0, buyer.get("BTC").compareTo(new BigDecimal("1.5")));
+            assertEquals(0, seller.get("BRL").compareTo(new BigDecimal("150")));
+            assertEquals(0, seller.get("ETH").compareTo(BigDecimal.ONE));
+
+            assertEquals(1, service.getOpenSellOrders(BTC_BRL).size());
+            assertEquals(resting, service.getOpenBuyOrders(ETH_BRL).get(0).getId());
+
+            String next = service.placeOrder(new Order("buyer", ETH_BRL, OrderType.BUY, new BigDecimal("10"), BigDecimal.ONE));
+            assertTrue(Long.parseLong(next) > Long.parseLong(resting));
+        }
+    }
+
+    @Test
+    void testRestartReplaysImmediateOrders() {
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("buyer");
+            service.registerAccount("seller");
+            service.credit("buyer", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", new BigDecimal("2"));
+            service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+            service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("110"), BigDecimal.ONE));
+
+            service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, null, new BigDecimal("1.5"))
+                    .withExecution(ExecutionType.MARKET, TimeInForce.IOC));
+            service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("120"), BigDecimal.ONE)
+                    .withExecution(ExecutionType.LIMIT, TimeInForce.IOC));
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            assertTrue(service.getOpenSellOrders(BTC_BRL).isEmpty());
+            assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+            assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("790")));
+            assertEquals(0, service.getBalances("buyer").get("BTC").compareTo(new BigDecimal("2")));
+            assertEquals(0, service.getBalances("seller").get("BRL").compareTo(new BigDecimal("210")));
+        }
+    }
+
+    @Test
+    void testRestartReplaysAmends() {
+        String reduced;
+        String replaced;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("buyer");
+            service.registerAccount("seller");
+            service.credit("buyer", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", new BigDecimal("3"));
+            reduced = service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+            String bid = service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("80"), BigDecimal.ONE));
+
+            service.amendOrder(reduced, null, BigDecimal.ONE);
+            replaced = service.amendOrder(bid, new BigDecimal("90"), new BigDecimal("2"));
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            assertEquals(reduced, service.getOpenSellOrders(BTC_BRL).get(0).getId());
+            assertEquals(0, service.getOpenSellOrders(BTC_BRL).get(0).getQuantity().compareTo(BigDecimal.ONE));
+            assertEquals(replaced, service.getOpenBuyOrders(BTC_BRL).get(0).getId());
+            assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("820")));
+            assertEquals(0, service.getBalances("seller").get("BTC").compareTo(new BigDecimal("2")));
+        }
+    }
+
+    @Test
+    void testPostOnlySurvivesRestartFromJournalAndSnapshot() {
+        String journaled;
+        String snapshotted;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("maker");
+            service.credit("maker", "BRL", new BigDecimal("1000"));
+            service.credit("maker", "BTC", new BigDecimal("1"));
+            service.placeOrder(new Order("maker", BTC_BRL, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+            snapshotted = service.placeOrder(new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("90"), BigDecimal.ONE)
+                    .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC));
+            service.takeSnapshot();
+            journaled = service.placeOrder(new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("95"), BigDecimal.ONE)
+                    .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC));
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            for (String id : List.of(journaled, snapshotted)) {
+                assertThrows(IllegalStateException.class, () -> service.amendOrder(id, new BigDecimal("100"), null));
+            }
+            assertTrue(service.getOpenBuyOrders(BTC_BRL).stream()
+                    .allMatch(order -> order.getExecutionType() == ExecutionType.POST_ONLY));
+        }
+    }
+
+    @Test
+    void testRestartLoadsSnapshotAndReplaysTheRest() {
+        String resting;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("buyer");
+            service.registerAccount("seller");
+            service.credit("buyer", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", new BigDecimal("3"));
+            service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+            resting = service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+
+            long snapshot = service.takeSnapshot();
+            assertTrue(snapshot > 0);
+            assertEquals(snapshot, service.takeSnapshot());
+
+            service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("100"), new BigDecimal("2.5")));
+            assertTrue(service.takeSnapshot() > snapshot);
+            service.credit("buyer", "BRL", new BigDecimal("5"));
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            Map<String, BigDecimal> buyer = service.getBalances("buyer");
+            assertEquals(0, buyer.get("BRL").compareTo(new BigDecimal("755")));
+            assertEquals(0, buyer.get("BTC").compareTo(new BigDecimal("2.5")));
+            assertEquals(0, service.getBalances("seller").get("BRL").compareTo(new BigDecimal("250")));
+
+            List<Order> asks = service.getOpenSellOrders(BTC_BRL);
+            assertEquals(1, asks.size());
+            assertEquals(resting, asks.get(0).getId());
+            assertEquals(0, asks.get(0).getQuantity().compareTo(new BigDecimal("0.5")));
+        }
+    }
+
+    @Test
+    void testBatchIsReplayedWithSingleMatch() {
+        List<Order> bids;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("maker");
+            service.registerAccount("seller");
+            service.credit("maker", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", BigDecimal.ONE);
+            service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("99"), BigDecimal.ONE));
+            // Sozinha, a primeira compra executaria contra a venda a 99; no lote, a de 101 tem prioridade.
+            service.placeOrders(List.of(
+                    new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE),
+                    new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("101"), BigDecimal.ONE)));
+            bids = service.getOpenBuyOrders(BTC_BRL);
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            List<Order> replayed = service.getOpenBuyOrders(BTC_BRL);
+            assertEquals(1, replayed.size());
+            assertEquals(bids.get(0).getId(), replayed.get(0).getId());
+            assertEquals(0, replayed.get(0).getPrice().compareTo(new BigDecimal("100")));
+        }
+    }
+
+    @Test
+    void testRestartRestoresPendingStopsAndReplaysTheirTriggers() {
+        String triggered;
+        String pending;
+        String hash;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("holder");
+            service.registerAccount("bidder");
+            service.registerAccount("taker");
+            service.credit("taker", "BTC", BigDecimal.ONE);
+            service.credit("holder", "BTC", new BigDecimal("2"));
+            service.credit("bidder", "BRL", new BigDecimal("1000"));
+            triggered = service.placeOrder(new Order("holder", BTC_BRL, OrderType.SELL, null, BigDecimal.ONE)
+                    .withExecution(ExecutionType.MARKET, TimeInForce.IOC).withStop(new BigDecimal("95")));
+            pending = service.placeOrder(new Order("holder", BTC_BRL, OrderType.SELL, new BigDecimal("80"), BigDecimal.ONE)
+                    .withStop(new BigDecimal("85")));
+            service.placeOrder(new Order("bidder", BTC_BRL, OrderType.BUY, new BigDecimal("95"), BigDecimal.ONE));
+            service.placeOrder(new Order("bidder", BTC_BRL, OrderType.BUY, new BigDecimal("90"), BigDecimal.ONE));
+            service.takeSnapshot();
+            // O disparo vai para o journal depois da venda, como a ordem a mercado da stop.
+            service.placeOrder(new Order("taker", BTC_BRL, OrderType.SELL, new BigDecimal("95"), BigDecimal.ONE));
+            hash = service.stateHash();
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            assertEquals(hash, service.stateHash());
+            List<Order> stops = service.getSellStopOrders(BTC_BRL);
+            assertEquals(1, stops.size());
+            assertEquals(pending, stops.get(0).getId());
+            assertEquals(0, service.getBalances("holder").get("BRL").compareTo(new BigDecimal("90")));
+            assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+            assertTrue(Long.parseLong(service.placeOrder(new Order("holder", BTC_BRL, OrderType.SELL,
+                    new BigDecimal("200"), BigDecimal.ONE))) > Long.parseLong(triggered));
+        }
+    }
+
+    @Test
+    void testStopDroppedForLackOfBalanceStaysDroppedAfterRestart() {
+        String hash;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerAccount("holder");
+            service.registerAccount("bidder");
+            service.registerAccount("taker");
+            service.credit("taker", "BTC", BigDecimal.ONE);
+            service.credit("bidder", "BRL", new BigDecimal("1000"));
+            service.placeOrder(new Order("holder", BTC_BRL, OrderType.SELL, null, BigDecimal.ONE)
+                    .withExecution(ExecutionType.MARKET, TimeInForce.IOC).withStop(new BigDecimal("95")));
+            service.placeOrder(new Order("bidder", BTC_BRL, OrderType.BUY, new BigDecimal("95"), BigDecimal.ONE));
+            service.placeOrder(new Order("bidder", BTC_BRL, OrderType.BUY, new BigDecimal("90"), BigDecimal.ONE));
+            service.placeOrder(new Order("taker", BTC_BRL, OrderType.SELL, new BigDecimal("95"), BigDecimal.ONE));
+            // Sem BTC no disparo, a stop foi descartada; a reaplicação não confere saldo e não pode redispará-la.
+            service.credit("holder", "BTC", BigDecimal.ONE);
+            hash = service.stateHash();
+        }
+
+        try (OrderBookService service = open(EngineMode.DIRECT)) {
+            assertEquals(hash, service.stateHash());
+            assertTrue(service.getSellStopOrders(BTC_BRL).isEmpty());
+            assertEquals(0, service.getBalances("holder").get("BTC").compareTo(BigDecimal.ONE));
+            assertEquals(1, service.getOpenBuyOrders(BTC_BRL).size());
+        }
+    }
+
+    @Test
+    void testConcurrentBooksAndLedgerReplayToTheSameState() {
+        String hash;
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            service.registerInstrument(ETH_BRL);
+            service.registerAccount("maker");
+            service.registerAccount("trader");
+            service.credit("maker", "BRL", new BigDecimal("1000000"));
+            service.credit("trader", "BTC", new BigDecimal("1000"));
+            long credit = service.getAssetScales().toUnits("BRL", new BigDecimal("20"));
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                // A venda de BTC e o crédito pagam a compra de ETH, no outro livro e em outra thread.
+                pending.add(service.placeOrderAsync(new Order("maker", BTC_BRL, OrderType.BUY, new BigDecimal("30"), BigDecimal.ONE)));
+                pending.add(service.placeOrderAsync(new Order("trader", BTC_BRL, OrderType.SELL, new BigDecimal("30"), BigDecimal.ONE)));
+                pending.add(service.creditAsync("trader", "BRL", credit));
+                pending.add(service.placeOrderAsync(new Order("trader", ETH_BRL, OrderType.BUY, new BigDecimal("50"), BigDecimal.ONE)));
+            }
+            // Compras sem saldo no momento são recusadas e não entram no journal.
+            CompletableFuture.allOf(pending.stream().map(f -> f.handle((r, e) -> null))
+                    .toArray(CompletableFuture<?>[]::new)).join();
+            hash = service.stateHash();
+        }
+
+        try (OrderBookService service = open(EngineMode.SEQUENCED)) {
+            assertEquals(hash, service.stateHash());
+        }
+    }
+}
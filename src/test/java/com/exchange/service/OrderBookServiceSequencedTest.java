@@ -0,0 +1,166 @@
+package com.exchange.service;
+
+import com.exchange.config.EngineProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.engine.PlaceListener;
+import com.exchange.engine.RejectReason;
+import com.exchange.model.ExecutionType;
+import com.exchange.model.Instrument;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookServiceSequencedTest {
+
+    private final Instrument btc = new Instrument("BTC", "BRL");
+    private OrderBookService service;
+
+    @BeforeEach
+    void setup() {
+        EngineProperties properties = new EngineProperties();
+        properties.setMode(EngineMode.SEQUENCED);
+        properties.setRingSize(1024);
+        service = new OrderBookService(properties);
+    }
+
+    @AfterEach
+    void teardown() {
+        service.close();
+    }
+
+    @Test
+    void testPlaceOrderAsyncCompletesWithId() {
+        service.registerAccount("buyer");
+        service.credit("buyer", "BRL", new BigDecimal("100000"));
+
+        CompletableFuture<String> future = service.placeOrderAsync(
+                new Order("buyer", btc, OrderType.BUY, new BigDecimal("50000"), BigDecimal.ONE));
+
+        String id = future.join();
+        assertEquals(id, service.getOpenBuyOrders(btc).get(0).getId());
+        assertTrue(service.cancelOrder(id));
+        assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("100000")));
+    }
+
+    @Test
+    void testContinuationsDoNotRunOnTheBookThread() {
+        service.registerAccount("buyer");
+        service.credit("buyer", "BRL", new BigDecimal("100000"));
+
+        List<CompletableFuture<String>> threads = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            threads.add(service.placeOrderAsync(new Order("buyer", btc, OrderType.BUY, new BigDecimal("10"), BigDecimal.ONE))
+                    .thenApply(id -> Thread.currentThread().getName()));
+        }
+
+        for (CompletableFuture<String> thread : threads) {
+            assertFalse(thread.join().startsWith("sequencer-"), thread.join());
+        }
+    }
+
+    @Test
+    void testPrimitivePlaceReportsIdsAndRejectCodes() throws InterruptedException {
+        service.registerAccount("buyer");
+        service.credit("buyer", "BRL", new BigDecimal("100"));
+        int buyer = service.accountIndex("buyer");
+        Map<Long, Object> results = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(4);
+        PlaceListener listener = new PlaceListener() {
+            @Override
+            public void onAccepted(long correlationId, long orderId) {
+                results.put(correlationId, orderId);
+                done.countDown();
+            }
+
+            @Override
+            public void onRejected(long correlationId, RejectReason reason) {
+                results.put(correlationId, reason);
+                done.countDown();
+            }
+        };
+
+        service.placeOrder(buyer, 0, OrderType.BUY, ExecutionType.LIMIT, TimeInForce.GTC, 5_000, 1_000_000, 1, listener);
+        service.placeOrder(buyer, 0, OrderType.BUY, ExecutionType.LIMIT, TimeInForce.GTC, 5_000, 3_000_000, 2, listener);
+        service.placeOrder(buyer + 1, 0, OrderType.BUY, ExecutionType.LIMIT, TimeInForce.GTC, 5_000, 1_000_000, 3, listener);
+        service.placeOrder(buyer, 7, OrderType.BUY, ExecutionType.LIMIT, TimeInForce.GTC, 5_000, 1_000_000, 4, listener);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(service.getOpenBuyOrders(btc).get(0).getId(), String.valueOf(results.get(1L)));
+        assertEquals(RejectReason.REFUSED, results.get(2L));
+        assertEquals(RejectReason.INVALID, results.get(3L));
+        assertEquals(RejectReason.INVALID, results.get(4L));
+    }
+
+    @Test
+    void testRejectionsSurfaceAsCallerExceptions() {
+        service.registerAccount("buyer");
+
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(
+                new Order("buyer", btc, OrderType.BUY, new BigDecimal("50000"), BigDecimal.ONE)));
+        assertThrows(IllegalStateException.class, () -> service.debit("buyer", "BRL", BigDecimal.ONE));
+    }
+
+    @Test
+    void testConcurrentTradingConservesBalances() throws Exception {
+        int traders = 8;
+        int ordersPerTrader = 500;
+        for (int t = 0; t < traders; t++) {
+            service.registerAccount("t" + t);
+            service.credit("t" + t, "BRL", new BigDecimal("1000000"));
+            service.credit("t" + t, "BTC", new BigDecimal("100"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(traders);
+        List<CompletableFuture<?>> results = new ArrayList<>();
+        for (int t = 0; t < traders; t++) {
+            String account = "t" + t;
+            OrderType side = t % 2 == 0 ? OrderType.BUY : OrderType.SELL;
+            results.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < ordersPerTrader; i++) {
+                    String id = service.placeOrder(new Order(account, btc, side,
+                            new BigDecimal("100"), new BigDecimal("0.1")));
+                    if (i % 3 == 0) {
+                        service.cancelOrder(id);
+                    }
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        for (Order order : service.getOpenBuyOrders(btc)) {
+            service.cancelOrder(order.getId());
+        }
+        for (Order order : service.getOpenSellOrders(btc)) {
+            service.cancelOrder(order.getId());
+        }
+
+        BigDecimal brl = BigDecimal.ZERO;
+        BigDecimal btcTotal = BigDecimal.ZERO;
+        for (int t = 0; t < traders; t++) {
+            brl = brl.add(service.getBalances("t" + t).getOrDefault("BRL", BigDecimal.ZERO));
+            btcTotal = btcTotal.add(service.getBalances("t" + t).getOrDefault("BTC", BigDecimal.ZERO));
+        }
+        assertEquals(0, brl.compareTo(new BigDecimal(1000000L * traders)));
+        assertEquals(0, btcTotal.compareTo(new BigDecimal(100 * traders)));
+    }
+}
@@ -1,17 +1,30 @@
 package com.exchange.service;
 
+import com.exchange.marketdata.DepthSnapshot;
+import com.exchange.metrics.InstrumentMetrics;
+import com.exchange.model.Balance;
+import com.exchange.model.ExecutionType;
 import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
 import com.exchange.model.Order;
+import com.exchange.model.OrderResult;
 import com.exchange.model.OrderType;
+import com.exchange.model.TimeInForce;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -121,6 +134,143 @@ class OrderBookServiceTest {
         assertEquals(0, service.getBalances("seller").get("BRL").compareTo(new BigDecimal("50000.00")));
     }
 
+    @Test
+    void testOrderMatching_SamePriceFillsInArrivalOrder() {
+        service.registerAccount("first");
+        service.registerAccount("second");
+        service.registerAccount("buyer");
+
+        service.credit("first", "BTC", new BigDecimal("1"));
+        service.credit("second", "BTC", new BigDecimal("1"));
+        service.credit("buyer", "BRL", new BigDecimal("50000"));
+
+        service.placeOrder(new Order("first", new Instrument("BTC", "BRL"), OrderType.SELL,
+                new BigDecimal("50000"), new BigDecimal("1")));
+        String secondId = service.placeOrder(new Order("second", new Instrument("BTC", "BRL"), OrderType.SELL,
+                new BigDecimal("50000"), new BigDecimal("1")));
+
+        service.placeOrder(new Order("buyer", new Instrument("BTC", "BRL"), OrderType.BUY,
+                new BigDecimal("50000"), new BigDecimal("1")));
+
+        assertEquals(0, service.getBalances("first").get("BRL").compareTo(new BigDecimal("50000")));
+        assertNull(service.getBalances("second").get("BRL"));
+        assertEquals(1, service.getOpenSellOrders().size());
+        assertEquals(secondId, service.getOpenSellOrders().get(0).getId());
+    }
+
+    @Test
+    void testInstrumentsHaveIndependentBooks() {
+        Instrument eth = new Instrument("ETH", "BRL");
+        service.registerInstrument(eth);
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("100000"));
+        service.credit("seller", "ETH", new BigDecimal("1"));
+
+        service.placeOrder(new Order("seller", eth, OrderType.SELL,
+                new BigDecimal("10000"), new BigDecimal("1")));
+        service.placeOrder(new Order("buyer", new Instrument("BTC", "BRL"), OrderType.BUY,
+                new BigDecimal("10000"), new BigDecimal("1")));
+
+        assertEquals(1, service.getOpenSellOrders(eth).size());
+        assertEquals(1, service.getOpenBuyOrders(new Instrument("BTC", "BRL")).size());
+        assertTrue(service.getOpenBuyOrders(eth).isEmpty());
+
+        service.placeOrder(new Order("buyer", eth, OrderType.BUY,
+                new BigDecimal("10000"), new BigDecimal("1")));
+
+        assertEquals(0, service.getBalances("buyer").get("ETH").compareTo(BigDecimal.ONE));
+        assertTrue(service.getOpenSellOrders(eth).isEmpty());
+        assertEquals(1, service.getOpenBuyOrders().size());
+    }
+
+    @Test
+    void testCancelOrder_RoutesToInstrumentBook() {
+        Instrument eth = new Instrument("ETH", "BRL");
+        service.registerInstrument(eth);
+        service.registerAccount("seller");
+        service.credit("seller", "ETH", new BigDecimal("2"));
+
+        String orderId = service.placeOrder(new Order("seller", eth, OrderType.SELL,
+                new BigDecimal("10000"), new BigDecimal("2")));
+
+        assertFalse(service.cancelOrder(new Instrument("BTC", "BRL"), orderId));
+        assertTrue(service.cancelOrder(orderId));
+        assertEquals(0, service.getBalances("seller").get("ETH").compareTo(new BigDecimal("2")));
+    }
+
+    @Test
+    void testPlaceOrder_UnlistedInstrument_ThrowsException() {
+        service.registerAccount("user");
+        service.credit("user", "BRL", new BigDecimal("100000"));
+
+        Order order = new Order("user", new Instrument("DOGE", "BRL"), OrderType.BUY,
+                new BigDecimal("1"), new BigDecimal("1"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.placeOrder(order));
+        assertEquals(0, service.getBalances("user").get("BRL").compareTo(new BigDecimal("100000")));
+    }
+
+    @Test
+    void testPlaceOrder_PriceOffTickGrid_ThrowsException() {
+        service.registerAccount("user");
+        service.credit("user", "BRL", new BigDecimal("100000"));
+
+        Order order = new Order("user", new Instrument("BTC", "BRL"), OrderType.BUY,
+                new BigDecimal("50000.005"), new BigDecimal("1"));
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> service.placeOrder(order));
+        assertEquals("Preço fora da grade de ticks: 50000.005", exception.getMessage());
+        assertEquals(0, service.getBalances("user").get("BRL").compareTo(new BigDecimal("100000")));
+    }
+
+    @Test
+    void testPlaceOrder_QuantityBelowLot_ThrowsException() {
+        service.registerAccount("user");
+        service.credit("user", "BRL", new BigDecimal("100000"));
+
+        Order order = new Order("user", new Instrument("BTC", "BRL"), OrderType.BUY,
+                new BigDecimal("50000"), new BigDecimal("0.0000001"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.placeOrder(order));
+    }
+
+    @Test
+    void testPlaceOrder_NotionalOverflow_ThrowsException() {
+        service.registerAccount("user");
+        service.credit("user", "BRL", new BigDecimal("1"));
+
+        Order order = new Order("user", new Instrument("BTC", "BRL"), OrderType.BUY,
+                new BigDecimal("90000000000"), new BigDecimal("1000000"));
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> service.placeOrder(order));
+        assertEquals("Valor excede o limite representável.", exception.getMessage());
+    }
+
+    @Test
+    void testInstrumentSpecWithCustomTickAndLot() {
+        Instrument eth = new Instrument("ETH", "BRL");
+        service.registerInstrument(new InstrumentSpec(eth, new BigDecimal("0.5"), new BigDecimal("0.01"),
+                service.getAssetScales()));
+        service.registerAccount("seller");
+        service.credit("seller", "ETH", new BigDecimal("1"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.placeOrder(
+                new Order("seller", eth, OrderType.SELL, new BigDecimal("100.25"), new BigDecimal("0.5"))));
+
+        service.placeOrder(new Order("seller", eth, OrderType.SELL, new BigDecimal("100.5"), new BigDecimal("0.5")));
+        assertEquals(0, service.getBalances("seller").get("ETH").compareTo(new BigDecimal("0.5")));
+        assertEquals(201, service.getOpenSellOrders(eth).get(0).getPriceTicks());
+    }
+
+    @Test
+    void testCredit_MoreDecimalsThanAssetScale_ThrowsException() {
+        service.registerAccount("user");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.credit("user", "BRL", new BigDecimal("0.000000001")));
+    }
+
     @Test
     void testValidationFails_InvalidData() {
         assertThrows(NullPointerException.class, () -> {
@@ -255,4 +405,582 @@ class OrderBookServiceTest {
 
         assertEquals("Saldo insuficiente para débito.", exception.getMessage());
     }
+
+    @Test
+    void testPlaceOrdersBatch_ResultsPerOrderAndSingleMatch() {
+        service.registerAccount("maker");
+        service.registerAccount("taker");
+        service.credit("maker", "BTC", new BigDecimal("3"));
+        service.credit("taker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+
+        List<OrderResult> results = service.placeOrders(List.of(
+                new Order("maker", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE),
+                new Order("maker", btc, OrderType.SELL, new BigDecimal("-1"), BigDecimal.ONE),
+                new Order("maker", btc, OrderType.SELL, new BigDecimal("101"), BigDecimal.ONE),
+                new Order("taker", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE)));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isAccepted());
+        assertEquals("Preço deve ser positivo.", results.get(1).error());
+        assertTrue(results.get(2).isAccepted());
+        assertTrue(results.get(3).isAccepted());
+
+        List<Order> asks = service.getOpenSellOrders();
+        assertEquals(1, asks.size());
+        assertEquals(results.get(2).orderId(), asks.get(0).getId());
+        assertEquals(0, service.getBalances("taker").get("BTC").compareTo(BigDecimal.ONE));
+        assertEquals(0, service.getBalances("maker").get("BRL").compareTo(new BigDecimal("100")));
+    }
+
+    @Test
+    void testPlaceOrdersBatch_ReservationCheckedForWholeBatch() {
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("150"));
+        Instrument btc = new Instrument("BTC", "BRL");
+
+        List<OrderResult> results = service.placeOrders(List.of(
+                new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE),
+                new Order("maker", btc, OrderType.BUY, new BigDecimal("99"), BigDecimal.ONE)));
+
+        assertTrue(results.stream().noneMatch(OrderResult::isAccepted));
+        assertEquals("Saldo insuficiente para o lote.", results.get(0).error());
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+        assertEquals(0, service.getBalances("maker").get("BRL").compareTo(new BigDecimal("150")));
+    }
+
+    @Test
+    void testBuyFilledBelowLimitReleasesPriceImprovement() {
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+        service.credit("seller", "BTC", new BigDecimal("1"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("90"), new BigDecimal("0.5")));
+
+        service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+
+        // 0,5 executado a 90 (45), 0,5 em aberto a 100 (50 bloqueados), sobra 905.
+        Balance brl = service.getBalanceSheet("buyer").get("BRL");
+        assertEquals(90500000000L, brl.available());
+        assertEquals(5000000000L, brl.held());
+        assertEquals(95500000000L, brl.total());
+        assertEquals(0, service.getBalances("buyer").get("BTC").compareTo(new BigDecimal("0.5")));
+        Balance sold = service.getBalanceSheet("seller").get("BTC");
+        assertEquals(50000000L, sold.available());
+        assertEquals(0, sold.held());
+    }
+
+    @Test
+    void testCancelPartiallyFilledOrderReleasesRemainingHold() {
+        service.registerAccount("maker");
+        service.registerAccount("taker");
+        service.credit("maker", "BTC", new BigDecimal("2"));
+        service.credit("taker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String ask = service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+        service.placeOrder(new Order("taker", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("0.5")));
+
+        assertEquals(150000000L, service.getBalanceSheet("maker").get("BTC").held());
+        assertTrue(service.cancelOrder(ask));
+
+        Balance remaining = service.getBalanceSheet("maker").get("BTC");
+        assertEquals(150000000L, remaining.available());
+        assertEquals(0, remaining.held());
+        assertEquals(0, service.getBalanceSheet("taker").get("BRL").held());
+    }
+
+    @Test
+    void testAmendQuantityDownKeepsIdAndQueuePriority() {
+        service.registerAccount("first");
+        service.registerAccount("second");
+        service.registerAccount("taker");
+        service.credit("first", "BTC", new BigDecimal("2"));
+        service.credit("second", "BTC", new BigDecimal("1"));
+        service.credit("taker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String first = service.placeOrder(new Order("first", btc, OrderType.SELL, new BigDecimal("100"), new BigDecimal("2")));
+        service.placeOrder(new Order("second", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+
+        assertEquals(first, service.amendOrder(first, null, new BigDecimal("0.5")));
+
+        Balance held = service.getBalanceSheet("first").get("BTC");
+        assertEquals(150000000L, held.available());
+        assertEquals(50000000L, held.held());
+        // Continua na frente da fila: a compra de 0,5 executa contra ela.
+        service.placeOrder(new Order("taker", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("0.5")));
+        assertEquals(0, service.getBalances("first").get("BRL").compareTo(new BigDecimal("50")));
+        assertEquals(1, service.getOpenSellOrders().size());
+        assertEquals(0, service.getBalanceSheet("first").get("BTC").held());
+    }
+
+    @Test
+    void testAmendPriceReplacesOrderAndMatches() {
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+        service.credit("seller", "BTC", new BigDecimal("1"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String bid = service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("90"), new BigDecimal("2")));
+        service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+        assertEquals(18000000000L, service.getBalanceSheet("buyer").get("BRL").held());
+
+        String replaced = service.amendOrder(bid, new BigDecimal("100"), null);
+
+        assertTrue(Long.parseLong(replaced) > Long.parseLong(bid));
+        assertFalse(service.cancelOrder(bid));
+        // 1 executado a 100, 1 em aberto a 100.
+        Balance brl = service.getBalanceSheet("buyer").get("BRL");
+        assertEquals(80000000000L, brl.available());
+        assertEquals(10000000000L, brl.held());
+        assertEquals(replaced, service.getOpenBuyOrders().get(0).getId());
+        assertTrue(service.getOpenSellOrders().isEmpty());
+    }
+
+    @Test
+    void testAmendWithoutBalanceKeepsOriginalOrder() {
+        service.registerAccount("buyer");
+        service.credit("buyer", "BRL", new BigDecimal("100"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String bid = service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("50"), BigDecimal.ONE));
+
+        assertThrows(IllegalStateException.class, () -> service.amendOrder(bid, null, new BigDecimal("3")));
+        assertThrows(IllegalArgumentException.class, () -> service.amendOrder(bid, BigDecimal.ZERO, null));
+        assertThrows(IllegalStateException.class, () -> service.amendOrder("999999", null, BigDecimal.ONE));
+
+        assertEquals(bid, service.getOpenBuyOrders().get(0).getId());
+        assertEquals(5000000000L, service.getBalanceSheet("buyer").get("BRL").held());
+        assertEquals(5000000000L, service.getBalanceSheet("buyer").get("BRL").available());
+    }
+
+    @Test
+    void testImmediateOrCancelFillsWhatItCanAndNeverRests() {
+        service.registerAccount("maker");
+        service.registerAccount("taker");
+        service.credit("maker", "BTC", new BigDecimal("1"));
+        service.credit("taker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("90"), new BigDecimal("1")));
+
+        service.placeOrder(new Order("taker", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("3"))
+                .withExecution(ExecutionType.LIMIT, TimeInForce.IOC));
+
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+        assertTrue(service.getOpenSellOrders().isEmpty());
+        Balance brl = service.getBalanceSheet("taker").get("BRL");
+        assertEquals(91000000000L, brl.available());
+        assertEquals(0, brl.held());
+        assertEquals(0, service.getBalances("taker").get("BTC").compareTo(BigDecimal.ONE));
+        assertEquals(0, service.getBalances("maker").get("BRL").compareTo(new BigDecimal("90")));
+    }
+
+    @Test
+    void testFillOrKillChecksLiquidityBeforeTouchingTheBook() {
+        service.registerAccount("maker");
+        service.registerAccount("taker");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        service.credit("taker", "BTC", new BigDecimal("5"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("1")));
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("95"), new BigDecimal("1")));
+
+        Exception killed = assertThrows(IllegalStateException.class, () -> service.placeOrder(
+                new Order("taker", btc, OrderType.SELL, new BigDecimal("95"), new BigDecimal("3"))
+                        .withExecution(ExecutionType.LIMIT, TimeInForce.FOK)));
+        assertEquals("Liquidez insuficiente para executar a ordem inteira.", killed.getMessage());
+        assertEquals(2, service.getOpenBuyOrders().size());
+        assertEquals(0, service.getBalances("taker").get("BTC").compareTo(new BigDecimal("5")));
+
+        service.placeOrder(new Order("taker", btc, OrderType.SELL, new BigDecimal("95"), new BigDecimal("2"))
+                .withExecution(ExecutionType.LIMIT, TimeInForce.FOK));
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+        // Executa ao preço de cada ordem em repouso.
+        assertEquals(0, service.getBalances("taker").get("BRL").compareTo(new BigDecimal("195")));
+    }
+
+    @Test
+    void testMarketBuyHoldsOnlyWhatItExecutes() {
+        service.registerAccount("maker");
+        service.registerAccount("taker");
+        service.credit("maker", "BTC", new BigDecimal("2"));
+        service.credit("taker", "BRL", new BigDecimal("250"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+        service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("120"), BigDecimal.ONE));
+
+        service.placeOrder(new Order("taker", btc, OrderType.BUY, null, new BigDecimal("2"))
+                .withExecution(ExecutionType.MARKET, TimeInForce.IOC));
+
+        assertEquals(0, service.getBalances("taker").get("BRL").compareTo(new BigDecimal("30")));
+        assertEquals(0, service.getBalances("taker").get("BTC").compareTo(new BigDecimal("2")));
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(
+                new Order("taker", btc, OrderType.BUY, null, BigDecimal.ONE).withExecution(ExecutionType.MARKET, TimeInForce.IOC)));
+    }
+
+    @Test
+    void testPostOnlyRejectedWhenItWouldCross() {
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        service.credit("maker", "BTC", new BigDecimal("1"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(
+                new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE)
+                        .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC)));
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("99"), BigDecimal.ONE)
+                .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC));
+
+        assertEquals(1, service.getOpenBuyOrders().size());
+        assertEquals(0, service.getBalances("maker").get("BRL").compareTo(new BigDecimal("901")));
+        assertThrows(IllegalArgumentException.class, () -> new Order("maker", btc, OrderType.BUY, BigDecimal.TEN, BigDecimal.ONE)
+                .withExecution(ExecutionType.POST_ONLY, TimeInForce.IOC));
+    }
+
+    @Test
+    void testAmendedPostOnlyStaysPostOnly() {
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        service.credit("maker", "BTC", new BigDecimal("1"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+        String bid = service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("99"), BigDecimal.ONE)
+                .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> service.amendOrder(bid, new BigDecimal("100"), null));
+        assertEquals("Ordem post-only executaria na entrada.", error.getMessage());
+        assertEquals(bid, service.getOpenBuyOrders().get(0).getId());
+        assertEquals(1, service.getOpenSellOrders().size());
+
+        String replaced = service.amendOrder(bid, new BigDecimal("98"), null);
+        assertEquals(ExecutionType.POST_ONLY, service.getOpenBuyOrders().get(0).getExecutionType());
+        assertThrows(IllegalStateException.class, () -> service.amendOrder(replaced, new BigDecimal("101"), null));
+    }
+
+    @Test
+    void testCancelOrdersBatch() {
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String first = service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        String second = service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("99"), BigDecimal.ONE));
+
+        assertEquals(List.of(true, false, true), service.cancelOrders(List.of(first, "999", second)));
+        assertTrue(service.getOpenBuyOrders().isEmpty());
+        assertEquals(0, service.getBalances("maker").get("BRL").compareTo(new BigDecimal("1000")));
+    }
+
+    @Test
+    void testCancelAll_FiltersByAccountAndSide() {
+        service.registerAccount("maker");
+        service.registerAccount("other");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        service.credit("maker", "BTC", new BigDecimal("2"));
+        service.credit("other", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String bid = service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("90"), BigDecimal.ONE));
+        String ask = service.placeOrder(new Order("maker", btc, OrderType.SELL, new BigDecimal("110"), BigDecimal.ONE));
+        String otherBid = service.placeOrder(new Order("other", btc, OrderType.BUY, new BigDecimal("90"), BigDecimal.ONE));
+
+        assertEquals(List.of(ask), service.cancelAll("maker", btc, OrderType.SELL));
+        assertEquals(List.of(bid), service.cancelAll("maker", null, null));
+        assertEquals(List.of(otherBid), service.getOpenBuyOrders().stream().map(Order::getId).toList());
+        assertThrows(IllegalArgumentException.class, () -> service.cancelAll("ghost", null, null));
+    }
+
+    @Test
+    void testGetDepth_AggregatesLevelsFromCachedSnapshot() {
+        service.registerAccount("maker");
+        service.credit("maker", "BRL", new BigDecimal("1000"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("2")));
+        service.placeOrder(new Order("maker", btc, OrderType.BUY, new BigDecimal("99"), BigDecimal.ONE));
+
+        DepthSnapshot depth = service.getDepth(btc, 1);
+
+        assertEquals(3, depth.sequence());
+        assertEquals(1, depth.bids().size());
+        assertEquals(0, depth.bids().get(0).quantity().compareTo(new BigDecimal("3")));
+        assertEquals(2, depth.bids().get(0).orders());
+        assertTrue(depth.asks().isEmpty());
+        assertEquals(2, service.getDepth(btc, 1_000).bids().size());
+        assertThrows(IllegalArgumentException.class, () -> service.getDepth(btc, 0));
+    }
+
+    @Test
+    void testFillsArePublishedAsTradeEvents() throws InterruptedException {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        service.getTradeEvents().subscribe("test", event -> events.add(event.getTakerSide() + " taker="
+                + event.getTakerOrderId() + " maker=" + event.getMakerOrderId() + " lots=" + event.getQuantityLots()));
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+        service.credit("seller", "BTC", new BigDecimal("1"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        String sell = service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+        String buy = service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("0.5")));
+
+        assertEquals("BUY taker=" + buy + " maker=" + sell + " lots=500000", events.poll(5, TimeUnit.SECONDS));
+        service.close();
+    }
+
+    @Test
+    void testMetricsCountOrdersFillsCancelsAndRejects() {
+        service.registerAccount("buyer");
+        service.registerAccount("seller");
+        service.credit("buyer", "BRL", new BigDecimal("1000"));
+        service.credit("seller", "BTC", new BigDecimal("2"));
+        Instrument btc = new Instrument("BTC", "BRL");
+        service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE));
+        String resting = service.placeOrder(new Order("seller", btc, OrderType.SELL, new BigDecimal("110"), BigDecimal.ONE));
+        service.placeOrder(new Order("buyer", btc, OrderType.BUY, new BigDecimal("100"), BigDecimal.ONE));
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(
+                new Order("buyer", btc, OrderType.BUY, new BigDecimal("100"), new BigDecimal("100"))));
+        assertTrue(service.cancelOrder(resting));
+
+        InstrumentMetrics metrics = service.getMetrics().instrument(btc);
+        assertEquals(3, metrics.orders());
+        assertEquals(1, metrics.fills());
+        assertEquals(1, metrics.cancels());
+        assertEquals(1, metrics.rejects());
+        assertEquals(0, metrics.openOrders());
+        assertEquals(4, metrics.matching().snapshot().count());
+        assertEquals(4, service.getMetrics().response().snapshot().count());
+        assertTrue(service.getMetrics().toText().contains("exchange_fills_total{instrument=\"BTC/BRL\"} 1"));
+    }
+
+    private static final Instrument BTC_BRL = new Instrument("BTC", "BRL");
+
+    private static Order stopLoss(String account, OrderType side, String stopPrice, String quantity) {
+        return new Order(account, BTC_BRL, side, null, new BigDecimal(quantity))
+                .withExecution(ExecutionType.MARKET, TimeInForce.IOC)
+                .withStop(new BigDecimal(stopPrice));
+    }
+
+    private void fund(String account, String asset, String amount) {
+        if (!service.hasAccount(account)) service.registerAccount(account);
+        service.credit(account, asset, new BigDecimal(amount));
+    }
+
+    private String bid(String account, String price) {
+        return service.placeOrder(new Order(account, BTC_BRL, OrderType.BUY, new BigDecimal(price), BigDecimal.ONE));
+    }
+
+    private void sell(String account, String price) {
+        service.placeOrder(new Order(account, BTC_BRL, OrderType.SELL, new BigDecimal(price), BigDecimal.ONE));
+    }
+
+    @Test
+    void testCrossingSellFillsAtTheBidPriceWhateverTheTimeInForce() {
+        fund("bidder", "BRL", "1000");
+        fund("seller", "BTC", "2");
+        bid("bidder", "100");
+        bid("bidder", "100");
+
+        service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("95"), BigDecimal.ONE)
+                .withExecution(ExecutionType.LIMIT, TimeInForce.IOC));
+        service.placeOrder(new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("95"), BigDecimal.ONE));
+
+        assertEquals(0, service.getBalances("seller").get("BRL").compareTo(new BigDecimal("200")));
+        assertEquals(0, service.getBalances("bidder").get("BRL").compareTo(new BigDecimal("800")));
+        assertTrue(service.getOpenSellOrders(BTC_BRL).isEmpty());
+    }
+
+    @Test
+    void testStopLossWaitsOutsideTheBookAndSellsAtMarketWhenTriggered() {
+        fund("holder", "BTC", "1");
+        fund("bidder", "BRL", "1000");
+        fund("taker", "BTC", "1");
+        String stop = service.placeOrder(stopLoss("holder", OrderType.SELL, "95", "1"));
+        bid("bidder", "95");
+        bid("bidder", "94");
+
+        assertTrue(service.getOpenSellOrders(BTC_BRL).isEmpty());
+        assertEquals(stop, service.getSellStopOrders(BTC_BRL).get(0).getId());
+        assertEquals(0, service.getSellStopOrders(BTC_BRL).get(0).getStopPrice().compareTo(new BigDecimal("95")));
+        assertEquals(0, service.getBalanceSheet("holder").get("BTC").held());
+
+        sell("taker", "95");
+
+        assertTrue(service.getSellStopOrders(BTC_BRL).isEmpty());
+        assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+        assertEquals(0, service.getBalances("holder").get("BTC").compareTo(BigDecimal.ZERO));
+        assertEquals(0, service.getBalances("holder").get("BRL").compareTo(new BigDecimal("94")));
+    }
+
+    @Test
+    void testStopLimitRestsWithTheSameIdAfterTriggering() {
+        fund("buyer", "BRL", "1000");
+        fund("seller", "BTC", "2");
+        fund("bidder", "BRL", "1000");
+        String stop = service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("106"), BigDecimal.ONE)
+                .withStop(new BigDecimal("105")));
+        assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("1000")));
+
+        sell("seller", "110");
+        bid("bidder", "104");
+        sell("seller", "104");
+        assertEquals(1, service.getBuyStopOrders(BTC_BRL).size());
+
+        bid("bidder", "110");
+
+        assertTrue(service.getBuyStopOrders(BTC_BRL).isEmpty());
+        Order rested = service.getOpenBuyOrders(BTC_BRL).get(0);
+        assertEquals(stop, rested.getId());
+        assertEquals(0, rested.getPrice().compareTo(new BigDecimal("106")));
+        assertEquals(0, service.getBalances("buyer").get("BRL").compareTo(new BigDecimal("894")));
+    }
+
+    @Test
+    void testTriggeredStopsCascadeInArrivalOrderWithinOneStep() {
+        fund("bidder", "BRL", "1000");
+        fund("taker", "BTC", "1");
+        for (String account : List.of("x", "y", "z")) fund(account, "BTC", "1");
+        String x = service.placeOrder(stopLoss("x", OrderType.SELL, "97", "1"));
+        String y = service.placeOrder(stopLoss("y", OrderType.SELL, "97", "1"));
+        service.placeOrder(stopLoss("z", OrderType.SELL, "94", "1"));
+        assertEquals(List.of(x, y), service.getSellStopOrders(BTC_BRL).stream().limit(2).map(Order::getId).toList());
+        bid("bidder", "97");
+        bid("bidder", "96");
+        bid("bidder", "93");
+        bid("bidder", "90");
+
+        // 97 dispara x e y, nessa ordem; y sai a 93 e alcança z, que sai a 90.
+        sell("taker", "97");
+
+        assertEquals(0, service.getBalances("x").get("BRL").compareTo(new BigDecimal("96")));
+        assertEquals(0, service.getBalances("y").get("BRL").compareTo(new BigDecimal("93")));
+        assertEquals(0, service.getBalances("z").get("BRL").compareTo(new BigDecimal("90")));
+        assertTrue(service.getSellStopOrders(BTC_BRL).isEmpty());
+        assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+    }
+
+    @Test
+    void testStopTriggersWhenASweepPassesThroughItsPriceAndEndsAwayFromIt() {
+        fund("bidder", "BRL", "1000");
+        fund("buyer", "BRL", "1000");
+        fund("seller", "BTC", "4");
+        fund("holder", "BTC", "1");
+        bid("bidder", "100");
+        sell("seller", "100");
+        service.placeOrder(stopLoss("holder", OrderType.SELL, "95", "1"));
+        bid("bidder", "90");
+        sell("seller", "94");
+        sell("seller", "96");
+        sell("seller", "98");
+
+        // A varredura imprime 94, 96 e 98: termina longe da stop, mas passou por ela.
+        service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("98"), new BigDecimal("3")));
+
+        assertTrue(service.getSellStopOrders(BTC_BRL).isEmpty());
+        assertEquals(0, service.getBalances("holder").get("BRL").compareTo(new BigDecimal("90")));
+        assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+    }
+
+    @Test
+    void testStopIsRejectedWhenTheTriggerWasAlreadyReached() {
+        fund("bidder", "BRL", "1000");
+        fund("seller", "BTC", "2");
+        service.placeOrder(stopLoss("seller", OrderType.SELL, "200", "1"));
+        service.cancelAll("seller", null, null);
+        bid("bidder", "100");
+        sell("seller", "100");
+
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(stopLoss("seller", OrderType.SELL, "100", "1")));
+        assertThrows(IllegalStateException.class, () -> service.placeOrder(stopLoss("bidder", OrderType.BUY, "99", "1")));
+        assertThrows(IllegalArgumentException.class, () -> service.placeOrder(stopLoss("seller", OrderType.SELL, "0", "1")));
+        assertThrows(IllegalArgumentException.class, () -> service.placeOrder(
+                new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("90"), BigDecimal.ONE)
+                        .withExecution(ExecutionType.POST_ONLY, TimeInForce.GTC).withStop(new BigDecimal("95"))));
+        assertNotNull(service.placeOrder(stopLoss("seller", OrderType.SELL, "99", "1")));
+    }
+
+    @Test
+    void testPendingStopsAreCancelledByIdAndByCancelAll() {
+        fund("holder", "BTC", "2");
+        String first = service.placeOrder(stopLoss("holder", OrderType.SELL, "95", "1"));
+        String second = service.placeOrder(stopLoss("holder", OrderType.SELL, "90", "1"));
+        String resting = service.placeOrder(new Order("holder", BTC_BRL, OrderType.SELL, new BigDecimal("120"), BigDecimal.ONE));
+
+        assertTrue(service.cancelOrder(first));
+        assertFalse(service.cancelOrder(first));
+        assertEquals(List.of(resting, second), service.cancelAll("holder", null, null));
+        assertTrue(service.getSellStopOrders(BTC_BRL).isEmpty());
+        assertEquals(0, service.getBalances("holder").get("BTC").compareTo(new BigDecimal("2")));
+    }
+
+    @Test
+    void testTriggeredStopWithoutBalanceIsDiscarded() {
+        fund("broke", "BRL", "1");
+        fund("bidder", "BRL", "1000");
+        fund("seller", "BTC", "1");
+        service.placeOrder(new Order("broke", BTC_BRL, OrderType.BUY, new BigDecimal("101"), BigDecimal.ONE)
+                .withStop(new BigDecimal("100")));
+        bid("bidder", "100");
+
+        sell("seller", "100");
+
+        assertTrue(service.getBuyStopOrders(BTC_BRL).isEmpty());
+        assertTrue(service.getOpenBuyOrders(BTC_BRL).isEmpty());
+        assertEquals(0, service.getBalances("bidder").get("BTC").compareTo(BigDecimal.ONE));
+        assertEquals(1, service.getMetrics().instrument(BTC_BRL).rejects());
+    }
+
+    @Test
+    void testTriggeredStopIsReportedAsTakerAgainstNewerMakers() throws InterruptedException {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        service.getTradeEvents().subscribe("test", event -> events.add(event.getTakerSide() + " taker="
+                + event.getTakerOrderId() + " maker=" + event.getMakerOrderId()));
+        fund("holder", "BTC", "1");
+        fund("bidder", "BRL", "1000");
+        fund("taker", "BTC", "1");
+        String stop = service.placeOrder(stopLoss("holder", OrderType.SELL, "95", "1"));
+        String first = bid("bidder", "95");
+        String second = bid("bidder", "94");
+
+        String taker = service.placeOrder(new Order("taker", BTC_BRL, OrderType.SELL, new BigDecimal("95"), BigDecimal.ONE));
+
+        assertEquals("SELL taker=" + taker + " maker=" + first, events.poll(5, TimeUnit.SECONDS));
+        assertEquals("SELL taker=" + stop + " maker=" + second, events.poll(5, TimeUnit.SECONDS));
+        service.close();
+    }
+
+    @Test
+    void testDiscardedStopIsRecordedInHistoryAsCancelled() {
+        List<String> history = new ArrayList<>();
+        service.setHistoryListener(new HistoryListener() {
+            @Override
+            public void onOrderAccepted(InstrumentSpec spec, long orderId, String accountId, OrderType type,
+                                        long priceTicks, long quantityLots) {
+                history.add("accepted " + orderId + " " + accountId);
+            }
+
+            @Override
+            public void onOrderCancelled(long orderId) {
+                history.add("cancelled " + orderId);
+            }
+        });
+        fund("broke", "BRL", "1");
+        fund("bidder", "BRL", "1000");
+        fund("seller", "BTC", "1");
+        String stop = service.placeOrder(new Order("broke", BTC_BRL, OrderType.BUY, new BigDecimal("101"), BigDecimal.ONE)
+                .withStop(new BigDecimal("100")));
+        bid("bidder", "100");
+        history.clear();
+
+        sell("seller", "100");
+
+        assertEquals("accepted " + stop + " broke", history.get(history.size() - 2));
+        assertEquals("cancelled " + stop, history.get(history.size() - 1));
+    }
+
+    @Test
+    void testBatchRejectsStops() {
+        fund("holder", "BTC", "1");
+        List<OrderResult> results = service.placeOrders(List.of(
+                new Order("holder", BTC_BRL, OrderType.SELL, new BigDecimal("90"), BigDecimal.ONE).withStop(new BigDecimal("95"))));
+        assertFalse(results.get(0).isAccepted());
+    }
 }
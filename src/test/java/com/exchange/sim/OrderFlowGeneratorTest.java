@@ -0,0 +1,53 @@
+package com.exchange.sim;
+
+import com.exchange.model.AssetScales;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderFlowGeneratorTest {
+
+    private final InstrumentSpec spec = new InstrumentSpec(new Instrument("BTC", "BRL"),
+            InstrumentSpec.DEFAULT_TICK_SIZE, InstrumentSpec.DEFAULT_LOT_SIZE, new AssetScales());
+
+    private List<String> flow(long seed) {
+        OrderFlowGenerator generator = new OrderFlowGenerator(seed, spec, 10_000, OrderFlowGenerator.Profile.DEFAULT);
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            if (generator.nextAction() == OrderFlowGenerator.Action.CANCEL) {
+                events.add("cancel " + generator.nextIndex(100));
+            } else {
+                Order order = generator.nextOrder();
+                events.add(order.getAccountId() + " " + order.getType() + " " + order.getPriceTicks() + " " + order.getQuantityLots());
+            }
+        }
+        return events;
+    }
+
+    @Test
+    void testSameSeedProducesSameFlow() {
+        assertEquals(flow(42), flow(42));
+        assertNotEquals(flow(42), flow(43));
+    }
+
+    @Test
+    void testPassiveOrdersDoNotCrossTheMid() {
+        OrderFlowGenerator generator = new OrderFlowGenerator(7, spec, 100, OrderFlowGenerator.Profile.DEFAULT);
+        for (int i = 0; i < 1_000; i++) {
+            Order bid = generator.passive(OrderType.BUY);
+            Order ask = generator.passive(OrderType.SELL);
+            assertTrue(bid.getPriceTicks() >= 1 && bid.getPriceTicks() < generator.getMidTicks());
+            assertTrue(ask.getPriceTicks() > generator.getMidTicks());
+            assertTrue(bid.getQuantityLots() >= 1);
+        }
+    }
+}
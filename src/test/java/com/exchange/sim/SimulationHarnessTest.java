@@ -0,0 +1,100 @@
+package com.exchange.sim;
+
+import com.exchange.book.OrderStorage;
+import com.exchange.config.EngineProperties;
+import com.exchange.config.JournalProperties;
+import com.exchange.engine.EngineMode;
+import com.exchange.model.Instrument;
+import com.exchange.model.InstrumentSpec;
+import com.exchange.model.Order;
+import com.exchange.model.OrderType;
+import com.exchange.service.OrderBookService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationHarnessTest {
+
+    private static final Instrument BTC_BRL = new Instrument("BTC", "BRL");
+    private static final Instrument ETH_BRL = new Instrument("ETH", "BRL");
+
+    @TempDir
+    Path directory;
+
+    private static SimulationHarness.Report generate(EngineMode mode, long seed) {
+        return generate(mode, seed, OrderStorage.HEAP);
+    }
+
+    private static SimulationHarness.Report generate(EngineMode mode, long seed, OrderStorage storage) {
+        EngineProperties properties = new EngineProperties();
+        properties.setMode(mode);
+        properties.setOrderStorage(storage);
+        try (SimulationHarness harness = new SimulationHarness(properties, 0)) {
+            InstrumentSpec spec = harness.getService().getInstrumentSpec(OrderBookService.DEFAULT_INSTRUMENT);
+            OrderFlowGenerator flow = new OrderFlowGenerator(seed, spec, 100_000, OrderFlowGenerator.Profile.DEFAULT);
+            return harness.run(flow, 5_000, 1L << 50);
+        }
+    }
+
+    @Test
+    void testSameSeedGivesSameStateInEveryMode() {
+        SimulationHarness.Report direct = generate(EngineMode.DIRECT, 11);
+        SimulationHarness.Report again = generate(EngineMode.DIRECT, 11);
+        SimulationHarness.Report sequenced = generate(EngineMode.SEQUENCED, 11);
+
+        assertEquals(5_000 + 300, direct.commands());
+        assertEquals(direct.stateHash(), again.stateHash());
+        assertEquals(direct.rejected(), again.rejected());
+        assertEquals(direct.stateHash(), sequenced.stateHash());
+        assertEquals(direct.latency().count(), direct.commands());
+        assertTrue(direct.throughput() > 0);
+        assertNotEquals(direct.stateHash(), generate(EngineMode.DIRECT, 12).stateHash());
+    }
+
+    @Test
+    void testOffHeapStorageReachesTheSameState() {
+        SimulationHarness.Report heap = generate(EngineMode.DIRECT, 11);
+        SimulationHarness.Report offHeap = generate(EngineMode.SEQUENCED, 11, OrderStorage.OFF_HEAP);
+
+        assertEquals(heap.stateHash(), offHeap.stateHash());
+        assertEquals(heap.rejected(), offHeap.rejected());
+    }
+
+    @Test
+    void testReplayOfRecordedJournalReachesRecordedState() {
+        JournalProperties journal = new JournalProperties();
+        journal.setEnabled(true);
+        journal.setDirectory(directory.toString());
+        String recorded;
+        try (OrderBookService service = new OrderBookService(new EngineProperties(), journal)) {
+            service.registerInstrument(ETH_BRL);
+            service.registerAccount("buyer");
+            service.registerAccount("seller");
+            service.credit("buyer", "BRL", new BigDecimal("1000"));
+            service.credit("seller", "BTC", new BigDecimal("3"));
+            service.credit("seller", "ETH", new BigDecimal("2"));
+            service.placeOrders(List.of(
+                    new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("100"), BigDecimal.ONE),
+                    new Order("seller", BTC_BRL, OrderType.SELL, new BigDecimal("101"), BigDecimal.ONE)));
+            service.placeOrder(new Order("buyer", BTC_BRL, OrderType.BUY, new BigDecimal("101"), new BigDecimal("1.5")));
+            String cancelled = service.placeOrder(new Order("seller", ETH_BRL, OrderType.SELL, new BigDecimal("50"), BigDecimal.ONE));
+            service.placeOrder(new Order("buyer", ETH_BRL, OrderType.BUY, new BigDecimal("10"), BigDecimal.ONE));
+            assertTrue(service.cancelOrder(cancelled));
+            service.debit("seller", "ETH", new BigDecimal("1"));
+            recorded = service.stateHash();
+        }
+
+        try (SimulationHarness harness = new SimulationHarness()) {
+            SimulationHarness.Report report = harness.replay(directory);
+            assertEquals(recorded, report.stateHash());
+            assertEquals(0, report.rejected());
+        }
+    }
+}